@@ -0,0 +1,62 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.benchmark;
+
+/**
+ * Measures the average time of an operation after a warmup.
+ */
+public class Benchmark {
+
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 50;
+
+  /**
+   * Measures and prints the average time of an operation.
+   *
+   * @param operation  the name of the operation
+   * @param runnable  the operation
+   * @return the average time in milliseconds
+   */
+  public static double measure(String operation, Runnable runnable) {
+    double averageTime = getAverageTime(runnable);
+    System.out.println(String.format("%-34s %8.3f ms", operation, averageTime));
+    return averageTime;
+  }
+
+  /**
+   * Measures and prints the number of operations per second.
+   *
+   * @param operation  the name of the operation
+   * @param operationsPerRun  the number of operations which a single run performs
+   * @param runnable  the operations
+   * @return the number of operations per second
+   */
+  public static double measureThroughput(String operation, int operationsPerRun, Runnable runnable) {
+    double throughput = operationsPerRun * 1000.0 / getAverageTime(runnable);
+    System.out.println(String.format("%-34s %8.0f ops/s", operation, throughput));
+    return throughput;
+  }
+
+  private static double getAverageTime(Runnable runnable) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      runnable.run();
+    }
+    long startTime = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      runnable.run();
+    }
+    return (System.nanoTime() - startTime) / (ITERATIONS * 1000000.0);
+  }
+
+}
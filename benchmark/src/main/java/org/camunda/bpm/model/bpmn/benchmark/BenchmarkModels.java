@@ -0,0 +1,86 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.benchmark;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.builder.AbstractFlowNodeBuilder;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Creates the models of the benchmarks.
+ */
+public class BenchmarkModels {
+
+  /**
+   * Creates a process with a sequence of service tasks.
+   *
+   * @param processId  the id of the process
+   * @param taskCount  the number of service tasks
+   * @return the model instance
+   */
+  public static BpmnModelInstance createProcess(String processId, int taskCount) {
+    AbstractFlowNodeBuilder<?, ?> builder = Bpmn.createExecutableProcess(processId).startEvent();
+    for (int i = 0; i < taskCount; i++) {
+      builder = builder.serviceTask(processId + "_task" + i).name("Task " + i).camundaClass("org.camunda.bpm.example.Task" + i);
+    }
+    return builder.endEvent().done();
+  }
+
+  /**
+   * Creates the UTF-8 encoded XML of a document with many processes. Every process is a
+   * sequence of service tasks with a shape per task.
+   *
+   * @param processCount  the number of processes
+   * @param taskCount  the number of service tasks per process
+   * @return the document
+   */
+  public static byte[] createDocument(int processCount, int taskCount) throws UnsupportedEncodingException {
+    StringBuilder processes = new StringBuilder();
+    StringBuilder shapes = new StringBuilder();
+    for (int p = 0; p < processCount; p++) {
+      String prefix = "p" + p + "_";
+      processes.append("  <process id=\"process").append(p).append("\" isExecutable=\"true\">\n")
+        .append("    <startEvent id=\"").append(prefix).append("start\"/>\n");
+      String previous = prefix + "start";
+      for (int t = 0; t < taskCount; t++) {
+        String task = prefix + "task" + t;
+        processes.append("    <sequenceFlow id=\"").append(prefix).append("flow").append(t)
+          .append("\" sourceRef=\"").append(previous).append("\" targetRef=\"").append(task).append("\"/>\n")
+          .append("    <serviceTask id=\"").append(task).append("\" name=\"Task ").append(t)
+          .append("\" camunda:class=\"org.camunda.bpm.example.Task").append(t).append("\"/>\n");
+        shapes.append("      <bpmndi:BPMNShape id=\"").append(task).append("_shape\" bpmnElement=\"").append(task).append("\">\n")
+          .append("        <dc:Bounds height=\"80.0\" width=\"100.0\" x=\"").append(t * 150).append(".0\" y=\"").append(p * 100).append(".0\"/>\n")
+          .append("      </bpmndi:BPMNShape>\n");
+        previous = task;
+      }
+      processes.append("  </process>\n");
+    }
+
+    String document = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" xmlns:bpmndi=\"http://www.omg.org/spec/BPMN/20100524/DI\" "
+      + "xmlns:dc=\"http://www.omg.org/spec/DD/20100524/DC\" xmlns:camunda=\"http://activiti.org/bpmn\" "
+      + "id=\"definitions\" targetNamespace=\"http://camunda.org/examples\">\n"
+      + processes
+      + "  <bpmndi:BPMNDiagram id=\"diagram\">\n"
+      + "    <bpmndi:BPMNPlane id=\"plane\" bpmnElement=\"process0\">\n"
+      + shapes
+      + "    </bpmndi:BPMNPlane>\n"
+      + "  </bpmndi:BPMNDiagram>\n"
+      + "</definitions>\n";
+    return document.getBytes("UTF-8");
+  }
+
+}
@@ -0,0 +1,146 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.bpmn.benchmark;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.xml.ModelInstance;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Measures the cold start of the {@link Bpmn} class, i.e. the registration of all
+ * model types on first use, in fresh JVMs. The second measurement loads all classes of
+ * the model modules before, without initializing them, and thereby separates the class
+ * loading from the type registration. The argument is the number of JVMs per measurement.
+ */
+public class BpmnInitializationBenchmark {
+
+  private static final String CHILD = "child";
+  private static final String PRELOAD = "preload";
+  private static final String MODEL_PACKAGE = "org/camunda/bpm/model/";
+  private static final String TEST_PACKAGE = "org/camunda/bpm/model/xml/test/";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && CHILD.equals(args[0])) {
+      measureInitialization(args.length > 1 && PRELOAD.equals(args[1]));
+      return;
+    }
+
+    int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    System.out.println("JVMs per measurement: " + runs);
+    run("cold initialization", runs, false);
+    run("initialization after class loading", runs, true);
+  }
+
+  private static void run(String measurement, int runs, boolean preload) throws Exception {
+    double[] totals = new double[3];
+    for (int i = 0; i < runs; i++) {
+      List<String> command = new ArrayList<String>();
+      command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(BpmnInitializationBenchmark.class.getName());
+      command.add(CHILD);
+      if (preload) {
+        command.add(PRELOAD);
+      }
+      Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+      BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+      String[] result = reader.readLine().split(" ");
+      reader.close();
+      process.waitFor();
+      for (int j = 0; j < totals.length; j++) {
+        totals[j] += Double.parseDouble(result[j]);
+      }
+    }
+    System.out.println(String.format("%-34s %8.1f ms, %4.0f classes loaded before, %4.0f classes loaded by the initialization",
+      measurement, totals[0] / runs, totals[1] / runs, totals[2] / runs));
+  }
+
+  /**
+   * Initializes the Bpmn class and prints the initialization time in milliseconds, the
+   * number of classes loaded before and the number of classes loaded by the initialization.
+   */
+  private static void measureInitialization(boolean preload) throws Exception {
+    int preloadedClasses = 0;
+    if (preload) {
+      // class literals do not initialize the classes
+      preloadedClasses += loadClasses(Bpmn.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+      preloadedClasses += loadClasses(ModelInstance.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+    }
+    int loadedClasses = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+    long startTime = System.nanoTime();
+    Bpmn.INSTANCE.getBpmnModel();
+    long time = System.nanoTime() - startTime;
+    loadedClasses = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount() - loadedClasses;
+    System.out.println(time / 1000000.0 + " " + preloadedClasses + " " + loadedClasses);
+  }
+
+  /**
+   * Loads all model classes of a jar file or class directory without initializing them.
+   *
+   * @return the number of loaded classes
+   */
+  private static int loadClasses(String location) throws Exception {
+    List<String> classFiles = new ArrayList<String>();
+    File file = new File(location);
+    if (file.isDirectory()) {
+      collectClassFiles(file, "", classFiles);
+    }
+    else {
+      JarFile jarFile = new JarFile(file);
+      try {
+        for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+          classFiles.add(entries.nextElement().getName());
+        }
+      }
+      finally {
+        jarFile.close();
+      }
+    }
+
+    int count = 0;
+    ClassLoader classLoader = BpmnInitializationBenchmark.class.getClassLoader();
+    for (String classFile : classFiles) {
+      // the test support classes depend on test libraries
+      if (classFile.endsWith(".class") && classFile.startsWith(MODEL_PACKAGE) && !classFile.startsWith(TEST_PACKAGE)) {
+        Class.forName(classFile.substring(0, classFile.length() - ".class".length()).replace('/', '.'), false, classLoader);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void collectClassFiles(File directory, String path, List<String> classFiles) {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.isDirectory()) {
+          collectClassFiles(file, path + file.getName() + "/", classFiles);
+        }
+        else {
+          classFiles.add(path + file.getName());
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.bpmn.benchmark;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.xml.ConcurrentModelInstance;
+import org.camunda.bpm.model.xml.ModelOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the reader and writer throughput of a {@link ConcurrentModelInstance} under
+ * contention. Readers use the shared read lock, which is compared to readers which
+ * serialize on the exclusive write lock. Every scenario runs once with readers only and
+ * once with an additional writer which changes the model continuously. The arguments
+ * are the number of reader threads, the number of tasks of the process and the duration
+ * of a scenario in milliseconds.
+ */
+public class ConcurrentModelInstanceBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int readerCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    final int taskCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    long duration = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+    System.out.println("readers: " + readerCount + ", tasks: " + taskCount + ", duration: " + duration
+      + " ms, processors: " + Runtime.getRuntime().availableProcessors());
+
+    final ConcurrentModelInstance<BpmnModelInstance> concurrentModelInstance =
+      new ConcurrentModelInstance<BpmnModelInstance>(BenchmarkModels.createProcess("process", taskCount));
+
+    ExecutorService executorService = Executors.newFixedThreadPool(readerCount + 1);
+    try {
+      for (boolean exclusiveReaders : new boolean[] { false, true }) {
+        for (boolean withWriter : new boolean[] { false, true }) {
+          String scenario = (exclusiveReaders ? "exclusive" : "shared") + " reads" + (withWriter ? " + writer" : "");
+          // the first run warms up the scenario
+          run(executorService, concurrentModelInstance, taskCount, readerCount, exclusiveReaders, withWriter, duration / 2);
+          long[] operations = run(executorService, concurrentModelInstance, taskCount, readerCount, exclusiveReaders, withWriter, duration);
+          System.out.println(String.format("%-34s %10.0f reads/s %8.0f writes/s",
+            scenario, operations[0] * 1000.0 / duration, operations[1] * 1000.0 / duration));
+        }
+      }
+    }
+    finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs the readers and the writer for the duration.
+   *
+   * @return the number of reads and writes
+   */
+  private static long[] run(ExecutorService executorService, final ConcurrentModelInstance<BpmnModelInstance> concurrentModelInstance,
+                            final int taskCount, int readerCount, final boolean exclusiveReaders, boolean withWriter, long duration) throws Exception {
+
+    final long endTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(duration);
+
+    List<Future<Long>> readers = new ArrayList<Future<Long>>();
+    for (int i = 0; i < readerCount; i++) {
+      readers.add(executorService.submit(new Callable<Long>() {
+        public Long call() {
+          long reads = 0;
+          while (System.nanoTime() < endTime) {
+            final String taskId = "process_task" + (reads % taskCount);
+            ModelOperation<BpmnModelInstance, Integer> read = new ModelOperation<BpmnModelInstance, Integer>() {
+              public Integer execute(BpmnModelInstance modelInstance) {
+                ServiceTask task = (ServiceTask) modelInstance.getModelElementById(taskId);
+                return task.getName().length() + task.getIncoming().size() + task.getOutgoing().size();
+              }
+            };
+            if (exclusiveReaders) {
+              concurrentModelInstance.write(read);
+            }
+            else {
+              concurrentModelInstance.read(read);
+            }
+            reads++;
+          }
+          return reads;
+        }
+      }));
+    }
+
+    Future<Long> writer = null;
+    if (withWriter) {
+      writer = executorService.submit(new Callable<Long>() {
+        public Long call() {
+          long writes = 0;
+          while (System.nanoTime() < endTime) {
+            final String taskId = "process_task" + (writes % taskCount);
+            final String name = "Task " + writes;
+            concurrentModelInstance.write(new ModelOperation<BpmnModelInstance, Void>() {
+              public Void execute(BpmnModelInstance modelInstance) {
+                ((ServiceTask) modelInstance.getModelElementById(taskId)).setName(name);
+                return null;
+              }
+            });
+            writes++;
+          }
+          return writes;
+        }
+      });
+    }
+
+    long reads = 0;
+    for (Future<Long> reader : readers) {
+      reads += reader.get();
+    }
+    long writes = writer != null ? writer.get() : 0;
+    return new long[] { reads, writes };
+  }
+
+}
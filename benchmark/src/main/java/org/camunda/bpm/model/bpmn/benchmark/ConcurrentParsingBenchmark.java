@@ -0,0 +1,66 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.benchmark;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.xml.ModelParseOptions;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the time to parse a document with many processes sequentially with the time
+ * to parse it concurrently with 1, 2, 4, ... partitions up to twice the number of
+ * available processors. The arguments are the number of processes and the number of
+ * tasks per process.
+ */
+public class ConcurrentParsingBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int processCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int taskCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    final byte[] document = BenchmarkModels.createDocument(processCount, taskCount);
+    int processors = Runtime.getRuntime().availableProcessors();
+    System.out.println("processes: " + processCount + ", tasks per process: " + taskCount
+      + ", document: " + document.length + " bytes, processors: " + processors);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(2 * processors);
+    try {
+      for (final ValidationMode validationMode : ValidationMode.values()) {
+        double sequentialTime = Benchmark.measure("sequential (" + validationMode + ")", new Runnable() {
+          public void run() {
+            Bpmn.readModelFromStream(new ByteArrayInputStream(document), validationMode);
+          }
+        });
+        for (int partitionCount = 1; partitionCount <= 2 * processors; partitionCount *= 2) {
+          final ModelParseOptions options = new ModelParseOptions()
+            .validationMode(validationMode)
+            .parseConcurrently(executorService, partitionCount);
+          double time = Benchmark.measure(partitionCount + " partitions (" + validationMode + ")", new Runnable() {
+            public void run() {
+              Bpmn.readModelFromStream(new ByteArrayInputStream(document), options);
+            }
+          });
+          System.out.println(String.format("  speedup: %.2f", sequentialTime / time));
+        }
+      }
+    }
+    finally {
+      executorService.shutdownNow();
+    }
+  }
+
+}
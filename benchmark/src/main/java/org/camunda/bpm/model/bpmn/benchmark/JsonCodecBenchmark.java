@@ -0,0 +1,60 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.benchmark;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Compares the time to write and read a model as JSON with the time to write and read it
+ * as XML. The argument is the number of tasks of the model.
+ */
+public class JsonCodecBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    final BpmnModelInstance modelInstance = BenchmarkModels.createProcess("process", taskCount);
+    final byte[] xml = Bpmn.convertToString(modelInstance).getBytes("UTF-8");
+    final byte[] json = Bpmn.convertToJson(modelInstance).getBytes("UTF-8");
+    System.out.println("tasks: " + taskCount + ", XML: " + xml.length + " bytes, JSON: " + json.length + " bytes");
+
+    for (final ValidationMode validationMode : ValidationMode.values()) {
+      Benchmark.measure("write XML (" + validationMode + ")", new Runnable() {
+        public void run() {
+          Bpmn.writeModelToStream(new ByteArrayOutputStream(), modelInstance, validationMode);
+        }
+      });
+      Benchmark.measure("write JSON (" + validationMode + ")", new Runnable() {
+        public void run() {
+          Bpmn.writeModelToJson(new ByteArrayOutputStream(), modelInstance, validationMode);
+        }
+      });
+      Benchmark.measure("read XML (" + validationMode + ")", new Runnable() {
+        public void run() {
+          Bpmn.readModelFromStream(new ByteArrayInputStream(xml), validationMode);
+        }
+      });
+      Benchmark.measure("read JSON (" + validationMode + ")", new Runnable() {
+        public void run() {
+          Bpmn.readModelFromJson(new ByteArrayInputStream(json), validationMode);
+        }
+      });
+    }
+  }
+
+}
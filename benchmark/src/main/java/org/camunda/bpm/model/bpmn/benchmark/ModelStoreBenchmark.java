@@ -0,0 +1,129 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.benchmark;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.xml.ModelStore;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the heap usage and the garbage collection time of a repository which keeps
+ * all model instances with a {@link ModelStore}, and measures the access to the stored
+ * models. The arguments are the number of models, the number of tasks per model and the
+ * number of inflated instances of the store.
+ */
+public class ModelStoreBenchmark {
+
+  private static final int ALLOCATIONS = 2000;
+
+  public static void main(String[] args) throws Exception {
+    final int modelCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    final int taskCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int inflatedInstanceCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+    String xml = Bpmn.convertToString(BenchmarkModels.createProcess("process", taskCount));
+    System.out.println("models: " + modelCount + ", tasks: " + taskCount + ", XML: " + xml.length() + " chars per model");
+
+    long baseline = getUsedHeap();
+    List<BpmnModelInstance> modelInstances = new ArrayList<BpmnModelInstance>();
+    for (int i = 0; i < modelCount; i++) {
+      modelInstances.add(parse(xml, i));
+    }
+    long heap = getUsedHeap() - baseline;
+    long[] gc = measureGarbageCollection(xml);
+    print("model instances", heap, 0, gc);
+    modelInstances = null;
+
+    baseline = getUsedHeap();
+    final ModelStore<BpmnModelInstance> store = Bpmn.createModelStore(inflatedInstanceCapacity);
+    for (int i = 0; i < modelCount; i++) {
+      store.put("process" + i, parse(xml, i));
+    }
+    for (int i = 0; i < inflatedInstanceCapacity && i < modelCount; i++) {
+      store.getModelInstance("process" + i);
+    }
+    heap = getUsedHeap() - baseline;
+    gc = measureGarbageCollection(xml);
+    print("model store", heap, store.getEncodedSize(), gc);
+
+    Benchmark.measure("element view", new Runnable() {
+      int i;
+      public void run() {
+        store.getElementById("process" + (i % modelCount), "process_task" + (i % taskCount)).getAttributeValue("name");
+        i++;
+      }
+    });
+    Benchmark.measure("model instance of a kept model", new Runnable() {
+      public void run() {
+        store.getModelInstance("process0");
+      }
+    });
+    Benchmark.measure("model instance of an evicted model", new Runnable() {
+      public void run() {
+        store.evictInflatedInstances();
+        store.getModelInstance("process0");
+      }
+    });
+  }
+
+  private static BpmnModelInstance parse(String xml, int index) throws Exception {
+    String processXml = xml.replace("id=\"process\"", "id=\"process" + index + "\"");
+    return Bpmn.readModelFromStream(new ByteArrayInputStream(processXml.getBytes("UTF-8")));
+  }
+
+  /**
+   * Parses and discards models, so the garbage collector has to traverse the retained models.
+   *
+   * @return the number of collections and the collection time in milliseconds
+   */
+  private static long[] measureGarbageCollection(String xml) throws Exception {
+    long[] before = getGarbageCollection();
+    for (int i = 0; i < ALLOCATIONS; i++) {
+      parse(xml, i);
+    }
+    long[] after = getGarbageCollection();
+    return new long[] { after[0] - before[0], after[1] - before[1] };
+  }
+
+  private static long[] getGarbageCollection() {
+    long count = 0;
+    long time = 0;
+    for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(garbageCollector.getCollectionCount(), 0);
+      time += Math.max(garbageCollector.getCollectionTime(), 0);
+    }
+    return new long[] { count, time };
+  }
+
+  private static long getUsedHeap() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void print(String repository, long heap, long offHeap, long[] gc) {
+    System.out.println(String.format("%-16s heap: %8.1f MB, off-heap: %8.1f MB, GC: %4d collections, %6d ms, %6.2f ms per collection",
+      repository, heap / 1048576.0, offHeap / 1048576.0, gc[0], gc[1], gc[0] > 0 ? (double) gc[1] / gc[0] : 0.0));
+  }
+
+}
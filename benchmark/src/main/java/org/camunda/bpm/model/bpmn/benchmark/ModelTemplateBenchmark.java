@@ -0,0 +1,118 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.bpmn.benchmark;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.builder.AbstractFlowNodeBuilder;
+import org.camunda.bpm.model.bpmn.impl.BpmnModelInstanceImpl;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.UserTask;
+import org.camunda.bpm.model.xml.ModelTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how many process variants per second a {@link ModelTemplate} instantiates,
+ * as model instances and as XML, compared to cloning the model instance and setting the
+ * ids and parameters one by one. The argument is the number of user tasks of the process.
+ */
+public class ModelTemplateBenchmark {
+
+  private static final int INSTANCES_PER_RUN = 100;
+
+  public static void main(String[] args) {
+    int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+    final BpmnModelInstance modelInstance = createTemplateModel(taskCount);
+    final ModelTemplate<BpmnModelInstance> template = new ModelTemplate<BpmnModelInstance>(modelInstance, "{{key}}_{{id}}");
+    System.out.println("tasks: " + taskCount + ", instances per run: " + INSTANCES_PER_RUN);
+
+    Benchmark.measureThroughput("template instances", INSTANCES_PER_RUN, new Runnable() {
+      int key;
+      public void run() {
+        for (int i = 0; i < INSTANCES_PER_RUN; i++) {
+          template.instantiate(createParameters(key++));
+        }
+      }
+    });
+    Benchmark.measureThroughput("template XML documents", INSTANCES_PER_RUN, new Runnable() {
+      int key;
+      public void run() {
+        for (int i = 0; i < INSTANCES_PER_RUN; i++) {
+          template.instantiateXml(createParameters(key++));
+        }
+      }
+    });
+    Benchmark.measureThroughput("cloned instances with setters", INSTANCES_PER_RUN, new Runnable() {
+      int key;
+      public void run() {
+        for (int i = 0; i < INSTANCES_PER_RUN; i++) {
+          instantiateByClone(modelInstance, createParameters(key++));
+        }
+      }
+    });
+  }
+
+  /**
+   * Creates a process with a sequence of user tasks whose names and assignees are parameters.
+   */
+  private static BpmnModelInstance createTemplateModel(int taskCount) {
+    AbstractFlowNodeBuilder<?, ?> builder = Bpmn.createExecutableProcess("process")
+      .name("Order {{order}}")
+      .startEvent("start");
+    for (int i = 0; i < taskCount; i++) {
+      builder = builder.userTask("task" + i)
+        .name("Task " + i + " of {{order}}")
+        .camundaAssignee("{{assignee}}");
+    }
+    return builder.endEvent("end").done();
+  }
+
+  private static Map<String, String> createParameters(int key) {
+    Map<String, String> parameters = new HashMap<String, String>();
+    parameters.put("key", "k" + key);
+    parameters.put("order", "order" + key);
+    parameters.put("assignee", "user" + key);
+    return parameters;
+  }
+
+  /**
+   * Instantiates the template model without a template: every id is renamed, which
+   * updates the references, and every parameter is replaced by a setter.
+   */
+  private static BpmnModelInstance instantiateByClone(BpmnModelInstance modelInstance, Map<String, String> parameters) {
+    BpmnModelInstance instance = ((BpmnModelInstanceImpl) modelInstance).clone();
+    String key = parameters.get("key");
+    String order = parameters.get("order");
+
+    List<BaseElement> elements = new ArrayList<BaseElement>(instance.getModelElementsByType(BaseElement.class));
+    for (BaseElement element : elements) {
+      if (element.getId() != null) {
+        element.setId(key + "_" + element.getId());
+      }
+      String name = element.getAttributeValue("name");
+      if (name != null) {
+        element.setAttributeValue("name", name.replace("{{order}}", order));
+      }
+      if (element instanceof UserTask) {
+        ((UserTask) element).setCamundaAssignee(parameters.get("assignee"));
+      }
+    }
+    return instance;
+  }
+
+}
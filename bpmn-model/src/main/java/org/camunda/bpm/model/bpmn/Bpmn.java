@@ -14,6 +14,7 @@ package org.camunda.bpm.model.bpmn;
 
 import org.camunda.bpm.model.bpmn.builder.ProcessBuilder;
 import org.camunda.bpm.model.bpmn.impl.BpmnParser;
+import org.camunda.bpm.model.bpmn.impl.BpmnProcessSplitter;
 import org.camunda.bpm.model.bpmn.impl.instance.*;
 import org.camunda.bpm.model.bpmn.impl.instance.ExtensionImpl;
 import org.camunda.bpm.model.bpmn.impl.instance.ProcessImpl;
@@ -27,14 +28,31 @@ import org.camunda.bpm.model.bpmn.instance.Definitions;
 import org.camunda.bpm.model.bpmn.instance.Process;
 import org.camunda.bpm.model.bpmn.instance.camunda.CamundaOutImpl;
 import org.camunda.bpm.model.xml.*;
+import org.camunda.bpm.model.xml.diff.ModelDiff;
+import org.camunda.bpm.model.xml.event.ModelElementListener;
+import org.camunda.bpm.model.xml.impl.ModelFragmentReader;
+import org.camunda.bpm.model.xml.impl.ModelFragmentWriter;
+import org.camunda.bpm.model.xml.impl.diff.ModelDiffer;
 import org.camunda.bpm.model.xml.impl.instance.ModelElementInstanceImpl;
+import org.camunda.bpm.model.xml.impl.json.ModelJsonReader;
+import org.camunda.bpm.model.xml.impl.json.ModelJsonWriter;
 import org.camunda.bpm.model.xml.impl.util.IoUtil;
 import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.impl.validation.ModelStreamValidator;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.camunda.bpm.model.xml.validation.ValidationResult;
 
 import java.io.*;
+import java.util.List;
 
 import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMN20_NS;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_NS;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMN_ELEMENT_DOCUMENTATION;
 import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.CAMUNDA_NS;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.DC_NS;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.DI_NS;
 
 /**
  * <p>Provides access to the camunda BPMN model api.</p>
@@ -56,6 +74,12 @@ public class Bpmn {
    */
   private Model bpmnModel;
 
+  /** the validator used for streamed documents, created on first use */
+  private ModelStreamValidator streamValidator;
+
+  /** the metadata of the element types of the model, created on first use */
+  private ModelTypeMetadata modelTypeMetadata;
+
   /**
    * Allows reading a {@link BpmnModelInstance} from a File.
    *
@@ -78,6 +102,72 @@ public class Bpmn {
     return INSTANCE.doReadModelFromInputStream(stream);
   }
 
+  /**
+   * Allows reading a {@link BpmnModelInstance} from an {@link InputStream} which is
+   * validated in the given mode. {@link ValidationMode#STRUCTURE} avoids the expensive
+   * schema validation for documents of trusted producers.
+   *
+   * @param stream the {@link InputStream} to read the {@link BpmnModelInstance} from
+   * @param validationMode the way the document is validated
+   * @return the model read
+   * @throws ModelParseException if the model cannot be read
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static BpmnModelInstance readModelFromStream(InputStream stream, ValidationMode validationMode) {
+    return INSTANCE.doReadModelFromInputStream(stream, validationMode);
+  }
+
+  /**
+   * Allows reading a {@link BpmnModelInstance} from an {@link InputStream} with the given
+   * parse options. For example the diagram interchange is only parsed on first access if
+   * the namespace {@link org.camunda.bpm.model.bpmn.impl.BpmnModelConstants#BPMNDI_NS} is
+   * deferred, which saves the time and memory to parse it if it is never used. Processes
+   * which are not required or documentation elements can be excluded to reduce the memory
+   * of a cached model instance.
+   *
+   * @param stream the {@link InputStream} to read the {@link BpmnModelInstance} from
+   * @param options the options of the parsing
+   * @return the model read
+   * @throws ModelParseException if the model cannot be read
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static BpmnModelInstance readModelFromStream(InputStream stream, ModelParseOptions options) {
+    return INSTANCE.doReadModelFromInputStream(stream, options);
+  }
+
+  /**
+   * Reads a {@link BpmnModelInstance} from an {@link InputStream} and passes every child
+   * element of the definitions, like a process, a collaboration or a diagram, to the listener
+   * as soon as it was read, while the remaining document is still being read. The listener is
+   * notified about the complete model instance when all references can be resolved.
+   *
+   * @param stream the {@link InputStream} to read the {@link BpmnModelInstance} from
+   * @param listener the listener which is notified about the parsed elements
+   * @return the model read
+   * @throws ModelParseException if the model cannot be read
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static BpmnModelInstance parseIncrementally(InputStream stream, ModelElementListener listener) {
+    return INSTANCE.doParseIncrementally(stream, ValidationMode.SCHEMA, listener);
+  }
+
+  /**
+   * Reads a {@link BpmnModelInstance} from an {@link InputStream} which is validated in the
+   * given mode and passes every child element of the definitions to the listener as soon as
+   * it was read.
+   *
+   * @param stream the {@link InputStream} to read the {@link BpmnModelInstance} from
+   * @param validationMode the way the document is validated
+   * @param listener the listener which is notified about the parsed elements
+   * @return the model read
+   * @throws ModelParseException if the model cannot be read
+   * @throws ModelValidationException if the model is not valid
+   * @see #parseIncrementally(InputStream, ModelElementListener)
+   */
+  public static BpmnModelInstance parseIncrementally(InputStream stream, ValidationMode validationMode, ModelElementListener listener) {
+    return INSTANCE.doParseIncrementally(stream, validationMode, listener);
+  }
+
   /**
    * Allows writing a {@link BpmnModelInstance} to a File. It will be
    * validated before writing.
@@ -104,6 +194,20 @@ public class Bpmn {
     INSTANCE.doWriteModelToOutputStream(stream, modelInstance);
   }
 
+  /**
+   * Allows writing a {@link BpmnModelInstance} to an {@link OutputStream}. It will be
+   * validated in the given mode before writing.
+   *
+   * @param stream the {@link OutputStream} to write the {@link BpmnModelInstance} to
+   * @param modelInstance the {@link BpmnModelInstance} to write
+   * @param validationMode the way the model is validated
+   * @throws ModelException if the model cannot be written
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static void writeModelToStream(OutputStream stream, BpmnModelInstance modelInstance, ValidationMode validationMode) {
+    INSTANCE.doWriteModelToOutputStream(stream, modelInstance, validationMode);
+  }
+
   /**
    * Allows the conversion of a {@link BpmnModelInstance} to an {@link String}. It will
    * be validated before conversion.
@@ -115,6 +219,178 @@ public class Bpmn {
     return INSTANCE.doConvertToString(modelInstance);
   }
 
+  /**
+   * Allows writing a {@link BpmnModelInstance} to an {@link OutputStream} as JSON, which
+   * can be read back with {@link #readModelFromJson(InputStream)} without parsing XML. The
+   * JSON document contains the same elements, attributes and text as the XML document.
+   * It will be validated before writing.
+   *
+   * @param stream the {@link OutputStream} to write the {@link BpmnModelInstance} to
+   * @param modelInstance the {@link BpmnModelInstance} to write
+   * @throws ModelException if the model cannot be written
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static void writeModelToJson(OutputStream stream, BpmnModelInstance modelInstance) {
+    INSTANCE.doWriteModelToJson(stream, modelInstance, ValidationMode.SCHEMA);
+  }
+
+  /**
+   * Allows writing a {@link BpmnModelInstance} to an {@link OutputStream} as JSON. It will
+   * be validated in the given mode before writing.
+   *
+   * @param stream the {@link OutputStream} to write the {@link BpmnModelInstance} to
+   * @param modelInstance the {@link BpmnModelInstance} to write
+   * @param validationMode the way the model is validated
+   * @throws ModelException if the model cannot be written
+   * @throws ModelValidationException if the model is not valid
+   * @see #writeModelToJson(OutputStream, BpmnModelInstance)
+   */
+  public static void writeModelToJson(OutputStream stream, BpmnModelInstance modelInstance, ValidationMode validationMode) {
+    INSTANCE.doWriteModelToJson(stream, modelInstance, validationMode);
+  }
+
+  /**
+   * Allows the conversion of a {@link BpmnModelInstance} to its JSON {@link String}
+   * representation. It will be validated before conversion.
+   *
+   * @param modelInstance  the model instance to convert
+   * @return the JSON string representation of the model instance
+   * @see #writeModelToJson(OutputStream, BpmnModelInstance)
+   */
+  public static String convertToJson(BpmnModelInstance modelInstance) {
+    return INSTANCE.doConvertToJson(modelInstance);
+  }
+
+  /**
+   * Allows reading a {@link BpmnModelInstance} from an {@link InputStream} of a JSON
+   * document written by {@link #writeModelToJson(OutputStream, BpmnModelInstance)}.
+   * It will be validated against the BPMN schema.
+   *
+   * @param stream the {@link InputStream} to read the {@link BpmnModelInstance} from
+   * @return the model read
+   * @throws ModelParseException if the model cannot be read
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static BpmnModelInstance readModelFromJson(InputStream stream) {
+    return INSTANCE.doReadModelFromJson(stream, ValidationMode.SCHEMA);
+  }
+
+  /**
+   * Allows reading a {@link BpmnModelInstance} from an {@link InputStream} of a JSON
+   * document which is validated in the given mode. Together with
+   * {@link ValidationMode#STRUCTURE} neither XML parsing nor schema validation is needed.
+   *
+   * @param stream the {@link InputStream} to read the {@link BpmnModelInstance} from
+   * @param validationMode the way the document is validated
+   * @return the model read
+   * @throws ModelParseException if the model cannot be read
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static BpmnModelInstance readModelFromJson(InputStream stream, ValidationMode validationMode) {
+    return INSTANCE.doReadModelFromJson(stream, validationMode);
+  }
+
+  /**
+   * Writes the subtree of a single element to an {@link OutputStream}, e.g. one changed
+   * process, without writing the whole document. The written document declares exactly
+   * the namespaces which are used by the subtree. It is not validated.
+   *
+   * @param element the element to write
+   * @param stream the {@link OutputStream} to write the element to
+   * @throws ModelException if the element cannot be written
+   * @see #mergeElement(BpmnModelInstance, InputStream, ModelElementInstance)
+   */
+  public static void writeElement(ModelElementInstance element, OutputStream stream) {
+    INSTANCE.doWriteElement(element, stream, false);
+  }
+
+  /**
+   * Writes the subtree of a single element to an {@link OutputStream}, optionally wrapped
+   * in a {@link Definitions} element with the attributes of the definitions of the model
+   * but without any other content. A wrapped root element, like a process, is written as
+   * a valid BPMN document.
+   *
+   * @param element the element to write
+   * @param stream the {@link OutputStream} to write the element to
+   * @param wrapInDefinitions whether the element is wrapped in a definitions element
+   * @throws ModelException if the element cannot be written
+   * @see #writeElement(ModelElementInstance, OutputStream)
+   */
+  public static void writeElement(ModelElementInstance element, OutputStream stream, boolean wrapInDefinitions) {
+    INSTANCE.doWriteElement(element, stream, wrapInDefinitions);
+  }
+
+  /**
+   * Reads an element written by {@link #writeElement(ModelElementInstance, OutputStream)}
+   * and replaces the element with the same id in the model instance by it. A wrapped
+   * root element which does not exist yet is added to the definitions.
+   *
+   * @param modelInstance the model instance to merge the element into
+   * @param stream the {@link InputStream} to read the element from
+   * @return the merged element
+   * @throws ModelParseException if the element cannot be read
+   * @throws ModelException if the element does not exist or an id of its subtree is already used by another element
+   */
+  public static ModelElementInstance mergeElement(BpmnModelInstance modelInstance, InputStream stream) {
+    return INSTANCE.doMergeElement(modelInstance, stream, null);
+  }
+
+  /**
+   * Reads an element written by {@link #writeElement(ModelElementInstance, OutputStream)}
+   * and replaces the element with the same id in the model instance by it, or adds it to
+   * the parent element if no such element exists. References of other elements to the
+   * replaced subtree refer to the elements with the same ids of the merged subtree.
+   *
+   * @param modelInstance the model instance to merge the element into
+   * @param stream the {@link InputStream} to read the element from
+   * @param parentElement the parent element of a new element
+   * @return the merged element
+   * @throws ModelParseException if the element cannot be read
+   * @throws ModelException if an id of the merged subtree is already used by another element
+   */
+  public static ModelElementInstance mergeElement(BpmnModelInstance modelInstance, InputStream stream, ModelElementInstance parentElement) {
+    return INSTANCE.doMergeElement(modelInstance, stream, parentElement);
+  }
+
+  /**
+   * Creates a store which keeps many {@link BpmnModelInstance}s in a compact encoding
+   * outside of the heap. Elements of the stored models can be read without creating
+   * their model instances, which are created on demand and kept for the most recently
+   * used models.
+   *
+   * @param inflatedInstanceCapacity the maximum number of model instances kept by the store
+   * @return the new store
+   */
+  public static ModelStore<BpmnModelInstance> createModelStore(int inflatedInstanceCapacity) {
+    return INSTANCE.doCreateModelStore(inflatedInstanceCapacity);
+  }
+
+  /**
+   * Allows writing a {@link BpmnModelInstance} to an {@link OutputStream} in a canonical
+   * form. Semantically identical models are written to identical bytes independent of
+   * namespace prefixes, attribute order and formatting. It will be validated before writing.
+   *
+   * @param stream the {@link OutputStream} to write the {@link BpmnModelInstance} to
+   * @param modelInstance the {@link BpmnModelInstance} to write
+   * @throws ModelException if the model cannot be written
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static void writeCanonicalModelToStream(OutputStream stream, BpmnModelInstance modelInstance) {
+    INSTANCE.doWriteCanonicalModelToOutputStream(stream, modelInstance);
+  }
+
+  /**
+   * Allows the conversion of a {@link BpmnModelInstance} to its canonical {@link String}
+   * representation. It will be validated before conversion.
+   *
+   * @param modelInstance  the model instance to convert
+   * @return the canonical XML string representation of the model instance
+   * @see #writeCanonicalModelToStream(OutputStream, BpmnModelInstance)
+   */
+  public static String convertToCanonicalString(BpmnModelInstance modelInstance) {
+    return INSTANCE.doConvertToCanonicalString(modelInstance);
+  }
+
   /**
    * Validate model DOM document
    *
@@ -125,6 +401,75 @@ public class Bpmn {
     INSTANCE.doValidateModel(modelInstance);
   }
 
+  /**
+   * Validate model DOM document in the given mode
+   *
+   * @param modelInstance the {@link BpmnModelInstance} to validate
+   * @param validationMode the way the model is validated
+   * @throws ModelValidationException if the model is not valid
+   */
+  public static void validateModel(BpmnModelInstance modelInstance, ValidationMode validationMode) {
+    INSTANCE.doValidateModel(modelInstance, validationMode);
+  }
+
+  /**
+   * Validates a BPMN document without building a model instance. The document is
+   * validated against the BPMN schema and checked for duplicate ids and unresolved
+   * references. All errors are reported with their position in the document.
+   *
+   * @param stream the {@link InputStream} of the document to validate, which is not closed
+   * @return the validation result
+   * @throws ModelValidationException if the stream cannot be read
+   */
+  public static ValidationResult validateStream(InputStream stream) {
+    return INSTANCE.doValidateStream(stream);
+  }
+
+  /**
+   * Splits a BPMN document into one self-contained document per process. Every document
+   * contains the process, the root elements it references, like messages, errors, signals
+   * and item definitions, and the diagram elements of the process. The document is read
+   * once and the process documents are copied from its bytes without building a model
+   * instance, so the elements keep their formatting. The document is not validated.
+   *
+   * <p>The document is read into memory completely, so the memory needed to split it is
+   * bounded by the size of the document and not by the size of its largest process. A
+   * document which cannot be scanned, for example because it declares entities, is
+   * parsed into a DOM document before it is split.</p>
+   *
+   * @param stream the {@link InputStream} of the document to split, which is not closed
+   * @param output the output which provides a stream for every process, or null to skip a process
+   * @return the ids of the written processes in document order
+   * @throws BpmnModelException if a process document cannot be written
+   */
+  public static List<String> splitProcesses(InputStream stream, ProcessDocumentOutput output) {
+    return INSTANCE.doSplitProcesses(stream, output);
+  }
+
+  /**
+   * Computes the structural differences between two {@link BpmnModelInstance}s.
+   *
+   * @param oldModelInstance  the old model instance
+   * @param newModelInstance  the new model instance
+   * @return the differences
+   */
+  public static ModelDiff diff(BpmnModelInstance oldModelInstance, BpmnModelInstance newModelInstance) {
+    return INSTANCE.doDiff(oldModelInstance, newModelInstance, false, false);
+  }
+
+  /**
+   * Computes the structural differences between two {@link BpmnModelInstance}s.
+   *
+   * @param oldModelInstance  the old model instance
+   * @param newModelInstance  the new model instance
+   * @param ignoreDiagramInterchange  true to ignore all BPMNDI, DC and DI elements
+   * @param ignoreDocumentation  true to ignore all documentation elements
+   * @return the differences
+   */
+  public static ModelDiff diff(BpmnModelInstance oldModelInstance, BpmnModelInstance newModelInstance, boolean ignoreDiagramInterchange, boolean ignoreDocumentation) {
+    return INSTANCE.doDiff(oldModelInstance, newModelInstance, ignoreDiagramInterchange, ignoreDocumentation);
+  }
+
   /**
    * Allows creating an new, empty {@link BpmnModelInstance}.
    *
@@ -188,6 +533,18 @@ public class Bpmn {
     return bpmnParser.parseModelFromStream(is);
   }
 
+  protected BpmnModelInstance doReadModelFromInputStream(InputStream is, ValidationMode validationMode) {
+    return bpmnParser.parseModelFromStream(is, validationMode);
+  }
+
+  protected BpmnModelInstance doReadModelFromInputStream(InputStream is, ModelParseOptions options) {
+    return bpmnParser.parseModelFromStream(is, options);
+  }
+
+  protected BpmnModelInstance doParseIncrementally(InputStream is, ValidationMode validationMode, ModelElementListener listener) {
+    return bpmnParser.parseModelIncrementally(is, validationMode, listener);
+  }
+
   protected void doWriteModelToFile(File file, BpmnModelInstance modelInstance) {
     OutputStream os = null;
     try {
@@ -208,6 +565,13 @@ public class Bpmn {
     IoUtil.writeDocumentToOutputStream(modelInstance.getDocument(), os);
   }
 
+  protected void doWriteModelToOutputStream(OutputStream os, BpmnModelInstance modelInstance, ValidationMode validationMode) {
+    // validate DOM document
+    doValidateModel(modelInstance, validationMode);
+    // write XML
+    IoUtil.writeDocumentToOutputStream(modelInstance.getDocument(), os);
+  }
+
   protected String doConvertToString(BpmnModelInstance modelInstance) {
     // validate DOM document
     doValidateModel(modelInstance);
@@ -215,10 +579,114 @@ public class Bpmn {
     return IoUtil.convertXmlDocumentToString(modelInstance.getDocument());
   }
 
+  protected void doWriteCanonicalModelToOutputStream(OutputStream os, BpmnModelInstance modelInstance) {
+    // validate DOM document
+    doValidateModel(modelInstance);
+    // write canonical XML
+    IoUtil.writeCanonicalDocumentToOutputStream(modelInstance.getDocument(), getModelTypeMetadata(modelInstance), os);
+  }
+
+  protected String doConvertToCanonicalString(BpmnModelInstance modelInstance) {
+    // validate DOM document
+    doValidateModel(modelInstance);
+    // convert to canonical XML string
+    return IoUtil.convertXmlDocumentToCanonicalString(modelInstance.getDocument(), getModelTypeMetadata(modelInstance));
+  }
+
+  protected void doWriteModelToJson(OutputStream os, BpmnModelInstance modelInstance, ValidationMode validationMode) {
+    // validate DOM document
+    doValidateModel(modelInstance, validationMode);
+    // write JSON
+    new ModelJsonWriter(getModelTypeMetadata()).write(modelInstance.getDocument(), os);
+  }
+
+  protected String doConvertToJson(BpmnModelInstance modelInstance) {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    doWriteModelToJson(os, modelInstance, ValidationMode.SCHEMA);
+    try {
+      return os.toString("UTF-8");
+    }
+    catch (UnsupportedEncodingException e) {
+      throw new BpmnModelException("Unable to convert the model to JSON", e);
+    }
+  }
+
+  protected BpmnModelInstance doReadModelFromJson(InputStream is, ValidationMode validationMode) {
+    BpmnModelInstance modelInstance = bpmnParser.getEmptyModel();
+    new ModelJsonReader(getModelTypeMetadata()).read(is, modelInstance.getDocument());
+    doValidateModel(modelInstance, validationMode);
+    return modelInstance;
+  }
+
+  protected void doWriteElement(ModelElementInstance element, OutputStream os, boolean wrapInDefinitions) {
+    new ModelFragmentWriter(getModelTypeMetadata()).write(element, wrapInDefinitions, os);
+  }
+
+  protected ModelElementInstance doMergeElement(BpmnModelInstance modelInstance, InputStream is, ModelElementInstance parentElement) {
+    return new ModelFragmentReader().merge(modelInstance, is, parentElement);
+  }
+
+  protected ModelStore<BpmnModelInstance> doCreateModelStore(int inflatedInstanceCapacity) {
+    return new ModelStore<BpmnModelInstance>(bpmnParser, inflatedInstanceCapacity);
+  }
+
   protected void doValidateModel(BpmnModelInstance modelInstance) {
     bpmnParser.validateModel(modelInstance.getDocument());
   }
 
+  protected void doValidateModel(BpmnModelInstance modelInstance, ValidationMode validationMode) {
+    if (validationMode == ValidationMode.STRUCTURE) {
+      bpmnParser.validateModelStructure(modelInstance);
+    }
+    else {
+      doValidateModel(modelInstance);
+    }
+  }
+
+  protected ValidationResult doValidateStream(InputStream is) {
+    return getStreamValidator().validate(is);
+  }
+
+  protected synchronized ModelStreamValidator getStreamValidator() {
+    if (streamValidator == null || streamValidator.getModel() != bpmnModel) {
+      streamValidator = new ModelStreamValidator(bpmnModel, BpmnParser.getBpmnSchema());
+    }
+    return streamValidator;
+  }
+
+  protected synchronized ModelTypeMetadata getModelTypeMetadata() {
+    if (modelTypeMetadata == null || modelTypeMetadata.getModel() != bpmnModel) {
+      modelTypeMetadata = new ModelTypeMetadata(bpmnModel);
+    }
+    return modelTypeMetadata;
+  }
+
+  /**
+   * @return the cached type metadata if the model instance uses the BPMN model, new type metadata of its model otherwise
+   */
+  protected ModelTypeMetadata getModelTypeMetadata(BpmnModelInstance modelInstance) {
+    Model model = modelInstance.getModel();
+    return model == bpmnModel ? getModelTypeMetadata() : new ModelTypeMetadata(model);
+  }
+
+  protected List<String> doSplitProcesses(InputStream is, ProcessDocumentOutput output) {
+    return new BpmnProcessSplitter(getModelTypeMetadata()).split(is, output);
+  }
+
+  protected ModelDiff doDiff(BpmnModelInstance oldModelInstance, BpmnModelInstance newModelInstance, boolean ignoreDiagramInterchange, boolean ignoreDocumentation) {
+    ModelDiffer differ = new ModelDiffer();
+    if (ignoreDiagramInterchange) {
+      differ
+        .ignoreNamespace(BPMNDI_NS)
+        .ignoreNamespace(DC_NS)
+        .ignoreNamespace(DI_NS);
+    }
+    if (ignoreDocumentation) {
+      differ.ignoreElement(BPMN20_NS, BPMN_ELEMENT_DOCUMENTATION);
+    }
+    return differ.diff(oldModelInstance, newModelInstance);
+  }
+
   protected BpmnModelInstance doCreateEmptyModel() {
     return bpmnParser.getEmptyModel();
   }
@@ -12,8 +12,15 @@
  */
 package org.camunda.bpm.model.bpmn;
 
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
 import org.camunda.bpm.model.bpmn.instance.Definitions;
+import org.camunda.bpm.model.bpmn.instance.di.DiagramElement;
+import org.camunda.bpm.model.xml.IdConflictPolicy;
+import org.camunda.bpm.model.xml.ModelException;
 import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+import java.util.Collection;
 
 /**
  * <p>A BPMN 2.0 Model</p>
@@ -34,4 +41,30 @@ public interface BpmnModelInstance extends ModelInstance {
    * */
   void setDefinitions(Definitions definitions);
 
+  /**
+   * Returns all BPMNDI elements which reference the BPMN element, e.g. the
+   * {@link org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape BpmnShape} of a flow node.
+   *
+   * @param bpmnElement the referenced BPMN element
+   * @return the collection of diagram elements, empty if none exist
+   */
+  Collection<DiagramElement> getDiagramElements(BaseElement bpmnElement);
+
+  /**
+   * Adds a copy of an element to a parent element like
+   * {@link #importElement(ModelElementInstance, ModelElementInstance, IdConflictPolicy)}.
+   * If the diagram elements should be imported, copies of the BPMNDI elements which
+   * reference the copied BPMN elements are added to the plane of the first diagram of this
+   * model instance, their references follow renamed ids. No diagram elements are imported
+   * if this model instance has no diagram.
+   *
+   * @param element  the element to copy
+   * @param parentElement  the parent element of the copy in this model instance
+   * @param idConflictPolicy  the handling of ids which already exist in this model instance
+   * @param importDiagramElements  true if the diagram elements should be imported, false otherwise
+   * @return the added copy of the element
+   * @throws ModelException if an id already exists and the policy is {@link IdConflictPolicy#FAIL}
+   */
+  <T extends ModelElementInstance> T importElement(T element, ModelElementInstance parentElement, IdConflictPolicy idConflictPolicy, boolean importDiagramElements);
+
 }
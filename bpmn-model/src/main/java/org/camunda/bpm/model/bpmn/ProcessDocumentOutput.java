@@ -0,0 +1,35 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Provides the output streams of the process documents written by
+ * {@link Bpmn#splitProcesses(java.io.InputStream, ProcessDocumentOutput)}.
+ */
+public interface ProcessDocumentOutput {
+
+  /**
+   * Returns the stream to which the document of a process is written. The stream is
+   * closed after the document was written.
+   *
+   * @param processId  the id of the process
+   * @return the stream or null if the document of the process should not be written
+   * @throws IOException if the stream cannot be opened
+   */
+  OutputStream openStream(String processId) throws IOException;
+
+}
@@ -0,0 +1,183 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.impl;
+
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.di.DiagramElement;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.impl.util.QName;
+import org.camunda.bpm.model.xml.instance.DomElement;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+import java.util.*;
+
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_ATTRIBUTE_BPMN_ELEMENT;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_NS;
+
+/**
+ * Bidirectional index between BPMN elements and the BPMNDI elements which
+ * reference them by their <code>bpmnElement</code> attribute.
+ *
+ * <p>The index is built lazily in a single pass over the document on first access
+ * and afterwards maintained by the change callbacks of the model instance.</p>
+ */
+public class BpmnDiagramElementIndex {
+
+  private final BpmnModelInstanceImpl modelInstance;
+
+  /** the DI elements by the id of the referenced BPMN element */
+  private Map<String, List<DomElement>> diagramElementsByBpmnElementId;
+
+  /** the id of the referenced BPMN element by DI element */
+  private Map<DomElement, String> bpmnElementIdsByDiagramElement;
+
+  public BpmnDiagramElementIndex(BpmnModelInstanceImpl modelInstance) {
+    this.modelInstance = modelInstance;
+  }
+
+  /**
+   * Returns all DI elements which reference the BPMN element.
+   *
+   * @param bpmnElement  the referenced BPMN element
+   * @return the DI elements in the order they were indexed
+   */
+  public Collection<DiagramElement> getDiagramElements(BaseElement bpmnElement) {
+    List<DiagramElement> diagramElements = new ArrayList<DiagramElement>();
+    String id = bpmnElement.getId();
+    if (id != null) {
+      ensureInitialized();
+      List<DomElement> domElements = diagramElementsByBpmnElementId.get(id);
+      if (domElements != null) {
+        for (DomElement domElement : domElements) {
+          diagramElements.add((DiagramElement) ModelUtil.getModelElement(domElement, modelInstance));
+        }
+      }
+    }
+    return diagramElements;
+  }
+
+  /**
+   * Returns the id of the BPMN element referenced by the DI element.
+   *
+   * @param diagramElement  the DI element
+   * @return the id of the referenced BPMN element or null if the DI element is not indexed
+   */
+  public String getBpmnElementId(DiagramElement diagramElement) {
+    ensureInitialized();
+    return bpmnElementIdsByDiagramElement.get(diagramElement.getDomElement());
+  }
+
+  public void elementAdded(ModelElementInstance element) {
+    if (isInitialized() && modelInstance.isConnected(element)) {
+      indexSubtree(element.getDomElement());
+    }
+  }
+
+  public void elementRemoved(ModelElementInstance element) {
+    if (isInitialized()) {
+      unindexSubtree(element.getDomElement());
+    }
+  }
+
+  public void attributeChanged(ModelElementInstance element, String attributeName, String newValue) {
+    if (isInitialized() && BPMNDI_ATTRIBUTE_BPMN_ELEMENT.equals(attributeName) && isDiagramElement(element.getDomElement())) {
+      DomElement domElement = element.getDomElement();
+      boolean wasIndexed = unindex(domElement);
+      if (newValue != null && (wasIndexed || modelInstance.isConnected(element))) {
+        index(domElement, newValue);
+      }
+    }
+  }
+
+  /**
+   * Drops the index, it will be rebuilt on next access.
+   */
+  public void invalidate() {
+    diagramElementsByBpmnElementId = null;
+    bpmnElementIdsByDiagramElement = null;
+  }
+
+  protected boolean isInitialized() {
+    return diagramElementsByBpmnElementId != null;
+  }
+
+  protected void ensureInitialized() {
+    if (!isInitialized()) {
+      diagramElementsByBpmnElementId = new HashMap<String, List<DomElement>>();
+      bpmnElementIdsByDiagramElement = new HashMap<DomElement, String>();
+      DomElement rootElement = modelInstance.getDocument().getRootElement();
+      if (rootElement != null) {
+        // BPMNDI elements are only allowed inside of BPMNDiagram root elements
+        for (DomElement childElement : rootElement.getChildElements()) {
+          if (BPMNDI_NS.equals(childElement.getNamespaceURI())) {
+            indexSubtree(childElement);
+          }
+        }
+      }
+    }
+  }
+
+  protected void indexSubtree(DomElement domElement) {
+    if (isDiagramElement(domElement)) {
+      String bpmnElement = domElement.getAttribute(BPMNDI_ATTRIBUTE_BPMN_ELEMENT);
+      if (bpmnElement != null) {
+        unindex(domElement);
+        index(domElement, bpmnElement);
+      }
+    }
+    for (DomElement childElement : domElement.getChildElements()) {
+      indexSubtree(childElement);
+    }
+  }
+
+  protected void unindexSubtree(DomElement domElement) {
+    if (isDiagramElement(domElement)) {
+      unindex(domElement);
+    }
+    for (DomElement childElement : domElement.getChildElements()) {
+      unindexSubtree(childElement);
+    }
+  }
+
+  protected void index(DomElement domElement, String bpmnElement) {
+    String id = QName.parseQName(bpmnElement).getLocalName();
+    List<DomElement> domElements = diagramElementsByBpmnElementId.get(id);
+    if (domElements == null) {
+      domElements = new ArrayList<DomElement>(1);
+      diagramElementsByBpmnElementId.put(id, domElements);
+    }
+    domElements.add(domElement);
+    bpmnElementIdsByDiagramElement.put(domElement, id);
+  }
+
+  protected boolean unindex(DomElement domElement) {
+    String id = bpmnElementIdsByDiagramElement.remove(domElement);
+    if (id != null) {
+      List<DomElement> domElements = diagramElementsByBpmnElementId.get(id);
+      domElements.remove(domElement);
+      if (domElements.isEmpty()) {
+        diagramElementsByBpmnElementId.remove(id);
+      }
+      return true;
+    }
+    else {
+      return false;
+    }
+  }
+
+  protected boolean isDiagramElement(DomElement domElement) {
+    return BPMNDI_NS.equals(domElement.getNamespaceURI());
+  }
+
+}
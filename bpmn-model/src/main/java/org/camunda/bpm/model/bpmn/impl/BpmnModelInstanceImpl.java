@@ -12,13 +12,30 @@
  */
 package org.camunda.bpm.model.bpmn.impl;
 
+import org.camunda.bpm.model.bpmn.Bpmn;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.impl.instance.DefinitionsImpl;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
 import org.camunda.bpm.model.bpmn.instance.Definitions;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnDiagram;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnPlane;
+import org.camunda.bpm.model.bpmn.instance.di.DiagramElement;
+import org.camunda.bpm.model.bpmn.instance.di.Plane;
+import org.camunda.bpm.model.xml.IdConflictPolicy;
 import org.camunda.bpm.model.xml.ModelBuilder;
+import org.camunda.bpm.model.xml.ModelInstance;
 import org.camunda.bpm.model.xml.impl.ModelImpl;
+import org.camunda.bpm.model.xml.impl.ModelElementImport;
 import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
 import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.instance.DomElement;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * <p>The Bpmn Model</p>
@@ -27,6 +44,8 @@ import org.camunda.bpm.model.xml.instance.DomDocument;
  */
 public class BpmnModelInstanceImpl extends ModelInstanceImpl implements BpmnModelInstance {
 
+  private final BpmnDiagramElementIndex diagramElementIndex = new BpmnDiagramElementIndex(this);
+
   public BpmnModelInstanceImpl(ModelImpl model, ModelBuilder modelBuilder, DomDocument document) {
     super(model, modelBuilder, document);
   }
@@ -39,4 +58,111 @@ public class BpmnModelInstanceImpl extends ModelInstanceImpl implements BpmnMode
     setDocumentElement(definitions);
   }
 
+  public Collection<DiagramElement> getDiagramElements(BaseElement bpmnElement) {
+    return diagramElementIndex.getDiagramElements(bpmnElement);
+  }
+
+  public <T extends ModelElementInstance> T importElement(T element, ModelElementInstance parentElement, IdConflictPolicy idConflictPolicy) {
+    return importElement(element, parentElement, idConflictPolicy, false);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T extends ModelElementInstance> T importElement(final T element, final ModelElementInstance parentElement, final IdConflictPolicy idConflictPolicy, final boolean importDiagramElements) {
+    final List<ModelElementInstance> importedElements = new ArrayList<ModelElementInstance>(1);
+    batch(new Runnable() {
+      public void run() {
+        // collected before the import, the element may be imported into its own model instance
+        List<DiagramElement> diagramElements = importDiagramElements ? getImportedDiagramElements(element) : Collections.<DiagramElement>emptyList();
+        ModelElementImport elementImport = new ModelElementImport(BpmnModelInstanceImpl.this, idConflictPolicy);
+        importedElements.add(elementImport.importElement(element, parentElement));
+
+        Collection<BpmnDiagram> diagrams = getModelElementsByType(BpmnDiagram.class);
+        BpmnPlane plane = diagrams.isEmpty() ? null : diagrams.iterator().next().getBpmnPlane();
+        if (plane != null) {
+          for (DiagramElement diagramElement : diagramElements) {
+            elementImport.importElement(diagramElement, plane);
+          }
+        }
+      }
+    });
+    return (T) importedElements.get(0);
+  }
+
+  /**
+   * Returns the diagram elements of the BPMN elements in the subtree of an element,
+   * except of planes.
+   */
+  protected List<DiagramElement> getImportedDiagramElements(ModelElementInstance element) {
+    List<DiagramElement> diagramElements = new ArrayList<DiagramElement>();
+    ModelInstance sourceModelInstance = element.getModelInstance();
+    if (sourceModelInstance instanceof BpmnModelInstanceImpl) {
+      collectDiagramElements((BpmnModelInstanceImpl) sourceModelInstance, element.getDomElement(), diagramElements);
+    }
+    return diagramElements;
+  }
+
+  protected void collectDiagramElements(BpmnModelInstanceImpl sourceModelInstance, DomElement domElement, List<DiagramElement> diagramElements) {
+    ModelElementInstance element = ModelUtil.getModelElement(domElement, sourceModelInstance);
+    if (element instanceof BaseElement) {
+      for (DiagramElement diagramElement : sourceModelInstance.getDiagramElements((BaseElement) element)) {
+        // the shapes and edges are added to the plane of this model instance
+        if (!(diagramElement instanceof Plane)) {
+          diagramElements.add(diagramElement);
+        }
+      }
+    }
+    for (DomElement childElement : domElement.getChildElements()) {
+      collectDiagramElements(sourceModelInstance, childElement, diagramElements);
+    }
+  }
+
+  @Override
+  public void setDocumentElement(ModelElementInstance documentElement) {
+    super.setDocumentElement(documentElement);
+    diagramElementIndex.invalidate();
+  }
+
+  @Override
+  public void elementAdded(ModelElementInstance parentElement, ModelElementInstance element) {
+    super.elementAdded(parentElement, element);
+    diagramElementIndex.elementAdded(element);
+  }
+
+  @Override
+  public void elementRemoved(ModelElementInstance parentElement, ModelElementInstance element) {
+    super.elementRemoved(parentElement, element);
+    diagramElementIndex.elementRemoved(element);
+  }
+
+  @Override
+  public void elementReplaced(ModelElementInstance parentElement, ModelElementInstance replacedElement, ModelElementInstance element) {
+    super.elementReplaced(parentElement, replacedElement, element);
+    diagramElementIndex.elementRemoved(replacedElement);
+    diagramElementIndex.elementAdded(element);
+  }
+
+  @Override
+  public void attributeChanged(ModelElementInstance element, String namespaceUri, String attributeName, String oldValue, String newValue) {
+    super.attributeChanged(element, namespaceUri, attributeName, oldValue, newValue);
+    diagramElementIndex.attributeChanged(element, attributeName, newValue);
+  }
+
+  @Override
+  public void prepareConcurrentReads() {
+    super.prepareConcurrentReads();
+    diagramElementIndex.ensureInitialized();
+  }
+
+  @Override
+  public void prepareConcurrentReads(ModelElementInstance element) {
+    super.prepareConcurrentReads(element);
+    // the index is dropped if the document element is replaced
+    diagramElementIndex.ensureInitialized();
+  }
+
+  @Override
+  public BpmnModelInstance clone() {
+    return new BpmnModelInstanceImpl((ModelImpl) getModel(), Bpmn.INSTANCE.getBpmnModelBuilder(), getDocument().clone());
+  }
+
 }
@@ -13,14 +13,19 @@
 package org.camunda.bpm.model.bpmn.impl;
 
 import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.xml.Model;
+import org.camunda.bpm.model.xml.ModelParseOptions;
 import org.camunda.bpm.model.xml.ModelValidationException;
+import org.camunda.bpm.model.xml.event.ModelElementListener;
 import org.camunda.bpm.model.xml.impl.ModelImpl;
 import org.camunda.bpm.model.xml.impl.parser.AbstractModelParser;
 import org.camunda.bpm.model.xml.impl.util.ReflectUtil;
 import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import java.io.InputStream;
 import java.net.URL;
@@ -33,26 +38,43 @@ import java.net.URL;
  */
 public class BpmnParser extends AbstractModelParser {
 
- private static final String JAXP_SCHEMA_SOURCE = "http://java.sun.com/xml/jaxp/properties/schemaSource";
- private static final String JAXP_SCHEMA_LANGUAGE = "http://java.sun.com/xml/jaxp/properties/schemaLanguage";
-
   private static final String W3C_XML_SCHEMA = "http://www.w3.org/2001/XMLSchema";
 
-  public BpmnParser() {
-    this.schemaFactory = SchemaFactory.newInstance(W3C_XML_SCHEMA);
-    URL bpmnSchema = ReflectUtil.getResource(BpmnModelConstants.BPMN_20_SCHEMA_LOCATION, BpmnParser.class.getClassLoader());
-    try {
-      this.schema = schemaFactory.newSchema(bpmnSchema);
-    } catch (SAXException e) {
-      throw new ModelValidationException("Unable to parse schema:" + bpmnSchema);
+  /** the compiled BPMN schema shared by all parsers */
+  private static Schema bpmnSchema;
+
+  /**
+   * Returns the compiled BPMN schema. The schema is compiled on first use and
+   * shared by all parsers, since a {@link Schema} is immutable and thread-safe.
+   *
+   * @return the compiled BPMN schema
+   */
+  public static synchronized Schema getBpmnSchema() {
+    if (bpmnSchema == null) {
+      URL schemaLocation = ReflectUtil.getResource(BpmnModelConstants.BPMN_20_SCHEMA_LOCATION, BpmnParser.class.getClassLoader());
+      try {
+        bpmnSchema = SchemaFactory.newInstance(W3C_XML_SCHEMA).newSchema(schemaLocation);
+      } catch (SAXException e) {
+        throw new ModelValidationException("Unable to parse schema:" + schemaLocation, e);
+      }
     }
+    return bpmnSchema;
   }
 
   @Override
   protected void configureFactory(DocumentBuilderFactory dbf) {
-    dbf.setAttribute(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
-    dbf.setAttribute(JAXP_SCHEMA_SOURCE, ReflectUtil.getResource(BpmnModelConstants.BPMN_20_SCHEMA_LOCATION, BpmnParser.class.getClassLoader()).toString());
     super.configureFactory(dbf);
+    // validate against the compiled schema instead of loading the grammar for every document builder
+    dbf.setValidating(false);
+    dbf.setSchema(getSchema());
+  }
+
+  @Override
+  protected Schema getSchema() {
+    if (schema == null) {
+      schema = getBpmnSchema();
+    }
+    return schema;
   }
 
   @Override
@@ -60,11 +82,31 @@ public class BpmnParser extends AbstractModelParser {
     return new BpmnModelInstanceImpl((ModelImpl) Bpmn.INSTANCE.getBpmnModel(), Bpmn.INSTANCE.getBpmnModelBuilder(), document);
   }
 
+  @Override
+  protected Model getModel() {
+    return Bpmn.INSTANCE.getBpmnModel();
+  }
+
   @Override
   public BpmnModelInstanceImpl parseModelFromStream(InputStream inputStream) {
     return (BpmnModelInstanceImpl) super.parseModelFromStream(inputStream);
   }
 
+  @Override
+  public BpmnModelInstanceImpl parseModelFromStream(InputStream inputStream, ValidationMode validationMode) {
+    return (BpmnModelInstanceImpl) super.parseModelFromStream(inputStream, validationMode);
+  }
+
+  @Override
+  public BpmnModelInstanceImpl parseModelFromStream(InputStream inputStream, ModelParseOptions options) {
+    return (BpmnModelInstanceImpl) super.parseModelFromStream(inputStream, options);
+  }
+
+  @Override
+  public BpmnModelInstanceImpl parseModelIncrementally(InputStream inputStream, ValidationMode validationMode, ModelElementListener listener) {
+    return (BpmnModelInstanceImpl) super.parseModelIncrementally(inputStream, validationMode, listener);
+  }
+
   @Override
   public BpmnModelInstanceImpl getEmptyModel() {
     return (BpmnModelInstanceImpl) super.getEmptyModel();
@@ -0,0 +1,478 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.impl;
+
+import org.camunda.bpm.model.bpmn.BpmnModelException;
+import org.camunda.bpm.model.bpmn.ProcessDocumentOutput;
+import org.camunda.bpm.model.bpmn.instance.Extension;
+import org.camunda.bpm.model.bpmn.instance.Import;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.RootElement;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnDiagram;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnPlane;
+import org.camunda.bpm.model.xml.Model;
+import org.camunda.bpm.model.xml.impl.parser.DocumentScanner;
+import org.camunda.bpm.model.xml.impl.parser.DocumentScanner.ElementHandler;
+import org.camunda.bpm.model.xml.impl.parser.DocumentScanner.ScannedElement;
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.ReferenceImpl;
+import org.camunda.bpm.model.xml.impl.util.DomUtil;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.impl.util.QName;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata.TypeMetadata;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMN20_NS;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_ATTRIBUTE_BPMN_ELEMENT;
+
+/**
+ * Splits a BPMN document into one document per process. The document is scanned once by
+ * a {@link DocumentScanner}, which reports the byte ranges of the elements without
+ * building a tree. The process documents are assembled from byte ranges of the scanned
+ * document, so the elements keep their formatting and no model instance is created.
+ *
+ * <p>A process document contains the start tag of the definitions, the imports and
+ * extensions, the process, the root elements which are referenced by the process
+ * directly or indirectly, like messages, errors, signals and item definitions, and the
+ * shapes and edges of the diagrams which reference elements of the process. A plane
+ * which references an element outside of the process, like the collaboration, is
+ * rewritten to reference the process.</p>
+ *
+ * <p>The scanned document is not validated. It is read into memory completely, since the
+ * process documents are copied from its bytes, and a document which cannot be scanned,
+ * for example because it declares entities, is parsed into a DOM document and converted
+ * to UTF-8 before it is scanned. So the memory needed to split a document is bounded by
+ * the size of the whole document and not by the size of its largest process.</p>
+ */
+public class BpmnProcessSplitter {
+
+  protected static final Pattern BPMN_ELEMENT_ATTRIBUTE = Pattern.compile("\\s" + BPMNDI_ATTRIBUTE_BPMN_ELEMENT + "\\s*=\\s*(\"[^\"]*\"|'[^']*')");
+  protected static final Charset UTF_8 = Charset.forName("UTF-8");
+  protected static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+  protected static final String REFERENCE_SUFFIX = "Ref";
+
+  /** the references of BPMN elements which are not part of the model, like signal event definitions */
+  protected static final String[] UNKNOWN_ELEMENT_REFERENCES = { "errorRef", "escalationRef", "signalRef", "dataStoreRef" };
+
+  protected enum Kind {
+    /** a process, which is written to its own document */
+    PROCESS,
+    /** a root element, which is written if it is referenced by the process */
+    ROOT_ELEMENT,
+    /** an import or extension, which is written to every document */
+    DEFINITION,
+    /** a diagram, whose elements are split by process */
+    DIAGRAM,
+    /** an element which is not written, like a collaboration */
+    EXCLUDED
+  }
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+  protected final Model model;
+  protected final Set<String> capturedAttributeNames = new HashSet<String>();
+
+  protected byte[] document;
+  protected Charset charset;
+  protected ScannedElement documentElement;
+  protected final List<DefinitionsChild> definitionsChildren = new ArrayList<DefinitionsChild>();
+  /** the root elements by the ids of the elements they contain */
+  protected final Map<String, DefinitionsChild> rootElementsById = new HashMap<String, DefinitionsChild>();
+
+  public BpmnProcessSplitter(ModelTypeMetadata modelTypeMetadata) {
+    this.modelTypeMetadata = modelTypeMetadata;
+    this.model = modelTypeMetadata.getModel();
+    capturedAttributeNames.addAll(modelTypeMetadata.getIdAttributeNames());
+    capturedAttributeNames.addAll(Arrays.asList(UNKNOWN_ELEMENT_REFERENCES));
+    for (ModelElementType type : model.getTypes()) {
+      TypeMetadata metadata = modelTypeMetadata.getTypeMetadata(type.getTypeNamespace(), type.getTypeName());
+      for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+        capturedAttributeNames.add(reference.getReferenceSourceAttribute().getAttributeName());
+      }
+    }
+  }
+
+  /**
+   * Reads a document and writes the documents of its processes.
+   *
+   * @param inputStream  the stream of the document, which is not closed
+   * @param output  the output which provides the streams of the documents
+   * @return the ids of the written processes
+   */
+  public List<String> split(InputStream inputStream, ProcessDocumentOutput output) {
+    byte[] bytes;
+    try {
+      bytes = IoUtil.getBytesFromInputStream(inputStream);
+    }
+    catch (IOException e) {
+      throw new BpmnModelException("Unable to read the document", e);
+    }
+    if (!scan(bytes) && !scan(convertToUtf8(bytes))) {
+      throw new BpmnModelException("Unable to split the document into processes");
+    }
+    return write(output);
+  }
+
+  /**
+   * Parses a document which cannot be scanned and writes it in UTF-8 without entity
+   * declarations.
+   */
+  protected byte[] convertToUtf8(byte[] document) {
+    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+    dbf.setNamespaceAware(true);
+    String xml = IoUtil.convertXmlDocumentToString(DomUtil.parseInputStream(dbf, new ByteArrayInputStream(document)));
+    // the transformer keeps the encoding declared by the parsed document
+    xml = XML_DECLARATION + xml.substring(xml.indexOf("?>") + 2);
+    return xml.getBytes(UTF_8);
+  }
+
+  /**
+   * Scans a document.
+   *
+   * @param document  the bytes of the document
+   * @return false if the document cannot be scanned, so it has to be converted first
+   */
+  public boolean scan(byte[] document) {
+    this.document = document;
+    documentElement = null;
+    definitionsChildren.clear();
+    rootElementsById.clear();
+
+    final DocumentScanner scanner = new DocumentScanner(document);
+    for (String attributeName : capturedAttributeNames) {
+      scanner.captureAttribute(attributeName);
+    }
+    boolean scanned = scanner.scan(new ElementHandler() {
+
+      DefinitionsChild currentChild;
+      DefinitionsChild currentDiagram;
+
+      public void startElement(ScannedElement element) {
+        int depth = element.getDepth();
+        if (depth == 0) {
+          documentElement = element;
+          charset = scanner.getEncoding() != null ? Charset.forName(scanner.getEncoding()) : UTF_8;
+          return;
+        }
+        if (depth == 1) {
+          currentChild = new DefinitionsChild(element, getKind(element));
+          definitionsChildren.add(currentChild);
+          currentDiagram = currentChild.kind == Kind.DIAGRAM ? currentChild : null;
+        }
+
+        if (currentDiagram != null) {
+          if (depth == 2) {
+            currentDiagram.diagramChildren.add(element);
+            if (isType(element, BpmnPlane.class) && currentDiagram.plane == null) {
+              currentDiagram.plane = element;
+            }
+          }
+          else if (depth == 3 && element.getParentElement() == currentDiagram.plane) {
+            currentDiagram.planeChildren.add(element);
+          }
+        }
+        else if (currentChild.kind == Kind.PROCESS || currentChild.kind == Kind.ROOT_ELEMENT) {
+          addIdAndReferences(currentChild, element);
+        }
+      }
+
+      public void endElement(ScannedElement element) {
+        if (currentChild != null && (currentChild.kind == Kind.PROCESS || currentChild.kind == Kind.ROOT_ELEMENT)) {
+          ReferenceImpl<?> elementReference = getTypeMetadata(element).getElementReference();
+          if (elementReference != null) {
+            String textContent = getTextContent(element);
+            if (textContent.length() > 0) {
+              currentChild.references.add(ModelTypeMetadata.getReferenceIdentifier(elementReference, textContent));
+            }
+          }
+        }
+        if (element.getDepth() == 1) {
+          currentChild = null;
+          currentDiagram = null;
+        }
+      }
+
+    });
+
+    return scanned;
+  }
+
+  protected Kind getKind(ScannedElement element) {
+    ModelElementType type = model.getTypeForName(element.getNamespaceUri(), element.getLocalName());
+    if (type == null || type.getInstanceType() == ModelElementInstance.class) {
+      // all other BPMN elements of the definitions are root elements, like signals
+      return BPMN20_NS.equals(element.getNamespaceUri()) ? Kind.ROOT_ELEMENT : Kind.EXCLUDED;
+    }
+    else if (isTypeOf(type, Process.class)) {
+      return Kind.PROCESS;
+    }
+    else if (isTypeOf(type, RootElement.class)) {
+      return Kind.ROOT_ELEMENT;
+    }
+    else if (isTypeOf(type, Import.class) || isTypeOf(type, Extension.class)) {
+      return Kind.DEFINITION;
+    }
+    else if (isTypeOf(type, BpmnDiagram.class)) {
+      return Kind.DIAGRAM;
+    }
+    else {
+      return Kind.EXCLUDED;
+    }
+  }
+
+  protected void addIdAndReferences(DefinitionsChild child, ScannedElement element) {
+    for (String idAttributeName : modelTypeMetadata.getIdAttributeNames()) {
+      String id = element.getAttributeValue(idAttributeName);
+      if (id != null) {
+        if (element.getDepth() == 1) {
+          child.id = id;
+        }
+        if (child.kind == Kind.PROCESS) {
+          child.ids.add(id);
+        }
+        else {
+          rootElementsById.put(id, child);
+        }
+        break;
+      }
+    }
+    TypeMetadata metadata = getTypeMetadata(element);
+    if (metadata.getType() == null) {
+      for (String attributeName : capturedAttributeNames) {
+        String value = element.getAttributeValue(attributeName);
+        if (value != null && attributeName.endsWith(REFERENCE_SUFFIX)) {
+          child.references.add(QName.parseQName(value.trim()).getLocalName());
+        }
+      }
+    }
+    for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+      String value = element.getAttributeValue(reference.getReferenceSourceAttribute().getAttributeName());
+      if (value != null) {
+        child.references.add(ModelTypeMetadata.getReferenceIdentifier(reference, value.trim()));
+      }
+    }
+  }
+
+  /**
+   * Returns the text content of an element without child elements.
+   */
+  protected String getTextContent(ScannedElement element) {
+    int start = element.getStartTagEndOffset();
+    int end = element.getEndOffset();
+    while (end > start && document[end - 1] != '<') {
+      end--;
+    }
+    if (end <= start) {
+      return "";
+    }
+    return new String(document, start, end - 1 - start, charset).trim();
+  }
+
+  /**
+   * Writes the documents of the processes in document order.
+   *
+   * @param output  the output which provides the streams of the documents
+   * @return the ids of the written processes
+   */
+  public List<String> write(ProcessDocumentOutput output) {
+    List<String> processIds = new ArrayList<String>();
+    for (DefinitionsChild child : definitionsChildren) {
+      if (child.kind != Kind.PROCESS || child.id == null) {
+        continue;
+      }
+      OutputStream outputStream = null;
+      try {
+        outputStream = output.openStream(child.id);
+        if (outputStream != null) {
+          writeProcessDocument(child, outputStream);
+          outputStream.close();
+          outputStream = null;
+          processIds.add(child.id);
+        }
+      }
+      catch (IOException e) {
+        throw new BpmnModelException("Unable to write the document of process '" + child.id + "'", e);
+      }
+      finally {
+        IoUtil.closeSilently(outputStream);
+      }
+    }
+    return processIds;
+  }
+
+  protected void writeProcessDocument(DefinitionsChild process, OutputStream outputStream) throws IOException {
+    Set<DefinitionsChild> referencedRootElements = getReferencedRootElements(process);
+
+    outputStream.write(document, 0, documentElement.getStartTagEndOffset());
+    for (DefinitionsChild child : definitionsChildren) {
+      if (child == process || child.kind == Kind.DEFINITION || referencedRootElements.contains(child)) {
+        write(child.element, outputStream);
+      }
+      else if (child.kind == Kind.DIAGRAM) {
+        writeDiagram(child, process, outputStream);
+      }
+    }
+    int contentEnd = getContentEndOffset(documentElement, definitionsChildren.isEmpty() ? null : definitionsChildren.get(definitionsChildren.size() - 1).element);
+    outputStream.write(document, contentEnd, document.length - contentEnd);
+  }
+
+  /**
+   * Returns the root elements which are referenced by a process directly or by other
+   * referenced root elements.
+   */
+  protected Set<DefinitionsChild> getReferencedRootElements(DefinitionsChild process) {
+    Set<DefinitionsChild> referencedRootElements = new LinkedHashSet<DefinitionsChild>();
+    List<String> references = new ArrayList<String>(process.references);
+    while (!references.isEmpty()) {
+      DefinitionsChild rootElement = rootElementsById.get(references.remove(references.size() - 1));
+      if (rootElement != null && referencedRootElements.add(rootElement)) {
+        references.addAll(rootElement.references);
+      }
+    }
+    return referencedRootElements;
+  }
+
+  /**
+   * Writes a diagram with the shapes and edges of the process elements. The diagram is
+   * omitted if it contains none of them.
+   */
+  protected void writeDiagram(DefinitionsChild diagram, DefinitionsChild process, OutputStream outputStream) throws IOException {
+    ScannedElement plane = diagram.plane;
+    if (plane == null) {
+      return;
+    }
+    List<ScannedElement> planeChildren = new ArrayList<ScannedElement>();
+    for (ScannedElement planeChild : diagram.planeChildren) {
+      String bpmnElement = planeChild.getAttributeValue(BPMNDI_ATTRIBUTE_BPMN_ELEMENT);
+      if (bpmnElement != null && process.ids.contains(bpmnElement)) {
+        planeChildren.add(planeChild);
+      }
+    }
+    String planeElement = plane.getAttributeValue(BPMNDI_ATTRIBUTE_BPMN_ELEMENT);
+    boolean isPlaneOfProcess = planeElement != null && process.ids.contains(planeElement);
+    if (!isPlaneOfProcess && planeChildren.isEmpty()) {
+      return;
+    }
+
+    ScannedElement diagramElement = diagram.element;
+    outputStream.write(document, diagramElement.getLeadingTextOffset(), diagramElement.getStartTagEndOffset() - diagramElement.getLeadingTextOffset());
+    for (ScannedElement diagramChild : diagram.diagramChildren) {
+      if (diagramChild != plane) {
+        write(diagramChild, outputStream);
+        continue;
+      }
+      outputStream.write(document, plane.getLeadingTextOffset(), plane.getStartOffset() - plane.getLeadingTextOffset());
+      if (isPlaneOfProcess) {
+        outputStream.write(document, plane.getStartOffset(), plane.getStartTagEndOffset() - plane.getStartOffset());
+      }
+      else {
+        outputStream.write(getPlaneStartTag(plane, process.id));
+      }
+      for (ScannedElement planeChild : planeChildren) {
+        write(planeChild, outputStream);
+      }
+      int planeContentEnd = getContentEndOffset(plane, diagram.planeChildren.isEmpty() ? null : diagram.planeChildren.get(diagram.planeChildren.size() - 1));
+      outputStream.write(document, planeContentEnd, plane.getEndOffset() - planeContentEnd);
+    }
+    int diagramContentEnd = getContentEndOffset(diagramElement, diagram.diagramChildren.isEmpty() ? null : diagram.diagramChildren.get(diagram.diagramChildren.size() - 1));
+    outputStream.write(document, diagramContentEnd, diagramElement.getEndOffset() - diagramContentEnd);
+  }
+
+  /**
+   * Returns the start tag of a plane which references the process instead of an element
+   * outside of the process document.
+   */
+  protected byte[] getPlaneStartTag(ScannedElement plane, String processId) {
+    String startTag = new String(document, plane.getStartOffset(), plane.getStartTagEndOffset() - plane.getStartOffset(), charset);
+    Matcher matcher = BPMN_ELEMENT_ATTRIBUTE.matcher(startTag);
+    if (matcher.find()) {
+      startTag = startTag.substring(0, matcher.start(1)) + "\"" + processId + "\"" + startTag.substring(matcher.end(1));
+    }
+    else {
+      int end = startTag.endsWith("/>") ? startTag.length() - 2 : startTag.length() - 1;
+      startTag = startTag.substring(0, end) + " " + BPMNDI_ATTRIBUTE_BPMN_ELEMENT + "=\"" + processId + "\"" + startTag.substring(end);
+    }
+    return startTag.getBytes(charset);
+  }
+
+  /**
+   * Writes an element with the character data which precedes it.
+   */
+  protected void write(ScannedElement element, OutputStream outputStream) throws IOException {
+    outputStream.write(document, element.getLeadingTextOffset(), element.getEndOffset() - element.getLeadingTextOffset());
+  }
+
+  /**
+   * @return the offset behind the last child element or behind the start tag if the element has no children
+   */
+  protected int getContentEndOffset(ScannedElement element, ScannedElement lastChildElement) {
+    return lastChildElement != null ? lastChildElement.getEndOffset() : element.getStartTagEndOffset();
+  }
+
+  protected boolean isType(ScannedElement element, Class<?> instanceType) {
+    ModelElementType type = model.getTypeForName(element.getNamespaceUri(), element.getLocalName());
+    return type != null && isTypeOf(type, instanceType);
+  }
+
+  protected boolean isTypeOf(ModelElementType type, Class<?> instanceType) {
+    return instanceType.isAssignableFrom(type.getInstanceType());
+  }
+
+  protected TypeMetadata getTypeMetadata(ScannedElement element) {
+    return modelTypeMetadata.getTypeMetadata(element.getNamespaceUri(), element.getLocalName());
+  }
+
+  /**
+   * A child element of the definitions.
+   */
+  protected static class DefinitionsChild {
+
+    protected final ScannedElement element;
+    protected final Kind kind;
+    protected String id;
+    /** the identifiers referenced by the element and its descendants */
+    protected final Set<String> references = new HashSet<String>();
+    /** the ids of the process and its descendants */
+    protected final Set<String> ids = new HashSet<String>();
+    /** the children of a diagram and its plane */
+    protected final List<ScannedElement> diagramChildren = new ArrayList<ScannedElement>();
+    protected ScannedElement plane;
+    protected final List<ScannedElement> planeChildren = new ArrayList<ScannedElement>();
+
+    public DefinitionsChild(ScannedElement element, Kind kind) {
+      this.element = element;
+      this.kind = kind;
+    }
+
+  }
+
+}
@@ -12,20 +12,18 @@
  */
 package org.camunda.bpm.model.bpmn.impl.instance;
 
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.instance.BaseElement;
 import org.camunda.bpm.model.bpmn.instance.Documentation;
 import org.camunda.bpm.model.bpmn.instance.ExtensionElements;
 import org.camunda.bpm.model.bpmn.instance.di.DiagramElement;
 import org.camunda.bpm.model.xml.ModelBuilder;
 import org.camunda.bpm.model.xml.impl.instance.ModelTypeInstanceContext;
-import org.camunda.bpm.model.xml.instance.ModelElementInstance;
-import org.camunda.bpm.model.xml.type.ModelElementType;
 import org.camunda.bpm.model.xml.type.ModelElementTypeBuilder;
 import org.camunda.bpm.model.xml.type.attribute.Attribute;
 import org.camunda.bpm.model.xml.type.child.ChildElement;
 import org.camunda.bpm.model.xml.type.child.ChildElementCollection;
 import org.camunda.bpm.model.xml.type.child.SequenceBuilder;
-import org.camunda.bpm.model.xml.type.reference.Reference;
 
 import java.util.Collection;
 
@@ -88,27 +86,13 @@ public abstract class BaseElementImpl extends BpmnModelElementInstanceImpl imple
   }
 
   public DiagramElement getDiagramElement() {
-    // we traverse all incoming references in reverse direction
-
-    for (Reference<?> reference : idAttribute.getIncomingReferences()) {
-
-      ModelElementType sourceElementType = reference.getReferenceSourceElementType();
-      Class<? extends ModelElementInstance> sourceInstanceType = sourceElementType.getInstanceType();
-
-      // if the referencing element (source element) is a BPMNDI element, dig deeper
-      if(DiagramElement.class.isAssignableFrom(sourceInstanceType)) {
-        for (ModelElementInstance sourceElement : reference.findReferenceSourceElements(this)) {
-          String referenceIdentifier = reference.getReferenceIdentifier(sourceElement);
-
-          // make sure it is a reference to us
-          if (referenceIdentifier != null && referenceIdentifier.equals(getId())) {
-            return (DiagramElement) sourceElement;
-          }
-        }
-      }
-
+    Collection<DiagramElement> diagramElements = ((BpmnModelInstance) modelInstance).getDiagramElements(this);
+    if (diagramElements.isEmpty()) {
+      return null;
+    }
+    else {
+      return diagramElements.iterator().next();
     }
-    return null;
   }
 
 }
@@ -13,6 +13,7 @@
 package org.camunda.bpm.model.bpmn.impl.instance;
 
 import org.camunda.bpm.model.bpmn.instance.*;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnDiagram;
 import org.camunda.bpm.model.xml.ModelBuilder;
 import org.camunda.bpm.model.xml.impl.instance.ModelTypeInstanceContext;
 import org.camunda.bpm.model.xml.type.ModelElementTypeBuilder;
@@ -91,7 +92,8 @@ public class DefinitionsImpl extends BpmnModelElementInstanceImpl implements Def
     rootElementCollection = sequenceBuilder.elementCollection(RootElement.class)
       .build();
 
-    // TODO: add bpmndi:BPMNDiagram
+    sequenceBuilder.elementCollection(BpmnDiagram.class)
+      .build();
 
     relationshipCollection = sequenceBuilder.elementCollection(Relationship.class)
       .build();
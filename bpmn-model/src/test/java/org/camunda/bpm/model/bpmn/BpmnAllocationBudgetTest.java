@@ -0,0 +1,118 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.builder.AbstractFlowNodeBuilder;
+import org.camunda.bpm.model.bpmn.instance.FlowElement;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.util.AllocationMeter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails if an operation allocates more memory than its budget. The budgets include a
+ * margin above the allocations measured in interpreted mode (<code>-Xint</code>), so they
+ * do not depend on the escape analysis of the JIT compiler and only real regressions
+ * exceed them.
+ */
+public class BpmnAllocationBudgetTest {
+
+  private static final int ITERATIONS = 10000;
+
+  private BpmnModelInstance modelInstance;
+  private Process process;
+  private ServiceTask task;
+
+  @Before
+  public void readModel() {
+    assumeTrue(AllocationMeter.isSupported());
+
+    InputStream inputStream = getClass().getResourceAsStream("BpmnAllocationBudgetTest.bpmn");
+    modelInstance = Bpmn.readModelFromStream(inputStream);
+    process = (Process) modelInstance.getModelElementById("process");
+    task = (ServiceTask) modelInstance.getModelElementById("task");
+  }
+
+  @Test
+  public void testAttributeRead() {
+    assertAllocationBudget(128, new Runnable() {
+      public void run() {
+        task.getName();
+      }
+    });
+  }
+
+  @Test
+  public void testChildElementIteration() {
+    assertAllocationBudget(1536, new Runnable() {
+      public void run() {
+        for (FlowElement flowElement : process.getFlowElements()) {
+          flowElement.getId();
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testSucceedingNodes() {
+    assertAllocationBudget(2048, new Runnable() {
+      public void run() {
+        task.getSucceedingNodes().singleResult();
+      }
+    });
+  }
+
+  @Test
+  public void testElementLookupById() {
+    assertAllocationBudget(64, new Runnable() {
+      public void run() {
+        modelInstance.getModelElementById("task");
+      }
+    });
+  }
+
+  @Test
+  public void testElementsLookupByType() {
+    assertAllocationBudget(8192, new Runnable() {
+      public void run() {
+        modelInstance.getModelElementsByType(FlowNode.class);
+      }
+    });
+  }
+
+  @Test
+  public void testBuilderAppend() {
+    final AbstractFlowNodeBuilder<?, ?>[] builder = { Bpmn.createExecutableProcess("process").startEvent() };
+    // the process grows with every append, so it is measured with 100 to 200 flow nodes
+    long allocatedBytes = AllocationMeter.measure(100, 100, new Runnable() {
+      public void run() {
+        builder[0] = builder[0].serviceTask();
+      }
+    });
+    assertThat(allocatedBytes).as("bytes allocated per execution").isLessThanOrEqualTo(256 * 1024);
+  }
+
+  protected void assertAllocationBudget(long budget, Runnable operation) {
+    long allocatedBytes = AllocationMeter.measure(ITERATIONS, operation);
+    assertThat(allocatedBytes).as("bytes allocated per execution").isLessThanOrEqualTo(budget);
+  }
+
+}
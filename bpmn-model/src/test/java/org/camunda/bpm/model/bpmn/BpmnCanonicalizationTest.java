@@ -0,0 +1,139 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.ExtensionElements;
+import org.camunda.bpm.model.bpmn.instance.MessageEventDefinition;
+import org.camunda.bpm.model.bpmn.instance.Operation;
+import org.camunda.bpm.model.bpmn.instance.ScriptTask;
+import org.camunda.bpm.model.bpmn.instance.Task;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BpmnCanonicalizationTest {
+
+  @Test
+  public void testCanonicalizationIsFixpoint() {
+    String[] resources = {
+      "BpmnDiTest.xml",
+      "CamundaExtensionsTest.xml",
+      "CollaborationParserTest.bpmn",
+      "DefinitionsTest.shouldNotAffectComments.bpmn",
+      "ReferenceTest.shouldFindReferenceWithNamespace.bpmn",
+      "BpmnCanonicalizationTest.prefixedReferences.bpmn"
+    };
+
+    for (String resource : resources) {
+      String canonicalXml = Bpmn.convertToCanonicalString(Bpmn.readModelFromStream(getClass().getResourceAsStream(resource)));
+      assertThat(Bpmn.convertToCanonicalString(parse(canonicalXml))).as(resource).isEqualTo(canonicalXml);
+    }
+  }
+
+  @Test
+  public void testCanonicalizationIgnoresPrefixesAttributeOrderAndFormatting() throws IOException {
+    String xml = readResource("BpmnDiTest.xml");
+    String reformatted = xml
+      .replaceAll("bpmn2:", "bpmn:")
+      .replaceAll("xmlns:bpmn2", "xmlns:bpmn")
+      .replaceAll("bpmndi:", "di0:")
+      .replaceAll("xmlns:bpmndi", "xmlns:di0")
+      .replaceAll("\n\\s*", "\n")
+      .replace("name=\"Data Store 1\" dataStoreRef=\"DataStore_1\"", "dataStoreRef=\"DataStore_1\"  name=\"Data Store 1\"");
+
+    assertThat(Bpmn.convertToCanonicalString(parse(reformatted))).isEqualTo(Bpmn.convertToCanonicalString(parse(xml)));
+  }
+
+  @Test
+  public void testCanonicalizationOfCreatedModel() {
+    BpmnModelInstance modelInstance = Bpmn.createProcess("process")
+      .startEvent()
+      .userTask("task")
+      .endEvent()
+      .done();
+    Task task = (Task) modelInstance.getModelElementById("task");
+    ExtensionElements extensionElements = modelInstance.newInstance(ExtensionElements.class);
+    task.setExtensionElements(extensionElements);
+    extensionElements.addExtensionElement("http://camunda.org/custom", "custom");
+
+    String canonicalXml = Bpmn.convertToCanonicalString(modelInstance);
+    assertThat(canonicalXml).contains("<userTask id=\"task\">");
+    assertThat(canonicalXml).contains("<ns0:custom/>");
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    Bpmn.writeCanonicalModelToStream(outputStream, modelInstance);
+    assertThat(new String(outputStream.toByteArray())).isEqualTo(canonicalXml);
+
+    // parsing adds the default attribute values of the schema
+    String parsedCanonicalXml = Bpmn.convertToCanonicalString(parse(canonicalXml));
+    assertThat(Bpmn.convertToCanonicalString(parse(parsedCanonicalXml))).isEqualTo(parsedCanonicalXml);
+  }
+
+  @Test
+  public void testQualifiedReferencesAreKept() {
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(getClass().getResourceAsStream("ReferenceTest.shouldFindReferenceWithNamespace.bpmn"));
+    String canonicalXml = Bpmn.convertToCanonicalString(modelInstance);
+    // the namespace of the referenced element gets a canonical prefix
+    assertThat(canonicalXml).contains("xmlns:ns0=\"Examples\"");
+    assertThat(canonicalXml).contains("messageRef=\"ns0:message-id\"");
+
+    MessageEventDefinition messageEventDefinition = (MessageEventDefinition) parse(canonicalXml).getModelElementById("message-event-definition");
+    assertThat(messageEventDefinition.getMessage().getId()).isEqualTo("message-id");
+  }
+
+  @Test
+  public void testPrefixedReferencesAreRewritten() {
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(getClass().getResourceAsStream("BpmnCanonicalizationTest.prefixedReferences.bpmn"));
+    String canonicalXml = Bpmn.convertToCanonicalString(modelInstance);
+
+    assertThat(canonicalXml).doesNotContain("bpmn2:");
+    assertThat(canonicalXml).contains("messageRef=\"msg\"");
+    assertThat(canonicalXml).contains("<inMessageRef>msg</inMessageRef>");
+    BpmnModelInstance parsedModelInstance = parse(canonicalXml);
+    MessageEventDefinition messageEventDefinition = (MessageEventDefinition) parsedModelInstance.getModelElementById("messageEventDefinition");
+    assertThat(messageEventDefinition.getMessage().getName()).isEqualTo("Order");
+    Operation operation = (Operation) parsedModelInstance.getModelElementById("placeOrder");
+    assertThat(operation.getInMessage().getId()).isEqualTo("msg");
+  }
+
+  @Test
+  public void testTextContentIsNotTrimmed() {
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(getClass().getResourceAsStream("BpmnCanonicalizationTest.prefixedReferences.bpmn"));
+    String script = ((ScriptTask) modelInstance.getModelElementById("script")).getScript().getRawTextContent();
+
+    BpmnModelInstance parsedModelInstance = parse(Bpmn.convertToCanonicalString(modelInstance));
+    assertThat(((ScriptTask) parsedModelInstance.getModelElementById("script")).getScript().getRawTextContent()).isEqualTo(script);
+  }
+
+  protected String readResource(String resource) throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream(resource);
+    try {
+      return IoUtil.getStringFromInputStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+  protected BpmnModelInstance parse(String xml) {
+    return Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()));
+  }
+
+}
@@ -0,0 +1,178 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Documentation;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.xml.ConcurrentModelInstance;
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.ModelOperation;
+import org.camunda.bpm.model.xml.ModelParseOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_NS;
+
+public class BpmnConcurrentModelInstanceTest {
+
+  private static final int READER_COUNT = 4;
+  private static final int ITERATIONS = 200;
+
+  private ExecutorService executorService;
+  private ConcurrentModelInstance<BpmnModelInstance> concurrentModelInstance;
+
+  @Before
+  public void createModelInstance() {
+    executorService = Executors.newFixedThreadPool(READER_COUNT + 1);
+
+    // the deferred elements and the deferred DOM are expanded before the model is shared
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(getClass().getResourceAsStream("BpmnConcurrentModelInstanceTest.bpmn"),
+      new ModelParseOptions().deferNamespace(BPMNDI_NS));
+    concurrentModelInstance = new ConcurrentModelInstance<BpmnModelInstance>(modelInstance);
+  }
+
+  @After
+  public void shutdownExecutor() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentReadersWithWriter() throws Exception {
+    List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < READER_COUNT; i++) {
+      readers.add(executorService.submit(new Callable<Integer>() {
+        public Integer call() {
+          int reads = 0;
+          for (int i = 0; i < ITERATIONS; i++) {
+            reads += concurrentModelInstance.read(new ModelOperation<BpmnModelInstance, Integer>() {
+              public Integer execute(BpmnModelInstance modelInstance) {
+                ServiceTask task = (ServiceTask) modelInstance.getModelElementById("sendInvoice");
+                assertThat(task.getIncoming()).hasSize(1);
+                assertThat(task.getName()).isEqualTo("Send invoice");
+                assertThat(modelInstance.getDiagramElements(task)).hasSize(1);
+                int documentations = task.getDocumentations().size();
+                for (FlowNode flowNode : modelInstance.getModelElementsByType(FlowNode.class)) {
+                  assertThat(flowNode.getId()).isNotNull();
+                }
+                return documentations;
+              }
+            });
+          }
+          return reads;
+        }
+      }));
+    }
+
+    Future<Void> writer = executorService.submit(new Callable<Void>() {
+      public Void call() {
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+          final String text = "documentation " + i;
+          concurrentModelInstance.write(new ModelOperation<BpmnModelInstance, Void>() {
+            public Void execute(BpmnModelInstance modelInstance) {
+              ServiceTask task = (ServiceTask) modelInstance.getModelElementById("sendInvoice");
+              Documentation documentation = modelInstance.newInstance(Documentation.class);
+              documentation.setTextContent(text);
+              task.getDocumentations().add(documentation);
+              return null;
+            }
+          });
+        }
+        return null;
+      }
+    });
+
+    writer.get();
+    for (Future<Integer> reader : readers) {
+      assertThat(reader.get()).isGreaterThanOrEqualTo(ITERATIONS);
+    }
+
+    int documentations = concurrentModelInstance.read(new ModelOperation<BpmnModelInstance, Integer>() {
+      public Integer execute(BpmnModelInstance modelInstance) {
+        return ((ServiceTask) modelInstance.getModelElementById("sendInvoice")).getDocumentations().size();
+      }
+    });
+    assertThat(documentations).isEqualTo(1 + ITERATIONS / 10);
+  }
+
+  @Test
+  public void testModelElementsAreSharedBetweenReaders() throws Exception {
+    Callable<Object> lookup = new Callable<Object>() {
+      public Object call() {
+        return concurrentModelInstance.getModelElementById("paymentStartShape");
+      }
+    };
+    Future<Object> first = executorService.submit(lookup);
+    Future<Object> second = executorService.submit(lookup);
+
+    assertThat(first.get()).isNotNull();
+    assertThat(first.get()).isSameAs(second.get());
+  }
+
+  @Test
+  public void testVersionIsIncreasedByChanges() {
+    long version = concurrentModelInstance.getVersion();
+
+    concurrentModelInstance.getContentHash();
+    concurrentModelInstance.read(new ModelOperation<BpmnModelInstance, Object>() {
+      public Object execute(BpmnModelInstance modelInstance) {
+        return modelInstance.getModelElementById("sendInvoice").getAttributeValue("name");
+      }
+    });
+    assertThat(concurrentModelInstance.getVersion()).isEqualTo(version);
+
+    concurrentModelInstance.write(new ModelOperation<BpmnModelInstance, Object>() {
+      public Object execute(BpmnModelInstance modelInstance) {
+        modelInstance.getModelElementById("sendInvoice").setAttributeValue("name", "Send");
+        return null;
+      }
+    });
+    assertThat(concurrentModelInstance.getVersion()).isGreaterThan(version);
+  }
+
+  @Test
+  public void testWriteInsideOfReadIsRejected() {
+    concurrentModelInstance.read(new ModelOperation<BpmnModelInstance, Object>() {
+      public Object execute(BpmnModelInstance modelInstance) {
+        try {
+          concurrentModelInstance.newInstance(ServiceTask.class);
+          fail("exception expected");
+        }
+        catch (ModelException e) {
+          // expected
+        }
+        return null;
+      }
+    });
+
+    // a read inside of a write is allowed
+    String name = concurrentModelInstance.write(new ModelOperation<BpmnModelInstance, String>() {
+      public String execute(BpmnModelInstance modelInstance) {
+        return ((ServiceTask) concurrentModelInstance.getModelElementById("sendInvoice")).getName();
+      }
+    });
+    assertThat(name).isEqualTo("Send invoice");
+  }
+
+}
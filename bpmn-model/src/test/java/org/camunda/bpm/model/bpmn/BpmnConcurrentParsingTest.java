@@ -0,0 +1,152 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Participant;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.xml.ModelParseException;
+import org.camunda.bpm.model.xml.ModelParseOptions;
+import org.camunda.bpm.model.xml.ModelValidationException;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_NS;
+
+public class BpmnConcurrentParsingTest {
+
+  private static final int PROCESS_COUNT = 10;
+
+  private ExecutorService executorService;
+  private String xml;
+
+  @Before
+  public void createDocument() {
+    executorService = Executors.newFixedThreadPool(4);
+
+    StringBuilder collaboration = new StringBuilder();
+    StringBuilder processes = new StringBuilder();
+    StringBuilder shapes = new StringBuilder();
+    collaboration.append("  <collaboration id=\"collaboration\">\n");
+    for (int i = 0; i < PROCESS_COUNT; i++) {
+      collaboration.append("    <participant id=\"participant").append(i).append("\" processRef=\"process").append(i).append("\"/>\n");
+      processes.append("  <!-- process ").append(i).append(" -->\n")
+        .append("  <process id=\"process").append(i).append("\" isExecutable=\"true\">\n")
+        .append("    <startEvent id=\"start").append(i).append("\"/>\n")
+        .append("    <sequenceFlow id=\"flow").append(i).append("\" sourceRef=\"start").append(i).append("\" targetRef=\"task").append(i).append("\"/>\n")
+        .append("    <serviceTask id=\"task").append(i).append("\" name=\"Task ").append(i).append("\"/>\n")
+        .append("  </process>\n");
+      shapes.append("      <bpmndi:BPMNShape id=\"shape").append(i).append("\" bpmnElement=\"task").append(i).append("\">\n")
+        .append("        <dc:Bounds height=\"80.0\" width=\"100.0\" x=\"").append(i * 150).append(".0\" y=\"100.0\"/>\n")
+        .append("      </bpmndi:BPMNShape>\n");
+    }
+    collaboration.append("  </collaboration>\n");
+
+    xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" xmlns:bpmndi=\"http://www.omg.org/spec/BPMN/20100524/DI\" "
+      + "xmlns:dc=\"http://www.omg.org/spec/DD/20100524/DC\" id=\"definitions\" targetNamespace=\"http://camunda.org/examples\">\n"
+      + collaboration
+      + processes
+      + "  <bpmndi:BPMNDiagram id=\"diagram\">\n"
+      + "    <bpmndi:BPMNPlane id=\"plane\" bpmnElement=\"collaboration\">\n"
+      + shapes
+      + "    </bpmndi:BPMNPlane>\n"
+      + "  </bpmndi:BPMNDiagram>\n"
+      + "</definitions>\n";
+  }
+
+  @After
+  public void shutdownExecutor() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentParsingInSchemaMode() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions().parseConcurrently(executorService, 4));
+
+    assertThat(Bpmn.convertToString(modelInstance)).isEqualTo(Bpmn.convertToString(parse(new ModelParseOptions())));
+    assertThat(modelInstance.getModelElementsByType(Process.class)).hasSize(PROCESS_COUNT);
+    for (int i = 0; i < PROCESS_COUNT; i++) {
+      ServiceTask task = (ServiceTask) modelInstance.getModelElementById("task" + i);
+      Participant participant = (Participant) modelInstance.getModelElementById("participant" + i);
+      assertThat(participant.getProcess().getId()).isEqualTo("process" + i);
+      assertThat(((BpmnShape) modelInstance.getModelElementById("shape" + i)).getBpmnElement()).isEqualTo(task);
+    }
+  }
+
+  @Test
+  public void testConcurrentParsingInStructureMode() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions()
+      .validationMode(ValidationMode.STRUCTURE)
+      .parseConcurrently(executorService, 3));
+
+    BpmnModelInstance expectedModelInstance = parse(new ModelParseOptions().validationMode(ValidationMode.STRUCTURE));
+    assertThat(Bpmn.convertToString(modelInstance)).isEqualTo(Bpmn.convertToString(expectedModelInstance));
+    assertThat(modelInstance.getModelElementById("task7")).isInstanceOf(ServiceTask.class);
+  }
+
+  @Test
+  public void testConcurrentParsingWithFilters() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions()
+      .deferNamespace(BPMNDI_NS)
+      .excludeRootElements(Process.class, "process3")
+      .parseConcurrently(executorService, 4));
+
+    assertThat(modelInstance.getModelElementsByType(Process.class)).hasSize(PROCESS_COUNT - 1);
+    assertThat(((Participant) modelInstance.getModelElementById("participant3")).getProcess()).isNull();
+    assertThat(((BpmnShape) modelInstance.getModelElementById("shape3")).getBpmnElement()).isNull();
+    assertThat(((BpmnShape) modelInstance.getModelElementById("shape4")).getBpmnElement().getId()).isEqualTo("task4");
+  }
+
+  @Test
+  public void testDuplicateIdsInDifferentPartitions() {
+    xml = xml.replace("id=\"process9\"", "id=\"process0\"");
+
+    try {
+      parse(new ModelParseOptions().validationMode(ValidationMode.STRUCTURE).parseConcurrently(executorService, 4));
+      fail("duplicate id should be detected");
+    }
+    catch (ModelValidationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDuplicateIdsInSchemaMode() {
+    xml = xml.replace("id=\"process9\"", "id=\"process0\"");
+
+    // the document is parsed sequentially, so the schema validation reports the duplicate id
+    try {
+      parse(new ModelParseOptions().parseConcurrently(executorService, 4));
+      fail("duplicate id should be detected");
+    }
+    catch (ModelParseException e) {
+      // expected
+    }
+  }
+
+  private BpmnModelInstance parse(ModelParseOptions options) {
+    return Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()), options);
+  }
+
+}
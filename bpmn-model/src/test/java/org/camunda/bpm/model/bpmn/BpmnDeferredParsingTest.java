@@ -0,0 +1,164 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Collaboration;
+import org.camunda.bpm.model.bpmn.instance.Definitions;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnDiagram;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.bpmn.instance.dc.Bounds;
+import org.camunda.bpm.model.xml.ModelParseOptions;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.camunda.bpm.model.bpmn.BpmnTestConstants.COLLABORATION_ID;
+import static org.camunda.bpm.model.bpmn.BpmnTestConstants.SERVICE_TASK_ID;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_NS;
+
+public class BpmnDeferredParsingTest {
+
+  private String xml;
+
+  @Before
+  public void readXml() throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnDiTest.xml");
+    try {
+      // the target of a data input association has to be an item aware element
+      xml = IoUtil.getStringFromInputStream(inputStream)
+        .replace("<bpmn2:targetRef>serviceTask</bpmn2:targetRef>", "<bpmn2:targetRef>dataStoreReference</bpmn2:targetRef>");
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+  @Test
+  public void testDiagramInterchangeIsNotParsed() {
+    BpmnModelInstance modelInstance = parseDeferred(ValidationMode.SCHEMA);
+
+    assertThat(modelInstance.getModelElementsByType(Process.class)).hasSize(2);
+    assertThat(modelInstance.getModelElementById(SERVICE_TASK_ID)).isInstanceOf(ServiceTask.class);
+    assertThat(modelInstance.getDefinitions().getRootElements()).hasSize(3);
+    assertThat(hasDeferredElements(modelInstance)).isTrue();
+  }
+
+  @Test
+  public void testDiagramInterchangeIsLoadedByType() {
+    BpmnModelInstance modelInstance = parseDeferred(ValidationMode.SCHEMA);
+
+    Collection<BpmnDiagram> diagrams = modelInstance.getModelElementsByType(BpmnDiagram.class);
+    assertThat(hasDeferredElements(modelInstance)).isFalse();
+    assertThat(diagrams).hasSize(1);
+    Collaboration collaboration = (Collaboration) modelInstance.getModelElementById(COLLABORATION_ID);
+    assertThat(diagrams.iterator().next().getBpmnPlane().getBpmnElement()).isEqualTo(collaboration);
+  }
+
+  @Test
+  public void testDiagramInterchangeIsLoadedByNestedType() {
+    BpmnModelInstance modelInstance = parseDeferred(ValidationMode.SCHEMA);
+
+    assertThat(modelInstance.getModelElementsByType(Bounds.class)).isNotEmpty();
+    assertThat(hasDeferredElements(modelInstance)).isFalse();
+  }
+
+  @Test
+  public void testDiagramInterchangeIsLoadedById() {
+    BpmnModelInstance modelInstance = parseDeferred(ValidationMode.SCHEMA);
+
+    assertThat(modelInstance.getModelElementById("BPMNDiagram_1")).isInstanceOf(BpmnDiagram.class);
+    assertThat(hasDeferredElements(modelInstance)).isFalse();
+  }
+
+  @Test
+  public void testDiagramInterchangeIsLoadedByChildElements() {
+    BpmnModelInstance modelInstance = parseDeferred(ValidationMode.SCHEMA);
+
+    assertThat(modelInstance.getDefinitions().getChildElementsByType(BpmnDiagram.class)).hasSize(1);
+  }
+
+  @Test
+  public void testDiagramElementOfBpmnElement() {
+    BpmnModelInstance modelInstance = parseDeferred(ValidationMode.STRUCTURE);
+
+    ServiceTask serviceTask = (ServiceTask) modelInstance.getModelElementById(SERVICE_TASK_ID);
+    BpmnShape shape = serviceTask.getDiagramElement();
+    assertThat(shape.getBpmnElement()).isEqualTo(serviceTask);
+    assertThat(modelInstance.getModelElementById("_BPMNShape_ServiceTask_9")).isEqualTo(shape);
+  }
+
+  @Test
+  public void testRenamedElementUpdatesDeferredReferences() {
+    BpmnModelInstance modelInstance = parseDeferred(ValidationMode.SCHEMA);
+
+    ServiceTask serviceTask = (ServiceTask) modelInstance.getModelElementById(SERVICE_TASK_ID);
+    serviceTask.setId("renamedTask");
+
+    BpmnShape shape = serviceTask.getDiagramElement();
+    assertThat(shape.getAttributeValue("bpmnElement")).isEqualTo("renamedTask");
+  }
+
+  @Test
+  public void testRoundTrip() {
+    for (ValidationMode validationMode : ValidationMode.values()) {
+      BpmnModelInstance modelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()), validationMode);
+      assertThat(Bpmn.convertToString(parseDeferred(validationMode))).isEqualTo(Bpmn.convertToString(modelInstance));
+    }
+  }
+
+  @Test
+  public void testRoundTripAfterChanges() {
+    BpmnModelInstance modelInstance = parseDeferred(ValidationMode.SCHEMA);
+    Definitions definitions = modelInstance.getDefinitions();
+    // the diagram was preceded by the data store
+    definitions.removeChildElement(modelInstance.getModelElementById("DataStore_1"));
+    definitions.removeChildElement(modelInstance.getModelElementById("process2"));
+
+    BpmnModelInstance reparsed = Bpmn.readModelFromStream(new ByteArrayInputStream(Bpmn.convertToString(modelInstance).getBytes()));
+    assertThat(reparsed.getModelElementById("process2")).isNull();
+    assertThat(reparsed.getModelElementsByType(BpmnDiagram.class)).hasSize(1);
+  }
+
+  @Test
+  public void testUnsupportedEncodingIsParsedCompletely() throws IOException {
+    String utf16 = xml.replace("encoding=\"UTF-8\"", "encoding=\"UTF-16\"");
+    ModelParseOptions options = new ModelParseOptions().deferNamespace(BPMNDI_NS);
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(utf16.getBytes("UTF-16")), options);
+
+    assertThat(hasDeferredElements(modelInstance)).isFalse();
+    assertThat(modelInstance.getModelElementsByType(BpmnDiagram.class)).hasSize(1);
+  }
+
+  protected BpmnModelInstance parseDeferred(ValidationMode validationMode) {
+    ModelParseOptions options = new ModelParseOptions()
+      .validationMode(validationMode)
+      .deferNamespace(BPMNDI_NS);
+    return Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()), options);
+  }
+
+  protected boolean hasDeferredElements(BpmnModelInstance modelInstance) {
+    return ((ModelInstanceImpl) modelInstance).hasDeferredElements();
+  }
+
+}
@@ -16,6 +16,7 @@ package org.camunda.bpm.model.bpmn;
 import org.camunda.bpm.model.bpmn.instance.*;
 import org.camunda.bpm.model.bpmn.instance.Process;
 import org.camunda.bpm.model.bpmn.instance.bpmndi.*;
+import org.camunda.bpm.model.bpmn.instance.dc.Bounds;
 import org.camunda.bpm.model.bpmn.instance.dc.Font;
 import org.camunda.bpm.model.bpmn.instance.di.DiagramElement;
 import org.junit.After;
@@ -147,6 +148,54 @@ public class BpmnDiTest {
     assertThat(association.getDiagramElement()).isInstanceOf(BpmnEdge.class);
   }
 
+  @Test
+  public void testGetDiagramElements() {
+    Collection<DiagramElement> diagramElements = modelInstance.getDiagramElements(serviceTask);
+    assertThat(diagramElements).hasSize(1);
+    assertThat(diagramElements.iterator().next()).isEqualTo(serviceTask.getDiagramElement());
+    assertThat(modelInstance.getDiagramElements(process)).isEmpty();
+  }
+
+  @Test
+  public void testDiagramElementIndexFollowsIdChange() {
+    BpmnShape shape = exclusiveGateway.getDiagramElement();
+    exclusiveGateway.setId("changedExclusiveGateway");
+
+    assertThat(modelInstance.getDiagramElements(exclusiveGateway)).containsOnly(shape);
+    assertThat(shape.getBpmnElement()).isEqualTo(exclusiveGateway);
+  }
+
+  @Test
+  public void testDiagramElementIndexFollowsRemoval() {
+    BpmnShape shape = serviceTask.getDiagramElement();
+    BpmnPlane plane = (BpmnPlane) collaboration.getDiagramElement();
+    plane.getDiagramElements().remove(shape);
+
+    assertThat(modelInstance.getDiagramElements(serviceTask)).isEmpty();
+    assertThat(serviceTask.getDiagramElement()).isNull();
+  }
+
+  @Test
+  public void testDiagramElementIndexFollowsAddition() {
+    BpmnPlane plane = (BpmnPlane) collaboration.getDiagramElement();
+    assertThat(modelInstance.getDiagramElements(process)).isEmpty();
+
+    BpmnShape shape = modelInstance.newInstance(BpmnShape.class);
+    shape.setBpmnElement(process);
+    assertThat(modelInstance.getDiagramElements(process)).isEmpty();
+
+    Bounds bounds = modelInstance.newInstance(Bounds.class);
+    bounds.setX(0.0);
+    bounds.setY(0.0);
+    bounds.setWidth(100.0);
+    bounds.setHeight(100.0);
+    shape.setBounds(bounds);
+    plane.getDiagramElements().add(shape);
+
+    assertThat(modelInstance.getDiagramElements(process)).containsOnly(shape);
+    assertThat(process.getDiagramElement()).isEqualTo(shape);
+  }
+
   @After
   public void validateModel() {
     Bpmn.validateModel(modelInstance);
@@ -0,0 +1,213 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.xml.diff.AttributeDifference;
+import org.camunda.bpm.model.xml.diff.DifferenceType;
+import org.camunda.bpm.model.xml.diff.ElementDifference;
+import org.camunda.bpm.model.xml.diff.ModelDiff;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BpmnDiffTest {
+
+  private String xml;
+  private BpmnModelInstance modelInstance;
+
+  @Before
+  public void readModel() throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream(getClass().getSimpleName() + ".bpmn");
+    try {
+      xml = IoUtil.getStringFromInputStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+    modelInstance = parse(xml);
+  }
+
+  @Test
+  public void testIdenticalModels() {
+    ModelDiff diff = Bpmn.diff(modelInstance, parse(xml));
+    assertThat(diff.hasDifferences()).isFalse();
+    assertThat(diff.getDifferences()).isEmpty();
+  }
+
+  @Test
+  public void testFormattingIsIgnored() {
+    String reformatted = xml
+      .replaceAll("bpmn2:", "bpmn:")
+      .replaceAll("xmlns:bpmn2", "xmlns:bpmn")
+      .replaceAll("\n\\s*", "\n")
+      .replace("name=\"Data Store 1\" dataStoreRef=\"DataStore_1\"", "dataStoreRef=\"DataStore_1\"  name=\"Data Store 1\"");
+
+    ModelDiff diff = Bpmn.diff(modelInstance, parse(reformatted));
+    assertThat(diff.hasDifferences()).isFalse();
+  }
+
+  @Test
+  public void testChangedAttribute() {
+    BpmnModelInstance newModelInstance = parse(xml);
+    newModelInstance.getModelElementById("serviceTask").setAttributeValue("name", "Service Task");
+
+    ModelDiff diff = Bpmn.diff(modelInstance, newModelInstance);
+
+    List<ElementDifference> differences = diff.getDifferences();
+    assertThat(differences).hasSize(1);
+    ElementDifference difference = differences.get(0);
+    assertThat(difference.getType()).isEqualTo(DifferenceType.CHANGED);
+    assertThat(difference.getElementId()).isEqualTo("serviceTask");
+    assertThat(difference.getOldElement()).isEqualTo(modelInstance.getModelElementById("serviceTask"));
+    assertThat(difference.getNewElement()).isEqualTo(newModelInstance.getModelElementById("serviceTask"));
+    assertThat(difference.isTextContentChanged()).isFalse();
+
+    List<AttributeDifference> attributeDifferences = difference.getAttributeDifferences();
+    assertThat(attributeDifferences).hasSize(1);
+    assertThat(attributeDifferences.get(0).getAttributeName()).isEqualTo("name");
+    assertThat(attributeDifferences.get(0).getOldValue()).isNull();
+    assertThat(attributeDifferences.get(0).getNewValue()).isEqualTo("Service Task");
+  }
+
+  @Test
+  public void testQNameReferencePrefixIsIgnored() {
+    String changed = xml
+      .replace("bpmnElement=\"serviceTask\"", "bpmnElement=\"bpmn2:serviceTask\"")
+      .replace("bpmnElement=\"participant1\" isHorizontal=\"true\"", "bpmnElement=\"bpmn2:participant1\" isHorizontal=\"false\"");
+
+    ModelDiff diff = Bpmn.diff(modelInstance, parse(changed));
+
+    // the changed shape only reports the changed attribute
+    List<ElementDifference> differences = diff.getDifferences();
+    assertThat(differences).hasSize(1);
+    assertThat(differences.get(0).getElementId()).isEqualTo("_BPMNShape_Participant_9");
+    List<AttributeDifference> attributeDifferences = differences.get(0).getAttributeDifferences();
+    assertThat(attributeDifferences).hasSize(1);
+    assertThat(attributeDifferences.get(0).getAttributeName()).isEqualTo("isHorizontal");
+  }
+
+  @Test
+  public void testChangedTextContent() {
+    String changed = xml.replace("<bpmn2:incoming>SequenceFlow_1</bpmn2:incoming>", "<bpmn2:incoming>sequenceFlow1</bpmn2:incoming>");
+
+    ModelDiff diff = Bpmn.diff(modelInstance, parse(changed));
+
+    List<ElementDifference> differences = diff.getDifferences();
+    assertThat(differences).hasSize(1);
+    assertThat(differences.get(0).getType()).isEqualTo(DifferenceType.CHANGED);
+    assertThat(differences.get(0).isTextContentChanged()).isTrue();
+    assertThat(differences.get(0).getOldElement().getTextContent()).isEqualTo("SequenceFlow_1");
+  }
+
+  @Test
+  public void testAddedAndRemovedElements() {
+    String changed = xml
+      .replace("<bpmn2:textAnnotation id=\"textAnnotation\"/>", "<bpmn2:textAnnotation id=\"textAnnotation2\"/>")
+      .replace("sourceRef=\"textAnnotation\"", "sourceRef=\"textAnnotation2\"")
+      .replace("bpmnElement=\"textAnnotation\"", "bpmnElement=\"textAnnotation2\"");
+
+    ModelDiff diff = Bpmn.diff(modelInstance, parse(changed));
+
+    List<ElementDifference> removed = diff.getDifferences(DifferenceType.REMOVED);
+    assertThat(removed).hasSize(1);
+    assertThat(removed.get(0).getElementId()).isEqualTo("textAnnotation");
+    assertThat(removed.get(0).getNewElement()).isNull();
+
+    List<ElementDifference> added = diff.getDifferences(DifferenceType.ADDED);
+    assertThat(added).hasSize(1);
+    assertThat(added.get(0).getElementId()).isEqualTo("textAnnotation2");
+    assertThat(added.get(0).getOldElement()).isNull();
+
+    // the association and the DI shape reference the renamed annotation
+    assertThat(diff.getDifferences(DifferenceType.CHANGED)).hasSize(2);
+  }
+
+  @Test
+  public void testMovedElement() {
+    String dataStoreReference = "<bpmn2:dataStoreReference id=\"dataStoreReference\" name=\"Data Store 1\" dataStoreRef=\"DataStore_1\"/>";
+    String sequenceFlow3 = "<bpmn2:sequenceFlow id=\"sequenceFlow3\" name=\"\" sourceRef=\"startEvent2\" targetRef=\"endEvent2\"/>";
+    String changed = xml
+      .replace(dataStoreReference, "")
+      .replace(sequenceFlow3, sequenceFlow3 + dataStoreReference);
+
+    ModelDiff diff = Bpmn.diff(modelInstance, parse(changed));
+
+    List<ElementDifference> differences = diff.getDifferences();
+    assertThat(differences).hasSize(1);
+    assertThat(differences.get(0).getType()).isEqualTo(DifferenceType.MOVED);
+    assertThat(differences.get(0).getElementId()).isEqualTo("dataStoreReference");
+    assertThat(differences.get(0).getAttributeDifferences()).isEmpty();
+  }
+
+  @Test
+  public void testIgnoreDiagramInterchange() {
+    String changed = xml.replace("x=\"780.0\" y=\"155.0\"", "x=\"800.0\" y=\"155.0\"");
+    BpmnModelInstance newModelInstance = parse(changed);
+
+    ModelDiff diff = Bpmn.diff(modelInstance, newModelInstance);
+    assertThat(diff.getDifferences()).hasSize(1);
+    assertThat(diff.getDifferences().get(0).getAttributeDifferences().get(0).getAttributeName()).isEqualTo("x");
+
+    diff = Bpmn.diff(modelInstance, newModelInstance, true, false);
+    assertThat(diff.hasDifferences()).isFalse();
+  }
+
+  @Test
+  public void testIgnoreDocumentation() {
+    String changed = xml.replace("<bpmn2:serviceTask id=\"serviceTask\">", "<bpmn2:serviceTask id=\"serviceTask\"><bpmn2:documentation>calls the service</bpmn2:documentation>");
+    BpmnModelInstance newModelInstance = parse(changed);
+
+    ModelDiff diff = Bpmn.diff(modelInstance, newModelInstance);
+    assertThat(diff.getDifferences(DifferenceType.ADDED)).hasSize(1);
+
+    diff = Bpmn.diff(modelInstance, newModelInstance, false, true);
+    assertThat(diff.hasDifferences()).isFalse();
+  }
+
+  @Test
+  public void testLargeModel() {
+    BpmnModelInstance oldModelInstance = parse(createLargeModel(10000, "task5000"));
+    BpmnModelInstance newModelInstance = parse(createLargeModel(10000, "changed"));
+
+    ModelDiff diff = Bpmn.diff(oldModelInstance, newModelInstance);
+
+    List<ElementDifference> differences = diff.getDifferences();
+    assertThat(differences).hasSize(1);
+    assertThat(differences.get(0).getElementId()).isEqualTo("task5000");
+  }
+
+  protected String createLargeModel(int numberOfTasks, String nameOfTask5000) {
+    StringBuilder builder = new StringBuilder();
+    builder.append("<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" id=\"definitions\" targetNamespace=\"http://camunda.org/test\">");
+    builder.append("<process id=\"process\">");
+    for (int i = 0; i < numberOfTasks; i++) {
+      String name = i == 5000 ? nameOfTask5000 : "task" + i;
+      builder.append("<task id=\"task").append(i).append("\" name=\"").append(name).append("\"/>");
+    }
+    builder.append("</process></definitions>");
+    return builder.toString();
+  }
+
+  protected BpmnModelInstance parse(String xml) {
+    return Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()));
+  }
+
+}
@@ -0,0 +1,177 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Definitions;
+import org.camunda.bpm.model.bpmn.instance.Message;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BpmnElementFragmentTest {
+
+  private BpmnModelInstance modelInstance;
+
+  @Before
+  public void readModel() {
+    modelInstance = readModel("BpmnElementFragmentTest.bpmn");
+  }
+
+  @Test
+  public void testWriteElementDeclaresUsedNamespaces() throws Exception {
+    String xml = writeElement(modelInstance.getModelElementById("order"), false);
+
+    assertThat(xml).contains("<process xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\"");
+    assertThat(xml).contains("xmlns:camunda=\"http://activiti.org/bpmn\"");
+    for (String unusedContent : new String[] { "xmlns:bpmndi", "xmlns:dc", "xmlns:tns", "definitions", "BPMNShape" }) {
+      assertThat(xml).doesNotContain(unusedContent);
+    }
+  }
+
+  @Test
+  public void testWriteElementDeclaresNamespacesOfQualifiedReferences() throws Exception {
+    String xml = writeElement(modelInstance.getModelElementById("orderMessage"), false);
+
+    assertThat(xml).contains("itemRef=\"tns:orderItem\"", "xmlns:tns=\"http://camunda.org/examples\"");
+    assertThat(xml).doesNotContain("xmlns:camunda");
+  }
+
+  @Test
+  public void testWriteElementWrappedInDefinitions() throws Exception {
+    String xml = writeElement(modelInstance.getModelElementById("orderMessage"), true);
+
+    BpmnModelInstance fragment = Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    Definitions definitions = fragment.getDefinitions();
+    assertThat(definitions.getId()).isEqualTo("definitions");
+    assertThat(definitions.getTargetNamespace()).isEqualTo("http://camunda.org/examples");
+    assertThat(definitions.getChildElementsByType(Message.class)).hasSize(1);
+    assertThat(fragment.getModelElementById("orderMessage")).isNotNull();
+    assertThat(fragment.getModelElementById("order")).isNull();
+    assertThat(xml).doesNotContain("xmlns:bpmndi");
+    assertThat(xml).doesNotContain("xmlns:camunda");
+  }
+
+  @Test
+  public void testWriteNestedElement() throws Exception {
+    String xml = writeElement(modelInstance.getModelElementById("shipping"), false);
+
+    assertThat(xml).contains("<subProcess xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\"", "<startEvent id=\"shippingStart\"");
+    assertThat(xml).doesNotContain("sendOrder");
+  }
+
+  @Test
+  public void testMergeChangedElement() throws Exception {
+    // a client changes its copy of the process and sends it back
+    BpmnModelInstance clientModelInstance = readModel("BpmnElementFragmentTest.bpmn");
+    ServiceTask clientTask = (ServiceTask) clientModelInstance.getModelElementById("sendOrder");
+    clientTask.setName("Send confirmed order");
+    clientTask.setCamundaClass("org.camunda.bpm.example.SendConfirmedOrder");
+    String xml = writeElement(clientModelInstance.getModelElementById("order"), false);
+
+    Process order = (Process) modelInstance.getModelElementById("order");
+    ModelElementInstance mergedElement = Bpmn.mergeElement(modelInstance, new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+    assertThat(mergedElement).isNotEqualTo(order);
+    assertThat(modelInstance.getModelElementById("order")).isEqualTo(mergedElement);
+    assertThat(modelInstance.getDefinitions().getChildElementsByType(Process.class)).hasSize(1);
+    ServiceTask task = (ServiceTask) modelInstance.getModelElementById("sendOrder");
+    assertThat(task.getName()).isEqualTo("Send confirmed order");
+    assertThat(task.getCamundaClass()).isEqualTo("org.camunda.bpm.example.SendConfirmedOrder");
+    // references to the replaced elements refer to the merged elements
+    BpmnShape shape = (BpmnShape) modelInstance.getModelElementById("sendOrderShape");
+    assertThat(shape.getBpmnElement()).isEqualTo(task);
+    Bpmn.validateModel(modelInstance);
+    assertThat(Bpmn.convertToCanonicalString(modelInstance)).isEqualTo(Bpmn.convertToCanonicalString(clientModelInstance));
+  }
+
+  @Test
+  public void testMergeNewElement() throws Exception {
+    BpmnModelInstance otherModelInstance = Bpmn.createExecutableProcess("invoice")
+      .startEvent("invoiceStart")
+      .endEvent("invoiceEnd")
+      .done();
+    String xml = writeElement(otherModelInstance.getModelElementById("invoice"), true);
+
+    Process invoice = (Process) Bpmn.mergeElement(modelInstance, new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+    assertThat(invoice.getParentElement()).isEqualTo(modelInstance.getDefinitions());
+    assertThat(modelInstance.getModelElementById("invoiceStart")).isNotNull();
+    assertThat(modelInstance.getDefinitions().getChildElementsByType(Process.class)).hasSize(2);
+    Bpmn.validateModel(modelInstance);
+  }
+
+  @Test
+  public void testMergeElementWithExistingIdFails() throws Exception {
+    BpmnModelInstance otherModelInstance = Bpmn.createExecutableProcess("invoice")
+      .startEvent("invoiceStart")
+      .userTask("sendOrder")
+      .endEvent("invoiceEnd")
+      .done();
+    String xml = writeElement(otherModelInstance.getModelElementById("invoice"), false);
+    String canonicalXml = Bpmn.convertToCanonicalString(modelInstance);
+
+    try {
+      Bpmn.mergeElement(modelInstance, new ByteArrayInputStream(xml.getBytes("UTF-8")), modelInstance.getDefinitions());
+      fail("the id of the existing task should not be reused");
+    }
+    catch (ModelException e) {
+      assertThat(e).hasMessageContaining("sendOrder");
+    }
+    assertThat(modelInstance.getModelElementById("invoice")).isNull();
+    assertThat(Bpmn.convertToCanonicalString(modelInstance)).isEqualTo(canonicalXml);
+  }
+
+  @Test
+  public void testMergeUnknownElementWithoutParentFails() throws Exception {
+    BpmnModelInstance otherModelInstance = Bpmn.createExecutableProcess("invoice").done();
+    String xml = writeElement(otherModelInstance.getModelElementById("invoice"), false);
+
+    try {
+      Bpmn.mergeElement(modelInstance, new ByteArrayInputStream(xml.getBytes("UTF-8")));
+      fail("a new element needs a parent element");
+    }
+    catch (ModelException e) {
+      assertThat(e).hasMessageContaining("no parent element");
+    }
+  }
+
+  private String writeElement(ModelElementInstance element, boolean wrapInDefinitions) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    Bpmn.writeElement(element, outputStream, wrapInDefinitions);
+    return outputStream.toString("UTF-8");
+  }
+
+  private BpmnModelInstance readModel(String resource) {
+    InputStream inputStream = getClass().getResourceAsStream(resource);
+    try {
+      return Bpmn.readModelFromStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Collaboration;
+import org.camunda.bpm.model.bpmn.instance.MessageFlow;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.StartEvent;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnEdge;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.bpmn.instance.di.DiagramElement;
+import org.camunda.bpm.model.xml.IdConflictPolicy;
+import org.camunda.bpm.model.xml.ModelException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BpmnElementImportTest {
+
+  private BpmnModelInstance sourceModelInstance;
+
+  @Before
+  public void parseSourceModel() {
+    sourceModelInstance = Bpmn.readModelFromStream(getClass().getResourceAsStream("BpmnElementImportTest.bpmn"));
+  }
+
+  @Test
+  public void testImportWithRenamedIds() {
+    BpmnModelInstance modelInstance = Bpmn.createExecutableProcess("invoice")
+      .startEvent("invoiceStart")
+      .endEvent()
+      .done();
+    Process invoice = (Process) sourceModelInstance.getModelElementById("invoice");
+
+    Process importedProcess = modelInstance.importElement(invoice, modelInstance.getDefinitions(), IdConflictPolicy.RENAME);
+
+    assertThat(importedProcess.getId()).isEqualTo("invoice_1");
+    assertThat(modelInstance.getModelElementById("invoice_1")).isEqualTo(importedProcess);
+    assertThat(((Process) modelInstance.getModelElementById("invoice")).getFlowElements()).hasSize(3);
+    StartEvent importedStart = (StartEvent) modelInstance.getModelElementById("invoiceStart_1");
+    assertThat(importedStart.getParentElement()).isEqualTo(importedProcess);
+    SequenceFlow importedFlow = (SequenceFlow) modelInstance.getModelElementById("invoiceFlow1");
+    assertThat(importedFlow.getSource()).isEqualTo(importedStart);
+    assertThat(importedStart.getOutgoing()).containsExactly(importedFlow);
+
+    ServiceTask sendInvoice = (ServiceTask) modelInstance.getModelElementById("sendInvoice");
+    assertThat(sendInvoice.getCamundaClass()).isEqualTo("org.camunda.bpm.example.SendInvoice");
+    // the source model instance is not changed
+    assertThat(invoice.getId()).isEqualTo("invoice");
+    assertThat(sourceModelInstance.getModelElementById("invoiceStart_1")).isNull();
+
+    Bpmn.validateModel(modelInstance);
+    BpmnModelInstance parsedModelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(Bpmn.convertToString(modelInstance).getBytes()));
+    assertThat(((SequenceFlow) parsedModelInstance.getModelElementById("invoiceFlow1")).getSource().getId()).isEqualTo("invoiceStart_1");
+  }
+
+  @Test
+  public void testImportFailsOnConflictingId() {
+    BpmnModelInstance modelInstance = Bpmn.createExecutableProcess("process")
+      .startEvent("invoiceStart")
+      .done();
+    String xml = Bpmn.convertToString(modelInstance);
+
+    try {
+      modelInstance.importElement(sourceModelInstance.getModelElementById("invoice"), modelInstance.getDefinitions(), IdConflictPolicy.FAIL);
+      fail("conflicting id should be detected");
+    }
+    catch (ModelException e) {
+      assertThat(e.getMessage()).contains("invoiceStart");
+    }
+
+    assertThat(Bpmn.convertToString(modelInstance)).isEqualTo(xml);
+    assertThat(modelInstance.getModelElementById("sendInvoice")).isNull();
+  }
+
+  @Test
+  public void testImportIntoSameModelInstanceWithDiagramElements() {
+    BpmnModelInstance modelInstance = sourceModelInstance;
+    Process invoice = (Process) modelInstance.getModelElementById("invoice");
+
+    Process importedProcess = modelInstance.importElement(invoice, modelInstance.getDefinitions(), IdConflictPolicy.RENAME, true);
+
+    assertThat(importedProcess.getId()).isEqualTo("invoice_1");
+    ServiceTask importedTask = (ServiceTask) modelInstance.getModelElementById("sendInvoice_1");
+    BpmnShape importedShape = (BpmnShape) modelInstance.getModelElementById("sendInvoiceShape_1");
+    assertThat(importedShape.getBpmnElement()).isEqualTo(importedTask);
+    assertThat(importedShape.getParentElement()).isEqualTo(modelInstance.getModelElementById("plane"));
+    assertThat(modelInstance.getDiagramElements(importedTask)).containsExactly((DiagramElement) importedShape);
+    // the original elements keep their diagram elements
+    BpmnShape shape = (BpmnShape) modelInstance.getModelElementById("sendInvoiceShape");
+    assertThat(shape.getBpmnElement().getId()).isEqualTo("sendInvoice");
+
+    Bpmn.validateModel(modelInstance);
+  }
+
+  @Test
+  public void testImportDeclaresNamespacesOfTargetDocument() {
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" xmlns:bpmndi=\"http://www.omg.org/spec/BPMN/20100524/DI\" "
+      + "id=\"definitions\" targetNamespace=\"http://camunda.org/examples\">\n"
+      + "  <bpmndi:BPMNDiagram id=\"diagram\">\n"
+      + "    <bpmndi:BPMNPlane id=\"plane\"/>\n"
+      + "  </bpmndi:BPMNDiagram>\n"
+      + "</definitions>\n";
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()));
+
+    modelInstance.importElement(sourceModelInstance.getModelElementById("invoice"), modelInstance.getDefinitions(), IdConflictPolicy.FAIL, true);
+    modelInstance.importElement(sourceModelInstance.getModelElementById("payment"), modelInstance.getDefinitions(), IdConflictPolicy.FAIL, true);
+    Collaboration collaboration = modelInstance.importElement((Collaboration) sourceModelInstance.getModelElementById("collaboration"),
+      modelInstance.getDefinitions(), IdConflictPolicy.FAIL, true);
+
+    assertThat(collaboration.getDomElement().getPrefix()).isNull();
+    String importedXml = Bpmn.convertToString(modelInstance);
+    assertThat(importedXml).doesNotContain("bpmn2:");
+
+    BpmnModelInstance parsedModelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(importedXml.getBytes()));
+    MessageFlow messageFlow = (MessageFlow) parsedModelInstance.getModelElementById("messageFlow");
+    assertThat(messageFlow.getSource().getId()).isEqualTo("sendInvoice");
+    assertThat(messageFlow.getTarget().getId()).isEqualTo("paymentStart");
+    BpmnEdge messageFlowEdge = (BpmnEdge) parsedModelInstance.getModelElementById("messageFlowEdge");
+    assertThat(messageFlowEdge.getBpmnElement()).isEqualTo(messageFlow);
+    assertThat(messageFlowEdge.getWaypoints()).hasSize(2);
+    ServiceTask sendInvoice = (ServiceTask) parsedModelInstance.getModelElementById("sendInvoice");
+    assertThat(sendInvoice.getCamundaClass()).isEqualTo("org.camunda.bpm.example.SendInvoice");
+    Bpmn.validateModel(parsedModelInstance);
+  }
+
+}
@@ -0,0 +1,138 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.builder.AbstractFlowNodeBuilder;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.MessageEventDefinition;
+import org.camunda.bpm.model.bpmn.instance.MessageFlow;
+import org.camunda.bpm.model.bpmn.instance.Participant;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.xml.IdMapper;
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BpmnIdRemappingTest {
+
+  private static final IdMapper TENANT_PREFIX = new IdMapper() {
+    public String mapId(String id) {
+      return "tenant1_" + id;
+    }
+  };
+
+  private BpmnModelInstance modelInstance;
+
+  @Before
+  public void parseModel() {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnIdRemappingTest.bpmn");
+    try {
+      modelInstance = Bpmn.readModelFromStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+  @Test
+  public void testRemapAllIds() {
+    modelInstance.remapIds(TENANT_PREFIX);
+
+    assertThat(modelInstance.getModelElementById("sendInvoice")).isNull();
+    ServiceTask sendInvoice = (ServiceTask) modelInstance.getModelElementById("tenant1_sendInvoice");
+    assertThat(sendInvoice.getIncoming()).extracting("id").containsExactly("tenant1_invoiceFlow1");
+    assertThat(((SequenceFlow) modelInstance.getModelElementById("tenant1_invoiceFlow1")).getTarget()).isEqualTo(sendInvoice);
+    assertThat(((Participant) modelInstance.getModelElementById("tenant1_participant1")).getProcess().getId()).isEqualTo("tenant1_invoice");
+    assertThat(((BpmnShape) modelInstance.getModelElementById("tenant1_sendInvoiceShape")).getBpmnElement()).isEqualTo(sendInvoice);
+    assertThat(modelInstance.getDiagramElements(sendInvoice)).hasSize(1);
+    // the source of a message flow is an interaction node, which is no base type of the flow nodes
+    MessageFlow messageFlow = (MessageFlow) modelInstance.getModelElementById("tenant1_messageFlow");
+    assertThat(messageFlow.getSource()).isEqualTo(sendInvoice);
+    assertThat(messageFlow.getTarget().getId()).isEqualTo("tenant1_paymentStart");
+
+    MessageEventDefinition messageEventDefinition = (MessageEventDefinition) modelInstance.getModelElementById("tenant1_paymentMessage");
+    assertThat(messageEventDefinition.getAttributeValue("messageRef")).isEqualTo("tns:tenant1_message");
+    assertThat(messageEventDefinition.getMessage().getId()).isEqualTo("tenant1_message");
+
+    Bpmn.validateModel(modelInstance);
+  }
+
+  @Test
+  public void testSwapIds() {
+    ModelElementInstance sendInvoice = modelInstance.getModelElementById("sendInvoice");
+    ModelElementInstance invoiceEnd = modelInstance.getModelElementById("invoiceEnd");
+    Map<String, String> ids = new HashMap<String, String>();
+    ids.put("sendInvoice", "invoiceEnd");
+    ids.put("invoiceEnd", "sendInvoice");
+
+    modelInstance.remapIds(ids);
+
+    assertThat(modelInstance.getModelElementById("invoiceEnd")).isSameAs(sendInvoice);
+    assertThat(modelInstance.getModelElementById("sendInvoice")).isSameAs(invoiceEnd);
+    assertThat(((SequenceFlow) modelInstance.getModelElementById("invoiceFlow2")).getSource()).isSameAs(sendInvoice);
+    assertThat(((SequenceFlow) modelInstance.getModelElementById("invoiceFlow2")).getTarget()).isSameAs(invoiceEnd);
+    assertThat(((BpmnShape) modelInstance.getModelElementById("sendInvoiceShape")).getBpmnElement()).isSameAs(sendInvoice);
+  }
+
+  @Test
+  public void testDuplicateIdsAreRejected() {
+    String convertedXml = Bpmn.convertToString(modelInstance);
+    Map<String, String> ids = new HashMap<String, String>();
+    ids.put("invoiceStart", "newId");
+    ids.put("invoiceFlow1", "sendInvoice");
+
+    try {
+      modelInstance.remapIds(ids);
+      fail("duplicate ids should be rejected");
+    }
+    catch (ModelException e) {
+      assertThat(e).hasMessageContaining("sendInvoice");
+    }
+
+    assertThat(Bpmn.convertToString(modelInstance)).isEqualTo(convertedXml);
+    assertThat(modelInstance.getModelElementById("newId")).isNull();
+  }
+
+  @Test
+  public void testRemapIdsOfLargeModel() {
+    AbstractFlowNodeBuilder<?, ?> builder = Bpmn.createExecutableProcess("process").startEvent("start");
+    for (int i = 0; i < 500; i++) {
+      builder = builder.serviceTask("task" + i);
+    }
+    BpmnModelInstance largeModelInstance = builder.done();
+
+    largeModelInstance.remapIds(TENANT_PREFIX);
+
+    assertThat(largeModelInstance.getModelElementById("task0")).isNull();
+    for (BaseElement element : largeModelInstance.getModelElementsByType(BaseElement.class)) {
+      assertThat(element.getId()).startsWith("tenant1_");
+      assertThat(largeModelInstance.getModelElementById(element.getId())).isSameAs(element);
+    }
+    FlowNode lastTask = (FlowNode) largeModelInstance.getModelElementById("tenant1_task499");
+    assertThat(lastTask.getPreviousNodes().singleResult().getId()).isEqualTo("tenant1_task498");
+  }
+
+}
@@ -0,0 +1,159 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Collaboration;
+import org.camunda.bpm.model.bpmn.instance.Participant;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnDiagram;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.ModelValidationException;
+import org.camunda.bpm.model.xml.event.ModelElementListener;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BpmnIncrementalParsingTest {
+
+  private String xml;
+
+  @Before
+  public void readXml() throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnIncrementalParsingTest.bpmn");
+    try {
+      xml = IoUtil.getStringFromInputStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+  @Test
+  public void testElementsAreParsedInDocumentOrder() {
+    RecordingListener listener = new RecordingListener();
+    BpmnModelInstance modelInstance = parse(ValidationMode.SCHEMA, listener);
+
+    assertThat(listener.elements).hasSize(4);
+    assertThat(listener.elements.get(0)).isInstanceOf(Collaboration.class);
+    assertThat(listener.elements.get(1)).isInstanceOf(Process.class);
+    assertThat(listener.elements.get(2)).isInstanceOf(Process.class);
+    assertThat(listener.elements.get(3)).isInstanceOf(BpmnDiagram.class);
+    assertThat(listener.modelInstance).isSameAs(modelInstance);
+    assertThat(listener.elements.get(1)).isSameAs(modelInstance.getModelElementById("invoice"));
+  }
+
+  @Test
+  public void testParsedElementsAreComplete() {
+    final List<String> taskIds = new ArrayList<String>();
+    parse(ValidationMode.SCHEMA, new RecordingListener() {
+      public void elementParsed(ModelElementInstance element) {
+        super.elementParsed(element);
+        if (element instanceof Process) {
+          for (ServiceTask task : element.getChildElementsByType(ServiceTask.class)) {
+            // elements of the same process are already resolved
+            assertThat(task.getIncoming()).isNotEmpty();
+            taskIds.add(task.getId());
+          }
+          assertThat(element.getModelInstance().getModelElementById(((Process) element).getId())).isSameAs(element);
+        }
+      }
+    });
+
+    assertThat(taskIds).contains("sendInvoice");
+  }
+
+  @Test
+  public void testReferencesAreResolvedWhenModelIsParsed() {
+    final List<Object> processes = new ArrayList<Object>();
+    parse(ValidationMode.SCHEMA, new RecordingListener() {
+      public void elementParsed(ModelElementInstance element) {
+        super.elementParsed(element);
+        if (element instanceof Collaboration) {
+          // the processes follow the collaboration in the document
+          processes.add(((Participant) element.getModelInstance().getModelElementById("participant1")).getProcess());
+        }
+      }
+
+      public void modelParsed(ModelInstance modelInstance) {
+        super.modelParsed(modelInstance);
+        processes.add(((Participant) modelInstance.getModelElementById("participant1")).getProcess());
+        assertThat(((BpmnShape) modelInstance.getModelElementById("sendInvoiceShape")).getBpmnElement().getId()).isEqualTo("sendInvoice");
+      }
+    });
+
+    assertThat(processes).hasSize(2);
+    assertThat(processes.get(0)).isNull();
+    assertThat(((Process) processes.get(1)).getId()).isEqualTo("invoice");
+  }
+
+  @Test
+  public void testParsedModelIsEqualToReadModel() {
+    for (ValidationMode validationMode : ValidationMode.values()) {
+      BpmnModelInstance modelInstance = parse(validationMode, new RecordingListener());
+      BpmnModelInstance expectedModelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()), validationMode);
+
+      assertThat(Bpmn.convertToString(modelInstance)).isEqualTo(Bpmn.convertToString(expectedModelInstance));
+      assertThat(modelInstance.getModelElementsByType(BpmnShape.class)).hasSameSizeAs(expectedModelInstance.getModelElementsByType(BpmnShape.class));
+    }
+  }
+
+  @Test
+  public void testInvalidDocument() {
+    xml = xml.replace("<bpmndi:BPMNDiagram", "<bpmndi:BPMNDiagram invalid=\"true\"");
+    RecordingListener listener = new RecordingListener();
+    try {
+      parse(ValidationMode.SCHEMA, listener);
+      fail("exception expected");
+    }
+    catch (ModelValidationException e) {
+      // the elements before the invalid element were already parsed
+      assertThat(listener.elements).hasSize(3);
+      assertThat(listener.modelInstance).isNull();
+    }
+  }
+
+  private BpmnModelInstance parse(ValidationMode validationMode, ModelElementListener listener) {
+    return Bpmn.parseIncrementally(new ByteArrayInputStream(xml.getBytes()), validationMode, listener);
+  }
+
+  private static class RecordingListener implements ModelElementListener {
+
+    protected final List<ModelElementInstance> elements = new ArrayList<ModelElementInstance>();
+    protected ModelInstance modelInstance;
+
+    public void elementParsed(ModelElementInstance element) {
+      elements.add(element);
+    }
+
+    public void modelParsed(ModelInstance modelInstance) {
+      assertThat(this.modelInstance).isNull();
+      this.modelInstance = modelInstance;
+    }
+
+  }
+
+}
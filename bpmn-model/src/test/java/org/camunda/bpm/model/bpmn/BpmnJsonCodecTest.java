@@ -0,0 +1,112 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Documentation;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.xml.ModelParseException;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BpmnJsonCodecTest {
+
+  private BpmnModelInstance modelInstance;
+
+  @Before
+  public void readModel() {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnJsonCodecTest.bpmn");
+    try {
+      modelInstance = Bpmn.readModelFromStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    String json = Bpmn.convertToJson(modelInstance);
+    BpmnModelInstance readModelInstance = Bpmn.readModelFromJson(new ByteArrayInputStream(json.getBytes("UTF-8")));
+
+    assertThat(Bpmn.convertToString(readModelInstance)).isEqualTo(Bpmn.convertToString(modelInstance));
+    assertThat(Bpmn.convertToJson(readModelInstance)).isEqualTo(json);
+  }
+
+  @Test
+  public void testRoundTripInStructureMode() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    Bpmn.writeModelToJson(outputStream, modelInstance, ValidationMode.STRUCTURE);
+    BpmnModelInstance readModelInstance = Bpmn.readModelFromJson(new ByteArrayInputStream(outputStream.toByteArray()), ValidationMode.STRUCTURE);
+
+    assertThat(Bpmn.convertToString(readModelInstance)).isEqualTo(Bpmn.convertToString(modelInstance));
+    ServiceTask sendInvoice = (ServiceTask) readModelInstance.getModelElementById("sendInvoice");
+    assertThat(sendInvoice.getCamundaClass()).isEqualTo("org.camunda.bpm.example.SendInvoice");
+    assertThat(sendInvoice.getIncoming().iterator().next().getSource().getId()).isEqualTo("invoiceStart");
+    BpmnShape shape = (BpmnShape) readModelInstance.getModelElementById("sendInvoiceShape");
+    assertThat(shape.getBpmnElement()).isEqualTo(sendInvoice);
+    assertThat(shape.getBounds().getX()).isEqualTo(200.0);
+    Process invoice = (Process) readModelInstance.getModelElementById("invoice");
+    assertThat(invoice.getChildElementsByType(Documentation.class).iterator().next().getTextContent())
+      .isEqualTo("Processes an <invoice> & \"its\" items");
+  }
+
+  @Test
+  public void testTypedAttributes() {
+    String json = Bpmn.convertToJson(modelInstance);
+
+    assertThat(json).contains("\"isExecutable\":true", "\"isExecutable\":false", "\"x\":200.0");
+    // references are written as the ids of the referenced elements
+    assertThat(json).contains("\"processRef\":\"invoice\"", "\"bpmnElement\":\"sendInvoice\"");
+    assertThat(json).contains("{\"#cdata\":", "{\"#comment\":", "{\"#pi\":\"modeler\"");
+  }
+
+  @Test
+  public void testRoundTripOfCreatedModel() throws Exception {
+    BpmnModelInstance createdModelInstance = Bpmn.createExecutableProcess("process")
+      .startEvent("start")
+      .userTask("task").camundaAssignee("demo")
+      .endEvent("end")
+      .done();
+
+    String json = Bpmn.convertToJson(createdModelInstance);
+    BpmnModelInstance readModelInstance = Bpmn.readModelFromJson(new ByteArrayInputStream(json.getBytes("UTF-8")));
+
+    assertThat(Bpmn.convertToString(readModelInstance)).isEqualTo(Bpmn.convertToString(createdModelInstance));
+  }
+
+  @Test
+  public void testMalformedDocument() throws Exception {
+    String json = Bpmn.convertToJson(modelInstance);
+
+    try {
+      Bpmn.readModelFromJson(new ByteArrayInputStream(json.substring(0, json.length() / 2).getBytes("UTF-8")));
+      fail("truncated document should not be read");
+    }
+    catch (ModelParseException e) {
+      assertThat(e).hasMessageContaining("at offset");
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.builder.AbstractFlowNodeBuilder;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.xml.ModelParseOptions;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.metrics.ModelFootprint;
+import org.camunda.bpm.model.xml.metrics.ModelFootprintComparison;
+import org.camunda.bpm.model.xml.metrics.ModelFootprints;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_NS;
+
+public class BpmnModelFootprintTest {
+
+  private String xml;
+
+  @Before
+  public void readXml() throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnModelFootprintTest.bpmn");
+    try {
+      xml = IoUtil.getStringFromInputStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+  @Test
+  public void testElementCountsByType() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions());
+    ModelFootprint footprint = ModelFootprints.measure(modelInstance);
+
+    ModelElementType processType = modelInstance.getModel().getType(Process.class);
+    ModelElementType serviceTaskType = modelInstance.getModel().getType(ServiceTask.class);
+    Map<ModelElementType, Integer> elementCounts = footprint.getElementCountsByType();
+    assertThat(elementCounts.get(processType)).isEqualTo(modelInstance.getModelElementsByType(Process.class).size());
+    assertThat(elementCounts.get(serviceTaskType)).isEqualTo(modelInstance.getModelElementsByType(ServiceTask.class).size());
+
+    int elementCount = footprint.getUnknownElementCount();
+    Integer previousCount = null;
+    for (Integer count : elementCounts.values()) {
+      if (previousCount != null) {
+        assertThat(count).isLessThanOrEqualTo(previousCount);
+      }
+      previousCount = count;
+      elementCount += count;
+    }
+    assertThat(footprint.getElementCount()).isEqualTo(elementCount);
+    assertThat(footprint.getAttributeCount()).isGreaterThan(footprint.getElementCount());
+    assertThat(footprint.getAttributeBytes()).isGreaterThan(0);
+    assertThat(footprint.getDeferredBytes()).isZero();
+    assertThat(footprint.getEstimatedSize()).isGreaterThan(footprint.getAttributeBytes() + footprint.getTextBytes());
+  }
+
+  @Test
+  public void testMeasuringDoesNotCreateModelElements() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions());
+    ModelFootprint footprint = ModelFootprints.measure(modelInstance);
+    int wrapperCount = footprint.getWrapperCount();
+    assertThat(ModelFootprints.measure(modelInstance).getWrapperCount()).isEqualTo(wrapperCount);
+
+    modelInstance.getModelElementsByType(ServiceTask.class);
+    ModelFootprint wrappedFootprint = ModelFootprints.measure(modelInstance);
+
+    assertThat(wrappedFootprint.getWrapperCount()).isGreaterThan(wrapperCount);
+    assertThat(wrappedFootprint.getEstimatedSize()).isGreaterThan(footprint.getEstimatedSize());
+  }
+
+  @Test
+  public void testDeferredElements() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions().deferNamespace(BPMNDI_NS));
+    ModelFootprint footprint = ModelFootprints.measure(modelInstance);
+
+    ModelFootprint completeFootprint = ModelFootprints.measure(parse(new ModelParseOptions()));
+    assertThat(footprint.getDeferredBytes()).isGreaterThan(0);
+    assertThat(footprint.getElementCount()).isLessThan(completeFootprint.getElementCount());
+
+    modelInstance.getModelElementById("plane");
+    ModelFootprint loadedFootprint = ModelFootprints.measure(modelInstance);
+    assertThat(loadedFootprint.getDeferredBytes()).isZero();
+    assertThat(loadedFootprint.getElementCount()).isEqualTo(completeFootprint.getElementCount());
+  }
+
+  @Test
+  public void testOutliers() {
+    Map<String, BpmnModelInstance> modelInstances = new LinkedHashMap<String, BpmnModelInstance>();
+    modelInstances.put("small", createProcess(5));
+    modelInstances.put("medium", createProcess(10));
+    modelInstances.put("large", createProcess(200));
+    modelInstances.put("parsed", parse(new ModelParseOptions()));
+
+    ModelFootprintComparison comparison = ModelFootprints.compare(modelInstances);
+
+    assertThat(comparison.getFootprints().keySet()).startsWith("large");
+    long totalSize = 0;
+    for (ModelFootprint footprint : comparison.getFootprints().values()) {
+      totalSize += footprint.getEstimatedSize();
+    }
+    assertThat(comparison.getTotalEstimatedSize()).isEqualTo(totalSize);
+    assertThat(comparison.getOutliers(5)).containsExactly("large");
+    assertThat(comparison.getOutliers(0)).hasSize(4);
+  }
+
+  private BpmnModelInstance createProcess(int taskCount) {
+    AbstractFlowNodeBuilder<?, ?> builder = Bpmn.createProcess().startEvent();
+    for (int i = 0; i < taskCount; i++) {
+      builder = builder.serviceTask("task" + i).name("Task " + i);
+    }
+    return builder.endEvent().done();
+  }
+
+  private BpmnModelInstance parse(ModelParseOptions options) {
+    return Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()), options);
+  }
+
+}
@@ -0,0 +1,118 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.xml.impl.metrics.AggregatingModelMetrics;
+import org.camunda.bpm.model.xml.metrics.ModelInstanceStatistics;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BpmnModelMetricsTest {
+
+  private AggregatingModelMetrics metrics;
+
+  @Before
+  public void installMetrics() {
+    metrics = new AggregatingModelMetrics();
+    ModelMetricsRegistry.setMetrics(metrics);
+  }
+
+  @After
+  public void uninstallMetrics() {
+    ModelMetricsRegistry.setMetrics(null);
+    metrics.unregisterMBean();
+  }
+
+  @Test
+  public void testParseValidationAndSerializationAreTimed() {
+    BpmnModelInstance modelInstance = readModel(ValidationMode.STRUCTURE);
+    assertThat(metrics.getCount(ModelMetric.PARSE)).isEqualTo(1);
+    assertThat(metrics.getCount(ModelMetric.VALIDATION)).isEqualTo(1);
+
+    // the model is validated against the schema before it is written
+    Bpmn.convertToString(modelInstance);
+    assertThat(metrics.getCount(ModelMetric.VALIDATION)).isEqualTo(2);
+    assertThat(metrics.getCount(ModelMetric.SERIALIZATION)).isEqualTo(1);
+    assertThat(metrics.getTotalTimeNanos(ModelMetric.PARSE)).isGreaterThan(0);
+    assertThat(metrics.getTotalTimeNanos(ModelMetric.VALIDATION)).isGreaterThan(0);
+    assertThat(metrics.getTotalTimeNanos(ModelMetric.SERIALIZATION)).isGreaterThan(0);
+  }
+
+  @Test
+  public void testStatisticsOfModelInstance() {
+    BpmnModelInstance modelInstance = readModel(ValidationMode.SCHEMA);
+    BpmnModelInstance otherModelInstance = readModel(ValidationMode.SCHEMA);
+    long wrappedElements = metrics.getCount(ModelMetric.ELEMENT_WRAPPING);
+
+    ServiceTask task = (ServiceTask) modelInstance.getModelElementById("sendInvoice");
+    ServiceTask sameTask = (ServiceTask) modelInstance.getModelElementById("sendInvoice");
+    task.setId("sendBill");
+
+    ModelInstanceStatistics statistics = modelInstance.getStatistics();
+    assertThat(statistics.getCount(ModelMetric.ID_LOOKUP)).isGreaterThanOrEqualTo(2);
+    assertThat(statistics.getCount(ModelMetric.REFERENCE_UPDATE)).isGreaterThan(0);
+    assertThat(statistics.getCount(ModelMetric.REFERENCE_SCAN)).isGreaterThan(0);
+    assertThat(sameTask).isSameAs(task);
+    assertThat(metrics.getCount(ModelMetric.ELEMENT_WRAPPING)).isGreaterThan(wrappedElements);
+    assertThat(metrics.getCount(ModelMetric.ID_LOOKUP)).isEqualTo(statistics.getCount(ModelMetric.ID_LOOKUP));
+    assertThat(metrics.getTotalTimeNanos(ModelMetric.REFERENCE_UPDATE)).isGreaterThan(0);
+
+    assertThat(otherModelInstance.getStatistics().getCount(ModelMetric.ID_LOOKUP)).isZero();
+  }
+
+  @Test
+  public void testNoMetricsAreRecordedIfDisabled() {
+    ModelMetricsRegistry.setMetrics(null);
+
+    BpmnModelInstance modelInstance = readModel(ValidationMode.SCHEMA);
+    modelInstance.getModelElementById("sendInvoice");
+
+    assertThat(metrics.getCount(ModelMetric.PARSE)).isZero();
+    assertThat(modelInstance.getStatistics().getCount(ModelMetric.ID_LOOKUP)).isZero();
+  }
+
+  @Test
+  public void testMBean() throws Exception {
+    metrics.registerMBean();
+    readModel(ValidationMode.SCHEMA);
+
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(AggregatingModelMetrics.DEFAULT_OBJECT_NAME);
+    assertThat(mBeanServer.getAttribute(objectName, "ParseCount")).isEqualTo(1L);
+
+    mBeanServer.invoke(objectName, "reset", null, null);
+    assertThat(metrics.getParseCount()).isZero();
+
+    metrics.unregisterMBean();
+    assertThat(mBeanServer.isRegistered(objectName)).isFalse();
+  }
+
+  private BpmnModelInstance readModel(ValidationMode validationMode) {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnModelMetricsTest.bpmn");
+    return Bpmn.readModelFromStream(inputStream, validationMode);
+  }
+
+}
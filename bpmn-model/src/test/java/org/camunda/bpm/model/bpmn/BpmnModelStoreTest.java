@@ -0,0 +1,158 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.xml.ModelStore;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.instance.StoredElement;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMN20_NS;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.CAMUNDA_NS;
+
+public class BpmnModelStoreTest {
+
+  private BpmnModelInstance modelInstance;
+  private ModelStore<BpmnModelInstance> store;
+
+  @Before
+  public void createStore() {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnModelStoreTest.bpmn");
+    try {
+      modelInstance = Bpmn.readModelFromStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+    store = Bpmn.createModelStore(2);
+    store.put("invoice", modelInstance);
+  }
+
+  @Test
+  public void testInflatedModelIsEqualToStoredModel() {
+    BpmnModelInstance inflatedInstance = store.getModelInstance("invoice");
+
+    assertThat(inflatedInstance).isNotSameAs(modelInstance);
+    assertThat(Bpmn.convertToString(inflatedInstance)).isEqualTo(Bpmn.convertToString(modelInstance));
+    ServiceTask sendInvoice = (ServiceTask) inflatedInstance.getModelElementById("sendInvoice");
+    assertThat(sendInvoice.getCamundaClass()).isEqualTo("org.camunda.bpm.example.SendInvoice");
+    assertThat(sendInvoice.getIncoming().iterator().next().getSource().getId()).isEqualTo("invoiceStart");
+    assertThat(((BpmnShape) inflatedInstance.getModelElementById("sendInvoiceShape")).getBpmnElement()).isEqualTo(sendInvoice);
+    Bpmn.validateModel(inflatedInstance);
+  }
+
+  @Test
+  public void testElementViews() {
+    StoredElement sendInvoice = store.getElementById("invoice", "sendInvoice");
+
+    assertThat(sendInvoice.getNamespaceURI()).isEqualTo(BPMN20_NS);
+    assertThat(sendInvoice.getLocalName()).isEqualTo("serviceTask");
+    assertThat(sendInvoice.getPrefix()).isEqualTo("bpmn2");
+    assertThat(sendInvoice.getElementType()).isEqualTo(modelInstance.getModel().getType(ServiceTask.class));
+    assertThat(sendInvoice.getAttributeValue("name")).isEqualTo("Send invoice");
+    assertThat(sendInvoice.getAttributeValueNs(BPMN20_NS, "name")).isEqualTo("Send invoice");
+    assertThat(sendInvoice.getAttributeValueNs(CAMUNDA_NS, "class")).isEqualTo("org.camunda.bpm.example.SendInvoice");
+    assertThat(sendInvoice.getAttributeValue("class")).isNull();
+    assertThat(sendInvoice.getParentElement().getAttributeValue("id")).isEqualTo("invoice");
+
+    List<StoredElement> childElements = sendInvoice.getChildElements();
+    assertThat(childElements).hasSize(3);
+    assertThat(childElements.get(0).getLocalName()).isEqualTo("documentation");
+    assertThat(childElements.get(0).getTextContent()).isEqualTo("Sends the invoice to the payment department");
+    assertThat(childElements.get(1).getTextContent()).isEqualTo("invoiceFlow1");
+
+    StoredElement invoice = store.getElementById("invoice", "invoice");
+    assertThat(invoice.getChildElements().get(0).getTextContent()).isEqualTo("Processes an <invoice> & \"its\" items");
+    assertThat(invoice).isEqualTo(sendInvoice.getParentElement());
+
+    StoredElement definitions = store.getDocumentElement("invoice");
+    assertThat(definitions.getLocalName()).isEqualTo("definitions");
+    assertThat(definitions.getParentElement()).isNull();
+    assertThat(definitions.getChildElements()).hasSize(4);
+
+    // no model instance is created for views
+    assertThat(store.getInflatedInstanceCount()).isZero();
+  }
+
+  @Test
+  public void testUnknownElementsAndModels() {
+    assertThat(store.getElementById("invoice", "unknown")).isNull();
+    assertThat(store.getElementById("unknown", "sendInvoice")).isNull();
+    assertThat(store.getDocumentElement("unknown")).isNull();
+    assertThat(store.getModelInstance("unknown")).isNull();
+    assertThat(store.getEncodedSize("unknown")).isEqualTo(-1);
+    assertThat(store.contains("unknown")).isFalse();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedInstancesAreEvicted() {
+    store.put("invoice2", modelInstance);
+    store.put("invoice3", modelInstance);
+
+    store.getModelInstance("invoice");
+    store.getModelInstance("invoice2");
+    store.getModelInstance("invoice");
+    store.getModelInstance("invoice3");
+
+    assertThat(store.getInflatedInstanceCount()).isEqualTo(2);
+    assertThat(store.isInflated("invoice")).isTrue();
+    assertThat(store.isInflated("invoice2")).isFalse();
+    assertThat(store.isInflated("invoice3")).isTrue();
+
+    store.evictInflatedInstances();
+    assertThat(store.getInflatedInstanceCount()).isZero();
+    assertThat(store.isInflated("invoice")).isFalse();
+  }
+
+  @Test
+  public void testEveryCallerGetsOwnModelInstance() {
+    BpmnModelInstance first = store.getModelInstance("invoice");
+    BpmnModelInstance second = store.getModelInstance("invoice");
+    assertThat(second).isNotSameAs(first);
+    assertThat(store.isInflated("invoice")).isTrue();
+
+    ((ServiceTask) first.getModelElementById("sendInvoice")).setName("Send the invoice");
+    assertThat(((ServiceTask) second.getModelElementById("sendInvoice")).getName()).isEqualTo("Send invoice");
+    ServiceTask sendInvoice = (ServiceTask) store.getModelInstance("invoice").getModelElementById("sendInvoice");
+    assertThat(sendInvoice.getName()).isEqualTo("Send invoice");
+    Bpmn.validateModel(second);
+  }
+
+  @Test
+  public void testPutReplacesStoredModel() {
+    BpmnModelInstance inflatedInstance = store.getModelInstance("invoice");
+    ServiceTask sendInvoice = (ServiceTask) inflatedInstance.getModelElementById("sendInvoice");
+    sendInvoice.setName("Send the invoice");
+
+    // changes are only stored when the model instance is put again
+    assertThat(store.getElementById("invoice", "sendInvoice").getAttributeValue("name")).isEqualTo("Send invoice");
+    store.put("invoice", inflatedInstance);
+    assertThat(store.getElementById("invoice", "sendInvoice").getAttributeValue("name")).isEqualTo("Send the invoice");
+    assertThat(store.getInflatedInstanceCount()).isZero();
+    assertThat(store.getModelInstance("invoice")).isNotSameAs(inflatedInstance);
+
+    assertThat(store.remove("invoice")).isTrue();
+    assertThat(store.remove("invoice")).isFalse();
+    assertThat(store.size()).isZero();
+    assertThat(store.getEncodedSize()).isZero();
+  }
+
+}
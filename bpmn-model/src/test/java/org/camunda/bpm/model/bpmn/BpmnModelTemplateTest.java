@@ -0,0 +1,180 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.MessageFlow;
+import org.camunda.bpm.model.bpmn.instance.Participant;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.UserTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.ModelTemplate;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BpmnModelTemplateTest {
+
+  private BpmnModelInstance modelInstance;
+  private ModelTemplate<BpmnModelInstance> template;
+
+  @Before
+  public void createTemplate() {
+    modelInstance = Bpmn.createExecutableProcess("process")
+      .name("Order {{order}}")
+      .startEvent("start")
+      .userTask("approve")
+        .name("Approve {{order}}")
+        .camundaAssignee("{{assignee}}")
+        .camundaCandidateGroups("${groups}")
+      .endEvent("end")
+      .done();
+    template = new ModelTemplate<BpmnModelInstance>(modelInstance, "{{key}}_{{id}}");
+  }
+
+  @Test
+  public void testParameterNames() {
+    assertThat(template.getParameterNames()).containsOnly("key", "order", "assignee");
+  }
+
+  @Test
+  public void testInstantiate() {
+    BpmnModelInstance instance = template.instantiate(parameters("order1", "john"));
+
+    assertThat(instance.getModelElementById("approve")).isNull();
+    Process process = (Process) instance.getModelElementById("order1_process");
+    assertThat(process.getName()).isEqualTo("Order 1");
+    UserTask task = (UserTask) instance.getModelElementById("order1_approve");
+    assertThat(task.getName()).isEqualTo("Approve 1");
+    assertThat(task.getCamundaAssignee()).isEqualTo("john");
+    assertThat(task.getCamundaCandidateGroups()).isEqualTo("${groups}");
+    assertThat(task.getIncoming()).hasSize(1);
+    SequenceFlow incoming = task.getIncoming().iterator().next();
+    assertThat(incoming.getId()).startsWith("order1_");
+    assertThat(incoming.getSource().getId()).isEqualTo("order1_start");
+    assertThat(task.getOutgoing().iterator().next().getTarget().getId()).isEqualTo("order1_end");
+
+    Bpmn.validateModel(instance);
+  }
+
+  @Test
+  public void testInstancesAreIndependent() {
+    BpmnModelInstance instance = template.instantiate(parameters("order1", "john"));
+    BpmnModelInstance otherInstance = template.instantiate(parameters("order2", "mary"));
+    ((UserTask) modelInstance.getModelElementById("approve")).setName("changed");
+    ((UserTask) instance.getModelElementById("order1_approve")).setName("changed");
+
+    assertThat(((UserTask) otherInstance.getModelElementById("order2_approve")).getName()).isEqualTo("Approve 2");
+    assertThat(((UserTask) template.instantiate(parameters("order3", "ann")).getModelElementById("order3_approve")).getName())
+      .isEqualTo("Approve 3");
+  }
+
+  @Test
+  public void testInstantiateXml() {
+    Map<String, String> parameters = parameters("order1", "john & \"mary\" <admins>");
+
+    String xml = template.instantiateXml(parameters);
+
+    assertThat(xml).isEqualTo(IoUtil.convertXmlDocumentToString(template.instantiate(parameters).getDocument()));
+    BpmnModelInstance parsedInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()));
+    assertThat(((UserTask) parsedInstance.getModelElementById("order1_approve")).getCamundaAssignee()).isEqualTo("john & \"mary\" <admins>");
+  }
+
+  @Test
+  public void testMissingParameter() {
+    Map<String, String> parameters = parameters("order1", "john");
+    parameters.remove("assignee");
+
+    try {
+      template.instantiateXml(parameters);
+      fail("missing parameter should be detected");
+    }
+    catch (ModelException e) {
+      assertThat(e).hasMessageContaining("assignee");
+    }
+  }
+
+  @Test
+  public void testReferencesOfParsedTemplate() throws Exception {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnModelTemplateTest.bpmn");
+    BpmnModelInstance parsedModelInstance;
+    try {
+      parsedModelInstance = Bpmn.readModelFromStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+    ModelTemplate<BpmnModelInstance> parsedTemplate = new ModelTemplate<BpmnModelInstance>(parsedModelInstance, "{{key}}-{{id}}");
+    Map<String, String> parameters = new HashMap<String, String>();
+    parameters.put("key", "a");
+
+    BpmnModelInstance instance = parsedTemplate.instantiate(parameters);
+
+    ServiceTask sendInvoice = (ServiceTask) instance.getModelElementById("a-sendInvoice");
+    assertThat(((Participant) instance.getModelElementById("a-participant1")).getProcess().getId()).isEqualTo("a-invoice");
+    assertThat(((MessageFlow) instance.getModelElementById("a-messageFlow")).getSource()).isEqualTo(sendInvoice);
+    assertThat(((BpmnShape) instance.getModelElementById("a-sendInvoiceShape")).getBpmnElement()).isEqualTo(sendInvoice);
+    assertThat(instance.getDiagramElements(sendInvoice)).hasSize(1);
+    Bpmn.validateModel(instance);
+  }
+
+  @Test
+  public void testConcurrentInstantiation() throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<BpmnModelInstance>> instances = new ArrayList<Future<BpmnModelInstance>>();
+      for (int i = 0; i < 200; i++) {
+        final String key = "order" + i;
+        instances.add(executorService.submit(new Callable<BpmnModelInstance>() {
+          public BpmnModelInstance call() {
+            return template.instantiate(parameters(key, "john"));
+          }
+        }));
+      }
+      for (int i = 0; i < instances.size(); i++) {
+        UserTask task = (UserTask) instances.get(i).get().getModelElementById("order" + i + "_approve");
+        assertThat(task.getName()).isEqualTo("Approve " + i);
+        assertThat(task.getIncoming().iterator().next().getSource().getId()).isEqualTo("order" + i + "_start");
+      }
+    }
+    finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static Map<String, String> parameters(String key, String assignee) {
+    Map<String, String> parameters = new HashMap<String, String>();
+    parameters.put("key", key);
+    parameters.put("order", key.substring("order".length()));
+    parameters.put("assignee", assignee);
+    return parameters;
+  }
+
+}
@@ -0,0 +1,236 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Collaboration;
+import org.camunda.bpm.model.bpmn.instance.Documentation;
+import org.camunda.bpm.model.bpmn.instance.ExtensionElements;
+import org.camunda.bpm.model.bpmn.instance.MessageFlow;
+import org.camunda.bpm.model.bpmn.instance.Participant;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnEdge;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnPlane;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.bpmn.instance.camunda.CamundaProperties;
+import org.camunda.bpm.model.xml.ModelParseException;
+import org.camunda.bpm.model.xml.ModelParseOptions;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.BPMNDI_NS;
+import static org.camunda.bpm.model.bpmn.impl.BpmnModelConstants.CAMUNDA_NS;
+
+public class BpmnParseFilterTest {
+
+  private String xml;
+
+  @Before
+  public void readXml() throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnParseFilterTest.bpmn");
+    try {
+      xml = IoUtil.getStringFromInputStream(inputStream);
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+  @Test
+  public void testIncludeRootElementsById() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions().includeRootElements(Process.class, "invoice"));
+
+    assertThat(modelInstance.getModelElementsByType(Process.class)).hasSize(1);
+    assertThat(modelInstance.getModelElementById("invoice")).isInstanceOf(Process.class);
+    assertThat(modelInstance.getModelElementById("payment")).isNull();
+    assertThat(modelInstance.getModelElementById("paymentStart")).isNull();
+    assertThat(modelInstance.getModelElementById("collaboration")).isInstanceOf(Collaboration.class);
+  }
+
+  @Test
+  public void testReferencesToExcludedElementsAreRemoved() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions().includeRootElements(Process.class, "invoice"));
+
+    Participant invoiceParticipant = (Participant) modelInstance.getModelElementById("participant1");
+    Participant paymentParticipant = (Participant) modelInstance.getModelElementById("participant2");
+    assertThat(invoiceParticipant.getProcess().getId()).isEqualTo("invoice");
+    // the process reference of a participant is optional
+    assertThat(paymentParticipant.getProcess()).isNull();
+    assertThat(paymentParticipant.getAttributeValue("processRef")).isNull();
+    // the source and target of a message flow are required
+    assertThat(modelInstance.getModelElementById("messageFlow")).isNull();
+    assertThat(modelInstance.getModelElementsByType(MessageFlow.class)).isEmpty();
+
+    BpmnShape paymentStartShape = (BpmnShape) modelInstance.getModelElementById("paymentStartShape");
+    BpmnShape sendInvoiceShape = (BpmnShape) modelInstance.getModelElementById("sendInvoiceShape");
+    BpmnEdge messageFlowEdge = (BpmnEdge) modelInstance.getModelElementById("messageFlowEdge");
+    assertThat(paymentStartShape.getBpmnElement()).isNull();
+    assertThat(messageFlowEdge.getBpmnElement()).isNull();
+    assertThat(sendInvoiceShape.getBpmnElement().getId()).isEqualTo("sendInvoice");
+
+    Bpmn.validateModel(modelInstance);
+  }
+
+  @Test
+  public void testExcludeRootElementsOfType() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions().excludeRootElements(Collaboration.class));
+
+    assertThat(modelInstance.getModelElementsByType(Collaboration.class)).isEmpty();
+    assertThat(modelInstance.getModelElementsByType(Participant.class)).isEmpty();
+    assertThat(modelInstance.getModelElementsByType(Process.class)).hasSize(2);
+    BpmnPlane plane = (BpmnPlane) modelInstance.getModelElementById("plane");
+    assertThat(plane.getBpmnElement()).isNull();
+    BpmnEdge messageFlowEdge = (BpmnEdge) modelInstance.getModelElementById("messageFlowEdge");
+    assertThat(messageFlowEdge.getBpmnElement()).isNull();
+  }
+
+  @Test
+  public void testExcludeRootElementsById() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions().excludeRootElements(Process.class, "payment"));
+
+    assertThat(modelInstance.getModelElementsByType(Process.class)).hasSize(1);
+    assertThat(modelInstance.getModelElementById("invoice")).isNotNull();
+    assertThat(modelInstance.getModelElementById("payment")).isNull();
+  }
+
+  @Test
+  public void testExcludeElementsOfType() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions().excludeElements(Documentation.class));
+
+    assertThat(modelInstance.getModelElementsByType(Documentation.class)).isEmpty();
+    ServiceTask sendInvoice = (ServiceTask) modelInstance.getModelElementById("sendInvoice");
+    assertThat(sendInvoice.getDocumentations()).isEmpty();
+    assertThat(sendInvoice.getIncoming()).hasSize(1);
+  }
+
+  @Test
+  public void testExcludeNamespace() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions().excludeNamespace(CAMUNDA_NS));
+
+    assertThat(modelInstance.getModelElementsByType(CamundaProperties.class)).isEmpty();
+    assertThat(modelInstance.getModelElementsByType(ExtensionElements.class)).hasSize(1);
+    // attributes of the namespace are kept
+    ServiceTask sendInvoice = (ServiceTask) modelInstance.getModelElementById("sendInvoice");
+    assertThat(sendInvoice.getCamundaClass()).isEqualTo("org.camunda.bpm.example.SendInvoice");
+  }
+
+  @Test
+  public void testFiltersInStructureModeWithDeferredElements() {
+    BpmnModelInstance modelInstance = parse(new ModelParseOptions()
+      .validationMode(ValidationMode.STRUCTURE)
+      .deferNamespace(BPMNDI_NS)
+      .includeRootElements(Process.class, "invoice")
+      .excludeElements(Documentation.class));
+
+    assertThat(modelInstance.getModelElementsByType(Process.class)).hasSize(1);
+    assertThat(modelInstance.getModelElementsByType(Documentation.class)).isEmpty();
+
+    // the references of the deferred elements are removed when they are loaded
+    BpmnShape paymentStartShape = (BpmnShape) modelInstance.getModelElementById("paymentStartShape");
+    assertThat(paymentStartShape.getBpmnElement()).isNull();
+    BpmnShape sendInvoiceShape = (BpmnShape) modelInstance.getModelElementById("sendInvoiceShape");
+    assertThat(sendInvoiceShape.getBpmnElement().getId()).isEqualTo("sendInvoice");
+    BpmnEdge messageFlowEdge = (BpmnEdge) modelInstance.getModelElementById("messageFlowEdge");
+    assertThat(messageFlowEdge.getBpmnElement()).isNull();
+
+    Bpmn.validateModel(modelInstance);
+  }
+
+  @Test
+  public void testFiltersAreAppliedToDocumentsWhichCannotBeScanned() throws IOException {
+    ModelParseOptions options = new ModelParseOptions()
+      .includeRootElements(Process.class, "invoice")
+      .excludeElements(Documentation.class);
+    byte[] bytes = xml.replace("encoding=\"UTF-8\"", "encoding=\"UTF-16\"").getBytes("UTF-16");
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(bytes), options);
+
+    assertThat(modelInstance.getModelElementsByType(Process.class)).hasSize(1);
+    assertThat(modelInstance.getModelElementsByType(Documentation.class)).isEmpty();
+    assertThat(modelInstance.getModelElementsByType(MessageFlow.class)).isEmpty();
+    Participant paymentParticipant = (Participant) modelInstance.getModelElementById("participant2");
+    assertThat(paymentParticipant.getProcess()).isNull();
+  }
+
+  @Test
+  public void testFilteredModelIsEqualToModelWithRemovedElements() {
+    BpmnModelInstance filteredModelInstance = parse(new ModelParseOptions().includeRootElements(Process.class, "invoice"));
+
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()));
+    modelInstance.getDefinitions().removeChildElement(modelInstance.getModelElementById("payment"));
+    Collaboration collaboration = (Collaboration) modelInstance.getModelElementById("collaboration");
+    collaboration.removeChildElement(modelInstance.getModelElementById("messageFlow"));
+    modelInstance.getModelElementById("participant2").removeAttribute("processRef");
+    modelInstance.getModelElementById("paymentStartShape").removeAttribute("bpmnElement");
+    modelInstance.getModelElementById("messageFlowEdge").removeAttribute("bpmnElement");
+
+    assertThat(Bpmn.convertToString(filteredModelInstance)).isEqualTo(Bpmn.convertToString(modelInstance));
+  }
+
+  @Test
+  public void testMalformedExcludedElementsAreRejected() {
+    String malformedProcess = xml.replace("<bpmn2:outgoing>paymentFlow1</bpmn2:outgoing></bpmn2:startEvent>",
+      "<bpmn2:outgoing>paymentFlow1</bpmn2:outgoing></bpmn2:endEvent>");
+    String malformedExtension = xml.replace("</camunda:properties>", "</camunda:property>");
+    assertThat(malformedProcess).isNotEqualTo(xml);
+    assertThat(malformedExtension).isNotEqualTo(xml);
+
+    assertParseFails(malformedProcess, new ModelParseOptions().excludeRootElements(Process.class, "payment"));
+    assertParseFails(malformedProcess, new ModelParseOptions().includeRootElements(Process.class, "invoice"));
+    assertParseFails(malformedProcess, new ModelParseOptions().deferNamespace(BPMNDI_NS));
+    assertParseFails(malformedExtension, new ModelParseOptions().excludeNamespace(CAMUNDA_NS));
+  }
+
+  @Test
+  public void testMalformedReferencesInScannedAttributesAreRejected() {
+    ModelParseOptions options = new ModelParseOptions().excludeRootElements(Process.class, "payment");
+
+    assertParseFails(xml.replace("id=\"payment\"", "id=\"p&#xZZ;\""), options);
+    assertParseFails(xml.replace("id=\"payment\"", "id=\"p&#x110000;\""), options);
+    assertParseFails(xml.replace("id=\"payment\"", "id=\"p&#;\""), options);
+    assertParseFails(xml.replace("id=\"payment\"", "id=\"p&unknown;\""), options);
+  }
+
+  @Test
+  public void testReferencesInScannedAttributesAreDecoded() {
+    String document = xml.replace("id=\"payment\"", "id=\"&#x70;ayment\"").replace("processRef=\"payment\"", "processRef=\"&#112;ayment\"");
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(document.getBytes()),
+      new ModelParseOptions().excludeRootElements(Process.class, "payment"));
+
+    assertThat(modelInstance.getModelElementById("payment")).isNull();
+    assertThat(((Participant) modelInstance.getModelElementById("participant2")).getProcess()).isNull();
+  }
+
+  private void assertParseFails(String document, ModelParseOptions options) {
+    try {
+      Bpmn.readModelFromStream(new ByteArrayInputStream(document.getBytes()), options);
+      fail("malformed document should be rejected");
+    }
+    catch (ModelParseException e) {
+      // expected
+    }
+  }
+
+  private BpmnModelInstance parse(ModelParseOptions options) {
+    return Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()), options);
+  }
+
+}
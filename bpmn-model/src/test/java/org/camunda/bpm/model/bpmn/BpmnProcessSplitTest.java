@@ -0,0 +1,160 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.instance.Collaboration;
+import org.camunda.bpm.model.bpmn.instance.Error;
+import org.camunda.bpm.model.bpmn.instance.ItemDefinition;
+import org.camunda.bpm.model.bpmn.instance.Message;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnEdge;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnPlane;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.camunda.bpm.model.bpmn.instance.di.DiagramElement;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BpmnProcessSplitTest {
+
+  private String xml;
+
+  @Before
+  public void readXml() throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnProcessSplitTest.bpmn");
+    try {
+      // the formatting is kept to compare it with the split documents
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = inputStream.read(buffer)) > 0) {
+        outputStream.write(buffer, 0, read);
+      }
+      xml = outputStream.toString("UTF-8");
+    }
+    finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+
+  @Test
+  public void testSplitProcesses() throws IOException {
+    Map<String, ByteArrayOutputStream> documents = split(xml.getBytes("UTF-8"), null);
+
+    assertThat(documents.keySet()).containsExactly("order", "payment");
+
+    BpmnModelInstance order = parse(documents.get("order"));
+    assertThat(order.getModelElementsByType(Process.class)).hasSize(1);
+    assertThat(order.getModelElementsByType(Collaboration.class)).isEmpty();
+    assertThat(order.getModelElementById("payment")).isNull();
+    assertThat(order.getModelElementById("orderMessage")).isInstanceOf(Message.class);
+    assertThat(order.getModelElementById("orderItem")).isInstanceOf(ItemDefinition.class);
+    // signals are not part of the model, but are copied as well
+    assertThat(order.getModelElementById("cancelSignal")).isNotNull();
+    assertThat(order.getModelElementById("unusedMessage")).isNull();
+    assertThat(order.getModelElementById("paymentError")).isNull();
+    assertThat(order.getModelElementById("failureItem")).isNull();
+
+    BpmnModelInstance payment = parse(documents.get("payment"));
+    assertThat(payment.getModelElementById("order")).isNull();
+    assertThat(payment.getModelElementById("paymentError")).isInstanceOf(Error.class);
+    assertThat(payment.getModelElementById("failureItem")).isInstanceOf(ItemDefinition.class);
+    assertThat(payment.getModelElementById("orderMessage")).isNull();
+    assertThat(payment.getModelElementById("cancelSignal")).isNull();
+  }
+
+  @Test
+  public void testDiagramIsSplitByProcess() throws IOException {
+    Map<String, ByteArrayOutputStream> documents = split(xml.getBytes("UTF-8"), null);
+    BpmnModelInstance order = parse(documents.get("order"));
+
+    BpmnPlane plane = (BpmnPlane) order.getModelElementById("plane");
+    assertThat(plane.getBpmnElement()).isEqualTo(order.getModelElementById("order"));
+    assertThat(plane.getDiagramElements()).hasSize(3);
+    ServiceTask sendOrder = (ServiceTask) order.getModelElementById("sendOrder");
+    assertThat(order.getDiagramElements(sendOrder)).containsExactly((DiagramElement) order.getModelElementById("sendOrderShape"));
+    assertThat(((BpmnEdge) order.getModelElementById("orderFlow1Edge")).getWaypoints()).hasSize(2);
+    assertThat(order.getModelElementById("orderParticipantShape")).isNull();
+    assertThat(order.getModelElementById("messageFlowEdge")).isNull();
+    assertThat(order.getModelElementById("paymentStartShape")).isNull();
+
+    BpmnModelInstance payment = parse(documents.get("payment"));
+    assertThat(((BpmnShape) payment.getModelElementById("paymentEndShape")).getBpmnElement().getId()).isEqualTo("paymentEnd");
+    assertThat(((BpmnPlane) payment.getModelElementById("plane")).getDiagramElements()).hasSize(2);
+  }
+
+  @Test
+  public void testElementsAreCopiedUnchanged() throws IOException {
+    Map<String, ByteArrayOutputStream> documents = split(xml.getBytes("UTF-8"), null);
+    String order = documents.get("order").toString("UTF-8");
+
+    String process = xml.substring(xml.indexOf("  <process id=\"order\""), xml.indexOf("</process>") + "</process>".length());
+    assertThat(order).contains(process);
+    assertThat(order).startsWith(xml.substring(0, xml.indexOf("<itemDefinition")));
+    assertThat(order).endsWith("</definitions>\n");
+    assertThat(order).contains("<bpmndi:BPMNPlane id=\"plane\" bpmnElement=\"order\">");
+  }
+
+  @Test
+  public void testSplitSelectedProcesses() throws IOException {
+    Map<String, ByteArrayOutputStream> documents = split(xml.getBytes("UTF-8"), "payment");
+
+    assertThat(documents.keySet()).containsExactly("payment");
+  }
+
+  @Test
+  public void testSplitDocumentWhichCannotBeScanned() throws IOException {
+    byte[] bytes = xml.replace("encoding=\"UTF-8\"", "encoding=\"UTF-16\"").getBytes("UTF-16");
+
+    Map<String, ByteArrayOutputStream> documents = split(bytes, null);
+
+    assertThat(documents.keySet()).containsExactly("order", "payment");
+    BpmnModelInstance order = parse(documents.get("order"));
+    assertThat(order.getModelElementById("orderMessage")).isInstanceOf(Message.class);
+    assertThat(((BpmnPlane) order.getModelElementById("plane")).getDiagramElements()).hasSize(3);
+  }
+
+  private Map<String, ByteArrayOutputStream> split(byte[] bytes, final String selectedProcessId) {
+    final Map<String, ByteArrayOutputStream> documents = new LinkedHashMap<String, ByteArrayOutputStream>();
+    List<String> processIds = Bpmn.splitProcesses(new ByteArrayInputStream(bytes), new ProcessDocumentOutput() {
+      public OutputStream openStream(String processId) {
+        if (selectedProcessId != null && !selectedProcessId.equals(processId)) {
+          return null;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        documents.put(processId, outputStream);
+        return outputStream;
+      }
+    });
+    assertThat(processIds).containsExactlyElementsOf(documents.keySet());
+    return documents;
+  }
+
+  private BpmnModelInstance parse(ByteArrayOutputStream document) {
+    return Bpmn.readModelFromStream(new ByteArrayInputStream(document.toByteArray()));
+  }
+
+}
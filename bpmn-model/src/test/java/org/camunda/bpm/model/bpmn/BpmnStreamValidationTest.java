@@ -0,0 +1,117 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.xml.validation.ValidationError;
+import org.camunda.bpm.model.xml.validation.ValidationErrorType;
+import org.camunda.bpm.model.xml.validation.ValidationResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BpmnStreamValidationTest {
+
+  private String xml;
+
+  @Before
+  public void readModel() throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream(getClass().getSimpleName() + ".bpmn");
+    try {
+      // keep the line breaks to test the reported line numbers
+      xml = new Scanner(inputStream, "UTF-8").useDelimiter("\\A").next();
+    }
+    finally {
+      inputStream.close();
+    }
+  }
+
+  @Test
+  public void testValidModel() {
+    ValidationResult result = validate(xml);
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrors()).isEmpty();
+  }
+
+  @Test
+  public void testDuplicateId() {
+    String changed = xml.replace("<bpmn2:textAnnotation id=\"textAnnotation\"/>", "<bpmn2:textAnnotation id=\"serviceTask\"/>");
+
+    List<ValidationError> errors = validate(changed).getErrors(ValidationErrorType.DUPLICATE_ID);
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0).getLineNumber()).isEqualTo(31);
+    assertThat(errors.get(0).getMessage()).contains("'serviceTask'").contains("line 12");
+  }
+
+  @Test
+  public void testUnresolvedAttributeReference() {
+    String changed = xml.replace("sourceRef=\"startEvent1\" targetRef=\"exclusiveGateway\"", "sourceRef=\"startEvent1\" targetRef=\"unknown\"");
+
+    List<ValidationError> errors = validate(changed).getErrors(ValidationErrorType.UNRESOLVED_REFERENCE);
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0).getLineNumber()).isEqualTo(20);
+    assertThat(errors.get(0).getMessage()).contains("'unknown'").contains("targetRef");
+  }
+
+  @Test
+  public void testUnresolvedElementReference() {
+    String changed = xml.replace("<bpmn2:incoming>sequenceFlow2</bpmn2:incoming>", "<bpmn2:incoming>unknown</bpmn2:incoming>");
+
+    List<ValidationError> errors = validate(changed).getErrors(ValidationErrorType.UNRESOLVED_REFERENCE);
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0).getLineNumber()).isEqualTo(22);
+    assertThat(errors.get(0).getMessage()).contains("'unknown'").contains("incoming");
+  }
+
+  @Test
+  public void testAllErrorsAreReportedInDocumentOrder() {
+    String changed = xml
+      .replace("<bpmn2:outgoing>sequenceFlow1</bpmn2:outgoing>", "<bpmn2:outgoing>unknown</bpmn2:outgoing>")
+      .replace("<bpmn2:process id=\"process2\" isExecutable=\"false\">", "<bpmn2:process id=\"process2\" isExecutable=\"maybe\">")
+      .replace("<bpmn2:dataStore id=\"DataStore_1\" name=\"Data Store 1\"/>", "<bpmn2:dataStore id=\"process1\" name=\"Data Store 1\"/>");
+
+    ValidationResult result = validate(changed);
+    assertThat(result.isValid()).isFalse();
+
+    List<ValidationError> errors = result.getErrors();
+    assertThat(errors.get(0).getType()).isEqualTo(ValidationErrorType.UNRESOLVED_REFERENCE);
+    assertThat(errors.get(0).getLineNumber()).isEqualTo(10);
+    assertThat(result.getErrors(ValidationErrorType.SCHEMA)).isNotEmpty();
+    assertThat(result.getErrors(ValidationErrorType.SCHEMA).get(0).getLineNumber()).isEqualTo(34);
+    assertThat(result.getErrors(ValidationErrorType.DUPLICATE_ID)).hasSize(1);
+    assertThat(result.getErrors(ValidationErrorType.DUPLICATE_ID).get(0).getLineNumber()).isEqualTo(44);
+    assertThat(result.getErrors(ValidationErrorType.UNRESOLVED_REFERENCE)).hasSize(1);
+  }
+
+  @Test
+  public void testNotWellFormed() {
+    String changed = xml.replace("<bpmn2:textAnnotation id=\"textAnnotation\"/>", "<bpmn2:textAnnotation id=\"textAnnotation\">");
+
+    ValidationResult result = validate(changed);
+    List<ValidationError> errors = result.getErrors(ValidationErrorType.NOT_WELL_FORMED);
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0).getLineNumber()).isEqualTo(33);
+  }
+
+  protected ValidationResult validate(String xml) {
+    return Bpmn.validateStream(new ByteArrayInputStream(xml.getBytes()));
+  }
+
+}
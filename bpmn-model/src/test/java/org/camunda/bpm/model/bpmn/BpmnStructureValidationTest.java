@@ -0,0 +1,218 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn;
+
+import org.camunda.bpm.model.bpmn.impl.BpmnParser;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.xml.ModelValidationException;
+import org.camunda.bpm.model.xml.impl.instance.DomDocumentImpl;
+import org.camunda.bpm.model.xml.impl.validation.ModelStructureValidator;
+import org.camunda.bpm.model.xml.validation.ValidationError;
+import org.camunda.bpm.model.xml.validation.ValidationErrorType;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.camunda.bpm.model.xml.validation.ValidationResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class BpmnStructureValidationTest {
+
+  private String xml;
+
+  @Before
+  public void readModel() throws IOException {
+    InputStream inputStream = getClass().getResourceAsStream("BpmnStructureValidationTest.bpmn");
+    try {
+      xml = new Scanner(inputStream, "UTF-8").useDelimiter("\\A").next()
+        // the service task is no valid target of the data input association
+        .replace("<bpmn2:targetRef>serviceTask</bpmn2:targetRef>", "<bpmn2:targetRef>dataStoreReference</bpmn2:targetRef>");
+    }
+    finally {
+      inputStream.close();
+    }
+  }
+
+  /**
+   * The structure validation has to come to the same verdict as the schema validation
+   * for all test resources. References are excluded, since the schema does not check
+   * QName references and the types of referenced elements.
+   */
+  @Test
+  public void testConformanceWithSchemaValidation() throws Exception {
+    List<File> resources = new ArrayList<File>();
+    collectResources(new File(getClass().getResource("/").toURI()), resources);
+    assertThat(resources).isNotEmpty();
+
+    for (File resource : resources) {
+      boolean isSchemaValid = isSchemaValid(resource);
+      boolean isStructureValid = isStructureValid(resource);
+      assertThat(isStructureValid).as(resource.getName()).isEqualTo(isSchemaValid);
+    }
+  }
+
+  @Test
+  public void testStructureErrorsAreSchemaErrors() {
+    assertInvalid(xml.replace("<bpmn2:incoming>SequenceFlow_1</bpmn2:incoming>\n      <bpmn2:outgoing>sequenceFlow2</bpmn2:outgoing>",
+      "<bpmn2:outgoing>sequenceFlow2</bpmn2:outgoing>\n      <bpmn2:incoming>SequenceFlow_1</bpmn2:incoming>"), ValidationErrorType.STRUCTURE);
+
+    assertInvalid(xml.replace("<bpmn2:sequenceFlow id=\"sequenceFlow3\" name=\"\" sourceRef=\"startEvent2\" targetRef=\"endEvent2\"/>",
+      "<bpmn2:sequenceFlow id=\"sequenceFlow3\" name=\"\" targetRef=\"endEvent2\"/>"), ValidationErrorType.STRUCTURE);
+
+    assertInvalid(xml.replace("<bpmn2:sequenceFlow id=\"sequenceFlow3\" name=\"\" sourceRef=\"startEvent2\" targetRef=\"endEvent2\"/>",
+      "<bpmn2:sequenceFlow id=\"sequenceFlow3\" name=\"\" sourceRef=\"startEvent2\" targetRef=\"endEvent2\">"
+        + "<bpmn2:conditionExpression>${a}</bpmn2:conditionExpression><bpmn2:conditionExpression>${b}</bpmn2:conditionExpression>"
+        + "</bpmn2:sequenceFlow>"), ValidationErrorType.STRUCTURE);
+
+    assertInvalid(xml.replace("<bpmn2:textAnnotation id=\"textAnnotation\"/>", "<bpmn2:textAnnotation id=\"serviceTask\"/>"),
+      ValidationErrorType.DUPLICATE_ID);
+  }
+
+  @Test
+  public void testInvalidReferenceTargetType() {
+    String changed = xml.replace("sourceRef=\"startEvent1\" targetRef=\"exclusiveGateway\"", "sourceRef=\"startEvent1\" targetRef=\"process1\"");
+
+    List<ValidationError> errors = validateStructure(changed).getErrors(ValidationErrorType.INVALID_REFERENCE);
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0).getMessage()).contains("'process1'").contains("'flowNode'");
+  }
+
+  @Test
+  public void testParseWithStructureValidation() {
+    BpmnModelInstance modelInstance = Bpmn.readModelFromStream(new ByteArrayInputStream(xml.getBytes()), ValidationMode.STRUCTURE);
+
+    // the ids are registered without schema
+    SequenceFlow sequenceFlow = (SequenceFlow) modelInstance.getModelElementById("sequenceFlow1");
+    assertThat(sequenceFlow.getTarget()).isEqualTo(modelInstance.getModelElementById("exclusiveGateway"));
+    assertThat(modelInstance.getModelElementById("textAnnotation")).isNotNull();
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    Bpmn.writeModelToStream(outputStream, modelInstance, ValidationMode.STRUCTURE);
+    Bpmn.validateModel(Bpmn.readModelFromStream(new ByteArrayInputStream(outputStream.toByteArray())));
+  }
+
+  @Test
+  public void testParseInvalidModelWithStructureValidation() {
+    String invalid = xml.replace("<bpmn2:textAnnotation id=\"textAnnotation\"/>", "<bpmn2:textAnnotation id=\"serviceTask\"/>");
+    try {
+      Bpmn.readModelFromStream(new ByteArrayInputStream(invalid.getBytes()), ValidationMode.STRUCTURE);
+      fail("exception expected");
+    }
+    catch (ModelValidationException e) {
+      assertThat(e.getMessage()).contains("Duplicate id 'serviceTask'");
+    }
+  }
+
+  @Test
+  public void testCreatedModel() {
+    BpmnModelInstance modelInstance = Bpmn.createProcess()
+      .startEvent()
+      .userTask()
+      .exclusiveGateway()
+        .condition("approved", "${approved}")
+        .endEvent()
+      .moveToLastGateway()
+        .condition("rejected", "${!approved}")
+        .endEvent()
+      .done();
+
+    assertThat(validateStructure(modelInstance).getErrors()).isEmpty();
+    Bpmn.validateModel(modelInstance, ValidationMode.STRUCTURE);
+    Bpmn.validateModel(modelInstance, ValidationMode.SCHEMA);
+  }
+
+  protected void assertInvalid(String xml, ValidationErrorType errorType) {
+    assertThat(isSchemaValid(new StreamSource(new ByteArrayInputStream(xml.getBytes())))).isFalse();
+    assertThat(validateStructure(xml).getErrors(errorType)).isNotEmpty();
+  }
+
+  protected boolean isSchemaValid(File resource) {
+    return isSchemaValid(new StreamSource(resource));
+  }
+
+  protected boolean isSchemaValid(StreamSource source) {
+    try {
+      BpmnParser.getBpmnSchema().newValidator().validate(source);
+      return true;
+    }
+    catch (SAXException e) {
+      return false;
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  protected boolean isStructureValid(File resource) throws Exception {
+    DocumentBuilderFactory documentBuilderFactory = createDocumentBuilderFactory();
+    ValidationResult result;
+    try {
+      result = validateStructure(new DomDocumentImpl(documentBuilderFactory.newDocumentBuilder().parse(resource)));
+    }
+    catch (SAXException e) {
+      return false;
+    }
+    return result.getErrors(ValidationErrorType.STRUCTURE).isEmpty()
+      && result.getErrors(ValidationErrorType.DUPLICATE_ID).isEmpty();
+  }
+
+  protected ValidationResult validateStructure(String xml) {
+    try {
+      DocumentBuilderFactory documentBuilderFactory = createDocumentBuilderFactory();
+      return validateStructure(new DomDocumentImpl(documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes()))));
+    }
+    catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  protected ValidationResult validateStructure(DomDocumentImpl document) {
+    return new ModelStructureValidator(Bpmn.INSTANCE.getBpmnModel()).validate(document);
+  }
+
+  protected ValidationResult validateStructure(BpmnModelInstance modelInstance) {
+    return new ModelStructureValidator(Bpmn.INSTANCE.getBpmnModel()).validate(modelInstance);
+  }
+
+  protected DocumentBuilderFactory createDocumentBuilderFactory() {
+    DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+    documentBuilderFactory.setNamespaceAware(true);
+    return documentBuilderFactory;
+  }
+
+  protected void collectResources(File directory, List<File> resources) {
+    for (File file : directory.listFiles()) {
+      if (file.isDirectory()) {
+        collectResources(file, resources);
+      }
+      else if (file.getName().endsWith(".bpmn") || file.getName().endsWith(".xml")) {
+        resources.add(file);
+      }
+    }
+  }
+
+}
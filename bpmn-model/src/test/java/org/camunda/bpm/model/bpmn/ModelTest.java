@@ -15,6 +15,7 @@ package org.camunda.bpm.model.bpmn;
 import org.camunda.bpm.model.bpmn.instance.*;
 import org.camunda.bpm.model.xml.Model;
 import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
 import org.camunda.bpm.model.xml.type.ModelElementType;
 import org.junit.Test;
 
@@ -26,6 +27,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 public class ModelTest {
 
+  private static final String UNKNOWN_NAMESPACE = "http://example.org/unknown";
+
   @Test
   public void testCreateEmptyModel() {
     BpmnModelInstance bpmnModelInstance = Bpmn.createEmptyModel();
@@ -67,5 +70,30 @@ public class ModelTest {
     assertThat(allExtendingTypes).hasSize(7);
   }
 
+  @Test
+  public void testUnknownExtensionElementsKeepModelTypes() {
+    BpmnModelInstance bpmnModelInstance = Bpmn.createProcess("process").done();
+    ExtensionElements extensionElements = bpmnModelInstance.newInstance(ExtensionElements.class);
+    BaseElement process = (BaseElement) bpmnModelInstance.getModelElementById("process");
+    process.setExtensionElements(extensionElements);
+
+    // every unknown element registers a generic type and builds the model again
+    ModelElementInstance firstElement = extensionElements.addExtensionElement(UNKNOWN_NAMESPACE, "firstUnknownElement");
+    Model model = bpmnModelInstance.getModel();
+    ModelElementType genericType = model.getType(ModelElementInstance.class);
+    ModelElementType taskType = model.getType(Task.class);
+    int extendingTaskTypes = taskType.getExtendingTypes().size();
+
+    ModelElementInstance secondElement = extensionElements.addExtensionElement(UNKNOWN_NAMESPACE, "secondUnknownElement");
+
+    model = bpmnModelInstance.getModel();
+    assertThat(secondElement.getElementType()).isNotEqualTo(firstElement.getElementType());
+    assertThat(model.getType(ModelElementInstance.class)).isSameAs(genericType);
+    assertThat(model.getType(Task.class)).isSameAs(taskType);
+    assertThat(model.getType(ServiceTask.class).getBaseType()).isSameAs(taskType);
+    assertThat(taskType.getExtendingTypes()).hasSize(extendingTaskTypes);
+    assertThat(extensionElements.getElements()).containsExactly(firstElement, secondElement);
+  }
+
 
 }
@@ -0,0 +1,39 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.impl;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BpmnParserTest {
+
+  @Test
+  public void testSchemaIsSharedByAllParsers() {
+    BpmnParser parser = new BpmnParser();
+    BpmnParser otherParser = new BpmnParser();
+
+    assertThat(parser.getSchema()).isNotNull();
+    assertThat(parser.getSchema()).isSameAs(otherParser.getSchema());
+    assertThat(parser.getSchema()).isSameAs(BpmnParser.getBpmnSchema());
+  }
+
+  @Test
+  public void testParseWithNewParser() {
+    BpmnModelInstance modelInstance = new BpmnParser().parseModelFromStream(getClass().getResourceAsStream("/org/camunda/bpm/model/bpmn/ProcessTest.shouldImportProcess.bpmn"));
+    assertThat(modelInstance.getDefinitions()).isNotNull();
+  }
+
+}
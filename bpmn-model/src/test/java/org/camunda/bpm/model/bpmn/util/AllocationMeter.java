@@ -0,0 +1,88 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.bpmn.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the heap memory allocated by an operation in the current thread. It relies on
+ * the allocation counters of the HotSpot {@link com.sun.management.ThreadMXBean}, which are
+ * not available on every JVM.
+ */
+public final class AllocationMeter {
+
+  /** more executions than needed to compile the operation with the optimizing compiler */
+  private static final int WARMUP_ITERATIONS = 20000;
+
+  private AllocationMeter() {
+  }
+
+  /**
+   * @return true if the allocated memory of a thread can be measured by this JVM
+   */
+  public static boolean isSupported() {
+    try {
+      com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+      return threadMXBean != null && threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+    }
+    catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Executes the operation repeatedly, first to warm it up and then to measure the
+   * average number of bytes it allocates.
+   *
+   * @param iterations  the number of measured executions
+   * @param operation  the operation to measure
+   * @return the average number of allocated bytes per execution
+   */
+  public static long measure(int iterations, Runnable operation) {
+    return measure(WARMUP_ITERATIONS, iterations, operation);
+  }
+
+  /**
+   * Executes the operation repeatedly, first to warm it up and then to measure the
+   * average number of bytes it allocates.
+   *
+   * @param warmupIterations  the number of executions before the measurement
+   * @param iterations  the number of measured executions
+   * @param operation  the operation to measure
+   * @return the average number of allocated bytes per execution
+   */
+  public static long measure(int warmupIterations, int iterations, Runnable operation) {
+    for (int i = 0; i < warmupIterations; i++) {
+      operation.run();
+    }
+    com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < iterations; i++) {
+      operation.run();
+    }
+    return (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytes) / iterations;
+  }
+
+  protected static com.sun.management.ThreadMXBean getThreadMXBean() {
+    java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      return (com.sun.management.ThreadMXBean) threadMXBean;
+    }
+    else {
+      return null;
+    }
+  }
+
+}
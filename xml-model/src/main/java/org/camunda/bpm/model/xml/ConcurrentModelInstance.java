@@ -0,0 +1,342 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+import org.camunda.bpm.model.xml.event.ModelChangeEvent;
+import org.camunda.bpm.model.xml.event.ModelChangeListener;
+import org.camunda.bpm.model.xml.event.ModelChangeType;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.metrics.ModelInstanceStatistics;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A model instance which can be shared between threads. Many threads can read the
+ * model instance concurrently, while a thread which changes it has exclusive access.
+ *
+ * <p>The methods of the {@link ModelInstance} interface acquire the lock themselves.
+ * Everything else, especially the accessors of the returned model elements, has to
+ * be executed as an operation, which holds the lock until it returns:</p>
+ *
+ * <pre>
+ * String name = concurrentModelInstance.read(new ModelOperation&lt;BpmnModelInstance, String&gt;() {
+ *   public String execute(BpmnModelInstance modelInstance) {
+ *     return modelInstance.getModelElementById("task").getAttributeValue("name");
+ *   }
+ * });
+ * </pre>
+ *
+ * <p>A read operation must not change the model instance and model elements must not be
+ * accessed outside of an operation. The wrapped model instance must only be accessed
+ * through this model instance.</p>
+ *
+ * <p>The version of the model instance is increased by every change, so a query
+ * result can be cached together with the version and reused as long as the version did
+ * not change, without acquiring the lock.</p>
+ *
+ * @param <M> the type of the wrapped model instance
+ */
+public class ConcurrentModelInstance<M extends ModelInstance> implements ModelInstance {
+
+  protected final M modelInstance;
+  protected final ModelInstanceImpl modelInstanceImpl;
+  protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** the elements which were added by the running write operation */
+  protected final List<ModelElementInstance> addedElements = new ArrayList<ModelElementInstance>();
+
+  protected volatile long version;
+
+  public ConcurrentModelInstance(M modelInstance) {
+    ModelUtil.ensureInstanceOf(modelInstance, ModelInstanceImpl.class);
+    this.modelInstance = modelInstance;
+    this.modelInstanceImpl = (ModelInstanceImpl) modelInstance;
+
+    lock.writeLock().lock();
+    try {
+      modelInstanceImpl.addChangeListener(new AddedElementsCollector());
+      modelInstanceImpl.prepareConcurrentReads();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Executes an operation which only reads the model instance. Many read operations
+   * are executed concurrently.
+   *
+   * @param operation  the operation to execute
+   * @return the result of the operation
+   */
+  public <T> T read(ModelOperation<? super M, T> operation) {
+    lock.readLock().lock();
+    try {
+      return operation.execute(modelInstance);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Executes an operation which changes the model instance. The operation waits until all
+   * running operations are completed and blocks all other operations until it returns.
+   * A write operation cannot be started inside of a read operation.
+   *
+   * @param operation  the operation to execute
+   * @return the result of the operation
+   * @throws ModelException if the current thread executes a read operation
+   */
+  public <T> T write(ModelOperation<? super M, T> operation) {
+    lockWrite();
+    try {
+      return operation.execute(modelInstance);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  /**
+   * Returns the version of the model instance which is increased by every operation
+   * which changed the model instance.
+   *
+   * @return the version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return the wrapped model instance, which must only be accessed inside of operations
+   */
+  public M getModelInstance() {
+    return modelInstance;
+  }
+
+  protected void lockWrite() {
+    if (lock.getReadHoldCount() > 0 && !lock.isWriteLockedByCurrentThread()) {
+      throw new ModelException("Unable to change the model instance inside of a read operation");
+    }
+    lock.writeLock().lock();
+  }
+
+  protected void unlockWrite() {
+    try {
+      if (lock.getWriteHoldCount() == 1) {
+        // the added elements are accessed by the next read operations
+        for (ModelElementInstance element : addedElements) {
+          if (modelInstanceImpl.isConnected(element)) {
+            modelInstanceImpl.prepareConcurrentReads(element);
+          }
+        }
+        addedElements.clear();
+      }
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public DomDocument getDocument() {
+    lock.readLock().lock();
+    try {
+      return modelInstance.getDocument();
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public ModelElementInstance getDocumentElement() {
+    lock.readLock().lock();
+    try {
+      return modelInstance.getDocumentElement();
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void setDocumentElement(ModelElementInstance documentElement) {
+    lockWrite();
+    try {
+      modelInstance.setDocumentElement(documentElement);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  public <T extends ModelElementInstance> T newInstance(Class<T> type) {
+    lockWrite();
+    try {
+      return modelInstance.newInstance(type);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  public <T extends ModelElementInstance> T newInstance(ModelElementType type) {
+    lockWrite();
+    try {
+      return modelInstance.<T>newInstance(type);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  public Model getModel() {
+    return modelInstance.getModel();
+  }
+
+  public ModelElementInstance getModelElementById(String id) {
+    lock.readLock().lock();
+    try {
+      return modelInstance.getModelElementById(id);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public Collection<ModelElementInstance> getModelElementsByType(ModelElementType referencingType) {
+    lock.readLock().lock();
+    try {
+      return modelInstance.getModelElementsByType(referencingType);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public <T extends ModelElementInstance> Collection<T> getModelElementsByType(Class<T> referencingClass) {
+    lock.readLock().lock();
+    try {
+      return modelInstance.getModelElementsByType(referencingClass);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void addChangeListener(ModelChangeListener listener) {
+    modelInstance.addChangeListener(listener);
+  }
+
+  public void removeChangeListener(ModelChangeListener listener) {
+    modelInstance.removeChangeListener(listener);
+  }
+
+  public void batch(Runnable operation) {
+    lockWrite();
+    try {
+      modelInstance.batch(operation);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  public void remapIds(IdMapper idMapper) {
+    lockWrite();
+    try {
+      modelInstance.remapIds(idMapper);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  public void remapIds(Map<String, String> ids) {
+    lockWrite();
+    try {
+      modelInstance.remapIds(ids);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  public <T extends ModelElementInstance> T importElement(T element, ModelElementInstance parentElement, IdConflictPolicy idConflictPolicy) {
+    lockWrite();
+    try {
+      return modelInstance.importElement(element, parentElement, idConflictPolicy);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  /**
+   * Returns the content hash of the document element. The hashes are cached at the
+   * elements, so the content hash is computed with exclusive access.
+   */
+  public String getContentHash() {
+    lockWrite();
+    try {
+      return modelInstance.getContentHash();
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  /**
+   * Returns the content hash of the subtree of the element. The hashes are cached at the
+   * elements, so the content hash is computed with exclusive access.
+   */
+  public String getContentHash(ModelElementInstance element) {
+    lockWrite();
+    try {
+      return modelInstance.getContentHash(element);
+    }
+    finally {
+      unlockWrite();
+    }
+  }
+
+  public ModelInstanceStatistics getStatistics() {
+    return modelInstance.getStatistics();
+  }
+
+  /**
+   * Collects the elements which are added by a write operation.
+   */
+  protected class AddedElementsCollector implements ModelChangeListener {
+
+    public void modelChanged(List<ModelChangeEvent> events) {
+      version++;
+      for (ModelChangeEvent event : events) {
+        ModelChangeType type = event.getType();
+        if (type == ModelChangeType.ELEMENT_ADDED || type == ModelChangeType.ELEMENT_REPLACED) {
+          addedElements.add(event.getElement());
+        }
+      }
+    }
+
+  }
+
+}
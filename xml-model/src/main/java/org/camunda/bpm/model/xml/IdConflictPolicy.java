@@ -0,0 +1,36 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+/**
+ * Defines how ids of imported elements are handled which already exist in the target
+ * model instance.
+ *
+ * @see ModelInstance#importElement(org.camunda.bpm.model.xml.instance.ModelElementInstance, org.camunda.bpm.model.xml.instance.ModelElementInstance, IdConflictPolicy)
+ */
+public enum IdConflictPolicy {
+
+  /**
+   * The import fails with a {@link ModelException} and the target model instance is not changed.
+   */
+  FAIL,
+
+  /**
+   * A conflicting id is renamed by appending a numeric suffix, e.g. <code>task</code> is
+   * imported as <code>task_1</code>, and the references inside of the imported elements
+   * are updated.
+   */
+  RENAME
+
+}
@@ -0,0 +1,31 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+/**
+ * Maps the ids of the elements of a model instance to new ids.
+ *
+ * @see ModelInstance#remapIds(IdMapper)
+ */
+public interface IdMapper {
+
+  /**
+   * Returns the new id of an element.
+   *
+   * @param id  the current id of the element
+   * @return the new id or null to keep the current id
+   */
+  String mapId(String id);
+
+}
@@ -12,12 +12,16 @@
  */
 package org.camunda.bpm.model.xml;
 
+import org.camunda.bpm.model.xml.event.ModelChangeListener;
 import org.camunda.bpm.model.xml.impl.instance.ModelElementInstanceImpl;
 import org.camunda.bpm.model.xml.instance.DomDocument;
 import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.metrics.ModelInstanceStatistics;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
 import org.camunda.bpm.model.xml.type.ModelElementType;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * An instance of a model
@@ -98,4 +102,103 @@ public interface ModelInstance {
    */
   <T extends ModelElementInstance> Collection<T> getModelElementsByType(Class<T> referencingClass);
 
+  /**
+   * Registers a listener which is notified about all changes of this model instance.
+   *
+   * @param listener  the listener to register
+   */
+  void addChangeListener(ModelChangeListener listener);
+
+  /**
+   * Removes a registered change listener.
+   *
+   * @param listener  the listener to remove
+   */
+  void removeChangeListener(ModelChangeListener listener);
+
+  /**
+   * Executes the operation as a single batch of changes. The updates of references
+   * to renamed or removed elements are deferred until the operation finished and then
+   * applied in a single pass over the model. If the operation throws an exception all
+   * changes of the batch are rolled back and the exception is rethrown.
+   *
+   * <p>Change listeners are notified once with all changes of the batch. A batch
+   * started inside of another batch joins the enclosing batch.</p>
+   *
+   * @param operation  the operation to execute
+   */
+  void batch(Runnable operation);
+
+  /**
+   * Renames the ids of the elements and updates all references to the renamed elements.
+   * The ids and references are rewritten in a single pass over the model, so renaming all
+   * ids of a large model takes linear time, in contrast to setting every id separately.
+   *
+   * <p>The changes are executed as a single {@link #batch(Runnable) batch}. If the new ids
+   * are not unique, nothing is changed and a {@link ModelException} is thrown.</p>
+   *
+   * @param idMapper  the mapper which returns the new id of an element
+   * @throws ModelException if the new ids are not unique
+   */
+  void remapIds(IdMapper idMapper);
+
+  /**
+   * Renames the ids of the elements and updates all references to the renamed elements.
+   *
+   * @param ids  the new ids by the current ids, elements which are not contained keep their id
+   * @throws ModelException if the new ids are not unique
+   * @see #remapIds(IdMapper)
+   */
+  void remapIds(Map<String, String> ids);
+
+  /**
+   * Adds a copy of an element of another model instance, or of this model instance, to a
+   * parent element. The subtree of the element is copied at once, the namespaces of the
+   * copy are declared at the document element of this model instance if necessary.
+   *
+   * <p>If an id of the copied elements already exists, the import fails or the id is
+   * renamed depending on the policy. References inside of the copied subtree are updated
+   * to renamed ids, references to elements outside of the subtree are copied unchanged.
+   * The import is executed as a single {@link #batch(Runnable) batch}.</p>
+   *
+   * @param element  the element to copy
+   * @param parentElement  the parent element of the copy in this model instance
+   * @param idConflictPolicy  the handling of ids which already exist in this model instance
+   * @return the added copy of the element
+   * @throws ModelException if an id already exists and the policy is {@link IdConflictPolicy#FAIL}
+   */
+  <T extends ModelElementInstance> T importElement(T element, ModelElementInstance parentElement, IdConflictPolicy idConflictPolicy);
+
+  /**
+   * Returns the content hash of the document element or null if no document element
+   * exists.
+   *
+   * @return the hexadecimal content hash or null
+   * @see #getContentHash(ModelElementInstance)
+   */
+  String getContentHash();
+
+  /**
+   * Returns a content hash of the subtree of the element. The hash covers the names,
+   * attributes, text content and child elements in document order but is independent
+   * of namespace prefixes, attribute order and formatting whitespace.
+   *
+   * <p>Hashes are cached per element and invalidated on the path to the document element
+   * on every change, so after a small change the hash is recomputed for the changed
+   * elements and their ancestors only. Changes made directly on the {@link DomDocument}
+   * are not tracked.</p>
+   *
+   * @param element  the element to hash
+   * @return the hexadecimal SHA-256 content hash
+   */
+  String getContentHash(ModelElementInstance element);
+
+  /**
+   * Returns the statistics of the operations on this model instance. The statistics are
+   * only recorded while the metrics of the {@link ModelMetricsRegistry} are enabled.
+   *
+   * @return the statistics of this model instance
+   */
+  ModelInstanceStatistics getStatistics();
+
 }
@@ -0,0 +1,33 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+/**
+ * An operation which is executed on a model instance.
+ *
+ * @param <M> the type of the model instance
+ * @param <T> the type of the result
+ * @see ConcurrentModelInstance
+ */
+public interface ModelOperation<M extends ModelInstance, T> {
+
+  /**
+   * Executes the operation.
+   *
+   * @param modelInstance  the model instance
+   * @return the result of the operation
+   */
+  T execute(M modelInstance);
+
+}
@@ -0,0 +1,223 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Options which control how a model document is parsed.
+ *
+ * <pre>
+ * ModelParseOptions options = new ModelParseOptions()
+ *   .validationMode(ValidationMode.STRUCTURE)
+ *   .deferNamespace(BPMNDI_NS)
+ *   .includeRootElements(Process.class, "invoice")
+ *   .excludeElements(Documentation.class);
+ * </pre>
+ *
+ * <p>Excluded elements are dropped before the document is parsed. Afterwards all references
+ * to them are removed from the document, like they are removed if an element is removed
+ * from a model instance. Elements which cannot exist without such a reference, because it
+ * is a required attribute or the only required reference child element, are removed as well.</p>
+ */
+public class ModelParseOptions {
+
+  protected ValidationMode validationMode = ValidationMode.SCHEMA;
+  protected final Set<String> deferredNamespaces = new LinkedHashSet<String>();
+  protected final Map<Class<? extends ModelElementInstance>, Set<String>> includedRootElements = new LinkedHashMap<Class<? extends ModelElementInstance>, Set<String>>();
+  protected final Map<Class<? extends ModelElementInstance>, Set<String>> excludedRootElements = new LinkedHashMap<Class<? extends ModelElementInstance>, Set<String>>();
+  protected final Set<Class<? extends ModelElementInstance>> excludedElementTypes = new LinkedHashSet<Class<? extends ModelElementInstance>>();
+  protected final Set<String> excludedNamespaces = new LinkedHashSet<String>();
+  protected ExecutorService executorService;
+  protected int partitionCount = 1;
+
+  /**
+   * Sets the way the document is validated, {@link ValidationMode#SCHEMA} by default.
+   *
+   * @param validationMode  the validation mode
+   * @return this options
+   */
+  public ModelParseOptions validationMode(ValidationMode validationMode) {
+    this.validationMode = validationMode;
+    return this;
+  }
+
+  /**
+   * Defers the parsing of the child elements of the document element in the given namespace.
+   * Their unparsed bytes are kept by the model instance and they are parsed and inserted
+   * into the document when they are accessed for the first time, for example by querying
+   * the model elements of a type of the namespace, by looking up an id which is not found
+   * otherwise or by accessing the complete DOM document to write or validate it.
+   *
+   * <p>This is intended for large sections of a document which are rarely used and which are
+   * not referenced by the remaining document, like the diagram interchange of BPMN. Deferred
+   * elements are validated when they are loaded.</p>
+   *
+   * @param namespaceUri  the namespace of the deferred elements
+   * @return this options
+   */
+  public ModelParseOptions deferNamespace(String namespaceUri) {
+    deferredNamespaces.add(namespaceUri);
+    return this;
+  }
+
+  /**
+   * Restricts the child elements of the document element of a type to the elements with
+   * one of the ids. Child elements of other types are not affected.
+   *
+   * @param type  the type of the elements, including all types which extend it
+   * @param ids  the ids of the elements to include
+   * @return this options
+   */
+  public ModelParseOptions includeRootElements(Class<? extends ModelElementInstance> type, String... ids) {
+    addIds(includedRootElements, type, ids);
+    return this;
+  }
+
+  /**
+   * Excludes the child elements of the document element of a type with one of the ids
+   * or all child elements of the type if no id is given.
+   *
+   * @param type  the type of the elements, including all types which extend it
+   * @param ids  the ids of the elements to exclude
+   * @return this options
+   */
+  public ModelParseOptions excludeRootElements(Class<? extends ModelElementInstance> type, String... ids) {
+    addIds(excludedRootElements, type, ids);
+    return this;
+  }
+
+  /**
+   * Excludes all elements of a type from the document. If the document is validated against
+   * the schema, the remaining document has to be valid, so elements which are referenced
+   * by an <code>IDREF</code> attribute of the schema should not be excluded.
+   *
+   * @param type  the type of the elements, including all types which extend it
+   * @return this options
+   */
+  public ModelParseOptions excludeElements(Class<? extends ModelElementInstance> type) {
+    excludedElementTypes.add(type);
+    return this;
+  }
+
+  /**
+   * Excludes all elements of a namespace from the document, for example the extension
+   * elements of a vendor.
+   *
+   * @param namespaceUri  the namespace of the elements to exclude
+   * @return this options
+   */
+  public ModelParseOptions excludeNamespace(String namespaceUri) {
+    excludedNamespaces.add(namespaceUri);
+    return this;
+  }
+
+  /**
+   * Parses the child elements of the document element concurrently. They are split into
+   * partitions of about the same size at the boundaries of the child elements, every
+   * partition is parsed by a task of the executor and the parsed elements are joined into
+   * one document. This speeds up the parsing of large documents with many child elements
+   * of the document element, for example definitions with many processes.
+   *
+   * <p>Only documents which are validated with {@link ValidationMode#STRUCTURE} are parsed
+   * concurrently. The schema validation needs the whole document, so a document which is
+   * validated against the schema is parsed sequentially and only the element filters of
+   * these options apply.</p>
+   *
+   * @param executorService  the executor of the parse tasks
+   * @param partitionCount  the maximum number of partitions, usually the number of threads of the executor
+   * @return this options
+   */
+  public ModelParseOptions parseConcurrently(ExecutorService executorService, int partitionCount) {
+    this.executorService = executorService;
+    this.partitionCount = partitionCount;
+    return this;
+  }
+
+  protected void addIds(Map<Class<? extends ModelElementInstance>, Set<String>> idsByType, Class<? extends ModelElementInstance> type, String... ids) {
+    Set<String> typeIds = idsByType.get(type);
+    if (typeIds == null) {
+      typeIds = new HashSet<String>();
+      idsByType.put(type, typeIds);
+    }
+    typeIds.addAll(Arrays.asList(ids));
+  }
+
+  /**
+   * @return true if elements are deferred or excluded, false if the complete document is parsed
+   */
+  public boolean hasElementFilters() {
+    return !deferredNamespaces.isEmpty() || hasExclusions();
+  }
+
+  /**
+   * @return true if elements are excluded from the document
+   */
+  public boolean hasExclusions() {
+    return !includedRootElements.isEmpty() || !excludedRootElements.isEmpty() || !excludedElementTypes.isEmpty() || !excludedNamespaces.isEmpty();
+  }
+
+  /**
+   * @return true if the document is split into partitions which are parsed concurrently
+   */
+  public boolean isConcurrent() {
+    return executorService != null && partitionCount > 1;
+  }
+
+  public ValidationMode getValidationMode() {
+    return validationMode;
+  }
+
+  public Set<String> getDeferredNamespaces() {
+    return Collections.unmodifiableSet(deferredNamespaces);
+  }
+
+  public Map<Class<? extends ModelElementInstance>, Set<String>> getIncludedRootElements() {
+    return Collections.unmodifiableMap(includedRootElements);
+  }
+
+  /**
+   * @return the ids of the excluded root elements by type, an empty set excludes all elements of the type
+   */
+  public Map<Class<? extends ModelElementInstance>, Set<String>> getExcludedRootElements() {
+    return Collections.unmodifiableMap(excludedRootElements);
+  }
+
+  public Set<Class<? extends ModelElementInstance>> getExcludedElementTypes() {
+    return Collections.unmodifiableSet(excludedElementTypes);
+  }
+
+  public Set<String> getExcludedNamespaces() {
+    return Collections.unmodifiableSet(excludedNamespaces);
+  }
+
+  public ExecutorService getExecutorService() {
+    return executorService;
+  }
+
+  public int getPartitionCount() {
+    return partitionCount;
+  }
+
+}
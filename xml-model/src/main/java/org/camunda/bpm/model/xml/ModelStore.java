@@ -0,0 +1,291 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.parser.AbstractModelParser;
+import org.camunda.bpm.model.xml.impl.store.CompactModel;
+import org.camunda.bpm.model.xml.impl.store.CompactModelDecoder;
+import org.camunda.bpm.model.xml.impl.store.CompactModelEncoder;
+import org.camunda.bpm.model.xml.impl.store.StoredElementImpl;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.instance.StoredElement;
+import org.w3c.dom.Document;
+
+import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A store of many model instances which keeps every model in a compact encoding
+ * outside of the heap instead of its DOM document. The encoding contains every
+ * distinct string of a model once and one record per node, so it is a fraction of
+ * the size of the DOM document and is not traversed by the garbage collector.
+ *
+ * <p>Elements of a stored model can be read by {@link StoredElement} views, which
+ * decode the encoded model when they are accessed. A model instance is created from
+ * the encoding when it is requested. The model instances of the most recently used
+ * models are kept, so they are copied instead of decoded again, and the store only
+ * holds the DOM documents of the models in use:</p>
+ *
+ * <pre>
+ * ModelStore&lt;BpmnModelInstance&gt; store = Bpmn.createModelStore(100);
+ * store.put("invoice:1", Bpmn.readModelFromStream(stream));
+ *
+ * String name = store.getElementById("invoice:1", "approveInvoice").getAttributeValue("name");
+ * BpmnModelInstance modelInstance = store.getModelInstance("invoice:1");
+ * </pre>
+ *
+ * <p>Every call of {@link #getModelInstance(String)} returns a new model instance which
+ * belongs to the caller, so it can be changed without affecting other callers. Changes
+ * of the model instance are not stored unless it is put into the store again. The store
+ * can be used by concurrent threads.</p>
+ *
+ * @param <M> the type of the stored model instances
+ */
+public class ModelStore<M extends ModelInstance> {
+
+  protected final AbstractModelParser parser;
+  protected final Model model;
+  protected final ModelTypeMetadata modelTypeMetadata;
+  protected final int inflatedInstanceCapacity;
+
+  protected final Map<String, CompactModel> compactModels = new ConcurrentHashMap<String, CompactModel>();
+  protected final Map<String, Inflated<M>> inflatedInstances;
+
+  /**
+   * Creates a store.
+   *
+   * @param parser  the parser which creates the empty model instances
+   * @param inflatedInstanceCapacity  the maximum number of model instances which are kept
+   */
+  public ModelStore(AbstractModelParser parser, final int inflatedInstanceCapacity) {
+    if (inflatedInstanceCapacity < 0) {
+      throw new ModelException("The capacity of inflated model instances must not be negative");
+    }
+    this.parser = parser;
+    this.model = parser.getEmptyModel().getModel();
+    this.modelTypeMetadata = new ModelTypeMetadata(model);
+    this.inflatedInstanceCapacity = inflatedInstanceCapacity;
+    this.inflatedInstances = new LinkedHashMap<String, Inflated<M>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      protected boolean removeEldestEntry(Map.Entry<String, Inflated<M>> eldest) {
+        return size() > inflatedInstanceCapacity;
+      }
+    };
+  }
+
+  /**
+   * Encodes a model instance and stores it with a key. A model stored with the same
+   * key is replaced. The model instance itself is not kept by the store.
+   *
+   * @param key  the key of the model
+   * @param modelInstance  the model instance to store
+   */
+  public void put(String key, M modelInstance) {
+    Document document = (Document) modelInstance.getDocument().getDomSource().getNode();
+    CompactModel compactModel = new CompactModelEncoder(modelTypeMetadata).encode(document, true);
+    synchronized (inflatedInstances) {
+      compactModels.put(key, compactModel);
+      inflatedInstances.remove(key);
+    }
+  }
+
+  /**
+   * Removes a model from the store.
+   *
+   * @param key  the key of the model
+   * @return true if a model was stored with the key
+   */
+  public boolean remove(String key) {
+    synchronized (inflatedInstances) {
+      inflatedInstances.remove(key);
+      return compactModels.remove(key) != null;
+    }
+  }
+
+  /**
+   * @param key  the key of a model
+   * @return true if a model is stored with the key
+   */
+  public boolean contains(String key) {
+    return compactModels.containsKey(key);
+  }
+
+  /**
+   * @return the keys of the stored models
+   */
+  public Set<String> getKeys() {
+    return new HashSet<String>(compactModels.keySet());
+  }
+
+  /**
+   * @return the number of stored models
+   */
+  public int size() {
+    return compactModels.size();
+  }
+
+  /**
+   * @return the number of bytes of all encoded models
+   */
+  public long getEncodedSize() {
+    long encodedSize = 0;
+    for (CompactModel compactModel : compactModels.values()) {
+      encodedSize += compactModel.getSize();
+    }
+    return encodedSize;
+  }
+
+  /**
+   * @param key  the key of the model
+   * @return the number of bytes of the encoded model or -1 if no model is stored with the key
+   */
+  public int getEncodedSize(String key) {
+    CompactModel compactModel = compactModels.get(key);
+    return compactModel != null ? compactModel.getSize() : -1;
+  }
+
+  /**
+   * Returns a view of the document element of a stored model.
+   *
+   * @param key  the key of the model
+   * @return the view of the document element or null if no model is stored with the key
+   */
+  public StoredElement getDocumentElement(String key) {
+    CompactModel compactModel = compactModels.get(key);
+    if (compactModel == null) {
+      return null;
+    }
+    return new StoredElementImpl(model, compactModel, compactModel.getDocumentElementOffset());
+  }
+
+  /**
+   * Returns a view of the element of a stored model which has the given id. The
+   * model instance is not created to find the element.
+   *
+   * @param key  the key of the model
+   * @param id  the id of the element
+   * @return the view of the element or null if the model or element does not exist
+   */
+  public StoredElement getElementById(String key, String id) {
+    CompactModel compactModel = compactModels.get(key);
+    if (compactModel == null) {
+      return null;
+    }
+    int offset = compactModel.findElementById(id);
+    return offset >= 0 ? new StoredElementImpl(model, compactModel, offset) : null;
+  }
+
+  /**
+   * Returns a new model instance of a stored model, which belongs to the caller. It is
+   * copied from the kept model instance of the model or created from the encoded model
+   * if the model was not used recently.
+   *
+   * @param key  the key of the model
+   * @return the model instance or null if no model is stored with the key
+   */
+  public M getModelInstance(String key) {
+    Inflated<M> inflated;
+    CompactModel compactModel;
+    synchronized (inflatedInstances) {
+      inflated = inflatedInstances.get(key);
+      compactModel = compactModels.get(key);
+    }
+    if (inflated != null) {
+      // the model instance is copied without holding the lock of the store
+      return inflated.copyModelInstance();
+    }
+    if (compactModel == null) {
+      return null;
+    }
+
+    // the model instance is created without holding the lock of the store
+    inflated = new Inflated<M>(compactModel, decodeModel(compactModel));
+    synchronized (inflatedInstances) {
+      Inflated<M> concurrentlyInflated = inflatedInstances.get(key);
+      if (concurrentlyInflated != null && concurrentlyInflated.compactModel == compactModel) {
+        inflated = concurrentlyInflated;
+      }
+      else if (compactModels.get(key) == compactModel) {
+        inflatedInstances.put(key, inflated);
+      }
+    }
+    return inflated.copyModelInstance();
+  }
+
+  @SuppressWarnings("unchecked")
+  protected M decodeModel(CompactModel compactModel) {
+    // the encoded model was encoded from a model instance, so it is not validated again
+    M modelInstance = (M) parser.getEmptyModel();
+    new CompactModelDecoder(modelTypeMetadata).decode(compactModel, modelInstance.getDocument());
+    return modelInstance;
+  }
+
+  /**
+   * @param key  the key of a model
+   * @return true if the model instance of the model is kept by the store
+   */
+  public boolean isInflated(String key) {
+    synchronized (inflatedInstances) {
+      return inflatedInstances.containsKey(key);
+    }
+  }
+
+  /**
+   * @return the number of model instances which are kept by the store
+   */
+  public int getInflatedInstanceCount() {
+    synchronized (inflatedInstances) {
+      return inflatedInstances.size();
+    }
+  }
+
+  /**
+   * Releases all model instances which are kept by the store. The encoded models are kept.
+   */
+  public void evictInflatedInstances() {
+    synchronized (inflatedInstances) {
+      inflatedInstances.clear();
+    }
+  }
+
+  /**
+   * A kept model instance, which is never returned to a caller, so it is not changed.
+   */
+  protected static class Inflated<M extends ModelInstance> {
+
+    protected final CompactModel compactModel;
+    protected final M modelInstance;
+
+    protected Inflated(CompactModel compactModel, M modelInstance) {
+      this.compactModel = compactModel;
+      this.modelInstance = modelInstance;
+    }
+
+    /**
+     * Copies the model instance. The copies are created one after the other, since
+     * reading a DOM document is not thread-safe.
+     */
+    @SuppressWarnings("unchecked")
+    protected synchronized M copyModelInstance() {
+      return (M) ((ModelInstanceImpl) modelInstance).clone();
+    }
+
+  }
+
+}
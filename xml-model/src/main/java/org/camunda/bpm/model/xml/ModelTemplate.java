@@ -0,0 +1,116 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.template.ModelTemplateCompiler;
+import org.camunda.bpm.model.xml.impl.template.ModelTemplatePlan;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.w3c.dom.Document;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A template to create many model instances of the same structure with different
+ * values. The template is analyzed once, so a model instance or its XML is created
+ * without reference updates or parsing.
+ *
+ * <p>Attribute values and the text content of elements without child elements may
+ * contain parameters in the form <code>{{name}}</code>. Since ids cannot contain
+ * parameters, an id pattern is applied to all ids and references of the template,
+ * in which <code>{{id}}</code> is replaced by the id of the template:</p>
+ *
+ * <pre>
+ * ModelTemplate&lt;BpmnModelInstance&gt; template = new ModelTemplate&lt;BpmnModelInstance&gt;(modelInstance, "{{tenant}}_{{id}}");
+ *
+ * Map&lt;String, String&gt; parameters = new HashMap&lt;String, String&gt;();
+ * parameters.put("tenant", "tenant1");
+ * parameters.put("assignee", "john");
+ * BpmnModelInstance instance = template.instantiate(parameters);
+ * </pre>
+ *
+ * <p>The created model instances are not validated. Changes of the model instance
+ * after the template was created do not change the template. A template can be
+ * instantiated by concurrent threads.</p>
+ *
+ * @param <M> the type of the created model instances
+ */
+public class ModelTemplate<M extends ModelInstance> {
+
+  protected final M templateInstance;
+  protected final ModelTemplatePlan plan;
+
+  /**
+   * Creates a template which keeps the ids of the template.
+   *
+   * @param modelInstance  the model instance of the template
+   */
+  public ModelTemplate(M modelInstance) {
+    this(modelInstance, null);
+  }
+
+  /**
+   * Creates a template.
+   *
+   * @param modelInstance  the model instance of the template
+   * @param idPattern  the pattern of the ids which contains the parameter <code>{{id}}</code>
+   *                   or null to keep the ids of the template
+   */
+  @SuppressWarnings("unchecked")
+  public ModelTemplate(M modelInstance, String idPattern) {
+    ModelUtil.ensureInstanceOf(modelInstance, ModelInstanceImpl.class);
+    ((ModelInstanceImpl) modelInstance).loadDeferredElements();
+    this.templateInstance = (M) ((ModelInstanceImpl) modelInstance).clone();
+    this.plan = new ModelTemplateCompiler((ModelInstanceImpl) templateInstance, idPattern).compile();
+  }
+
+  /**
+   * @return the names of the parameters of the template
+   */
+  public Set<String> getParameterNames() {
+    return plan.getParameterNames();
+  }
+
+  /**
+   * Creates a model instance from the template.
+   *
+   * @param parameters  the values of the parameters
+   * @return the new model instance
+   * @throws ModelException if a parameter is missing
+   */
+  @SuppressWarnings("unchecked")
+  public M instantiate(Map<String, String> parameters) {
+    String[] values = plan.evaluate(parameters);
+    M modelInstance = (M) ((ModelInstanceImpl) templateInstance).clone();
+    plan.apply((Document) modelInstance.getDocument().getDomSource().getNode(), values);
+    return modelInstance;
+  }
+
+  /**
+   * Creates the XML of a model instance from the template. The XML is equal to the
+   * serialized model instance which is created with the same parameters.
+   *
+   * @param parameters  the values of the parameters
+   * @return the XML of the new model instance
+   * @throws ModelException if a parameter is missing
+   */
+  public String instantiateXml(Map<String, String> parameters) {
+    String[] values = plan.evaluate(parameters);
+    StringBuilder builder = new StringBuilder(plan.getXmlLength());
+    plan.write(values, builder);
+    return builder.toString();
+  }
+
+}
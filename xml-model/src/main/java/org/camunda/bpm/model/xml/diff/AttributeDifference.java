@@ -0,0 +1,42 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.diff;
+
+/**
+ * A differing attribute of an element which exists in both model instances.
+ *
+ * @see ElementDifference#getAttributeDifferences()
+ */
+public interface AttributeDifference {
+
+  /**
+   * @return the namespace URI of the attribute or null if the attribute has no namespace
+   */
+  String getNamespaceUri();
+
+  /**
+   * @return the local name of the attribute
+   */
+  String getAttributeName();
+
+  /**
+   * @return the value in the old model instance or null if the attribute was added
+   */
+  String getOldValue();
+
+  /**
+   * @return the value in the new model instance or null if the attribute was removed
+   */
+  String getNewValue();
+
+}
@@ -0,0 +1,34 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.diff;
+
+/**
+ * The kind of difference of an element between two model instances.
+ *
+ * @see ElementDifference
+ */
+public enum DifferenceType {
+
+  /** the element only exists in the new model instance */
+  ADDED,
+
+  /** the element only exists in the old model instance */
+  REMOVED,
+
+  /** the attributes or the text content of the element differ */
+  CHANGED,
+
+  /** the element was moved to another parent, its attributes or text content may differ too */
+  MOVED
+
+}
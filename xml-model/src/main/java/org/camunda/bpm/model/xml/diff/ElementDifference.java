@@ -0,0 +1,67 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.diff;
+
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+import java.util.List;
+
+/**
+ * A difference of a single element between two model instances. Added and removed
+ * elements are reported as a whole, their child elements are not reported separately.
+ *
+ * @see ModelDiff
+ */
+public interface ElementDifference {
+
+  /**
+   * Returns the kind of the difference.
+   *
+   * @return the difference type
+   */
+  DifferenceType getType();
+
+  /**
+   * Returns the element of the old model instance.
+   *
+   * @return the old element or null for {@link DifferenceType#ADDED} differences
+   */
+  ModelElementInstance getOldElement();
+
+  /**
+   * Returns the element of the new model instance.
+   *
+   * @return the new element or null for {@link DifferenceType#REMOVED} differences
+   */
+  ModelElementInstance getNewElement();
+
+  /**
+   * Returns the id of the element.
+   *
+   * @return the id or null if the element has no id
+   */
+  String getElementId();
+
+  /**
+   * Returns the differing attributes of an element which exists in both model instances.
+   *
+   * @return the attribute differences, empty for added and removed elements
+   */
+  List<AttributeDifference> getAttributeDifferences();
+
+  /**
+   * @return true if the text content of the element differs, false otherwise
+   */
+  boolean isTextContentChanged();
+
+}
@@ -0,0 +1,45 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.diff;
+
+import java.util.List;
+
+/**
+ * The structural differences between two model instances. Elements are matched by
+ * their id and elements without id by their position among the equally named
+ * siblings. Formatting, namespace prefixes and the order of attributes are ignored.
+ */
+public interface ModelDiff {
+
+  /**
+   * @return true if the model instances differ, false otherwise
+   */
+  boolean hasDifferences();
+
+  /**
+   * Returns all differences in the order they were found while traversing both
+   * model instances from the document element.
+   *
+   * @return the differences
+   */
+  List<ElementDifference> getDifferences();
+
+  /**
+   * Returns all differences of a kind.
+   *
+   * @param type  the kind of the differences
+   * @return the differences of the kind
+   */
+  List<ElementDifference> getDifferences(DifferenceType type);
+
+}
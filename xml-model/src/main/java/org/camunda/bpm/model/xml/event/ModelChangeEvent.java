@@ -0,0 +1,81 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.event;
+
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+/**
+ * Describes a single change of a {@link org.camunda.bpm.model.xml.ModelInstance}.
+ *
+ * @see ModelChangeListener
+ */
+public interface ModelChangeEvent {
+
+  /**
+   * Returns the kind of the change.
+   *
+   * @return the change type
+   */
+  ModelChangeType getType();
+
+  /**
+   * Returns the changed element. For {@link ModelChangeType#ELEMENT_REPLACED} this
+   * is the new element.
+   *
+   * @return the changed element
+   */
+  ModelElementInstance getElement();
+
+  /**
+   * Returns the parent the element was added to, removed from or replaced in.
+   *
+   * @return the parent element or null for attribute and text changes or changes of the document element
+   */
+  ModelElementInstance getParentElement();
+
+  /**
+   * Returns the replaced element of a {@link ModelChangeType#ELEMENT_REPLACED} change.
+   *
+   * @return the replaced element or null for other changes
+   */
+  ModelElementInstance getReplacedElement();
+
+  /**
+   * Returns the namespace URI of the changed attribute.
+   *
+   * @return the namespace URI or null if the attribute has no namespace or this is no attribute change
+   */
+  String getNamespaceUri();
+
+  /**
+   * Returns the local name of the changed attribute.
+   *
+   * @return the attribute name or null if this is no attribute change
+   */
+  String getAttributeName();
+
+  /**
+   * Returns the old value of a changed attribute or text content.
+   *
+   * @return the old value or null if it was not set
+   */
+  String getOldValue();
+
+  /**
+   * Returns the new value of a changed attribute or text content.
+   *
+   * @return the new value or null if it was removed
+   */
+  String getNewValue();
+
+}
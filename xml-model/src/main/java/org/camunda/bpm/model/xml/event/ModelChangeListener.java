@@ -0,0 +1,35 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.event;
+
+import java.util.List;
+
+/**
+ * Listener which is notified about changes of a {@link org.camunda.bpm.model.xml.ModelInstance}.
+ *
+ * <p>Changes are delivered in batches: all changes caused by a single operation, e.g. the
+ * reference updates triggered by changing an id, are passed in one call after the
+ * operation completed.</p>
+ *
+ * @see org.camunda.bpm.model.xml.ModelInstance#addChangeListener(ModelChangeListener)
+ */
+public interface ModelChangeListener {
+
+  /**
+   * Called after an operation changed the model instance.
+   *
+   * @param events  the changes in the order they were performed
+   */
+  void modelChanged(List<ModelChangeEvent> events);
+
+}
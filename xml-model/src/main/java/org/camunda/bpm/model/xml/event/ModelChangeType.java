@@ -0,0 +1,35 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.event;
+
+/**
+ * The kind of change described by a {@link ModelChangeEvent}.
+ */
+public enum ModelChangeType {
+
+  /** a model element (with its subtree) was inserted into the model */
+  ELEMENT_ADDED,
+
+  /** a model element (with its subtree) was removed from the model */
+  ELEMENT_REMOVED,
+
+  /** a model element was replaced by a new model element */
+  ELEMENT_REPLACED,
+
+  /** an attribute of a model element was set or removed */
+  ATTRIBUTE_CHANGED,
+
+  /** the text content of a model element was set */
+  TEXT_CHANGED
+
+}
@@ -0,0 +1,44 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.event;
+
+import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+/**
+ * Listener which is notified about the elements of a document while it is parsed
+ * incrementally.
+ *
+ * <p>All methods are called by the thread which parses the document, while the remaining
+ * document is still being read.</p>
+ */
+public interface ModelElementListener {
+
+  /**
+   * Called when a child element of the document element was parsed completely. The element
+   * and its subtree may be read, but references to elements which follow later in the
+   * document cannot be resolved yet.
+   *
+   * @param element  the parsed element
+   */
+  void elementParsed(ModelElementInstance element);
+
+  /**
+   * Called when the whole document was parsed and validated, so all references can be resolved.
+   *
+   * @param modelInstance  the parsed model instance
+   */
+  void modelParsed(ModelInstance modelInstance);
+
+}
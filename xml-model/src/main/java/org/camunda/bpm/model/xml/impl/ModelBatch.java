@@ -0,0 +1,226 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl;
+
+import org.camunda.bpm.model.xml.impl.type.reference.DeferredReferenceUpdates;
+import org.camunda.bpm.model.xml.instance.DomElement;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The state of a running batch of a model instance. It records an undo log of all
+ * DOM changes and collects the deferred reference updates.
+ *
+ * @see org.camunda.bpm.model.xml.ModelInstance#batch(Runnable)
+ */
+public class ModelBatch {
+
+  private final ModelInstanceImpl modelInstance;
+  private final DeferredReferenceUpdates deferredReferenceUpdates;
+  private final List<UndoEntry> undoLog = new ArrayList<UndoEntry>();
+
+  public ModelBatch(ModelInstanceImpl modelInstance) {
+    this.modelInstance = modelInstance;
+    this.deferredReferenceUpdates = new DeferredReferenceUpdates(modelInstance);
+  }
+
+  public DeferredReferenceUpdates getDeferredReferenceUpdates() {
+    return deferredReferenceUpdates;
+  }
+
+  /**
+   * Applies all deferred reference updates.
+   */
+  public void commit() {
+    deferredReferenceUpdates.apply();
+  }
+
+  /**
+   * Reverts all recorded changes in reverse order. The change callbacks of the
+   * model instance are invoked for every reverted change so that derived state
+   * is restored too.
+   */
+  public void rollback() {
+    for (int i = undoLog.size() - 1; i >= 0; i--) {
+      undoLog.get(i).undo();
+    }
+    undoLog.clear();
+  }
+
+  // recording ///////////////////////////////////////////////////////
+
+  public void elementAdded(ModelElementInstance parentElement, ModelElementInstance element) {
+    if (parentElement != null) {
+      undoLog.add(new ElementAddedEntry(parentElement, element));
+    }
+  }
+
+  public void elementRemoving(ModelElementInstance parentElement, ModelElementInstance element) {
+    DomElement domElement = element.getDomElement();
+    List<DomElement> childElements = parentElement.getDomElement().getChildElements();
+    int index = childElements.indexOf(domElement);
+    if (index >= 0) {
+      DomElement previousElement = index > 0 ? childElements.get(index - 1) : null;
+      undoLog.add(new ElementRemovedEntry(parentElement, element, previousElement));
+    }
+  }
+
+  public void documentElementReplaced(ModelElementInstance replacedElement) {
+    undoLog.add(new DocumentElementReplacedEntry(replacedElement));
+  }
+
+  public void elementReplaced(ModelElementInstance parentElement, ModelElementInstance replacedElement, ModelElementInstance element) {
+    undoLog.add(new ElementReplacedEntry(parentElement, replacedElement, element));
+  }
+
+  public void attributeChanged(ModelElementInstance element, String namespaceUri, String attributeName, String oldValue, String newValue) {
+    undoLog.add(new AttributeChangedEntry(element, namespaceUri, attributeName, oldValue, newValue));
+  }
+
+  public void textContentChanged(ModelElementInstance element, String oldTextContent, String newTextContent) {
+    undoLog.add(new TextContentChangedEntry(element, oldTextContent, newTextContent));
+  }
+
+  // undo log entries ////////////////////////////////////////////////
+
+  protected interface UndoEntry {
+    void undo();
+  }
+
+  protected class ElementAddedEntry implements UndoEntry {
+
+    private final ModelElementInstance parentElement;
+    private final ModelElementInstance element;
+
+    public ElementAddedEntry(ModelElementInstance parentElement, ModelElementInstance element) {
+      this.parentElement = parentElement;
+      this.element = element;
+    }
+
+    public void undo() {
+      parentElement.getDomElement().removeChild(element.getDomElement());
+      modelInstance.elementRemoved(parentElement, element);
+    }
+  }
+
+  protected class ElementRemovedEntry implements UndoEntry {
+
+    private final ModelElementInstance parentElement;
+    private final ModelElementInstance element;
+    private final DomElement previousElement;
+
+    public ElementRemovedEntry(ModelElementInstance parentElement, ModelElementInstance element, DomElement previousElement) {
+      this.parentElement = parentElement;
+      this.element = element;
+      this.previousElement = previousElement;
+    }
+
+    public void undo() {
+      parentElement.getDomElement().insertChildElementAfter(element.getDomElement(), previousElement);
+      modelInstance.elementAdded(parentElement, element);
+    }
+  }
+
+  protected class DocumentElementReplacedEntry implements UndoEntry {
+
+    private final ModelElementInstance replacedElement;
+
+    public DocumentElementReplacedEntry(ModelElementInstance replacedElement) {
+      this.replacedElement = replacedElement;
+    }
+
+    public void undo() {
+      ModelElementInstance element = modelInstance.getDocumentElement();
+      modelInstance.getDocument().setRootElement(replacedElement.getDomElement());
+      modelInstance.elementRemoved(null, element);
+      modelInstance.elementAdded(null, replacedElement);
+    }
+  }
+
+  protected class ElementReplacedEntry implements UndoEntry {
+
+    private final ModelElementInstance parentElement;
+    private final ModelElementInstance replacedElement;
+    private final ModelElementInstance element;
+
+    public ElementReplacedEntry(ModelElementInstance parentElement, ModelElementInstance replacedElement, ModelElementInstance element) {
+      this.parentElement = parentElement;
+      this.replacedElement = replacedElement;
+      this.element = element;
+    }
+
+    public void undo() {
+      parentElement.getDomElement().replaceChild(replacedElement.getDomElement(), element.getDomElement());
+      modelInstance.elementReplaced(parentElement, element, replacedElement);
+    }
+  }
+
+  protected class AttributeChangedEntry implements UndoEntry {
+
+    private final ModelElementInstance element;
+    private final String namespaceUri;
+    private final String attributeName;
+    private final String oldValue;
+    private final String newValue;
+
+    public AttributeChangedEntry(ModelElementInstance element, String namespaceUri, String attributeName, String oldValue, String newValue) {
+      this.element = element;
+      this.namespaceUri = namespaceUri;
+      this.attributeName = attributeName;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+
+    public void undo() {
+      DomElement domElement = element.getDomElement();
+      String attributeNamespaceUri = namespaceUri != null ? namespaceUri : domElement.getNamespaceURI();
+      if (oldValue == null) {
+        domElement.removeAttribute(attributeNamespaceUri, attributeName);
+      }
+      else if (isIdAttribute()) {
+        domElement.setIdAttribute(attributeNamespaceUri, attributeName, oldValue);
+      }
+      else {
+        domElement.setAttribute(attributeNamespaceUri, attributeName, oldValue);
+      }
+      modelInstance.attributeChanged(element, namespaceUri, attributeName, newValue, oldValue);
+    }
+
+    protected boolean isIdAttribute() {
+      Attribute<?> attribute = element.getElementType().getAttribute(attributeName);
+      return attribute != null && attribute.isIdAttribute();
+    }
+  }
+
+  protected class TextContentChangedEntry implements UndoEntry {
+
+    private final ModelElementInstance element;
+    private final String oldTextContent;
+    private final String newTextContent;
+
+    public TextContentChangedEntry(ModelElementInstance element, String oldTextContent, String newTextContent) {
+      this.element = element;
+      this.oldTextContent = oldTextContent;
+      this.newTextContent = newTextContent;
+    }
+
+    public void undo() {
+      element.getDomElement().setTextContent(oldTextContent);
+      modelInstance.textContentChanged(element, newTextContent, oldTextContent);
+    }
+  }
+
+}
@@ -37,6 +37,9 @@ public class ModelBuilderImpl extends ModelBuilder {
   private final List<ModelElementTypeBuilderImpl> typeBuilders = new ArrayList<ModelElementTypeBuilderImpl>();
   private final ModelImpl model;
 
+  /** the number of type builders which are already part of the built model */
+  private int builtTypeBuilders = 0;
+
   public ModelBuilderImpl(String modelName) {
     model = new ModelImpl(modelName);
   }
@@ -60,12 +63,16 @@ public class ModelBuilderImpl extends ModelBuilder {
   }
 
   public Model build() {
-    for (ModelElementTypeBuilderImpl typeBuilder : typeBuilders) {
+    // only build types defined since the last build, e.g. generic types registered
+    // while parsing, otherwise extending types and references are registered twice
+    List<ModelElementTypeBuilderImpl> newTypeBuilders = typeBuilders.subList(builtTypeBuilders, typeBuilders.size());
+    for (ModelElementTypeBuilderImpl typeBuilder : newTypeBuilders) {
       typeBuilder.buildTypeHierarchy(model);
     }
-    for (ModelElementTypeBuilderImpl typeBuilder : typeBuilders) {
+    for (ModelElementTypeBuilderImpl typeBuilder : newTypeBuilders) {
       typeBuilder.performModelBuild(model);
     }
+    builtTypeBuilders = typeBuilders.size();
     return model;
   }
 
@@ -0,0 +1,398 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl;
+
+import org.camunda.bpm.model.xml.IdConflictPolicy;
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.impl.instance.DomElementImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.ReferenceImpl;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.impl.util.QName;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata.TypeMetadata;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static javax.xml.XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.XMLConstants.XML_NS_URI;
+
+/**
+ * Imports copies of elements of other model instances into a model instance.
+ *
+ * <p>The subtree of an element is copied into the target document at once. Conflicting
+ * ids are handled by the {@link IdConflictPolicy} before the target is changed, and the
+ * references inside of the copy are rewritten to renamed ids in the same pass which
+ * moves the elements and attributes to the prefixes of the target document. Every
+ * namespace of the copy is looked up or declared at the document element only once.
+ * The copy is added to its parent with a single change callback.</p>
+ *
+ * <p>An import may consist of several elements, e.g. an element and its diagram
+ * elements. References of later elements to ids renamed by earlier elements of the
+ * same import are rewritten as well.</p>
+ *
+ * @see org.camunda.bpm.model.xml.ModelInstance#importElement(ModelElementInstance, ModelElementInstance, IdConflictPolicy)
+ */
+public class ModelElementImport {
+
+  protected final ModelInstanceImpl modelInstance;
+  protected final ModelTypeMetadata modelTypeMetadata;
+  protected final IdConflictPolicy idConflictPolicy;
+  protected final Document document;
+
+  /** the prefixes of the target document by namespace uri */
+  protected final Map<String, String> prefixes = new HashMap<String, String>();
+  /** the new ids of renamed elements by their previous id */
+  protected final Map<String, RenamedId> renamedIds = new HashMap<String, RenamedId>();
+  /** the ids of all elements of this import */
+  protected final Set<String> importedIds = new HashSet<String>();
+  /** the ids of replaced elements, which can be reused by the imported elements */
+  protected final Set<String> releasedIds = new HashSet<String>();
+
+  public ModelElementImport(ModelInstanceImpl modelInstance, IdConflictPolicy idConflictPolicy) {
+    this.modelInstance = modelInstance;
+    this.modelTypeMetadata = new ModelTypeMetadata(modelInstance.getModel());
+    this.idConflictPolicy = idConflictPolicy;
+    this.document = (Document) modelInstance.getDocument().getDomSource().getNode();
+  }
+
+  /**
+   * Adds a copy of an element to a parent element of the target model instance. Must be
+   * called inside of a batch, so the changes are rolled back if a change callback fails.
+   *
+   * @param element  the element to copy
+   * @param parentElement  the parent element in the target model instance
+   * @return the added copy
+   * @throws ModelException if an id already exists and the policy is {@link IdConflictPolicy#FAIL}
+   */
+  public ModelElementInstance importElement(ModelElementInstance element, ModelElementInstance parentElement) {
+    return importElement(((DomElementImpl) element.getDomElement()).getElement(), parentElement, null);
+  }
+
+  /**
+   * Merges a copy of an element into the target model instance. If the target contains an
+   * element with the id of the copied element, it is replaced by the copy at its position.
+   * The ids of the replaced subtree may be reused by the copy, so references to replaced
+   * elements refer to the copied elements afterwards. Otherwise the copy is added to the
+   * parent element. Must be called inside of a batch.
+   *
+   * @param sourceElement  the element to copy, which may belong to a document without model instance
+   * @param parentElement  the parent element of a new element or null if the element has to exist
+   * @return the merged copy
+   * @throws ModelException if the element does not exist and no parent element is given,
+   *   or if an id of the copy exists outside of the replaced subtree and the policy is
+   *   {@link IdConflictPolicy#FAIL}
+   */
+  public ModelElementInstance mergeElement(Element sourceElement, ModelElementInstance parentElement) {
+    ModelElementInstance replacedElement = null;
+    for (Attribute<?> idAttribute : getTypeMetadata(sourceElement).getIdAttributes()) {
+      Attr attribute = ModelTypeMetadata.getAttributeNode(sourceElement, idAttribute);
+      if (attribute != null) {
+        replacedElement = modelInstance.getModelElementById(attribute.getValue());
+        break;
+      }
+    }
+    if (replacedElement != null) {
+      parentElement = replacedElement.getParentElement();
+      if (parentElement == null) {
+        throw new ModelException("Unable to merge element: the document element cannot be replaced");
+      }
+    }
+    else if (parentElement == null) {
+      throw new ModelException("Unable to merge element: the element does not exist and no parent element is given");
+    }
+    return importElement(sourceElement, parentElement, replacedElement);
+  }
+
+  protected ModelElementInstance importElement(Element sourceElement, ModelElementInstance parentElement, ModelElementInstance replacedElement) {
+    if (document.getDocumentElement() == null) {
+      throw new ModelException("Unable to import element: the model instance has no document element");
+    }
+    Element importedElement = (Element) document.importNode(sourceElement, true);
+
+    List<ImportedId> replacedIds = new ArrayList<ImportedId>();
+    if (replacedElement != null) {
+      collectIds(((DomElementImpl) replacedElement.getDomElement()).getElement(), replacedIds);
+      for (ImportedId id : replacedIds) {
+        releasedIds.add(id.attribute.getValue());
+      }
+    }
+    List<ImportedId> ids = new ArrayList<ImportedId>();
+    collectIds(importedElement, ids);
+    renameConflictingIds(ids);
+
+    updateNodes(sourceElement, importedElement);
+    setIdAttributes(replacedIds, false);
+    for (ImportedId id : ids) {
+      RenamedId renamedId = renamedIds.get(id.attribute.getValue());
+      if (renamedId != null && renamedId.element == id.element) {
+        id.attribute.setValue(renamedId.newId);
+      }
+    }
+    // the attributes of an imported node are not flagged as ids
+    setIdAttributes(ids, true);
+
+    ModelElementInstance importedModelElement = ModelUtil.getModelElement(new DomElementImpl(importedElement), modelInstance);
+    try {
+      if (replacedElement != null) {
+        replaceElement(parentElement, replacedElement, importedModelElement);
+      }
+      else {
+        parentElement.addChildElement(importedModelElement);
+      }
+    }
+    catch (RuntimeException e) {
+      setIdAttributes(ids, false);
+      setIdAttributes(replacedIds, true);
+      throw e;
+    }
+    return importedModelElement;
+  }
+
+  /**
+   * Replaces an element in the DOM without unlinking the references to its subtree,
+   * which refer to the elements of the copy with the same ids.
+   */
+  protected void replaceElement(ModelElementInstance parentElement, ModelElementInstance replacedElement, ModelElementInstance element) {
+    modelInstance.beginChangeOperation();
+    try {
+      parentElement.getDomElement().replaceChild(element.getDomElement(), replacedElement.getDomElement());
+      modelInstance.elementReplaced(parentElement, replacedElement, element);
+    }
+    finally {
+      modelInstance.endChangeOperation();
+    }
+  }
+
+  protected static void setIdAttributes(List<ImportedId> ids, boolean isId) {
+    for (ImportedId id : ids) {
+      id.element.setIdAttributeNode(id.attribute, isId);
+    }
+  }
+
+  protected void collectIds(Element element, List<ImportedId> ids) {
+    for (Attribute<?> idAttribute : getTypeMetadata(element).getIdAttributes()) {
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, idAttribute);
+      if (attribute != null) {
+        ids.add(new ImportedId(element, attribute));
+      }
+    }
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        collectIds((Element) child, ids);
+      }
+    }
+  }
+
+  /**
+   * Checks the ids of the imported elements against the target model instance and
+   * renames the conflicting ids, before anything is changed.
+   */
+  protected void renameConflictingIds(List<ImportedId> ids) {
+    List<ImportedId> conflictingIds = new ArrayList<ImportedId>();
+    for (ImportedId id : ids) {
+      String value = id.attribute.getValue();
+      if (!importedIds.add(value) || (modelInstance.getDomElementById(value) != null && !releasedIds.contains(value))) {
+        if (idConflictPolicy == IdConflictPolicy.FAIL) {
+          throw new ModelException("Unable to import element: the id '" + value + "' already exists");
+        }
+        conflictingIds.add(id);
+      }
+    }
+    // the generated ids must not conflict with any id of the imported elements
+    for (ImportedId id : conflictingIds) {
+      String value = id.attribute.getValue();
+      String newId = generateId(value);
+      renamedIds.put(value, new RenamedId(id.element, getTypeMetadata(id.element).getType(), newId));
+    }
+  }
+
+  protected String generateId(String id) {
+    int suffix = 1;
+    String newId = id + "_" + suffix;
+    while (importedIds.contains(newId) || modelInstance.getDomElementById(newId) != null) {
+      newId = id + "_" + ++suffix;
+    }
+    importedIds.add(newId);
+    return newId;
+  }
+
+  /**
+   * Moves the copied subtree to the prefixes of the target document and rewrites the
+   * references to renamed elements. Qualified values are resolved in the scope of the
+   * source element, because the namespace declarations of its ancestors are not copied.
+   */
+  protected void updateNodes(Element sourceElement, Element element) {
+    String namespaceUri = element.getNamespaceURI();
+    if (namespaceUri != null) {
+      element.setPrefix(getElementPrefix(namespaceUri, element.getPrefix()));
+    }
+
+    NamedNodeMap attributes = element.getAttributes();
+    List<Attr> qualifiedAttributes = new ArrayList<Attr>();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      String attributeNamespaceUri = attribute.getNamespaceURI();
+      if (attributeNamespaceUri != null && !XMLNS_ATTRIBUTE_NS_URI.equals(attributeNamespaceUri) && !XML_NS_URI.equals(attributeNamespaceUri)) {
+        qualifiedAttributes.add(attribute);
+      }
+    }
+    for (Attr attribute : qualifiedAttributes) {
+      String prefix = getPrefix(attribute.getNamespaceURI(), attribute.getPrefix());
+      if (!prefix.equals(attribute.getPrefix())) {
+        // re-add the attribute, the attributes of an element are ordered by their name
+        element.removeAttributeNode(attribute);
+        attribute.setPrefix(prefix);
+        element.setAttributeNodeNS(attribute);
+      }
+      if (W3C_XML_SCHEMA_INSTANCE_NS_URI.equals(attribute.getNamespaceURI()) && "type".equals(attribute.getLocalName())) {
+        attribute.setValue(getQualifiedValue(sourceElement, attribute.getValue()));
+      }
+    }
+
+    TypeMetadata metadata = getTypeMetadata(element);
+    for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, reference.getReferenceSourceAttribute());
+      if (attribute != null) {
+        attribute.setValue(getUpdatedReference(sourceElement, reference, attribute.getValue()));
+      }
+    }
+    ReferenceImpl<?> elementReference = metadata.getElementReference();
+    if (elementReference != null) {
+      String textContent = element.getTextContent().trim();
+      String newTextContent = getUpdatedReference(sourceElement, elementReference, textContent);
+      if (!newTextContent.equals(textContent)) {
+        element.setTextContent(newTextContent);
+      }
+    }
+
+    Node sourceChild = sourceElement.getFirstChild();
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        updateNodes((Element) sourceChild, (Element) child);
+      }
+      sourceChild = sourceChild.getNextSibling();
+    }
+  }
+
+  protected String getUpdatedReference(Element sourceElement, ReferenceImpl<?> reference, String value) {
+    String identifier = ModelTypeMetadata.getReferenceIdentifier(reference, value);
+    RenamedId renamedId = renamedIds.get(identifier);
+    if (renamedId != null && ModelTypeMetadata.isReferenceTarget(reference, renamedId.type)) {
+      value = value.substring(0, value.length() - identifier.length()) + renamedId.newId;
+    }
+    if (ModelTypeMetadata.isQNameReference(reference)) {
+      value = getQualifiedValue(sourceElement, value);
+    }
+    return value;
+  }
+
+  /**
+   * Returns a qualified name with the prefix of its namespace in the target document.
+   */
+  protected String getQualifiedValue(Element sourceElement, String value) {
+    QName qName = QName.parseQName(value);
+    if (qName.getQualifier() == null) {
+      return value;
+    }
+    String namespaceUri = sourceElement.lookupNamespaceURI(qName.getQualifier());
+    if (namespaceUri == null) {
+      return value;
+    }
+    return QName.combine(getPrefix(namespaceUri, qName.getQualifier()), qName.getLocalName());
+  }
+
+  /**
+   * Returns the prefix of an element namespace, which is null for the default namespace
+   * of the document element.
+   */
+  protected String getElementPrefix(String namespaceUri, String sourcePrefix) {
+    if (namespaceUri.equals(document.getDocumentElement().lookupNamespaceURI(null))) {
+      return null;
+    }
+    return getPrefix(namespaceUri, sourcePrefix);
+  }
+
+  /**
+   * Returns the prefix of a namespace which is declared at the document element. An
+   * undeclared namespace is declared with the prefix of the source document if it is unused.
+   */
+  protected String getPrefix(String namespaceUri, String sourcePrefix) {
+    String prefix = prefixes.get(namespaceUri);
+    if (prefix == null) {
+      DomElementImpl documentElement = new DomElementImpl(document.getDocumentElement());
+      prefix = documentElement.lookupPrefix(namespaceUri);
+      if (prefix == null && sourcePrefix != null && document.getDocumentElement().lookupNamespaceURI(sourcePrefix) == null) {
+        documentElement.registerNamespace(sourcePrefix, namespaceUri);
+        prefix = sourcePrefix;
+      }
+      else if (prefix == null) {
+        prefix = documentElement.registerNamespace(namespaceUri);
+      }
+      prefixes.put(namespaceUri, prefix);
+    }
+    return prefix;
+  }
+
+  protected TypeMetadata getTypeMetadata(Element element) {
+    return modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName());
+  }
+
+  /**
+   * An id attribute of an imported element.
+   */
+  protected static class ImportedId {
+
+    protected final Element element;
+    protected final Attr attribute;
+
+    public ImportedId(Element element, Attr attribute) {
+      this.element = element;
+      this.attribute = attribute;
+    }
+
+  }
+
+  /**
+   * An id of an imported element which is renamed.
+   */
+  protected static class RenamedId {
+
+    protected final Element element;
+    protected final ModelElementType type;
+    protected final String newId;
+
+    public RenamedId(Element element, ModelElementType type, String newId) {
+      this.element = element;
+      this.type = type;
+      this.newId = newId;
+    }
+
+  }
+
+}
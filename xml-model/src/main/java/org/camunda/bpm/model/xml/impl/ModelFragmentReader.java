@@ -0,0 +1,83 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl;
+
+import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.ModelParseException;
+import org.camunda.bpm.model.xml.impl.util.DomUtil;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.instance.DomElement;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+
+/**
+ * Reads a document written by a {@link ModelFragmentWriter} and merges its element into a
+ * model instance. The fragment is not validated against the schema, because references to
+ * elements outside of the fragment cannot be resolved.
+ */
+public class ModelFragmentReader {
+
+  protected static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+
+  static {
+    DOCUMENT_BUILDER_FACTORY.setNamespaceAware(true);
+  }
+
+  /**
+   * Parses a fragment and merges its element into a model instance. An element with the
+   * same id is replaced, otherwise the element is added to the parent element, which is
+   * the document element if the element is wrapped by a copy of it. The stream is not closed.
+   *
+   * @param modelInstance  the model instance to merge the element into
+   * @param inputStream  the stream of the fragment
+   * @param parentElement  the parent of a new element or null
+   * @return the merged element
+   */
+  public ModelElementInstance merge(ModelInstance modelInstance, InputStream inputStream, ModelElementInstance parentElement) {
+    DomDocument document = DomUtil.parseInputStream(DOCUMENT_BUILDER_FACTORY, inputStream);
+    Element element = ((Document) document.getDomSource().getNode()).getDocumentElement();
+    ModelElementInstance documentElement = modelInstance.getDocumentElement();
+    DomElement targetDocumentElement = documentElement.getDomElement();
+    if (targetDocumentElement.getLocalName().equals(element.getLocalName())
+      && targetDocumentElement.getNamespaceURI().equals(element.getNamespaceURI())) {
+      // the element is wrapped by a copy of the document element
+      element = getWrappedElement(element);
+      if (parentElement == null) {
+        parentElement = documentElement;
+      }
+    }
+    return ((ModelInstanceImpl) modelInstance).mergeElement(element, parentElement);
+  }
+
+  protected Element getWrappedElement(Element documentElement) {
+    Element wrappedElement = null;
+    for (Node child = documentElement.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        if (wrappedElement != null) {
+          throw new ModelParseException("Unable to merge fragment: the document element must contain exactly one element");
+        }
+        wrappedElement = (Element) child;
+      }
+    }
+    if (wrappedElement == null) {
+      throw new ModelParseException("Unable to merge fragment: the document element must contain exactly one element");
+    }
+    return wrappedElement;
+  }
+
+}
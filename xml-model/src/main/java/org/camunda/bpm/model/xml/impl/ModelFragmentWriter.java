@@ -0,0 +1,207 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl;
+
+import org.camunda.bpm.model.xml.impl.instance.DomDocumentImpl;
+import org.camunda.bpm.model.xml.impl.instance.DomElementImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.ReferenceImpl;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.impl.util.QName;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata.TypeMetadata;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static javax.xml.XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.XMLConstants.XML_NS_PREFIX;
+
+/**
+ * Writes the subtree of a single element as a standalone XML document. The namespace
+ * declarations of the ancestors of the element are not copied, instead the namespaces
+ * which are used by the names of the subtree, by <code>xsi:type</code> values and by
+ * qualified references are declared at the root of the written document. The subtree may
+ * be wrapped by an envelope, which is a copy of the document element without its content,
+ * so a wrapped root element is written as a valid document.
+ */
+public class ModelFragmentWriter {
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+
+  public ModelFragmentWriter(ModelTypeMetadata modelTypeMetadata) {
+    this.modelTypeMetadata = modelTypeMetadata;
+  }
+
+  /**
+   * Writes the subtree of an element. The stream is not closed.
+   *
+   * @param element  the element to write
+   * @param wrapInDocumentElement  whether the subtree is wrapped by a copy of the document element
+   * @param outputStream  the stream to write to
+   */
+  public void write(ModelElementInstance element, boolean wrapInDocumentElement, OutputStream outputStream) {
+    Element sourceElement = ((DomElementImpl) element.getDomElement()).getElement();
+    // the subtree is copied to an empty document of the same DOM implementation
+    Document document = sourceElement.getOwnerDocument().getImplementation().createDocument(null, null, null);
+    Element copy = (Element) document.importNode(sourceElement, true);
+    Element root = copy;
+    Map<String, String> namespaces = new LinkedHashMap<String, String>();
+
+    Element sourceDocumentElement = sourceElement.getOwnerDocument().getDocumentElement();
+    if (wrapInDocumentElement && sourceElement != sourceDocumentElement) {
+      root = document.createElementNS(sourceDocumentElement.getNamespaceURI(), sourceDocumentElement.getTagName());
+      NamedNodeMap attributes = sourceDocumentElement.getAttributes();
+      for (int i = 0; i < attributes.getLength(); i++) {
+        Attr attribute = (Attr) attributes.item(i);
+        if (!XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+          root.setAttributeNS(attribute.getNamespaceURI(), attribute.getName(), attribute.getValue());
+        }
+      }
+      root.appendChild(copy);
+      document.appendChild(root);
+      collectNamespaces(sourceDocumentElement, root, namespaces);
+    }
+    else {
+      document.appendChild(root);
+    }
+    collectNamespacesOfSubtree(sourceElement, copy, namespaces);
+
+    for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+      String prefix = namespace.getKey();
+      root.setAttributeNS(XMLNS_ATTRIBUTE_NS_URI, prefix.length() > 0 ? XMLNS_ATTRIBUTE + ":" + prefix : XMLNS_ATTRIBUTE, namespace.getValue());
+    }
+    IoUtil.writeDocumentToOutputStream(new DomDocumentImpl(document), outputStream);
+  }
+
+  protected void collectNamespacesOfSubtree(Element sourceElement, Element element, Map<String, String> namespaces) {
+    copyDefaultAttributes(sourceElement, element);
+    collectNamespaces(sourceElement, element, namespaces);
+    Node sourceChild = sourceElement.getFirstChild();
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        collectNamespacesOfSubtree((Element) sourceChild, (Element) child, namespaces);
+      }
+      sourceChild = sourceChild.getNextSibling();
+    }
+  }
+
+  /**
+   * Copies the attributes which were added by the schema validation because of their
+   * default values, they are discarded when an element is imported.
+   */
+  protected void copyDefaultAttributes(Element sourceElement, Element element) {
+    NamedNodeMap attributes = sourceElement.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (!attribute.getSpecified() && !element.hasAttributeNS(attribute.getNamespaceURI(), attribute.getLocalName())) {
+        element.setAttributeNS(attribute.getNamespaceURI(), attribute.getName(), attribute.getValue());
+      }
+    }
+  }
+
+  /**
+   * Collects the namespaces which are used by an element but not declared in the copied
+   * subtree. Qualified values are resolved in the scope of the source element.
+   */
+  protected void collectNamespaces(Element sourceElement, Element element, Map<String, String> namespaces) {
+    requireNamespace(element, element.getPrefix(), element.getNamespaceURI(), namespaces);
+
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      String namespaceUri = attribute.getNamespaceURI();
+      if (attribute.getPrefix() != null && !XMLNS_ATTRIBUTE_NS_URI.equals(namespaceUri)) {
+        requireNamespace(element, attribute.getPrefix(), namespaceUri, namespaces);
+      }
+      if (W3C_XML_SCHEMA_INSTANCE_NS_URI.equals(namespaceUri) && "type".equals(attribute.getLocalName())) {
+        requireQualifiedValue(sourceElement, element, attribute.getValue(), namespaces);
+      }
+    }
+
+    TypeMetadata metadata = modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName());
+    for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+      if (ModelTypeMetadata.isQNameReference(reference)) {
+        Attr attribute = ModelTypeMetadata.getAttributeNode(element, reference.getReferenceSourceAttribute());
+        if (attribute != null) {
+          requireQualifiedValue(sourceElement, element, attribute.getValue(), namespaces);
+        }
+      }
+    }
+    ReferenceImpl<?> elementReference = metadata.getElementReference();
+    if (elementReference != null && ModelTypeMetadata.isQNameReference(elementReference)) {
+      requireQualifiedValue(sourceElement, element, element.getTextContent().trim(), namespaces);
+    }
+  }
+
+  protected void requireQualifiedValue(Element sourceElement, Element element, String value, Map<String, String> namespaces) {
+    String prefix = QName.parseQName(value).getQualifier();
+    if (prefix != null) {
+      requireNamespace(element, prefix, sourceElement.lookupNamespaceURI(prefix), namespaces);
+    }
+  }
+
+  /**
+   * Declares the namespace of a prefix at the root of the written document, unless it is
+   * declared by the copied subtree. If the prefix is already used for another namespace,
+   * the namespace is declared at the element.
+   */
+  protected void requireNamespace(Element element, String prefix, String namespaceUri, Map<String, String> namespaces) {
+    if (namespaceUri == null || XML_NS_PREFIX.equals(prefix)) {
+      return;
+    }
+    String key = prefix != null ? prefix : "";
+    String declaredNamespaceUri = getDeclaredNamespaceUri(element, key);
+    if (namespaceUri.equals(declaredNamespaceUri)) {
+      return;
+    }
+    if (declaredNamespaceUri == null) {
+      String requiredNamespaceUri = namespaces.get(key);
+      if (requiredNamespaceUri == null) {
+        namespaces.put(key, namespaceUri);
+        return;
+      }
+      else if (requiredNamespaceUri.equals(namespaceUri)) {
+        return;
+      }
+    }
+    element.setAttributeNS(XMLNS_ATTRIBUTE_NS_URI, key.length() > 0 ? XMLNS_ATTRIBUTE + ":" + key : XMLNS_ATTRIBUTE, namespaceUri);
+  }
+
+  /**
+   * Returns the namespace of a prefix which is declared by an element or its ancestors in
+   * the written document. Unlike {@link Node#lookupNamespaceURI(String)} the prefixes of
+   * element names are no declarations, because they are only declared while writing.
+   */
+  protected static String getDeclaredNamespaceUri(Element element, String prefix) {
+    String localName = prefix.length() > 0 ? prefix : XMLNS_ATTRIBUTE;
+    for (Node node = element; node != null && node.getNodeType() == Node.ELEMENT_NODE; node = node.getParentNode()) {
+      Attr declaration = ((Element) node).getAttributeNodeNS(XMLNS_ATTRIBUTE_NS_URI, localName);
+      if (declaration != null) {
+        return declaration.getValue();
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,215 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl;
+
+import org.camunda.bpm.model.xml.IdMapper;
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.impl.instance.DomElementImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.ReferenceImpl;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata.TypeMetadata;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Renames the ids of a model instance and rewrites all references to the renamed
+ * elements in two passes over the document, instead of scanning all reference source
+ * elements for every renamed element.
+ *
+ * <p>The first pass maps the ids and checks that the new ids are unique before anything
+ * is changed. The second pass rewrites the attribute and text content references, the
+ * prefixes of qualified references are kept. All changes are reported by the change
+ * callbacks of the model instance, so indexes, change listeners and batches see the same
+ * changes as if every id was set separately.</p>
+ *
+ * @see org.camunda.bpm.model.xml.ModelInstance#remapIds(IdMapper)
+ */
+public class ModelIdRemapping {
+
+  protected final ModelInstanceImpl modelInstance;
+  protected final ModelTypeMetadata modelTypeMetadata;
+  protected final IdMapper idMapper;
+
+  /** the renamed ids by their previous id */
+  protected final Map<String, RenamedId> renamedIds = new HashMap<String, RenamedId>();
+
+  public ModelIdRemapping(ModelInstanceImpl modelInstance, IdMapper idMapper) {
+    this.modelInstance = modelInstance;
+    this.modelTypeMetadata = new ModelTypeMetadata(modelInstance.getModel());
+    this.idMapper = idMapper;
+  }
+
+  /**
+   * Renames the ids and updates the references. Must be called inside of a batch, so
+   * the changes are rolled back if a change callback fails.
+   *
+   * @return the number of renamed ids
+   */
+  public int remap() {
+    Element documentElement = ((Document) modelInstance.getDocument().getDomSource().getNode()).getDocumentElement();
+    if (documentElement == null) {
+      return 0;
+    }
+
+    Map<String, Element> ids = new HashMap<String, Element>();
+    collectIds(documentElement, ids);
+    if (renamedIds.isEmpty()) {
+      return 0;
+    }
+
+    for (RenamedId renamedId : renamedIds.values()) {
+      renameId(renamedId);
+    }
+    // a renamed id may have been unregistered by the rename of its previous owner
+    for (RenamedId renamedId : renamedIds.values()) {
+      renamedId.element.setIdAttributeNode(renamedId.attribute, true);
+    }
+
+    updateReferences(documentElement);
+    return renamedIds.size();
+  }
+
+  /**
+   * Maps the ids of the subtree and checks that the new ids are unique.
+   */
+  protected void collectIds(Element element, Map<String, Element> ids) {
+    TypeMetadata metadata = getTypeMetadata(element);
+    for (Attribute<?> idAttribute : metadata.getIdAttributes()) {
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, idAttribute);
+      if (attribute != null) {
+        String id = attribute.getValue();
+        String newId = idMapper.mapId(id);
+        if (newId != null && !newId.equals(id)) {
+          if (renamedIds.containsKey(id)) {
+            throw new ModelException("Unable to remap the ids: the id '" + id + "' is not unique");
+          }
+          renamedIds.put(id, new RenamedId(element, metadata.getType(), idAttribute, attribute, id, newId));
+        }
+        else {
+          newId = id;
+        }
+        if (ids.put(newId, element) != null) {
+          throw new ModelException("Unable to remap the ids: the id '" + newId + "' is not unique");
+        }
+      }
+    }
+
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        collectIds((Element) child, ids);
+      }
+    }
+  }
+
+  protected void renameId(RenamedId renamedId) {
+    // the attributes of a cloned document are not flagged as ids, so the previous id would not be unregistered
+    renamedId.element.setIdAttributeNode(renamedId.attribute, true);
+    renamedId.attribute.setValue(renamedId.newId);
+    ModelElementInstance modelElement = getModelElement(renamedId.element);
+    modelInstance.attributeChanged(modelElement, renamedId.idAttribute.getNamespaceUri(), renamedId.idAttribute.getAttributeName(), renamedId.oldId, renamedId.newId);
+  }
+
+  /**
+   * Rewrites the references of the subtree to renamed elements.
+   */
+  protected void updateReferences(Element element) {
+    TypeMetadata metadata = getTypeMetadata(element);
+    for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+      Attribute<String> referenceSourceAttribute = reference.getReferenceSourceAttribute();
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, referenceSourceAttribute);
+      if (attribute != null) {
+        String value = attribute.getValue();
+        String newValue = getUpdatedReference(reference, value);
+        if (newValue != null) {
+          attribute.setValue(newValue);
+          modelInstance.attributeChanged(getModelElement(element), referenceSourceAttribute.getNamespaceUri(), referenceSourceAttribute.getAttributeName(), value, newValue);
+        }
+      }
+    }
+
+    ReferenceImpl<?> elementReference = metadata.getElementReference();
+    if (elementReference != null) {
+      String newTextContent = getUpdatedReference(elementReference, element.getTextContent().trim());
+      if (newTextContent != null) {
+        getModelElement(element).setTextContent(newTextContent);
+      }
+    }
+
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        updateReferences((Element) child);
+      }
+    }
+  }
+
+  /**
+   * Returns the value of a reference to a renamed element.
+   *
+   * @param reference  the reference
+   * @param value  the attribute value or text content of the reference source
+   * @return the new value or null if the referenced element was not renamed
+   */
+  protected String getUpdatedReference(ReferenceImpl<?> reference, String value) {
+    String identifier = ModelTypeMetadata.getReferenceIdentifier(reference, value);
+    RenamedId renamedId = renamedIds.get(identifier);
+    if (renamedId == null || !ModelTypeMetadata.isReferenceTarget(reference, renamedId.type)) {
+      return null;
+    }
+    // keep the prefix of a qualified reference
+    String prefix = value.endsWith(identifier) ? value.substring(0, value.length() - identifier.length()) : "";
+    return prefix + renamedId.newId;
+  }
+
+  protected TypeMetadata getTypeMetadata(Element element) {
+    return modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName());
+  }
+
+  protected ModelElementInstance getModelElement(Element element) {
+    return ModelUtil.getModelElement(new DomElementImpl(element), modelInstance);
+  }
+
+  /**
+   * An id attribute of an element which is renamed.
+   */
+  protected static class RenamedId {
+
+    protected final Element element;
+    protected final ModelElementType type;
+    protected final Attribute<?> idAttribute;
+    protected final Attr attribute;
+    protected final String oldId;
+    protected final String newId;
+
+    public RenamedId(Element element, ModelElementType type, Attribute<?> idAttribute, Attr attribute, String oldId, String newId) {
+      this.element = element;
+      this.type = type;
+      this.idAttribute = idAttribute;
+      this.attribute = attribute;
+      this.oldId = oldId;
+      this.newId = newId;
+    }
+
+  }
+
+}
@@ -68,7 +68,10 @@ public class ModelImpl implements Model {
   public void registerType(ModelElementType modelElementType, Class<? extends ModelElementInstance> instanceType) {
     QName qName = ModelUtil.getQName(modelElementType.getTypeNamespace(), modelElementType.getTypeName());
     typesByName.put(qName, modelElementType);
-    typesByClass.put(instanceType, modelElementType);
+    if (!typesByClass.containsKey(instanceType)) {
+      // generic types share the instance type of the base type and must not replace it
+      typesByClass.put(instanceType, modelElementType);
+    }
   }
 
   public String getModelName() {
@@ -12,20 +12,40 @@
  */
 package org.camunda.bpm.model.xml.impl;
 
+import org.camunda.bpm.model.xml.IdConflictPolicy;
+import org.camunda.bpm.model.xml.IdMapper;
 import org.camunda.bpm.model.xml.Model;
 import org.camunda.bpm.model.xml.ModelBuilder;
 import org.camunda.bpm.model.xml.ModelException;
 import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.event.ModelChangeEvent;
+import org.camunda.bpm.model.xml.event.ModelChangeListener;
+import org.camunda.bpm.model.xml.impl.event.ModelChangeEventImpl;
+import org.camunda.bpm.model.xml.impl.instance.DomElementImpl;
 import org.camunda.bpm.model.xml.impl.instance.ModelElementInstanceImpl;
+import org.camunda.bpm.model.xml.impl.metrics.ModelInstanceStatisticsImpl;
+import org.camunda.bpm.model.xml.impl.parser.DeferredElements;
+import org.camunda.bpm.model.xml.impl.type.reference.DeferredReferenceUpdates;
+import org.camunda.bpm.model.xml.impl.util.ContentHashUtil;
 import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
 import org.camunda.bpm.model.xml.instance.DomDocument;
 import org.camunda.bpm.model.xml.instance.DomElement;
 import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.metrics.ModelInstanceStatistics;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
 import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * An instance of a model
@@ -40,6 +60,21 @@ public class ModelInstanceImpl implements ModelInstance {
   private ModelImpl model;
   private final ModelBuilder modelBuilder;
 
+  private final List<ModelChangeListener> changeListeners = new CopyOnWriteArrayList<ModelChangeListener>();
+  private int changeOperationDepth = 0;
+  private List<ModelChangeEvent> pendingChangeEvents;
+
+  /** the running batch or null */
+  private ModelBatch batch;
+
+  /** the elements which were not parsed yet or null */
+  private volatile DeferredElements deferredElements;
+
+  private final ModelInstanceStatisticsImpl statistics = new ModelInstanceStatisticsImpl();
+
+  /** the type metadata of the model, created on first use */
+  private ModelTypeMetadata modelTypeMetadata;
+
   public ModelInstanceImpl(ModelImpl model, ModelBuilder modelBuilder, DomDocument document) {
     this.model = model;
     this.modelBuilder = modelBuilder;
@@ -47,9 +82,73 @@ public class ModelInstanceImpl implements ModelInstance {
   }
 
   public DomDocument getDocument() {
+    loadDeferredElements();
+    return document;
+  }
+
+  /**
+   * Returns the DOM document without loading deferred elements, so it only contains the
+   * elements which were parsed so far.
+   *
+   * @return the DOM document
+   */
+  public DomDocument getParsedDocument() {
     return document;
   }
 
+  /**
+   * Sets the elements which were cut out of the document before it was parsed.
+   *
+   * @param deferredElements  the deferred elements
+   */
+  public void setDeferredElements(DeferredElements deferredElements) {
+    this.deferredElements = deferredElements;
+  }
+
+  /**
+   * @return the elements which were not parsed yet or null
+   */
+  public DeferredElements getDeferredElements() {
+    return deferredElements;
+  }
+
+  /**
+   * @return true if the document contains elements which were not parsed yet
+   */
+  public boolean hasDeferredElements() {
+    return deferredElements != null;
+  }
+
+  /**
+   * Parses all deferred elements and inserts them into the document.
+   */
+  public void loadDeferredElements() {
+    if (deferredElements != null) {
+      loadDeferredElements(null);
+    }
+  }
+
+  /**
+   * Parses the deferred elements which contain elements of the namespace and inserts
+   * them into the document.
+   *
+   * @param namespaceUri  the namespace of the required elements or null to load all elements
+   */
+  public void loadDeferredElements(String namespaceUri) {
+    if (deferredElements == null) {
+      return;
+    }
+    synchronized (this) {
+      DeferredElements elements = deferredElements;
+      if (elements != null) {
+        elements.load(this, namespaceUri);
+        if (elements.isLoaded()) {
+          deferredElements = null;
+        }
+      }
+    }
+  }
+
   public ModelElementInstance getDocumentElement() {
     DomElement rootElement = document.getRootElement();
     if(rootElement != null) {
@@ -62,7 +161,23 @@ public class ModelInstanceImpl implements ModelInstance {
   public void setDocumentElement(ModelElementInstance modelElement) {
     ModelUtil.ensureInstanceOf(modelElement, ModelElementInstanceImpl.class);
     DomElement domElement = modelElement.getDomElement();
-    document.setRootElement(domElement);
+    // the deferred elements belong to the existing document element
+    loadDeferredElements();
+    beginChangeOperation();
+    try {
+      ModelElementInstance existingDocumentElement = getDocumentElement();
+      document.setRootElement(domElement);
+      if (existingDocumentElement != null) {
+        if (batch != null) {
+          batch.documentElementReplaced(existingDocumentElement);
+        }
+        elementRemoved(null, existingDocumentElement);
+      }
+      elementAdded(null, modelElement);
+    }
+    finally {
+      endChangeOperation();
+    }
   }
 
   public <T extends ModelElementInstance> T newInstance(Class<T> type) {
@@ -96,8 +211,11 @@ public class ModelInstanceImpl implements ModelInstance {
     if (id == null) {
       return null;
     }
+    if (ModelMetricsRegistry.isEnabled()) {
+      recordMetric(ModelMetric.ID_LOOKUP, 0);
+    }
 
-    DomElement element = document.getElementById(id);
+    DomElement element = getDomElementById(id);
     if(element != null) {
       return ModelUtil.getModelElement(element, this);
     } else {
@@ -105,6 +223,22 @@ public class ModelInstanceImpl implements ModelInstance {
     }
   }
 
+  /**
+   * Returns the DOM element with the id. If no element is found in the parsed document,
+   * the deferred elements are loaded.
+   *
+   * @param id  the id of the element
+   * @return the DOM element or null if no element has the id
+   */
+  public DomElement getDomElementById(String id) {
+    DomElement element = document.getElementById(id);
+    if (element == null && deferredElements != null) {
+      loadDeferredElements();
+      element = document.getElementById(id);
+    }
+    return element;
+  }
+
   public Collection<ModelElementInstance> getModelElementsByType(ModelElementType type) {
     Collection<ModelElementType> extendingTypes = type.getAllExtendingTypes();
 
@@ -122,6 +256,364 @@ public class ModelInstanceImpl implements ModelInstance {
     return (Collection<T>) getModelElementsByType(getModel().getType(referencingClass));
   }
 
+  public void addChangeListener(ModelChangeListener listener) {
+    changeListeners.add(listener);
+  }
+
+  public void removeChangeListener(ModelChangeListener listener) {
+    changeListeners.remove(listener);
+  }
+
+  public boolean hasChangeListeners() {
+    return !changeListeners.isEmpty();
+  }
+
+  /**
+   * Starts a logical change operation. Change events are collected until the
+   * outermost operation ends and then delivered as one batch.
+   */
+  public void beginChangeOperation() {
+    changeOperationDepth++;
+  }
+
+  /**
+   * Ends a logical change operation and notifies the change listeners if
+   * the outermost operation was ended.
+   */
+  public void endChangeOperation() {
+    changeOperationDepth--;
+    if (changeOperationDepth == 0 && pendingChangeEvents != null) {
+      List<ModelChangeEvent> events = Collections.unmodifiableList(pendingChangeEvents);
+      pendingChangeEvents = null;
+      for (ModelChangeListener listener : changeListeners) {
+        listener.modelChanged(events);
+      }
+    }
+  }
+
+  /**
+   * @return true if changes are tracked by change listeners or a running batch
+   */
+  public boolean isTrackingChanges() {
+    return batch != null || hasChangeListeners();
+  }
+
+  public void batch(Runnable operation) {
+    if (batch != null) {
+      // join the enclosing batch
+      operation.run();
+      return;
+    }
+
+    beginChangeOperation();
+    ModelBatch currentBatch = new ModelBatch(this);
+    batch = currentBatch;
+    boolean committed = false;
+    try {
+      operation.run();
+      currentBatch.commit();
+      committed = true;
+    }
+    finally {
+      batch = null;
+      if (!committed) {
+        currentBatch.rollback();
+        // nothing changed, so nobody is notified
+        pendingChangeEvents = null;
+      }
+      endChangeOperation();
+    }
+  }
+
+  public void remapIds(final IdMapper idMapper) {
+    batch(new Runnable() {
+      public void run() {
+        // references to elements renamed earlier in the enclosing batch have to be up to date
+        DeferredReferenceUpdates deferredReferenceUpdates = getDeferredReferenceUpdates();
+        if (deferredReferenceUpdates != null) {
+          deferredReferenceUpdates.apply();
+        }
+        new ModelIdRemapping(ModelInstanceImpl.this, idMapper).remap();
+      }
+    });
+  }
+
+  public void remapIds(final Map<String, String> ids) {
+    remapIds(new IdMapper() {
+      public String mapId(String id) {
+        return ids.get(id);
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T extends ModelElementInstance> T importElement(final T element, final ModelElementInstance parentElement, final IdConflictPolicy idConflictPolicy) {
+    final List<ModelElementInstance> importedElements = new ArrayList<ModelElementInstance>(1);
+    batch(new Runnable() {
+      public void run() {
+        ModelElementImport elementImport = new ModelElementImport(ModelInstanceImpl.this, idConflictPolicy);
+        importedElements.add(elementImport.importElement(element, parentElement));
+      }
+    });
+    return (T) importedElements.get(0);
+  }
+
+  /**
+   * Merges a copy of an element of another document into this model instance. An element
+   * with the same id is replaced by the copy, otherwise the copy is added to the parent
+   * element. The changes are applied in a batch.
+   *
+   * @param element  the element to copy
+   * @param parentElement  the parent of a new element or null if the element has to exist
+   * @return the merged copy
+   * @see ModelElementImport#mergeElement(Element, ModelElementInstance)
+   */
+  public ModelElementInstance mergeElement(final Element element, final ModelElementInstance parentElement) {
+    final List<ModelElementInstance> mergedElements = new ArrayList<ModelElementInstance>(1);
+    batch(new Runnable() {
+      public void run() {
+        ModelElementImport elementImport = new ModelElementImport(ModelInstanceImpl.this, IdConflictPolicy.FAIL);
+        mergedElements.add(elementImport.mergeElement(element, parentElement));
+      }
+    });
+    return mergedElements.get(0);
+  }
+
+  public String getContentHash() {
+    loadDeferredElements();
+    ModelElementInstance documentElement = getDocumentElement();
+    if (documentElement != null) {
+      return getContentHash(documentElement);
+    }
+    else {
+      return null;
+    }
+  }
+
+  public String getContentHash(ModelElementInstance element) {
+    DomElementImpl domElement = (DomElementImpl) element.getDomElement();
+    return ContentHashUtil.toHexString(domElement.getContentHash(getModelTypeMetadata()));
+  }
+
+  /**
+   * @return the type metadata of the model, which is needed to resolve qualified name references
+   */
+  public synchronized ModelTypeMetadata getModelTypeMetadata() {
+    if (modelTypeMetadata == null || modelTypeMetadata.getModel() != model) {
+      modelTypeMetadata = new ModelTypeMetadata(model);
+    }
+    return modelTypeMetadata;
+  }
+
+  public ModelInstanceStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Records a metric of an operation on this model instance. Callers check whether
+   * metrics are enabled before.
+   *
+   * @param metric  the recorded metric
+   * @param durationNanos  the duration in nanoseconds if the metric is timed, 0 otherwise
+   */
+  public void recordMetric(ModelMetric metric, long durationNanos) {
+    ModelMetricsRegistry.getMetrics().record(metric, durationNanos);
+    statistics.increment(metric);
+  }
+
+  protected void invalidateContentHash(ModelElementInstance element) {
+    if (element != null) {
+      ((DomElementImpl) element.getDomElement()).invalidateContentHash();
+    }
+  }
+
+  /**
+   * Returns the collector of deferred reference updates if a batch is running and
+   * its updates are not currently applied.
+   *
+   * @return the deferred reference updates or null
+   */
+  public DeferredReferenceUpdates getDeferredReferenceUpdates() {
+    if (batch != null && !batch.getDeferredReferenceUpdates().isApplying()) {
+      return batch.getDeferredReferenceUpdates();
+    }
+    else {
+      return null;
+    }
+  }
+
+  protected void fireChangeEvent(ModelChangeEvent event) {
+    if (pendingChangeEvents == null) {
+      pendingChangeEvents = new ArrayList<ModelChangeEvent>();
+    }
+    pendingChangeEvents.add(event);
+    if (changeOperationDepth == 0) {
+      // change outside of an operation, deliver immediately
+      beginChangeOperation();
+      endChangeOperation();
+    }
+  }
+
+  // change callbacks ////////////////////////////////////////////////
+
+  /**
+   * Called after a model element was inserted into the DOM tree of this model instance.
+   * The element may carry a complete subtree of child elements. Subclasses can override
+   * this method to maintain derived indexes.
+   *
+   * @param parentElement  the parent of the inserted element or null for the document element
+   * @param element  the inserted model element
+   */
+  public void elementAdded(ModelElementInstance parentElement, ModelElementInstance element) {
+    invalidateContentHash(parentElement);
+    if (batch != null) {
+      batch.elementAdded(parentElement, element);
+    }
+    if (hasChangeListeners()) {
+      fireChangeEvent(ModelChangeEventImpl.elementAdded(parentElement, element));
+    }
+  }
+
+  /**
+   * Called before a model element is removed from its parent element.
+   *
+   * @param parentElement  the parent of the element
+   * @param element  the model element to remove
+   */
+  public void elementRemoving(ModelElementInstance parentElement, ModelElementInstance element) {
+    if (batch != null) {
+      batch.elementRemoving(parentElement, element);
+    }
+  }
+
+  /**
+   * Called after a model element and its subtree were removed from the DOM tree of
+   * this model instance.
+   *
+   * @param parentElement  the former parent of the removed element or null for the document element
+   * @param element  the removed model element
+   */
+  public void elementRemoved(ModelElementInstance parentElement, ModelElementInstance element) {
+    invalidateContentHash(parentElement);
+    if (hasChangeListeners()) {
+      fireChangeEvent(ModelChangeEventImpl.elementRemoved(parentElement, element));
+    }
+  }
+
+  /**
+   * Called after a model element was replaced by a new model element.
+   *
+   * @param parentElement  the parent of both elements
+   * @param replacedElement  the removed model element
+   * @param element  the inserted model element
+   */
+  public void elementReplaced(ModelElementInstance parentElement, ModelElementInstance replacedElement, ModelElementInstance element) {
+    invalidateContentHash(parentElement);
+    if (batch != null) {
+      batch.elementReplaced(parentElement, replacedElement, element);
+    }
+    if (hasChangeListeners()) {
+      fireChangeEvent(ModelChangeEventImpl.elementReplaced(parentElement, replacedElement, element));
+    }
+  }
+
+  /**
+   * Called after an attribute of a model element was set or removed.
+   *
+   * @param element  the changed model element
+   * @param namespaceUri  the namespace URI of the attribute or null
+   * @param attributeName  the local name of the attribute
+   * @param oldValue  the previous value or null if the attribute was not set
+   * @param newValue  the new value or null if the attribute was removed
+   */
+  public void attributeChanged(ModelElementInstance element, String namespaceUri, String attributeName, String oldValue, String newValue) {
+    invalidateContentHash(element);
+    if (batch != null) {
+      batch.attributeChanged(element, namespaceUri, attributeName, oldValue, newValue);
+    }
+    if (hasChangeListeners()) {
+      fireChangeEvent(ModelChangeEventImpl.attributeChanged(element, namespaceUri, attributeName, oldValue, newValue));
+    }
+  }
+
+  /**
+   * Called after the text content of a model element was set. The old text content is
+   * only provided if changes are tracked.
+   *
+   * @param element  the changed model element
+   * @param oldTextContent  the previous text content
+   * @param newTextContent  the new text content
+   */
+  public void textContentChanged(ModelElementInstance element, String oldTextContent, String newTextContent) {
+    invalidateContentHash(element);
+    if (batch != null) {
+      batch.textContentChanged(element, oldTextContent, newTextContent);
+    }
+    if (hasChangeListeners()) {
+      fireChangeEvent(ModelChangeEventImpl.textChanged(element, oldTextContent, newTextContent));
+    }
+  }
+
+  /**
+   * Checks whether the element is connected to the document element of this model instance.
+   *
+   * @param element  the element to check
+   * @return true if the element is part of the DOM tree, false otherwise
+   */
+  public boolean isConnected(ModelElementInstance element) {
+    DomElement rootElement = document.getRootElement();
+    if (rootElement == null) {
+      return false;
+    }
+    DomElement domElement = element.getDomElement();
+    DomElement parentElement = domElement.getParentElement();
+    while (parentElement != null) {
+      domElement = parentElement;
+      parentElement = domElement.getParentElement();
+    }
+    return domElement.equals(rootElement);
+  }
+
+  /**
+   * Prepares the model instance to be read by concurrent threads. The first read access
+   * modifies the model instance: deferred elements are parsed, the nodes of a deferred
+   * DOM are expanded and the model elements are cached at their DOM elements. All of this
+   * is done upfront, so read-only operations do not modify the model instance afterwards.
+   */
+  public void prepareConcurrentReads() {
+    loadDeferredElements();
+    ModelElementInstance documentElement = getDocumentElement();
+    if (documentElement != null) {
+      prepareConcurrentReads(documentElement);
+    }
+  }
+
+  /**
+   * Prepares the subtree of an element to be read by concurrent threads.
+   *
+   * @param element  the root element of the subtree
+   * @see #prepareConcurrentReads()
+   */
+  public void prepareConcurrentReads(ModelElementInstance element) {
+    prepareConcurrentReads(((DomElementImpl) element.getDomElement()).getElement());
+  }
+
+  protected void prepareConcurrentReads(Element element) {
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      attributes.item(i).getNodeValue();
+    }
+    ModelUtil.getModelElement(new DomElementImpl(element), this);
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        prepareConcurrentReads((Element) child);
+      }
+      else {
+        child.getNodeValue();
+      }
+    }
+  }
+
   /**
    * Clones the model instance but not the model. So only the wrapped DOM document is cloned.
    * Changes of the model are persistent between multiple model instances.
@@ -129,6 +621,6 @@ public class ModelInstanceImpl implements ModelInstance {
    * @return the new model instance
    */
   public Object clone() {
-    return new ModelInstanceImpl(model, modelBuilder, document.clone());
+    return new ModelInstanceImpl(model, modelBuilder, getDocument().clone());
   }
 }
@@ -0,0 +1,51 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.diff;
+
+import org.camunda.bpm.model.xml.diff.AttributeDifference;
+
+public class AttributeDifferenceImpl implements AttributeDifference {
+
+  private final String namespaceUri;
+  private final String attributeName;
+  private final String oldValue;
+  private final String newValue;
+
+  public AttributeDifferenceImpl(String namespaceUri, String attributeName, String oldValue, String newValue) {
+    this.namespaceUri = namespaceUri;
+    this.attributeName = attributeName;
+    this.oldValue = oldValue;
+    this.newValue = newValue;
+  }
+
+  public String getNamespaceUri() {
+    return namespaceUri;
+  }
+
+  public String getAttributeName() {
+    return attributeName;
+  }
+
+  public String getOldValue() {
+    return oldValue;
+  }
+
+  public String getNewValue() {
+    return newValue;
+  }
+
+  public String toString() {
+    return attributeName + ": " + oldValue + " -> " + newValue;
+  }
+
+}
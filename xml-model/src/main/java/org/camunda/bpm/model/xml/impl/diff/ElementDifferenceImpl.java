@@ -0,0 +1,73 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.diff;
+
+import org.camunda.bpm.model.xml.diff.AttributeDifference;
+import org.camunda.bpm.model.xml.diff.DifferenceType;
+import org.camunda.bpm.model.xml.diff.ElementDifference;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ElementDifferenceImpl implements ElementDifference {
+
+  private final DifferenceType type;
+  private final ModelElementInstance oldElement;
+  private final ModelElementInstance newElement;
+  private final String elementId;
+  private final List<AttributeDifference> attributeDifferences;
+  private final boolean textContentChanged;
+
+  public ElementDifferenceImpl(DifferenceType type, ModelElementInstance oldElement, ModelElementInstance newElement, String elementId,
+                               List<AttributeDifference> attributeDifferences, boolean textContentChanged) {
+    this.type = type;
+    this.oldElement = oldElement;
+    this.newElement = newElement;
+    this.elementId = elementId;
+    this.attributeDifferences = Collections.unmodifiableList(attributeDifferences);
+    this.textContentChanged = textContentChanged;
+  }
+
+  public DifferenceType getType() {
+    return type;
+  }
+
+  public ModelElementInstance getOldElement() {
+    return oldElement;
+  }
+
+  public ModelElementInstance getNewElement() {
+    return newElement;
+  }
+
+  public String getElementId() {
+    return elementId;
+  }
+
+  public List<AttributeDifference> getAttributeDifferences() {
+    return attributeDifferences;
+  }
+
+  public boolean isTextContentChanged() {
+    return textContentChanged;
+  }
+
+  public String toString() {
+    ModelElementInstance element = newElement != null ? newElement : oldElement;
+    return type + " " + element.getElementType().getTypeName() + (elementId != null ? " '" + elementId + "'" : "")
+      + (attributeDifferences.isEmpty() ? "" : " " + attributeDifferences)
+      + (textContentChanged ? " text" : "");
+  }
+
+}
@@ -0,0 +1,53 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.diff;
+
+import org.camunda.bpm.model.xml.diff.DifferenceType;
+import org.camunda.bpm.model.xml.diff.ElementDifference;
+import org.camunda.bpm.model.xml.diff.ModelDiff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ModelDiffImpl implements ModelDiff {
+
+  private final List<ElementDifference> differences;
+
+  public ModelDiffImpl(List<ElementDifference> differences) {
+    this.differences = Collections.unmodifiableList(differences);
+  }
+
+  public boolean hasDifferences() {
+    return !differences.isEmpty();
+  }
+
+  public List<ElementDifference> getDifferences() {
+    return differences;
+  }
+
+  public List<ElementDifference> getDifferences(DifferenceType type) {
+    List<ElementDifference> differencesOfType = new ArrayList<ElementDifference>();
+    for (ElementDifference difference : differences) {
+      if (difference.getType() == type) {
+        differencesOfType.add(difference);
+      }
+    }
+    return differencesOfType;
+  }
+
+  public String toString() {
+    return differences.toString();
+  }
+
+}
@@ -0,0 +1,378 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.diff;
+
+import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.diff.AttributeDifference;
+import org.camunda.bpm.model.xml.diff.DifferenceType;
+import org.camunda.bpm.model.xml.diff.ElementDifference;
+import org.camunda.bpm.model.xml.diff.ModelDiff;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.instance.DomElementImpl;
+import org.camunda.bpm.model.xml.impl.util.ContentHashUtil;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.impl.util.QName;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.w3c.dom.*;
+
+import java.util.*;
+
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+
+/**
+ * Computes the structural differences between two model instances.
+ *
+ * <p>Both documents are walked in parallel and every pair of matched elements with equal
+ * content hashes is skipped, so unchanged regions cost a single comparison. The content
+ * hashes are the SHA-256 subtree hashes which the model instances cache for their elements
+ * (see {@link ContentHashUtil}). Elements with equal hashes are considered equal without
+ * comparing them, which relies on SHA-256 being collision resistant.</p>
+ *
+ * <p>Namespace prefixes, namespace declarations and whitespace are no difference. Values of
+ * qualified name references and <code>xsi:type</code> attributes are compared by namespace
+ * URI and local name, so a reference which only changed its prefix is unchanged. Ignored
+ * namespaces and elements are part of the content hashes, so an element whose hash only
+ * changed in ignored content is compared but reported as unchanged.</p>
+ *
+ * <p>Elements with an id are matched by their id anywhere in the document, elements
+ * without id by their position among the equally named siblings without id.</p>
+ */
+public class ModelDiffer {
+
+  private static final String ID_ATTRIBUTE = "id";
+
+  private final Set<String> ignoredNamespaces = new HashSet<String>();
+  private final Set<QName> ignoredElements = new HashSet<QName>();
+
+  /**
+   * Ignores all elements and attributes of the namespace.
+   *
+   * @param namespaceUri  the namespace URI to ignore
+   * @return this differ
+   */
+  public ModelDiffer ignoreNamespace(String namespaceUri) {
+    ignoredNamespaces.add(namespaceUri);
+    return this;
+  }
+
+  /**
+   * Ignores all elements with the name including their child elements.
+   *
+   * @param namespaceUri  the namespace URI of the elements to ignore
+   * @param localName  the local name of the elements to ignore
+   * @return this differ
+   */
+  public ModelDiffer ignoreElement(String namespaceUri, String localName) {
+    ignoredElements.add(ModelUtil.getQName(namespaceUri, localName));
+    return this;
+  }
+
+  /**
+   * Computes the differences between the model instances.
+   *
+   * @param oldModelInstance  the old model instance
+   * @param newModelInstance  the new model instance
+   * @return the differences
+   */
+  public ModelDiff diff(ModelInstance oldModelInstance, ModelInstance newModelInstance) {
+    return new DiffOperation((ModelInstanceImpl) oldModelInstance, (ModelInstanceImpl) newModelInstance).execute();
+  }
+
+  protected boolean isIgnored(Element element) {
+    String namespaceUri = element.getNamespaceURI();
+    return ignoredNamespaces.contains(namespaceUri) || ignoredElements.contains(ModelUtil.getQName(namespaceUri, element.getLocalName()));
+  }
+
+  protected boolean isIgnored(Attr attribute) {
+    String namespaceUri = attribute.getNamespaceURI();
+    return XMLNS_ATTRIBUTE_NS_URI.equals(namespaceUri) || (namespaceUri != null && ignoredNamespaces.contains(namespaceUri));
+  }
+
+  protected static Element getDocumentElement(ModelInstance modelInstance) {
+    Node document = modelInstance.getDocument().getDomSource().getNode();
+    return ((Document) document).getDocumentElement();
+  }
+
+  protected static String getId(Element element) {
+    Attr idAttribute = element.getAttributeNodeNS(null, ID_ATTRIBUTE);
+    return idAttribute != null ? idAttribute.getValue() : null;
+  }
+
+  protected static boolean hasSameName(Element element, Element otherElement) {
+    return element.getLocalName().equals(otherElement.getLocalName())
+      && equals(element.getNamespaceURI(), otherElement.getNamespaceURI());
+  }
+
+  protected static boolean equals(String value, String otherValue) {
+    return value == null ? otherValue == null : value.equals(otherValue);
+  }
+
+  protected static String getText(Element element) {
+    String text = null;
+    StringBuilder builder = null;
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      short nodeType = child.getNodeType();
+      if (nodeType == Node.TEXT_NODE || nodeType == Node.CDATA_SECTION_NODE) {
+        String value = child.getNodeValue();
+        if (text == null) {
+          text = value;
+        }
+        else {
+          if (builder == null) {
+            builder = new StringBuilder(text);
+          }
+          builder.append(value);
+        }
+      }
+    }
+    if (builder != null) {
+      text = builder.toString();
+    }
+    return text != null ? text.trim() : "";
+  }
+
+  /**
+   * The state of a single diff between two model instances.
+   */
+  protected class DiffOperation {
+
+    private final ModelInstanceImpl oldModelInstance;
+    private final ModelInstanceImpl newModelInstance;
+
+    private final ModelTypeMetadata oldModelTypeMetadata;
+    private final ModelTypeMetadata newModelTypeMetadata;
+
+    private final Map<String, Element> oldElementsById = new HashMap<String, Element>();
+    private final Map<String, Element> newElementsById = new HashMap<String, Element>();
+    private final List<Element> removedElements = new ArrayList<Element>();
+
+    private final List<ElementDifference> differences = new ArrayList<ElementDifference>();
+
+    public DiffOperation(ModelInstanceImpl oldModelInstance, ModelInstanceImpl newModelInstance) {
+      this.oldModelInstance = oldModelInstance;
+      this.newModelInstance = newModelInstance;
+      this.oldModelTypeMetadata = oldModelInstance.getModelTypeMetadata();
+      this.newModelTypeMetadata = newModelInstance.getModelTypeMetadata();
+    }
+
+    public ModelDiff execute() {
+      Element oldDocumentElement = getDocumentElement(oldModelInstance);
+      Element newDocumentElement = getDocumentElement(newModelInstance);
+
+      if (oldDocumentElement != null) {
+        index(oldDocumentElement, oldElementsById);
+      }
+      if (newDocumentElement != null) {
+        index(newDocumentElement, newElementsById);
+      }
+
+      if (oldDocumentElement != null && newDocumentElement != null && hasSameName(oldDocumentElement, newDocumentElement)) {
+        compare(oldDocumentElement, newDocumentElement, false);
+      }
+      else {
+        if (oldDocumentElement != null) {
+          removed(oldDocumentElement);
+        }
+        if (newDocumentElement != null) {
+          added(newDocumentElement);
+        }
+      }
+
+      // elements moved out of removed parents
+      for (int i = 0; i < removedElements.size(); i++) {
+        for (Element childElement : getChildElements(removedElements.get(i))) {
+          compareMovedElements(childElement);
+        }
+      }
+
+      return new ModelDiffImpl(differences);
+    }
+
+    /**
+     * Collects the elements of the subtree by id.
+     */
+    protected void index(Element element, Map<String, Element> elementsById) {
+      String id = getId(element);
+      if (id != null && !elementsById.containsKey(id)) {
+        elementsById.put(id, element);
+      }
+      for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child.getNodeType() == Node.ELEMENT_NODE && !isIgnored((Element) child)) {
+          index((Element) child, elementsById);
+        }
+      }
+    }
+
+    protected void compare(Element oldElement, Element newElement, boolean moved) {
+      byte[] oldContentHash = ContentHashUtil.getContentHash(oldElement, oldModelTypeMetadata);
+      byte[] newContentHash = ContentHashUtil.getContentHash(newElement, newModelTypeMetadata);
+      if (Arrays.equals(oldContentHash, newContentHash)) {
+        if (moved) {
+          addDifference(DifferenceType.MOVED, oldElement, newElement, Collections.<AttributeDifference>emptyList(), false);
+        }
+      }
+      else {
+        List<AttributeDifference> attributeDifferences = compareAttributes(oldElement, newElement);
+        boolean textContentChanged = !getHashedText(oldElement, oldModelTypeMetadata).equals(getHashedText(newElement, newModelTypeMetadata));
+        if (moved) {
+          addDifference(DifferenceType.MOVED, oldElement, newElement, attributeDifferences, textContentChanged);
+        }
+        else if (!attributeDifferences.isEmpty() || textContentChanged) {
+          addDifference(DifferenceType.CHANGED, oldElement, newElement, attributeDifferences, textContentChanged);
+        }
+        compareChildElements(oldElement, newElement);
+      }
+    }
+
+    protected List<AttributeDifference> compareAttributes(Element oldElement, Element newElement) {
+      List<AttributeDifference> attributeDifferences = new ArrayList<AttributeDifference>();
+
+      NamedNodeMap oldAttributes = oldElement.getAttributes();
+      for (int i = 0; i < oldAttributes.getLength(); i++) {
+        Attr oldAttribute = (Attr) oldAttributes.item(i);
+        if (!isIgnored(oldAttribute)) {
+          Attr newAttribute = newElement.getAttributeNodeNS(oldAttribute.getNamespaceURI(), oldAttribute.getLocalName());
+          if (newAttribute == null) {
+            attributeDifferences.add(new AttributeDifferenceImpl(oldAttribute.getNamespaceURI(), oldAttribute.getLocalName(), oldAttribute.getValue(), null));
+          }
+          else if (!ContentHashUtil.getHashedValue(oldElement, oldAttribute, oldModelTypeMetadata)
+            .equals(ContentHashUtil.getHashedValue(newElement, newAttribute, newModelTypeMetadata))) {
+            attributeDifferences.add(new AttributeDifferenceImpl(oldAttribute.getNamespaceURI(), oldAttribute.getLocalName(), oldAttribute.getValue(), newAttribute.getValue()));
+          }
+        }
+      }
+
+      NamedNodeMap newAttributes = newElement.getAttributes();
+      for (int i = 0; i < newAttributes.getLength(); i++) {
+        Attr newAttribute = (Attr) newAttributes.item(i);
+        if (!isIgnored(newAttribute) && !oldElement.hasAttributeNS(newAttribute.getNamespaceURI(), newAttribute.getLocalName())) {
+          attributeDifferences.add(new AttributeDifferenceImpl(newAttribute.getNamespaceURI(), newAttribute.getLocalName(), null, newAttribute.getValue()));
+        }
+      }
+
+      return attributeDifferences;
+    }
+
+    protected void compareChildElements(Element oldParentElement, Element newParentElement) {
+      List<Element> newChildElements = getChildElements(newParentElement);
+
+      // the new child elements without id which can be matched by position
+      Map<QName, LinkedList<Element>> unmatchedNewChildElements = new HashMap<QName, LinkedList<Element>>();
+      for (Element newChildElement : newChildElements) {
+        if (getId(newChildElement) == null) {
+          QName name = ModelUtil.getQName(newChildElement.getNamespaceURI(), newChildElement.getLocalName());
+          LinkedList<Element> elements = unmatchedNewChildElements.get(name);
+          if (elements == null) {
+            elements = new LinkedList<Element>();
+            unmatchedNewChildElements.put(name, elements);
+          }
+          elements.add(newChildElement);
+        }
+      }
+
+      for (Element oldChildElement : getChildElements(oldParentElement)) {
+        Element newChildElement;
+        if (getId(oldChildElement) != null) {
+          newChildElement = getCounterpart(oldChildElement, newElementsById);
+        }
+        else {
+          LinkedList<Element> elements = unmatchedNewChildElements.get(ModelUtil.getQName(oldChildElement.getNamespaceURI(), oldChildElement.getLocalName()));
+          newChildElement = elements != null ? elements.poll() : null;
+        }
+
+        if (newChildElement != null) {
+          compare(oldChildElement, newChildElement, newChildElement.getParentNode() != newParentElement);
+        }
+        else {
+          removed(oldChildElement);
+        }
+      }
+
+      for (Element newChildElement : newChildElements) {
+        if (getId(newChildElement) != null) {
+          // elements with a counterpart are compared starting from the old element
+          if (getCounterpart(newChildElement, oldElementsById) == null) {
+            added(newChildElement);
+          }
+        }
+      }
+      for (LinkedList<Element> elements : unmatchedNewChildElements.values()) {
+        for (Element newChildElement : elements) {
+          added(newChildElement);
+        }
+      }
+    }
+
+    /**
+     * Compares the elements of a removed subtree which still exist in the new model instance.
+     */
+    protected void compareMovedElements(Element oldElement) {
+      Element newElement = getId(oldElement) != null ? getCounterpart(oldElement, newElementsById) : null;
+      if (newElement != null) {
+        compare(oldElement, newElement, true);
+      }
+      else {
+        for (Element childElement : getChildElements(oldElement)) {
+          compareMovedElements(childElement);
+        }
+      }
+    }
+
+    protected String getHashedText(Element element, ModelTypeMetadata modelTypeMetadata) {
+      return ContentHashUtil.getHashedText(element, getText(element), modelTypeMetadata);
+    }
+
+    protected List<Element> getChildElements(Element element) {
+      List<Element> childElements = new ArrayList<Element>();
+      for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child.getNodeType() == Node.ELEMENT_NODE && !isIgnored((Element) child)) {
+          childElements.add((Element) child);
+        }
+      }
+      return childElements;
+    }
+
+    protected Element getCounterpart(Element element, Map<String, Element> elementsById) {
+      Element counterpart = elementsById.get(getId(element));
+      if (counterpart != null && hasSameName(element, counterpart)) {
+        return counterpart;
+      }
+      else {
+        return null;
+      }
+    }
+
+    protected void added(Element newElement) {
+      addDifference(DifferenceType.ADDED, null, newElement, Collections.<AttributeDifference>emptyList(), false);
+    }
+
+    protected void removed(Element oldElement) {
+      removedElements.add(oldElement);
+      addDifference(DifferenceType.REMOVED, oldElement, null, Collections.<AttributeDifference>emptyList(), false);
+    }
+
+    protected void addDifference(DifferenceType type, Element oldElement, Element newElement, List<AttributeDifference> attributeDifferences, boolean textContentChanged) {
+      ModelElementInstance oldModelElement = oldElement != null ? getModelElement(oldElement, oldModelInstance) : null;
+      ModelElementInstance newModelElement = newElement != null ? getModelElement(newElement, newModelInstance) : null;
+      String elementId = getId(newElement != null ? newElement : oldElement);
+      differences.add(new ElementDifferenceImpl(type, oldModelElement, newModelElement, elementId, attributeDifferences, textContentChanged));
+    }
+
+    protected ModelElementInstance getModelElement(Element element, ModelInstanceImpl modelInstance) {
+      return ModelUtil.getModelElement(new DomElementImpl(element), modelInstance);
+    }
+
+  }
+
+}
@@ -0,0 +1,103 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.event;
+
+import org.camunda.bpm.model.xml.event.ModelChangeEvent;
+import org.camunda.bpm.model.xml.event.ModelChangeType;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+/**
+ * Immutable {@link ModelChangeEvent}.
+ */
+public class ModelChangeEventImpl implements ModelChangeEvent {
+
+  private final ModelChangeType type;
+  private final ModelElementInstance element;
+  private final ModelElementInstance parentElement;
+  private final ModelElementInstance replacedElement;
+  private final String namespaceUri;
+  private final String attributeName;
+  private final String oldValue;
+  private final String newValue;
+
+  public ModelChangeEventImpl(ModelChangeType type, ModelElementInstance element, ModelElementInstance parentElement, ModelElementInstance replacedElement,
+                              String namespaceUri, String attributeName, String oldValue, String newValue) {
+    this.type = type;
+    this.element = element;
+    this.parentElement = parentElement;
+    this.replacedElement = replacedElement;
+    this.namespaceUri = namespaceUri;
+    this.attributeName = attributeName;
+    this.oldValue = oldValue;
+    this.newValue = newValue;
+  }
+
+  public static ModelChangeEvent elementAdded(ModelElementInstance parentElement, ModelElementInstance element) {
+    return new ModelChangeEventImpl(ModelChangeType.ELEMENT_ADDED, element, parentElement, null, null, null, null, null);
+  }
+
+  public static ModelChangeEvent elementRemoved(ModelElementInstance parentElement, ModelElementInstance element) {
+    return new ModelChangeEventImpl(ModelChangeType.ELEMENT_REMOVED, element, parentElement, null, null, null, null, null);
+  }
+
+  public static ModelChangeEvent elementReplaced(ModelElementInstance parentElement, ModelElementInstance replacedElement, ModelElementInstance element) {
+    return new ModelChangeEventImpl(ModelChangeType.ELEMENT_REPLACED, element, parentElement, replacedElement, null, null, null, null);
+  }
+
+  public static ModelChangeEvent attributeChanged(ModelElementInstance element, String namespaceUri, String attributeName, String oldValue, String newValue) {
+    return new ModelChangeEventImpl(ModelChangeType.ATTRIBUTE_CHANGED, element, null, null, namespaceUri, attributeName, oldValue, newValue);
+  }
+
+  public static ModelChangeEvent textChanged(ModelElementInstance element, String oldValue, String newValue) {
+    return new ModelChangeEventImpl(ModelChangeType.TEXT_CHANGED, element, null, null, null, null, oldValue, newValue);
+  }
+
+  public ModelChangeType getType() {
+    return type;
+  }
+
+  public ModelElementInstance getElement() {
+    return element;
+  }
+
+  public ModelElementInstance getParentElement() {
+    return parentElement;
+  }
+
+  public ModelElementInstance getReplacedElement() {
+    return replacedElement;
+  }
+
+  public String getNamespaceUri() {
+    return namespaceUri;
+  }
+
+  public String getAttributeName() {
+    return attributeName;
+  }
+
+  public String getOldValue() {
+    return oldValue;
+  }
+
+  public String getNewValue() {
+    return newValue;
+  }
+
+  @Override
+  public String toString() {
+    return "ModelChangeEvent[type=" + type + ", element=" + element + ", attributeName=" + attributeName
+      + ", oldValue=" + oldValue + ", newValue=" + newValue + "]";
+  }
+
+}
@@ -15,8 +15,10 @@ package org.camunda.bpm.model.xml.impl.instance;
 
 import org.camunda.bpm.model.xml.ModelException;
 import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.util.ContentHashUtil;
 import org.camunda.bpm.model.xml.impl.util.DomUtil;
 import org.camunda.bpm.model.xml.impl.util.XmlQName;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
 import org.camunda.bpm.model.xml.instance.DomDocument;
 import org.camunda.bpm.model.xml.instance.DomElement;
 import org.camunda.bpm.model.xml.instance.ModelElementInstance;
@@ -40,7 +42,7 @@ public class DomElementImpl implements DomElement {
     this.element = element;
   }
 
-  protected Element getElement() {
+  public Element getElement() {
     return element;
   }
 
@@ -87,18 +89,15 @@ public class DomElementImpl implements DomElement {
   }
 
   public List<DomElement> getChildElements() {
-    NodeList childNodes = element.getChildNodes();
-    return DomUtil.filterNodeListForElements(childNodes);
+    return DomUtil.filterChildNodes(element, new DomUtil.ElementNodeListFilter());
   }
 
   public List<DomElement> getChildElementsByNameNs(String namespaceUri, String elementName) {
-    NodeList childNodes = element.getChildNodes();
-    return DomUtil.filterNodeListByName(childNodes, namespaceUri, elementName);
+    return DomUtil.filterChildNodes(element, new DomUtil.ElementByNameListFilter(elementName, namespaceUri));
   }
 
   public List<DomElement> getChildElementsByType(ModelInstanceImpl modelInstance, Class<? extends ModelElementInstance> elementType) {
-    NodeList childNodes = element.getChildNodes();
-    return DomUtil.filterNodeListByType(childNodes, modelInstance, elementType);
+    return DomUtil.filterChildNodes(element, new DomUtil.ElementByTypeListFilter(elementType, modelInstance));
   }
 
   public void replaceChild(DomElement newChildDomElement, DomElement existingChildDomElement) {
@@ -240,6 +239,21 @@ public class DomElementImpl implements DomElement {
     element.setUserData(MODEL_ELEMENT_KEY, modelElementInstance, null);
   }
 
+  /**
+   * @param modelTypeMetadata  the type metadata to find qualified name references or null
+   * @return the cached or computed content hash of the element subtree
+   */
+  public byte[] getContentHash(ModelTypeMetadata modelTypeMetadata) {
+    return ContentHashUtil.getContentHash(element, modelTypeMetadata);
+  }
+
+  /**
+   * Invalidates the cached content hashes of this element and its ancestors.
+   */
+  public void invalidateContentHash() {
+    ContentHashUtil.invalidateContentHash(element);
+  }
+
   public String registerNamespace(String namespaceUri) {
     String lookupPrefix = lookupPrefix(namespaceUri);
     if (lookupPrefix == null) {
@@ -93,16 +93,23 @@ public class ModelElementInstanceImpl implements ModelElementInstance {
   }
 
   public void setAttributeValue(String attributeName, String xmlValue, boolean isIdAttribute) {
-    String oldValue = getAttributeValue(attributeName);
-    if (isIdAttribute) {
-      domElement.setIdAttribute(attributeName, xmlValue);
-    }
-    else {
-      domElement.setAttribute(attributeName, xmlValue);
+    modelInstance.beginChangeOperation();
+    try {
+      String oldValue = getAttributeValue(attributeName);
+      if (isIdAttribute) {
+        domElement.setIdAttribute(attributeName, xmlValue);
+      }
+      else {
+        domElement.setAttribute(attributeName, xmlValue);
+      }
+      modelInstance.attributeChanged(this, null, attributeName, oldValue, xmlValue);
+      Attribute<?> attribute = elementType.getAttribute(attributeName);
+      if (attribute != null) {
+        ((AttributeImpl<?>) attribute).updateIncomingReferences(this, xmlValue, oldValue);
+      }
     }
-    Attribute<?> attribute = elementType.getAttribute(attributeName);
-    if (attribute != null) {
-      ((AttributeImpl<?>) attribute).updateIncomingReferences(this, xmlValue, oldValue);
+    finally {
+      modelInstance.endChangeOperation();
     }
   }
 
@@ -111,39 +118,66 @@ public class ModelElementInstanceImpl implements ModelElementInstance {
   }
 
   public void setAttributeValueNs(String namespaceUri, String attributeName, String xmlValue, boolean isIdAttribute) {
-    String oldValue = getAttributeValueNs(namespaceUri, attributeName);
-    if (isIdAttribute) {
-      domElement.setIdAttribute(namespaceUri, attributeName, xmlValue);
-    }
-    else {
-      domElement.setAttribute(namespaceUri, attributeName, xmlValue);
+    modelInstance.beginChangeOperation();
+    try {
+      String oldValue = getAttributeValueNs(namespaceUri, attributeName);
+      if (isIdAttribute) {
+        domElement.setIdAttribute(namespaceUri, attributeName, xmlValue);
+      }
+      else {
+        domElement.setAttribute(namespaceUri, attributeName, xmlValue);
+      }
+      modelInstance.attributeChanged(this, namespaceUri, attributeName, oldValue, xmlValue);
+      Attribute<?> attribute = elementType.getAttribute(attributeName);
+      if (attribute != null) {
+        ((AttributeImpl<?>) attribute).updateIncomingReferences(this, xmlValue, oldValue);
+      }
     }
-    Attribute<?> attribute = elementType.getAttribute(attributeName);
-    if (attribute != null) {
-      ((AttributeImpl<?>) attribute).updateIncomingReferences(this, xmlValue, oldValue);
+    finally {
+      modelInstance.endChangeOperation();
     }
   }
 
   public void removeAttribute(String attributeName) {
-    Attribute<?> attribute = elementType.getAttribute(attributeName);
-    if (attribute != null) {
-      Object identifier = attribute.getValue(this);
-      if (identifier != null) {
-        ((AttributeImpl<?>) attribute).unlinkReference(this, identifier);
+    modelInstance.beginChangeOperation();
+    try {
+      String oldValue = getAttributeValue(attributeName);
+      Attribute<?> attribute = elementType.getAttribute(attributeName);
+      if (attribute != null) {
+        Object identifier = attribute.getValue(this);
+        if (identifier != null) {
+          ((AttributeImpl<?>) attribute).unlinkReference(this, identifier);
+        }
       }
+      domElement.removeAttribute(attributeName);
+      if (oldValue != null) {
+        modelInstance.attributeChanged(this, null, attributeName, oldValue, null);
+      }
+    }
+    finally {
+      modelInstance.endChangeOperation();
     }
-    domElement.removeAttribute(attributeName);
   }
 
   public void removeAttributeNs(String namespaceUri, String attributeName) {
-    Attribute<?> attribute = elementType.getAttribute(attributeName);
-    if (attribute != null) {
-      Object identifier = attribute.getValue(this);
-      if (identifier != null) {
-        ((AttributeImpl<?>) attribute).unlinkReference(this, identifier);
+    modelInstance.beginChangeOperation();
+    try {
+      String oldValue = getAttributeValueNs(namespaceUri, attributeName);
+      Attribute<?> attribute = elementType.getAttribute(attributeName);
+      if (attribute != null) {
+        Object identifier = attribute.getValue(this);
+        if (identifier != null) {
+          ((AttributeImpl<?>) attribute).unlinkReference(this, identifier);
+        }
       }
+      domElement.removeAttribute(namespaceUri, attributeName);
+      if (oldValue != null) {
+        modelInstance.attributeChanged(this, namespaceUri, attributeName, oldValue, null);
+      }
+    }
+    finally {
+      modelInstance.endChangeOperation();
     }
-    domElement.removeAttribute(namespaceUri, attributeName);
   }
 
   public String getTextContent() {
@@ -151,7 +185,10 @@ public class ModelElementInstanceImpl implements ModelElementInstance {
   }
 
   public void setTextContent(String textContent) {
+    // only read the old text content if somebody is interested in it
+    String oldTextContent = modelInstance.isTrackingChanges() ? getRawTextContent() : null;
     domElement.setTextContent(textContent);
+    modelInstance.textContentChanged(this, oldTextContent, textContent);
   }
 
   public String getRawTextContent() {
@@ -197,14 +234,22 @@ public class ModelElementInstanceImpl implements ModelElementInstance {
     DomElement existingChildDomElement = existingChild.getDomElement();
     DomElement newChildDomElement = newChild.getDomElement();
 
-    // unlink (remove all references) of child elements
-    ((ModelElementInstanceImpl) existingChild).unlinkAllChildReferences();
+    modelInstance.beginChangeOperation();
+    try {
+      // unlink (remove all references) of child elements
+      ((ModelElementInstanceImpl) existingChild).unlinkAllChildReferences();
 
-    // update incoming references from old to new child element
-    updateIncomingReferences(existingChild, newChild);
+      // update incoming references from old to new child element
+      updateIncomingReferences(existingChild, newChild);
 
-    // replace the existing child with the new child in the DOM
-    domElement.replaceChild(newChildDomElement, existingChildDomElement);
+      // replace the existing child with the new child in the DOM
+      domElement.replaceChild(newChildDomElement, existingChildDomElement);
+
+      modelInstance.elementReplaced(this, existingChild, newChild);
+    }
+    finally {
+      modelInstance.endChangeOperation();
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -245,9 +290,20 @@ public class ModelElementInstanceImpl implements ModelElementInstance {
 
   public boolean removeChildElement(ModelElementInstance child) {
     ModelElementInstanceImpl childImpl = (ModelElementInstanceImpl) child;
-    childImpl.unlinkAllReferences();
-    childImpl.unlinkAllChildReferences();
-    return domElement.removeChild(child.getDomElement());
+    modelInstance.beginChangeOperation();
+    try {
+      childImpl.unlinkAllReferences();
+      childImpl.unlinkAllChildReferences();
+      modelInstance.elementRemoving(this, child);
+      boolean removed = domElement.removeChild(child.getDomElement());
+      if (removed) {
+        modelInstance.elementRemoved(this, child);
+      }
+      return removed;
+    }
+    finally {
+      modelInstance.endChangeOperation();
+    }
   }
 
   public Collection<ModelElementInstance> getChildElementsByType(ModelElementType childElementType) {
@@ -255,6 +311,9 @@ public class ModelElementInstanceImpl implements ModelElementInstance {
     for (ModelElementType extendingType : childElementType.getExtendingTypes()) {
       instances.addAll(getChildElementsByType(extendingType));
     }
+    if (modelInstance.hasDeferredElements() && domElement.equals(modelInstance.getParsedDocument().getRootElement())) {
+      modelInstance.loadDeferredElements(childElementType.getTypeNamespace());
+    }
     List<DomElement> elements = domElement.getChildElementsByNameNs(childElementType.getTypeNamespace(), childElementType.getTypeName());
     instances.addAll(ModelUtil.getModelElementCollection(elements, modelInstance));
     return instances;
@@ -297,6 +356,7 @@ public class ModelElementInstanceImpl implements ModelElementInstance {
     else {
       domElement.insertChildElementAfter(elementToInsert.getDomElement(), insertAfterElement.getDomElement());
     }
+    modelInstance.elementAdded(this, elementToInsert);
   }
 
   /**
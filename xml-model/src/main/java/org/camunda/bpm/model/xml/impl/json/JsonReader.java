@@ -0,0 +1,367 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.json;
+
+import org.camunda.bpm.model.xml.ModelParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a JSON text from a reader token by token without building it in memory. Numbers
+ * and booleans are returned with the text they have in the document, so they can be read
+ * like strings.
+ */
+public class JsonReader {
+
+  public enum Token {
+    BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+  }
+
+  protected static final int EMPTY_DOCUMENT = 0;
+  protected static final int NONEMPTY_DOCUMENT = 1;
+  protected static final int EMPTY_OBJECT = 2;
+  protected static final int NONEMPTY_OBJECT = 3;
+  protected static final int DANGLING_NAME = 4;
+  protected static final int EMPTY_ARRAY = 5;
+  protected static final int NONEMPTY_ARRAY = 6;
+
+  protected final Reader reader;
+  protected final char[] buffer = new char[8192];
+  protected int position;
+  protected int limit;
+  /** the number of characters read before the current buffer */
+  protected long offset;
+
+  /** the state of the current object or array, by nesting level */
+  protected int[] stack = new int[32];
+  protected int stackSize = 1;
+
+  protected Token peeked;
+  protected String peekedValue;
+  protected final StringBuilder builder = new StringBuilder();
+
+  public JsonReader(Reader reader) {
+    this.reader = reader;
+    stack[0] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * @return the type of the next token without consuming it
+   */
+  public Token peek() throws IOException {
+    if (peeked == null) {
+      peeked = readToken();
+    }
+    return peeked;
+  }
+
+  /**
+   * @return true if the current object or array has another member
+   */
+  public boolean hasNext() throws IOException {
+    Token token = peek();
+    return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+  }
+
+  public void beginObject() throws IOException {
+    consume(Token.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  public void endObject() throws IOException {
+    consume(Token.END_OBJECT);
+    stackSize--;
+  }
+
+  public void beginArray() throws IOException {
+    consume(Token.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  public void endArray() throws IOException {
+    consume(Token.END_ARRAY);
+    stackSize--;
+  }
+
+  public String nextName() throws IOException {
+    consume(Token.NAME);
+    return peekedValue;
+  }
+
+  /**
+   * Returns the next string, number or boolean value as text.
+   *
+   * @return the text of the value or null if the value is null
+   */
+  public String nextString() throws IOException {
+    Token token = peek();
+    if (token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN && token != Token.NULL) {
+      throw syntaxError("Expected a value but was " + token);
+    }
+    peeked = null;
+    return token == Token.NULL ? null : peekedValue;
+  }
+
+  /**
+   * Skips the next value including all nested values.
+   */
+  public void skipValue() throws IOException {
+    int depth = 0;
+    do {
+      Token token = peek();
+      if (token == Token.BEGIN_OBJECT) {
+        beginObject();
+        depth++;
+      }
+      else if (token == Token.BEGIN_ARRAY) {
+        beginArray();
+        depth++;
+      }
+      else if (token == Token.END_OBJECT) {
+        endObject();
+        depth--;
+      }
+      else if (token == Token.END_ARRAY) {
+        endArray();
+        depth--;
+      }
+      else if (token == Token.NAME) {
+        nextName();
+      }
+      else {
+        nextString();
+      }
+    } while (depth > 0);
+  }
+
+  protected void consume(Token expectedToken) throws IOException {
+    Token token = peek();
+    if (token != expectedToken) {
+      throw syntaxError("Expected " + expectedToken + " but was " + token);
+    }
+    peeked = null;
+  }
+
+  protected void push(int state) {
+    if (stackSize == stack.length) {
+      int[] newStack = new int[stackSize * 2];
+      System.arraycopy(stack, 0, newStack, 0, stackSize);
+      stack = newStack;
+    }
+    stack[stackSize++] = state;
+  }
+
+  protected Token readToken() throws IOException {
+    int state = stack[stackSize - 1];
+    if (state == EMPTY_OBJECT || state == NONEMPTY_OBJECT) {
+      int c = nextNonWhitespace();
+      if (c == '}') {
+        return Token.END_OBJECT;
+      }
+      if (state == NONEMPTY_OBJECT) {
+        if (c != ',') {
+          throw syntaxError("Expected ',' or '}'");
+        }
+        c = nextNonWhitespace();
+      }
+      if (c != '"') {
+        throw syntaxError("Expected a name");
+      }
+      peekedValue = readString();
+      stack[stackSize - 1] = DANGLING_NAME;
+      return Token.NAME;
+    }
+    else if (state == DANGLING_NAME) {
+      if (nextNonWhitespace() != ':') {
+        throw syntaxError("Expected ':'");
+      }
+      stack[stackSize - 1] = NONEMPTY_OBJECT;
+      return readValue(nextNonWhitespace());
+    }
+    else if (state == EMPTY_ARRAY || state == NONEMPTY_ARRAY) {
+      int c = nextNonWhitespace();
+      if (c == ']') {
+        return Token.END_ARRAY;
+      }
+      if (state == NONEMPTY_ARRAY) {
+        if (c != ',') {
+          throw syntaxError("Expected ',' or ']'");
+        }
+        c = nextNonWhitespace();
+      }
+      stack[stackSize - 1] = NONEMPTY_ARRAY;
+      return readValue(c);
+    }
+    else if (state == EMPTY_DOCUMENT) {
+      stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+      return readValue(nextNonWhitespace());
+    }
+    else {
+      if (nextNonWhitespace() != -1) {
+        throw syntaxError("Expected the end of the document");
+      }
+      return Token.END_DOCUMENT;
+    }
+  }
+
+  protected Token readValue(int c) throws IOException {
+    switch (c) {
+      case '{':
+        return Token.BEGIN_OBJECT;
+      case '[':
+        return Token.BEGIN_ARRAY;
+      case '"':
+        peekedValue = readString();
+        return Token.STRING;
+      case 't':
+        readLiteral("true");
+        return Token.BOOLEAN;
+      case 'f':
+        readLiteral("false");
+        return Token.BOOLEAN;
+      case 'n':
+        readLiteral("null");
+        return Token.NULL;
+      case -1:
+        throw syntaxError("Unexpected end of the document");
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          readNumber((char) c);
+          return Token.NUMBER;
+        }
+        throw syntaxError("Unexpected character '" + (char) c + "'");
+    }
+  }
+
+  protected void readLiteral(String literal) throws IOException {
+    for (int i = 1; i < literal.length(); i++) {
+      if (read() != literal.charAt(i)) {
+        throw syntaxError("Expected '" + literal + "'");
+      }
+    }
+    peekedValue = literal;
+  }
+
+  protected void readNumber(char firstCharacter) throws IOException {
+    builder.setLength(0);
+    builder.append(firstCharacter);
+    while (position < limit || fill()) {
+      char c = buffer[position];
+      if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+        builder.append(c);
+        position++;
+      }
+      else {
+        break;
+      }
+    }
+    peekedValue = builder.toString();
+    if (!JsonWriter.isNumber(peekedValue)) {
+      throw syntaxError("Malformed number '" + peekedValue + "'");
+    }
+  }
+
+  protected String readString() throws IOException {
+    builder.setLength(0);
+    while (true) {
+      int start = position;
+      while (position < limit) {
+        char c = buffer[position++];
+        if (c == '"') {
+          builder.append(buffer, start, position - 1 - start);
+          return builder.toString();
+        }
+        else if (c == '\\') {
+          builder.append(buffer, start, position - 1 - start);
+          builder.append(readEscapedCharacter());
+          start = position;
+        }
+        else if (c < 0x20) {
+          throw syntaxError("Unescaped control character in string");
+        }
+      }
+      builder.append(buffer, start, position - start);
+      if (!fill()) {
+        throw syntaxError("Unterminated string");
+      }
+    }
+  }
+
+  protected char readEscapedCharacter() throws IOException {
+    int c = read();
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        return (char) c;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+          int digit = Character.digit(read(), 16);
+          if (digit < 0) {
+            throw syntaxError("Malformed unicode escape");
+          }
+          value = value * 16 + digit;
+        }
+        return (char) value;
+      default:
+        throw syntaxError("Malformed escape sequence");
+    }
+  }
+
+  protected int nextNonWhitespace() throws IOException {
+    while (position < limit || fill()) {
+      char c = buffer[position++];
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return c;
+      }
+    }
+    return -1;
+  }
+
+  protected int read() throws IOException {
+    if (position < limit || fill()) {
+      return buffer[position++];
+    }
+    return -1;
+  }
+
+  protected boolean fill() throws IOException {
+    offset += limit;
+    position = 0;
+    limit = 0;
+    int read = reader.read(buffer, 0, buffer.length);
+    if (read > 0) {
+      limit = read;
+      return true;
+    }
+    return false;
+  }
+
+  protected ModelParseException syntaxError(String message) {
+    return new ModelParseException(message + " at offset " + (offset + position));
+  }
+
+}
@@ -0,0 +1,169 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.regex.Pattern;
+
+/**
+ * Writes a JSON text to a writer without building it in memory. The separators between
+ * the members of objects and arrays are written by the writer, so the caller only
+ * writes names and values in the order of the document.
+ */
+public class JsonWriter {
+
+  protected static final Pattern NUMBER_PATTERN = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+  protected final Writer writer;
+
+  /** whether the current object or array has no members yet, by nesting level */
+  protected boolean[] empty = new boolean[32];
+  protected int depth;
+  protected boolean afterName;
+
+  public JsonWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  public JsonWriter beginObject() throws IOException {
+    return begin('{');
+  }
+
+  public JsonWriter endObject() throws IOException {
+    return end('}');
+  }
+
+  public JsonWriter beginArray() throws IOException {
+    return begin('[');
+  }
+
+  public JsonWriter endArray() throws IOException {
+    return end(']');
+  }
+
+  public JsonWriter name(String name) throws IOException {
+    beforeValue();
+    writeString(name);
+    writer.write(':');
+    afterName = true;
+    return this;
+  }
+
+  public JsonWriter value(String value) throws IOException {
+    beforeValue();
+    writeString(value);
+    return this;
+  }
+
+  public JsonWriter value(boolean value) throws IOException {
+    beforeValue();
+    writer.write(value ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * Writes a number with the given text, so the value is read back with the same text.
+   *
+   * @param number  a valid JSON number
+   */
+  public JsonWriter numberValue(String number) throws IOException {
+    beforeValue();
+    writer.write(number);
+    return this;
+  }
+
+  /**
+   * Checks whether a text is a valid JSON number.
+   */
+  public static boolean isNumber(String text) {
+    return NUMBER_PATTERN.matcher(text).matches();
+  }
+
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  protected JsonWriter begin(char bracket) throws IOException {
+    beforeValue();
+    writer.write(bracket);
+    if (++depth == empty.length) {
+      boolean[] newEmpty = new boolean[depth * 2];
+      System.arraycopy(empty, 0, newEmpty, 0, depth);
+      empty = newEmpty;
+    }
+    empty[depth] = true;
+    return this;
+  }
+
+  protected JsonWriter end(char bracket) throws IOException {
+    if (depth == 0) {
+      throw new IllegalStateException("No open object or array to close");
+    }
+    writer.write(bracket);
+    depth--;
+    return this;
+  }
+
+  protected void beforeValue() throws IOException {
+    if (afterName) {
+      afterName = false;
+    }
+    else if (depth > 0) {
+      if (empty[depth]) {
+        empty[depth] = false;
+      }
+      else {
+        writer.write(',');
+      }
+    }
+  }
+
+  protected void writeString(String value) throws IOException {
+    writer.write('"');
+    int length = value.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      String replacement;
+      if (c == '"') {
+        replacement = "\\\"";
+      }
+      else if (c == '\\') {
+        replacement = "\\\\";
+      }
+      else if (c == '\n') {
+        replacement = "\\n";
+      }
+      else if (c == '\r') {
+        replacement = "\\r";
+      }
+      else if (c == '\t') {
+        replacement = "\\t";
+      }
+      else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+        replacement = String.format("\\u%04x", (int) c);
+      }
+      else {
+        continue;
+      }
+      writer.write(value, start, i - start);
+      writer.write(replacement);
+      start = i + 1;
+    }
+    writer.write(value, start, length - start);
+    writer.write('"');
+  }
+
+}
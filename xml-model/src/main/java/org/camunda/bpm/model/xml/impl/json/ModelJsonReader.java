@@ -0,0 +1,275 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.json;
+
+import org.camunda.bpm.model.xml.ModelParseException;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetrics;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.ATTRIBUTES;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.CDATA;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.CHILDREN;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.COMMENT;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.DATA;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.FORMAT_VERSION;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.NAME;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.NAMESPACES;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.PROCESSING_INSTRUCTION;
+import static org.camunda.bpm.model.xml.impl.json.ModelJsonWriter.VERSION;
+
+/**
+ * Reads a document written by the {@link ModelJsonWriter} into a DOM document. The nodes
+ * are appended to the document while the stream is read and the id attributes of the
+ * model are declared, so the elements can be looked up by id without validating the
+ * document against the schema. Unknown members of objects are ignored.
+ *
+ * <p>The names of elements and attributes are not checked for well-formedness, so the
+ * document should be written by a {@link ModelJsonWriter}.</p>
+ */
+public class ModelJsonReader {
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+
+  public ModelJsonReader(ModelTypeMetadata modelTypeMetadata) {
+    this.modelTypeMetadata = modelTypeMetadata;
+  }
+
+  /**
+   * Reads a UTF-8 encoded JSON document into an empty DOM document. The stream is not closed.
+   * The time to read the document is recorded as {@link ModelMetric#PARSE}.
+   *
+   * @param inputStream  the stream to read
+   * @param document  the empty document to append the nodes to
+   */
+  public void read(InputStream inputStream, DomDocument document) {
+    ModelMetrics metrics = ModelMetricsRegistry.getMetrics();
+    boolean timed = metrics.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
+    Document targetDocument = (Document) document.getDomSource().getNode();
+    // the names of nodes written from a DOM document are valid, so they are not checked again
+    boolean strictErrorChecking = targetDocument.getStrictErrorChecking();
+    targetDocument.setStrictErrorChecking(false);
+    try {
+      JsonReader json = new JsonReader(new InputStreamReader(inputStream, "UTF-8"));
+      json.beginObject();
+      while (json.hasNext()) {
+        String name = json.nextName();
+        if (VERSION.equals(name)) {
+          String version = json.nextString();
+          if (!FORMAT_VERSION.equals(version)) {
+            throw new ModelParseException("Unsupported version '" + version + "' of the JSON document");
+          }
+        }
+        else if (CHILDREN.equals(name)) {
+          readChildNodes(json, targetDocument, targetDocument, new NamespaceScope(null));
+        }
+        else {
+          json.skipValue();
+        }
+      }
+      json.endObject();
+      if (json.peek() != JsonReader.Token.END_DOCUMENT) {
+        throw json.syntaxError("Expected the end of the document");
+      }
+    }
+    catch (IOException e) {
+      throw new ModelParseException("IOException while reading the JSON document", e);
+    }
+    catch (DOMException e) {
+      throw new ModelParseException("Unable to create the DOM document from JSON", e);
+    }
+    finally {
+      targetDocument.setStrictErrorChecking(strictErrorChecking);
+      if (timed) {
+        metrics.record(ModelMetric.PARSE, System.nanoTime() - startTime);
+      }
+    }
+    if (targetDocument.getDocumentElement() == null) {
+      throw new ModelParseException("The document has no document element");
+    }
+  }
+
+  protected void readChildNodes(JsonReader json, Document document, Node parent, NamespaceScope scope) throws IOException {
+    json.beginArray();
+    while (json.hasNext()) {
+      if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+        parent.appendChild(document.createTextNode(json.nextString()));
+        continue;
+      }
+      json.beginObject();
+      String name = json.nextName();
+      if (CDATA.equals(name)) {
+        parent.appendChild(document.createCDATASection(json.nextString()));
+      }
+      else if (COMMENT.equals(name)) {
+        parent.appendChild(document.createComment(json.nextString()));
+      }
+      else if (PROCESSING_INSTRUCTION.equals(name)) {
+        String target = json.nextString();
+        String data = "";
+        while (json.hasNext()) {
+          if (DATA.equals(json.nextName())) {
+            data = json.nextString();
+          }
+          else {
+            json.skipValue();
+          }
+        }
+        parent.appendChild(document.createProcessingInstruction(target, data));
+      }
+      else {
+        readElement(json, document, parent, scope, name);
+        continue;
+      }
+      skipRemainingMembers(json);
+    }
+    json.endArray();
+  }
+
+  /**
+   * Reads the members of an element object. The element is created when its children
+   * are reached, so its name and namespace declarations have to precede them.
+   */
+  protected void readElement(JsonReader json, Document document, Node parent, NamespaceScope parentScope, String name) throws IOException {
+    String qualifiedName = null;
+    NamespaceScope scope = parentScope;
+    List<String> namespaceDeclarations = new ArrayList<String>(4);
+    List<String> attributes = new ArrayList<String>(8);
+    Element element = null;
+    while (true) {
+      if (NAME.equals(name)) {
+        qualifiedName = json.nextString();
+      }
+      else if (NAMESPACES.equals(name)) {
+        scope = new NamespaceScope(parentScope);
+        json.beginObject();
+        while (json.hasNext()) {
+          String prefix = json.nextName();
+          String namespaceUri = json.nextString();
+          scope.declare(prefix, namespaceUri);
+          namespaceDeclarations.add(prefix);
+          namespaceDeclarations.add(namespaceUri);
+        }
+        json.endObject();
+      }
+      else if (ATTRIBUTES.equals(name)) {
+        json.beginObject();
+        while (json.hasNext()) {
+          attributes.add(json.nextName());
+          attributes.add(json.nextString());
+        }
+        json.endObject();
+      }
+      else if (CHILDREN.equals(name) && element == null) {
+        element = createElement(document, parent, qualifiedName, scope, namespaceDeclarations, attributes);
+        if (qualifiedName.startsWith("{")) {
+          scope = ModelJsonWriter.bindNamespace(element, scope, parentScope);
+        }
+        readChildNodes(json, document, element, scope);
+      }
+      else {
+        json.skipValue();
+      }
+
+      if (!json.hasNext()) {
+        break;
+      }
+      name = json.nextName();
+    }
+    json.endObject();
+
+    if (element == null) {
+      createElement(document, parent, qualifiedName, scope, namespaceDeclarations, attributes);
+    }
+  }
+
+  protected Element createElement(Document document, Node parent, String qualifiedName, NamespaceScope scope, List<String> namespaceDeclarations, List<String> attributes) {
+    if (qualifiedName == null) {
+      throw new ModelParseException("Element without a name in the JSON document");
+    }
+    Element element = document.createElementNS(getNamespaceUri(qualifiedName, scope, true), getQualifiedName(qualifiedName));
+    NamespaceScope elementScope = scope;
+    if (qualifiedName.startsWith("{")) {
+      // the attributes are resolved in the scope of the namespace of the element
+      elementScope = ModelJsonWriter.bindNamespace(element, new NamespaceScope(scope), scope);
+    }
+    for (int i = 0; i < namespaceDeclarations.size(); i += 2) {
+      String prefix = namespaceDeclarations.get(i);
+      element.setAttributeNS(XMLNS_ATTRIBUTE_NS_URI, prefix.length() > 0 ? XMLNS_ATTRIBUTE + ":" + prefix : XMLNS_ATTRIBUTE, namespaceDeclarations.get(i + 1));
+    }
+    for (int i = 0; i < attributes.size(); i += 2) {
+      String name = attributes.get(i);
+      element.setAttributeNS(getNamespaceUri(name, elementScope, false), getQualifiedName(name), attributes.get(i + 1));
+    }
+
+    // declare the ids of the model, so the elements can be looked up by id
+    for (Attribute<?> idAttribute : modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName()).getIdAttributes()) {
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, idAttribute);
+      if (attribute != null) {
+        element.setIdAttributeNode(attribute, true);
+      }
+    }
+    parent.appendChild(element);
+    return element;
+  }
+
+  /**
+   * Returns the namespace URI of a name written by {@link ModelJsonWriter#getName}.
+   */
+  protected static String getNamespaceUri(String name, NamespaceScope scope, boolean isElement) {
+    if (name.startsWith("{")) {
+      String namespaceUri = name.substring(1, name.lastIndexOf('}'));
+      return namespaceUri.length() > 0 ? namespaceUri : null;
+    }
+    int separator = name.indexOf(':');
+    if (separator < 0) {
+      return isElement ? scope.resolve("") : null;
+    }
+    String namespaceUri = scope.resolve(name.substring(0, separator));
+    if (namespaceUri == null) {
+      throw new ModelParseException("Undeclared namespace prefix of '" + name + "' in the JSON document");
+    }
+    return namespaceUri;
+  }
+
+  protected static String getQualifiedName(String name) {
+    return name.startsWith("{") ? name.substring(name.lastIndexOf('}') + 1) : name;
+  }
+
+  protected static void skipRemainingMembers(JsonReader json) throws IOException {
+    while (json.hasNext()) {
+      json.nextName();
+      json.skipValue();
+    }
+    json.endObject();
+  }
+
+}
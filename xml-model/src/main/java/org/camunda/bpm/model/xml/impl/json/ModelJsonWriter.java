@@ -0,0 +1,285 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.json;
+
+import org.camunda.bpm.model.xml.impl.type.attribute.BooleanAttribute;
+import org.camunda.bpm.model.xml.impl.type.attribute.DoubleAttribute;
+import org.camunda.bpm.model.xml.impl.type.attribute.IntegerAttribute;
+import org.camunda.bpm.model.xml.impl.util.ModelIoException;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+
+/**
+ * Writes the DOM document of a model instance as JSON, so it can be read back into an
+ * identical DOM document by the {@link ModelJsonReader} without parsing XML. The document
+ * is written as an object with the version of the format and its child nodes:
+ *
+ * <pre>
+ * {"v":1,"c":[{"n":"definitions","x":{"":"http://..."},"a":{"id":"definitions"},"c":["\n  ",...]}]}
+ * </pre>
+ *
+ * <ul>
+ *   <li>An element is an object with its qualified name <code>n</code>, its namespace
+ *   declarations <code>x</code> by prefix, its attributes <code>a</code> by qualified name
+ *   and its child nodes <code>c</code>. The name is prefixed by the namespace URI in braces
+ *   if the namespace cannot be resolved from the declarations in scope, which binds the
+ *   prefix of the name to the namespace for the attributes and descendants of the element.</li>
+ *   <li>Boolean and numeric attributes of the model are written as JSON booleans and
+ *   numbers if their text is a valid JSON literal, all other values as strings. Reference
+ *   attributes keep the ids of the referenced elements.</li>
+ *   <li>A text node is a string, CDATA sections, comments and processing instructions are
+ *   objects with the member <code>#cdata</code>, <code>#comment</code> or <code>#pi</code>
+ *   and <code>d</code>.</li>
+ * </ul>
+ *
+ * <p>Formatting whitespace is kept as text nodes. Document type declarations are not
+ * written.</p>
+ */
+public class ModelJsonWriter {
+
+  public static final String FORMAT_VERSION = "1";
+
+  public static final String VERSION = "v";
+  public static final String NAME = "n";
+  public static final String NAMESPACES = "x";
+  public static final String ATTRIBUTES = "a";
+  public static final String CHILDREN = "c";
+  public static final String CDATA = "#cdata";
+  public static final String COMMENT = "#comment";
+  public static final String PROCESSING_INSTRUCTION = "#pi";
+  public static final String DATA = "d";
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+
+  /** the boolean and numeric attributes of the element types, including their base types */
+  protected final Map<ModelElementType, List<Attribute<?>>> typedAttributes = new HashMap<ModelElementType, List<Attribute<?>>>();
+
+  public ModelJsonWriter(ModelTypeMetadata modelTypeMetadata) {
+    this.modelTypeMetadata = modelTypeMetadata;
+  }
+
+  /**
+   * Writes a document as UTF-8 encoded JSON. The stream is not closed.
+   *
+   * @param document  the document to write
+   * @param outputStream  the stream to write to
+   */
+  public void write(DomDocument document, OutputStream outputStream) {
+    try {
+      JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8")));
+      json.beginObject()
+        .name(VERSION).numberValue(FORMAT_VERSION)
+        .name(CHILDREN).beginArray();
+      NamespaceScope scope = new NamespaceScope(null);
+      for (Node child = ((Document) document.getDomSource().getNode()).getFirstChild(); child != null; child = child.getNextSibling()) {
+        writeNode(json, child, scope);
+      }
+      json.endArray().endObject();
+      json.flush();
+    }
+    catch (IOException e) {
+      throw new ModelIoException("Unable to write the document as JSON", e);
+    }
+  }
+
+  protected void writeNode(JsonWriter json, Node node, NamespaceScope scope) throws IOException {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        writeElement(json, (Element) node, scope);
+        break;
+      case Node.TEXT_NODE:
+        json.value(node.getNodeValue());
+        break;
+      case Node.CDATA_SECTION_NODE:
+        json.beginObject().name(CDATA).value(node.getNodeValue()).endObject();
+        break;
+      case Node.COMMENT_NODE:
+        json.beginObject().name(COMMENT).value(node.getNodeValue()).endObject();
+        break;
+      case Node.PROCESSING_INSTRUCTION_NODE:
+        ProcessingInstruction processingInstruction = (ProcessingInstruction) node;
+        json.beginObject()
+          .name(PROCESSING_INSTRUCTION).value(processingInstruction.getTarget())
+          .name(DATA).value(processingInstruction.getData())
+          .endObject();
+        break;
+      case Node.ENTITY_REFERENCE_NODE:
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+          writeNode(json, child, scope);
+        }
+        break;
+      default:
+        // document type declarations are not part of the model
+    }
+  }
+
+  protected void writeElement(JsonWriter json, Element element, NamespaceScope parentScope) throws IOException {
+    NamedNodeMap attributes = element.getAttributes();
+    NamespaceScope scope = parentScope;
+    boolean hasNamespaceDeclarations = false;
+    int attributeCount = 0;
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+        if (scope == parentScope) {
+          scope = new NamespaceScope(parentScope);
+        }
+        scope.declare(getDeclaredPrefix(attribute), attribute.getValue());
+        hasNamespaceDeclarations = true;
+      }
+      else {
+        attributeCount++;
+      }
+    }
+
+    String name = getName(element, scope, true);
+    json.beginObject().name(NAME).value(name);
+    if (name.startsWith("{")) {
+      scope = bindNamespace(element, scope, parentScope);
+    }
+
+    if (hasNamespaceDeclarations) {
+      json.name(NAMESPACES).beginObject();
+      for (int i = 0; i < attributes.getLength(); i++) {
+        Attr attribute = (Attr) attributes.item(i);
+        if (XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+          json.name(getDeclaredPrefix(attribute)).value(attribute.getValue());
+        }
+      }
+      json.endObject();
+    }
+
+    if (attributeCount > 0) {
+      List<Attr> booleanAttributes = new ArrayList<Attr>(2);
+      List<Attr> numericAttributes = new ArrayList<Attr>(2);
+      for (Attribute<?> typedAttribute : getTypedAttributes(element)) {
+        Attr attribute = ModelTypeMetadata.getAttributeNode(element, typedAttribute);
+        if (attribute != null) {
+          (typedAttribute instanceof BooleanAttribute ? booleanAttributes : numericAttributes).add(attribute);
+        }
+      }
+
+      json.name(ATTRIBUTES).beginObject();
+      for (int i = 0; i < attributes.getLength(); i++) {
+        Attr attribute = (Attr) attributes.item(i);
+        if (XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+          continue;
+        }
+        json.name(getName(attribute, scope, false));
+        String value = attribute.getValue();
+        if (booleanAttributes.contains(attribute) && ("true".equals(value) || "false".equals(value))) {
+          json.value(Boolean.parseBoolean(value));
+        }
+        else if (numericAttributes.contains(attribute) && JsonWriter.isNumber(value)) {
+          json.numberValue(value);
+        }
+        else {
+          json.value(value);
+        }
+      }
+      json.endObject();
+    }
+
+    Node child = element.getFirstChild();
+    if (child != null) {
+      json.name(CHILDREN).beginArray();
+      for (; child != null; child = child.getNextSibling()) {
+        writeNode(json, child, scope);
+      }
+      json.endArray();
+    }
+    json.endObject();
+  }
+
+  protected List<Attribute<?>> getTypedAttributes(Element element) {
+    ModelElementType type = modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName()).getType();
+    if (type == null) {
+      return Collections.emptyList();
+    }
+    List<Attribute<?>> attributes = typedAttributes.get(type);
+    if (attributes == null) {
+      attributes = new ArrayList<Attribute<?>>();
+      for (ModelElementType currentType = type; currentType != null; currentType = currentType.getBaseType()) {
+        for (Attribute<?> attribute : currentType.getAttributes()) {
+          if (attribute instanceof BooleanAttribute || attribute instanceof IntegerAttribute || attribute instanceof DoubleAttribute) {
+            attributes.add(attribute);
+          }
+        }
+      }
+      typedAttributes.put(type, attributes);
+    }
+    return attributes;
+  }
+
+  /**
+   * Returns the qualified name of a node, prefixed by its namespace URI in braces if the
+   * namespace cannot be resolved from the declarations in scope.
+   */
+  protected static String getName(Node node, NamespaceScope scope, boolean isElement) {
+    String prefix = node.getPrefix();
+    String namespaceUri = node.getNamespaceURI();
+    String resolvedNamespaceUri;
+    if (prefix != null) {
+      resolvedNamespaceUri = scope.resolve(prefix);
+    }
+    else {
+      // unprefixed attributes have no namespace
+      resolvedNamespaceUri = isElement ? scope.resolve("") : null;
+    }
+    if (namespaceUri == null ? resolvedNamespaceUri == null : namespaceUri.equals(resolvedNamespaceUri)) {
+      return node.getNodeName();
+    }
+    else {
+      return "{" + (namespaceUri != null ? namespaceUri : "") + "}" + node.getNodeName();
+    }
+  }
+
+  /**
+   * Binds the prefix of an element whose namespace is not declared to its namespace in the
+   * scope of its attributes and descendants, so only the first element of a namespace has
+   * to be written with the namespace URI. The reader binds the namespace in the same way.
+   */
+  protected static NamespaceScope bindNamespace(Node element, NamespaceScope scope, NamespaceScope parentScope) {
+    NamespaceScope elementScope = scope != parentScope ? scope : new NamespaceScope(parentScope);
+    String prefix = element.getPrefix();
+    String namespaceUri = element.getNamespaceURI();
+    elementScope.declare(prefix != null ? prefix : "", namespaceUri != null ? namespaceUri : "");
+    return elementScope;
+  }
+
+  protected static String getDeclaredPrefix(Attr namespaceDeclaration) {
+    return namespaceDeclaration.getPrefix() != null ? namespaceDeclaration.getLocalName() : "";
+  }
+
+}
@@ -0,0 +1,63 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.json;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.XMLConstants.XML_NS_PREFIX;
+import static javax.xml.XMLConstants.XML_NS_URI;
+
+/**
+ * The namespace declarations which are in scope of an element. The default namespace
+ * is declared with an empty prefix and undeclared with an empty namespace URI.
+ */
+public class NamespaceScope {
+
+  protected final NamespaceScope parent;
+  protected final Map<String, String> namespaces = new HashMap<String, String>();
+
+  public NamespaceScope(NamespaceScope parent) {
+    this.parent = parent;
+  }
+
+  public void declare(String prefix, String namespaceUri) {
+    namespaces.put(prefix, namespaceUri);
+  }
+
+  /**
+   * Resolves the namespace URI of a prefix.
+   *
+   * @param prefix  the prefix or an empty string for the default namespace
+   * @return the namespace URI or null if the prefix is not declared
+   */
+  public String resolve(String prefix) {
+    if (XML_NS_PREFIX.equals(prefix)) {
+      return XML_NS_URI;
+    }
+    else if (XMLNS_ATTRIBUTE.equals(prefix)) {
+      return XMLNS_ATTRIBUTE_NS_URI;
+    }
+    for (NamespaceScope scope = this; scope != null; scope = scope.parent) {
+      String namespaceUri = scope.namespaces.get(prefix);
+      if (namespaceUri != null) {
+        return namespaceUri.length() > 0 ? namespaceUri : null;
+      }
+    }
+    return null;
+  }
+
+}
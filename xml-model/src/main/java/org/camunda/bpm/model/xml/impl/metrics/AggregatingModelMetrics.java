@@ -0,0 +1,170 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.metrics;
+
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetrics;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsMXBean;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics which sum up the occurrences and durations of every metric of all models.
+ *
+ * <pre>
+ * AggregatingModelMetrics metrics = new AggregatingModelMetrics();
+ * ModelMetricsRegistry.setMetrics(metrics);
+ * metrics.registerMBean();
+ * </pre>
+ */
+public class AggregatingModelMetrics implements ModelMetrics, ModelMetricsMXBean {
+
+  public static final String DEFAULT_OBJECT_NAME = "org.camunda.bpm.model:type=ModelMetrics";
+
+  private final AtomicLongArray counts = new AtomicLongArray(ModelMetric.values().length);
+  private final AtomicLongArray durations = new AtomicLongArray(ModelMetric.values().length);
+
+  private ObjectName objectName;
+
+  public boolean isEnabled() {
+    return true;
+  }
+
+  public void record(ModelMetric metric, long durationNanos) {
+    counts.incrementAndGet(metric.ordinal());
+    if (durationNanos != 0) {
+      durations.addAndGet(metric.ordinal(), durationNanos);
+    }
+  }
+
+  /**
+   * @param metric  the metric
+   * @return the number of occurrences of the metric
+   */
+  public long getCount(ModelMetric metric) {
+    return counts.get(metric.ordinal());
+  }
+
+  /**
+   * @param metric  the metric
+   * @return the summed up duration of all occurrences of a timed metric in nanoseconds
+   */
+  public long getTotalTimeNanos(ModelMetric metric) {
+    return durations.get(metric.ordinal());
+  }
+
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+      durations.set(i, 0);
+    }
+  }
+
+  /**
+   * Registers the metrics at the platform MBean server with the {@link #DEFAULT_OBJECT_NAME}.
+   */
+  public void registerMBean() {
+    try {
+      registerMBean(new ObjectName(DEFAULT_OBJECT_NAME));
+    }
+    catch (JMException e) {
+      throw new ModelException("Unable to register the model metrics MBean", e);
+    }
+  }
+
+  /**
+   * Registers the metrics at the platform MBean server.
+   *
+   * @param objectName  the name of the MBean
+   */
+  public synchronized void registerMBean(ObjectName objectName) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+      this.objectName = objectName;
+    }
+    catch (JMException e) {
+      throw new ModelException("Unable to register the model metrics MBean " + objectName, e);
+    }
+  }
+
+  /**
+   * Removes the registered MBean from the platform MBean server.
+   */
+  public synchronized void unregisterMBean() {
+    if (objectName != null) {
+      MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      try {
+        if (mBeanServer.isRegistered(objectName)) {
+          mBeanServer.unregisterMBean(objectName);
+        }
+      }
+      catch (JMException e) {
+        throw new ModelException("Unable to unregister the model metrics MBean " + objectName, e);
+      }
+      objectName = null;
+    }
+  }
+
+  // management interface ////////////////////////////////////////////
+
+  public long getParseCount() {
+    return getCount(ModelMetric.PARSE);
+  }
+
+  public long getParseTimeNanos() {
+    return getTotalTimeNanos(ModelMetric.PARSE);
+  }
+
+  public long getValidationCount() {
+    return getCount(ModelMetric.VALIDATION);
+  }
+
+  public long getValidationTimeNanos() {
+    return getTotalTimeNanos(ModelMetric.VALIDATION);
+  }
+
+  public long getSerializationCount() {
+    return getCount(ModelMetric.SERIALIZATION);
+  }
+
+  public long getSerializationTimeNanos() {
+    return getTotalTimeNanos(ModelMetric.SERIALIZATION);
+  }
+
+  public long getElementWrappingCount() {
+    return getCount(ModelMetric.ELEMENT_WRAPPING);
+  }
+
+  public long getIdLookupCount() {
+    return getCount(ModelMetric.ID_LOOKUP);
+  }
+
+  public long getReferenceUpdateCount() {
+    return getCount(ModelMetric.REFERENCE_UPDATE);
+  }
+
+  public long getReferenceUpdateTimeNanos() {
+    return getTotalTimeNanos(ModelMetric.REFERENCE_UPDATE);
+  }
+
+  public long getReferenceScanCount() {
+    return getCount(ModelMetric.REFERENCE_SCAN);
+  }
+
+}
@@ -0,0 +1,136 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.metrics;
+
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.instance.DomElementImpl;
+import org.camunda.bpm.model.xml.impl.parser.DeferredElements;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Calculates the footprint of a model instance in a single pass over its DOM document.
+ */
+public class ModelFootprintCalculator {
+
+  // approximate object sizes of a 64-bit JVM with compressed references
+
+  /** an element node with its attribute map */
+  protected static final int ELEMENT_SIZE = 56 + 40;
+
+  /** an attribute node and its entry in the attribute map */
+  protected static final int ATTRIBUTE_SIZE = 48 + 4;
+
+  /** a text, comment or CDATA node */
+  protected static final int CHARACTER_DATA_SIZE = 32;
+
+  /** a string without its characters */
+  protected static final int STRING_SIZE = 40;
+
+  /** a model element, its DOM element and its user data entry at the document */
+  protected static final int WRAPPER_SIZE = 24 + 16 + 200;
+
+  /** the document with its identifier table */
+  protected static final int DOCUMENT_SIZE = 512;
+
+  /** an entry of the identifier table of the document */
+  protected static final int ID_SIZE = 32;
+
+  protected final ModelInstanceImpl modelInstance;
+  protected final ModelFootprintImpl footprint = new ModelFootprintImpl();
+
+  public ModelFootprintCalculator(ModelInstanceImpl modelInstance) {
+    this.modelInstance = modelInstance;
+  }
+
+  public ModelFootprintImpl calculate() {
+    footprint.estimatedSize = DOCUMENT_SIZE;
+    Document document = (Document) modelInstance.getParsedDocument().getDomSource().getNode();
+    for (Node child = document.getFirstChild(); child != null; child = child.getNextSibling()) {
+      visit(child);
+    }
+
+    DeferredElements deferredElements = modelInstance.getDeferredElements();
+    if (deferredElements != null) {
+      footprint.deferredBytes = deferredElements.getUnloadedByteCount();
+      footprint.estimatedSize += footprint.deferredBytes;
+    }
+    return footprint;
+  }
+
+  protected void visit(Node node) {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        visitElement((Element) node);
+        break;
+      case Node.TEXT_NODE:
+      case Node.CDATA_SECTION_NODE:
+      case Node.COMMENT_NODE:
+        String text = node.getNodeValue();
+        footprint.textBytes += getByteCount(text);
+        footprint.estimatedSize += CHARACTER_DATA_SIZE + getStringSize(text);
+        break;
+      default:
+        footprint.estimatedSize += CHARACTER_DATA_SIZE;
+    }
+  }
+
+  protected void visitElement(Element element) {
+    footprint.elementCount++;
+    footprint.estimatedSize += ELEMENT_SIZE;
+
+    ModelElementType type = modelInstance.getModel().getTypeForName(element.getNamespaceURI(), element.getLocalName());
+    if (type != null) {
+      Integer count = footprint.elementCountsByType.get(type);
+      footprint.elementCountsByType.put(type, count == null ? 1 : count + 1);
+    }
+    else {
+      footprint.unknownElementCount++;
+    }
+
+    if (new DomElementImpl(element).getModelElementInstance() != null) {
+      footprint.wrapperCount++;
+      footprint.estimatedSize += WRAPPER_SIZE;
+    }
+
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Node attribute = attributes.item(i);
+      String value = attribute.getNodeValue();
+      footprint.attributeCount++;
+      footprint.attributeBytes += getByteCount(value);
+      footprint.estimatedSize += ATTRIBUTE_SIZE + getStringSize(value);
+      if (((Attr) attribute).isId()) {
+        footprint.estimatedSize += ID_SIZE;
+      }
+    }
+
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      visit(child);
+    }
+  }
+
+  protected static long getByteCount(String value) {
+    return value != null ? 2L * value.length() : 0;
+  }
+
+  protected static long getStringSize(String value) {
+    return value != null ? STRING_SIZE + getByteCount(value) : 0;
+  }
+
+}
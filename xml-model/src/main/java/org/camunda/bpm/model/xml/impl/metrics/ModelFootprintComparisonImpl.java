@@ -0,0 +1,84 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.metrics;
+
+import org.camunda.bpm.model.xml.metrics.ModelFootprint;
+import org.camunda.bpm.model.xml.metrics.ModelFootprintComparison;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The footprints of many model instances, ordered by descending estimated size.
+ */
+public class ModelFootprintComparisonImpl implements ModelFootprintComparison {
+
+  protected final Map<String, ModelFootprint> footprints = new LinkedHashMap<String, ModelFootprint>();
+
+  public ModelFootprintComparisonImpl(Map<String, ModelFootprint> footprints) {
+    List<Map.Entry<String, ModelFootprint>> entries = new ArrayList<Map.Entry<String, ModelFootprint>>(footprints.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<String, ModelFootprint>>() {
+      public int compare(Map.Entry<String, ModelFootprint> entry, Map.Entry<String, ModelFootprint> otherEntry) {
+        long size = entry.getValue().getEstimatedSize();
+        long otherSize = otherEntry.getValue().getEstimatedSize();
+        return size < otherSize ? 1 : (size == otherSize ? 0 : -1);
+      }
+    });
+    for (Map.Entry<String, ModelFootprint> entry : entries) {
+      this.footprints.put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  public Map<String, ModelFootprint> getFootprints() {
+    return Collections.unmodifiableMap(footprints);
+  }
+
+  public long getTotalEstimatedSize() {
+    long totalSize = 0;
+    for (ModelFootprint footprint : footprints.values()) {
+      totalSize += footprint.getEstimatedSize();
+    }
+    return totalSize;
+  }
+
+  public long getMedianEstimatedSize() {
+    if (footprints.isEmpty()) {
+      return 0;
+    }
+    List<ModelFootprint> sortedFootprints = new ArrayList<ModelFootprint>(footprints.values());
+    int size = sortedFootprints.size();
+    if (size % 2 == 1) {
+      return sortedFootprints.get(size / 2).getEstimatedSize();
+    }
+    else {
+      return (sortedFootprints.get(size / 2 - 1).getEstimatedSize() + sortedFootprints.get(size / 2).getEstimatedSize()) / 2;
+    }
+  }
+
+  public List<String> getOutliers(double factor) {
+    List<String> outliers = new ArrayList<String>();
+    double threshold = factor * getMedianEstimatedSize();
+    for (Map.Entry<String, ModelFootprint> entry : footprints.entrySet()) {
+      if (entry.getValue().getEstimatedSize() > threshold) {
+        outliers.add(entry.getKey());
+      }
+    }
+    return outliers;
+  }
+
+}
@@ -0,0 +1,98 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.metrics;
+
+import org.camunda.bpm.model.xml.metrics.ModelFootprint;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a {@link ModelFootprintCalculator}.
+ */
+public class ModelFootprintImpl implements ModelFootprint {
+
+  protected final Map<ModelElementType, Integer> elementCountsByType = new HashMap<ModelElementType, Integer>();
+  protected int elementCount;
+  protected int unknownElementCount;
+  protected int attributeCount;
+  protected long attributeBytes;
+  protected long textBytes;
+  protected int wrapperCount;
+  protected long deferredBytes;
+  protected long estimatedSize;
+
+  public int getElementCount() {
+    return elementCount;
+  }
+
+  public Map<ModelElementType, Integer> getElementCountsByType() {
+    List<Map.Entry<ModelElementType, Integer>> entries = new ArrayList<Map.Entry<ModelElementType, Integer>>(elementCountsByType.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<ModelElementType, Integer>>() {
+      public int compare(Map.Entry<ModelElementType, Integer> entry, Map.Entry<ModelElementType, Integer> otherEntry) {
+        return otherEntry.getValue().compareTo(entry.getValue());
+      }
+    });
+    Map<ModelElementType, Integer> sortedElementCounts = new LinkedHashMap<ModelElementType, Integer>();
+    for (Map.Entry<ModelElementType, Integer> entry : entries) {
+      sortedElementCounts.put(entry.getKey(), entry.getValue());
+    }
+    return Collections.unmodifiableMap(sortedElementCounts);
+  }
+
+  public int getUnknownElementCount() {
+    return unknownElementCount;
+  }
+
+  public int getAttributeCount() {
+    return attributeCount;
+  }
+
+  public long getAttributeBytes() {
+    return attributeBytes;
+  }
+
+  public long getTextBytes() {
+    return textBytes;
+  }
+
+  public int getWrapperCount() {
+    return wrapperCount;
+  }
+
+  public long getDeferredBytes() {
+    return deferredBytes;
+  }
+
+  public long getEstimatedSize() {
+    return estimatedSize;
+  }
+
+  public String toString() {
+    return "ModelFootprint[elements=" + elementCount
+      + ", attributes=" + attributeCount
+      + ", attributeBytes=" + attributeBytes
+      + ", textBytes=" + textBytes
+      + ", wrappers=" + wrapperCount
+      + ", deferredBytes=" + deferredBytes
+      + ", estimatedSize=" + estimatedSize + "]";
+  }
+
+}
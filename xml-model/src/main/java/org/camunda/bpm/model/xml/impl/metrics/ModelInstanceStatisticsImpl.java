@@ -0,0 +1,50 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.metrics;
+
+import org.camunda.bpm.model.xml.metrics.ModelInstanceStatistics;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the metrics of a model instance, which may be read by concurrent threads.
+ */
+public class ModelInstanceStatisticsImpl implements ModelInstanceStatistics {
+
+  private final AtomicLongArray counts = new AtomicLongArray(ModelMetric.values().length);
+
+  public void increment(ModelMetric metric) {
+    counts.incrementAndGet(metric.ordinal());
+  }
+
+  public long getCount(ModelMetric metric) {
+    return counts.get(metric.ordinal());
+  }
+
+  public String toString() {
+    StringBuilder builder = new StringBuilder("ModelInstanceStatistics[");
+    for (ModelMetric metric : ModelMetric.values()) {
+      long count = getCount(metric);
+      if (count > 0) {
+        if (builder.charAt(builder.length() - 1) != '[') {
+          builder.append(", ");
+        }
+        builder.append(metric).append('=').append(count);
+      }
+    }
+    return builder.append(']').toString();
+  }
+
+}
@@ -0,0 +1,36 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.metrics;
+
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetrics;
+
+/**
+ * The default metrics which record nothing.
+ */
+public final class NoopModelMetrics implements ModelMetrics {
+
+  public static final NoopModelMetrics INSTANCE = new NoopModelMetrics();
+
+  private NoopModelMetrics() {
+  }
+
+  public boolean isEnabled() {
+    return false;
+  }
+
+  public void record(ModelMetric metric, long durationNanos) {
+  }
+
+}
@@ -12,16 +12,32 @@
  */
 package org.camunda.bpm.model.xml.impl.parser;
 
+import org.camunda.bpm.model.xml.Model;
 import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.ModelParseException;
+import org.camunda.bpm.model.xml.ModelParseOptions;
 import org.camunda.bpm.model.xml.ModelValidationException;
+import org.camunda.bpm.model.xml.event.ModelElementListener;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
 import org.camunda.bpm.model.xml.impl.util.DomUtil;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.impl.validation.ModelStructureValidator;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
 import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetrics;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.camunda.bpm.model.xml.validation.ValidationResult;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -31,14 +47,18 @@ import java.io.InputStream;
  */
 public abstract class AbstractModelParser {
 
-  private final DocumentBuilderFactory documentBuilderFactory;
+  private volatile DocumentBuilderFactory documentBuilderFactory;
+  private volatile DocumentBuilderFactory structureDocumentBuilderFactory;
+  private volatile ModelStructureValidator structureValidator;
+  private final DocumentBuilderFactory emptyDocumentBuilderFactory;
   protected SchemaFactory schemaFactory;
   protected Schema schema;
 
   protected AbstractModelParser() {
+    // empty documents are created without the (possibly expensive) parsing configuration
     DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-    configureFactory(dbf);
-    this.documentBuilderFactory = dbf;
+    dbf.setNamespaceAware(true);
+    this.emptyDocumentBuilderFactory = dbf;
   }
 
   /**
@@ -52,15 +72,209 @@ public abstract class AbstractModelParser {
     dbf.setNamespaceAware(true);
   }
 
+  /**
+   * Returns the factory used for parsing, which is created and configured on first use.
+   *
+   * @return the configured document builder factory
+   */
+  protected DocumentBuilderFactory getDocumentBuilderFactory() {
+    DocumentBuilderFactory dbf = documentBuilderFactory;
+    if (dbf == null) {
+      synchronized (this) {
+        dbf = documentBuilderFactory;
+        if (dbf == null) {
+          dbf = DocumentBuilderFactory.newInstance();
+          configureFactory(dbf);
+          documentBuilderFactory = dbf;
+        }
+      }
+    }
+    return dbf;
+  }
+
+  /**
+   * Returns the factory used for parsing documents which are validated against the
+   * model structure instead of the schema, which is created and configured on first use.
+   *
+   * @return the configured document builder factory without schema validation
+   */
+  protected DocumentBuilderFactory getStructureDocumentBuilderFactory() {
+    DocumentBuilderFactory dbf = structureDocumentBuilderFactory;
+    if (dbf == null) {
+      synchronized (this) {
+        dbf = structureDocumentBuilderFactory;
+        if (dbf == null) {
+          dbf = DocumentBuilderFactory.newInstance();
+          configureFactory(dbf);
+          dbf.setValidating(false);
+          dbf.setSchema(null);
+          structureDocumentBuilderFactory = dbf;
+        }
+      }
+    }
+    return dbf;
+  }
+
+  /**
+   * Returns the validator for the structure of documents of a model.
+   *
+   * @param model the model of the documents
+   * @return the structure validator
+   */
+  protected ModelStructureValidator getStructureValidator(Model model) {
+    ModelStructureValidator validator = structureValidator;
+    if (validator == null || validator.getModel() != model) {
+      validator = new ModelStructureValidator(model);
+      structureValidator = validator;
+    }
+    return validator;
+  }
+
+  /**
+   * Returns the schema used to validate documents. Subclasses may override this method
+   * to compile the schema lazily.
+   *
+   * @return the schema or null if documents are not validated
+   */
+  protected Schema getSchema() {
+    return schema;
+  }
+
   public ModelInstance parseModelFromStream(InputStream inputStream) {
-    DomDocument document = DomUtil.parseInputStream(documentBuilderFactory, inputStream);
-    validateModel(document);
-    return createModelInstance(document);
+    return createModelInstance(parseDocument(inputStream, ValidationMode.SCHEMA));
+  }
 
+  /**
+   * Parses a model and validates it in the given mode.
+   *
+   * @param inputStream the stream of the document
+   * @param validationMode the way the document is validated
+   * @return the parsed model instance
+   */
+  public ModelInstance parseModelFromStream(InputStream inputStream, ValidationMode validationMode) {
+    DomDocument document = parseDocument(inputStream, validationMode);
+    ModelInstance modelInstance = createModelInstance(document);
+    if (validationMode == ValidationMode.STRUCTURE) {
+      validateModelStructure(modelInstance);
+    }
+    return modelInstance;
+  }
+
+  /**
+   * Parses a model with the given options.
+   *
+   * @param inputStream the stream of the document
+   * @param options the options of the parsing
+   * @return the parsed model instance
+   */
+  public ModelInstance parseModelFromStream(InputStream inputStream, ModelParseOptions options) {
+    ValidationMode validationMode = options.getValidationMode();
+    // documents which are validated against the schema are never parsed in partitions
+    boolean concurrent = options.isConcurrent() && validationMode == ValidationMode.STRUCTURE;
+    if (!options.hasElementFilters() && !concurrent) {
+      return parseModelFromStream(inputStream, validationMode);
+    }
+
+    Model model = getModel();
+    ModelTypeMetadata modelTypeMetadata = getStructureValidator(model).getModelTypeMetadata();
+    DocumentFilter filter = new DocumentFilter(modelTypeMetadata, options);
+    byte[] bytes = readDocument(inputStream);
+    DomDocument document;
+    DeferredElements deferredElements = null;
+    if (filter.filter(bytes)) {
+      if (concurrent) {
+        document = new ConcurrentDocumentParser(this, validationMode, options.getExecutorService(), options.getPartitionCount()).parse(filter);
+      }
+      else {
+        document = parseDocument(new ByteArrayInputStream(filter.getRemainingDocument()), validationMode);
+      }
+      deferredElements = filter.getDeferredElements(this, validationMode);
+    }
+    else {
+      // the document cannot be scanned, so the excluded elements are removed after parsing it
+      document = parseDocument(new ByteArrayInputStream(bytes), validationMode);
+      filter.filter(getDocumentElement(document));
+    }
+
+    DanglingReferenceRemover remover = null;
+    if (!filter.getRemovedIds().isEmpty()) {
+      remover = new DanglingReferenceRemover(modelTypeMetadata, filter.getRemovedIds());
+      remover.removeReferences(getDocumentElement(document));
+    }
+    if (validationMode == ValidationMode.STRUCTURE) {
+      validateModelStructure(model, document);
+    }
+
+    ModelInstanceImpl modelInstance = (ModelInstanceImpl) createModelInstance(document);
+    if (deferredElements != null) {
+      deferredElements.setDanglingReferenceRemover(remover);
+      deferredElements.attach(modelInstance);
+    }
+    return modelInstance;
+  }
+
+  /**
+   * Parses a model while the stream is read and passes every child element of the document
+   * element to the listener as soon as it was parsed.
+   *
+   * @param inputStream the stream of the document
+   * @param validationMode the way the document is validated
+   * @param listener the listener which is notified about the parsed elements
+   * @return the parsed model instance
+   */
+  public ModelInstance parseModelIncrementally(InputStream inputStream, ValidationMode validationMode, ModelElementListener listener) {
+    ModelTypeMetadata modelTypeMetadata = getStructureValidator(getModel()).getModelTypeMetadata();
+    return new IncrementalModelParser(this, validationMode, modelTypeMetadata).parse(inputStream, listener);
+  }
+
+  protected static Element getDocumentElement(DomDocument document) {
+    return ((Document) document.getDomSource().getNode()).getDocumentElement();
+  }
+
+  /**
+   * Returns the model of the parsed documents.
+   *
+   * @return the model
+   */
+  protected Model getModel() {
+    return getEmptyModel().getModel();
+  }
+
+  /**
+   * Parses a DOM document and validates it against the schema if the given mode requires it.
+   * Documents parsed in the {@link ValidationMode#STRUCTURE} mode are not validated.
+   *
+   * @param inputStream the stream of the document
+   * @param validationMode the way the document is validated
+   * @return the parsed document
+   */
+  protected DomDocument parseDocument(InputStream inputStream, ValidationMode validationMode) {
+    DocumentBuilderFactory dbf = validationMode == ValidationMode.STRUCTURE ? getStructureDocumentBuilderFactory() : getDocumentBuilderFactory();
+    ModelMetrics metrics = ModelMetricsRegistry.getMetrics();
+    boolean timed = metrics.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
+    DomDocument document = DomUtil.parseInputStream(dbf, inputStream);
+    if (timed) {
+      metrics.record(ModelMetric.PARSE, System.nanoTime() - startTime);
+    }
+    if (validationMode != ValidationMode.STRUCTURE && dbf.getSchema() == null) {
+      // otherwise the document was already validated during parsing
+      validateModel(document);
+    }
+    return document;
+  }
+
+  protected byte[] readDocument(InputStream inputStream) {
+    try {
+      return IoUtil.getBytesFromInputStream(inputStream);
+    }
+    catch (IOException e) {
+      throw new ModelParseException("IOException while reading input stream", e);
+    }
   }
 
   public ModelInstance getEmptyModel() {
-    DomDocument document = DomUtil.getEmptyDocument(documentBuilderFactory);
+    DomDocument document = DomUtil.getEmptyDocument(emptyDocumentBuilderFactory);
     return createModelInstance(document);
   }
 
@@ -70,10 +284,14 @@ public abstract class AbstractModelParser {
    * @param document the DOM document to validate
    */
   public void validateModel(DomDocument document) {
+    Schema schema = getSchema();
     if (schema == null) {
       return;
     }
 
+    ModelMetrics metrics = ModelMetricsRegistry.getMetrics();
+    boolean timed = metrics.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
     Validator validator = schema.newValidator();
     try {
       validator.validate(document.getDomSource());
@@ -81,6 +299,39 @@ public abstract class AbstractModelParser {
       throw new ModelValidationException("Error during DOM document validation", e);
     } catch (SAXException e) {
       throw new ModelValidationException("DOM document is not valid", e);
+    } finally {
+      if (timed) {
+        metrics.record(ModelMetric.VALIDATION, System.nanoTime() - startTime);
+      }
+    }
+  }
+
+  /**
+   * Validate the model instance against the structure of its element types
+   *
+   * @param modelInstance the model instance to validate
+   * @see ValidationMode#STRUCTURE
+   */
+  public void validateModelStructure(ModelInstance modelInstance) {
+    validateModelStructure(modelInstance.getModel(), modelInstance.getDocument());
+  }
+
+  /**
+   * Validate the DOM document against the structure of the element types of the model
+   *
+   * @param model the model of the document
+   * @param document the DOM document to validate
+   */
+  protected void validateModelStructure(Model model, DomDocument document) {
+    ModelMetrics metrics = ModelMetricsRegistry.getMetrics();
+    boolean timed = metrics.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
+    ValidationResult result = getStructureValidator(model).validate(document);
+    if (timed) {
+      metrics.record(ModelMetric.VALIDATION, System.nanoTime() - startTime);
+    }
+    if (!result.isValid()) {
+      throw new ModelValidationException("DOM document is not valid: " + result.getErrors());
     }
   }
 
@@ -0,0 +1,170 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.parser;
+
+import org.camunda.bpm.model.xml.ModelParseException;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the content of the document element in partitions which are parsed concurrently
+ * and joined into one document afterwards. The partitions are split at the boundaries of
+ * the child elements of the document element, which are found by a {@link DocumentFilter},
+ * and every partition is wrapped by the start and end tag of the document element, so it
+ * is parsed in the scope of the same namespace declarations.
+ *
+ * <p>Only documents which are validated by {@link ValidationMode#STRUCTURE} are parsed in
+ * partitions. A schema validation needs the whole document to check the ids and the
+ * references between them, so such documents are parsed sequentially.</p>
+ */
+public class ConcurrentDocumentParser {
+
+  protected final AbstractModelParser parser;
+  protected final ValidationMode validationMode;
+  protected final ExecutorService executorService;
+  protected final int partitionCount;
+
+  public ConcurrentDocumentParser(AbstractModelParser parser, ValidationMode validationMode, ExecutorService executorService, int partitionCount) {
+    this.parser = parser;
+    this.validationMode = validationMode;
+    this.executorService = executorService;
+    this.partitionCount = partitionCount;
+  }
+
+  /**
+   * Parses the remaining document of a filter.
+   *
+   * @param filter  the filter which scanned the document
+   * @return the parsed document
+   */
+  public DomDocument parse(final DocumentFilter filter) {
+    final byte[] document = filter.getRemainingDocument();
+    List<Integer> partitionOffsets = getPartitionOffsets(filter);
+    if (validationMode == ValidationMode.SCHEMA || partitionOffsets.size() <= 2) {
+      return parser.parseDocument(new ByteArrayInputStream(document), validationMode);
+    }
+
+    List<Future<DomDocument>> partitions = new ArrayList<Future<DomDocument>>();
+    for (int i = 1; i < partitionOffsets.size(); i++) {
+      final int start = partitionOffsets.get(i - 1);
+      final int end = partitionOffsets.get(i);
+      partitions.add(executorService.submit(new Callable<DomDocument>() {
+        public DomDocument call() {
+          DomDocument partition = parser.parseDocument(new ByteArrayInputStream(filter.wrapContent(document, start, end)), validationMode);
+          // expand the nodes of the parsed document in this thread instead of the joining thread
+          expand(getDocument(partition));
+          return partition;
+        }
+      }));
+    }
+
+    int contentStart = partitionOffsets.get(0);
+    int contentEnd = partitionOffsets.get(partitionOffsets.size() - 1);
+    ByteArrayOutputStream skeleton = new ByteArrayOutputStream(contentStart + document.length - contentEnd);
+    skeleton.write(document, 0, contentStart);
+    skeleton.write(document, contentEnd, document.length - contentEnd);
+    DomDocument joinedDocument = parser.parseDocument(new ByteArrayInputStream(skeleton.toByteArray()), ValidationMode.STRUCTURE);
+
+    Document targetDocument = getDocument(joinedDocument);
+    Element root = targetDocument.getDocumentElement();
+    Node nextSibling = root.getFirstChild();
+    for (Future<DomDocument> partition : partitions) {
+      Element partitionRoot = getDocument(getResult(partition)).getDocumentElement();
+      Node child = partitionRoot.getFirstChild();
+      while (child != null) {
+        Node next = child.getNextSibling();
+        Node adoptedChild = targetDocument.adoptNode(child);
+        if (adoptedChild == null) {
+          adoptedChild = targetDocument.importNode(child, true);
+        }
+        root.insertBefore(adoptedChild, nextSibling);
+        child = next;
+      }
+    }
+    return joinedDocument;
+  }
+
+  /**
+   * Splits the content of the document element into partitions of about the same size.
+   *
+   * @return the start offset of the first partition followed by the end offsets of all partitions
+   */
+  protected List<Integer> getPartitionOffsets(DocumentFilter filter) {
+    List<Integer> partitionOffsets = new ArrayList<Integer>();
+    List<Integer> childElementEndOffsets = filter.getChildElementEndOffsets();
+    if (childElementEndOffsets.isEmpty()) {
+      return partitionOffsets;
+    }
+    int contentStart = filter.getDocumentElementContentOffset();
+    int contentEnd = childElementEndOffsets.get(childElementEndOffsets.size() - 1);
+    int partitionSize = (contentEnd - contentStart) / partitionCount;
+
+    partitionOffsets.add(contentStart);
+    int partitionStart = contentStart;
+    for (int endOffset : childElementEndOffsets) {
+      if (endOffset - partitionStart >= partitionSize || endOffset == contentEnd) {
+        partitionOffsets.add(endOffset);
+        partitionStart = endOffset;
+      }
+    }
+    return partitionOffsets;
+  }
+
+  protected DomDocument getResult(Future<DomDocument> partition) {
+    try {
+      return partition.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ModelParseException("Interrupted while parsing a partition of the document", e);
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ModelParseException("Unable to parse a partition of the document", cause);
+    }
+  }
+
+  protected static void expand(Node node) {
+    NamedNodeMap attributes = node.getAttributes();
+    if (attributes != null) {
+      for (int i = 0; i < attributes.getLength(); i++) {
+        attributes.item(i).getNodeValue();
+      }
+    }
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      expand(child);
+    }
+  }
+
+  protected static Document getDocument(DomDocument document) {
+    return (Document) document.getDomSource().getNode();
+  }
+
+}
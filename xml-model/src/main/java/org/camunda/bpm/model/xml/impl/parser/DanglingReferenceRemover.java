@@ -0,0 +1,172 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.parser;
+
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.ReferenceImpl;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata.TypeMetadata;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.camunda.bpm.model.xml.type.child.ChildElementCollection;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes the references to elements which were excluded from a document while it was
+ * parsed. References by optional attributes and reference child elements are removed like
+ * they are removed if the referenced element is removed from a model instance. Elements
+ * which cannot exist without a removed reference, because it is a required attribute or
+ * the last of the required reference child elements, are removed together with all
+ * references to them.
+ */
+public class DanglingReferenceRemover {
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+  protected final Set<String> removedIds;
+
+  /**
+   * @param modelTypeMetadata  the metadata of the model
+   * @param removedIds  the ids of the removed elements, the ids of elements removed by this remover are added
+   */
+  public DanglingReferenceRemover(ModelTypeMetadata modelTypeMetadata, Set<String> removedIds) {
+    this.modelTypeMetadata = modelTypeMetadata;
+    this.removedIds = removedIds;
+  }
+
+  /**
+   * Removes all references to removed elements from the subtree of the element.
+   *
+   * @param element  the root of the subtree
+   */
+  public void removeReferences(Element element) {
+    int removedIdCount;
+    do {
+      removedIdCount = removedIds.size();
+      if (!removeReferencesOfSubtree(element)) {
+        return;
+      }
+      // removed elements may be referenced by elements which were already checked
+    } while (removedIds.size() > removedIdCount);
+  }
+
+  /**
+   * @return false if the element itself was removed
+   */
+  protected boolean removeReferencesOfSubtree(Element element) {
+    TypeMetadata metadata = getTypeMetadata(element);
+    for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+      Attribute<String> sourceAttribute = reference.getReferenceSourceAttribute();
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, sourceAttribute);
+      if (attribute != null && removedIds.contains(ModelTypeMetadata.getReferenceIdentifier(reference, attribute.getValue()))) {
+        if (sourceAttribute.isRequired()) {
+          removeElement(element);
+          return false;
+        }
+        element.removeAttributeNode(attribute);
+      }
+    }
+
+    ReferenceImpl<?> elementReference = metadata.getElementReference();
+    if (elementReference != null && removedIds.contains(ModelTypeMetadata.getReferenceIdentifier(elementReference, element.getTextContent().trim()))) {
+      removeElement(element);
+      return false;
+    }
+
+    Node child = element.getFirstChild();
+    while (child != null && element.getParentNode() != null) {
+      Node nextSibling = child.getNextSibling();
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        removeReferencesOfSubtree((Element) child);
+      }
+      child = nextSibling;
+    }
+    // the element is removed if it lost a required child element
+    return element.getParentNode() != null;
+  }
+
+  protected void removeElement(Element element) {
+    collectIds(element, modelTypeMetadata, removedIds);
+
+    Node parentNode = element.getParentNode();
+    if (parentNode == null || parentNode.getNodeType() != Node.ELEMENT_NODE) {
+      // the document element is never removed
+      return;
+    }
+    Node previousSibling = element.getPreviousSibling();
+    if (previousSibling != null && previousSibling.getNodeType() == Node.TEXT_NODE && previousSibling.getNodeValue().trim().isEmpty()) {
+      parentNode.removeChild(previousSibling);
+    }
+    parentNode.removeChild(element);
+
+    Element parentElement = (Element) parentNode;
+    if (isMissingRequiredChildElement(parentElement, getTypeMetadata(element).getType())) {
+      removeElement(parentElement);
+    }
+  }
+
+  protected boolean isMissingRequiredChildElement(Element parentElement, ModelElementType childType) {
+    if (childType == null) {
+      return false;
+    }
+    TypeMetadata metadata = getTypeMetadata(parentElement);
+    List<ChildElementCollection<?>> childElementCollections = metadata.getChildElementCollections();
+    for (int i = 0; i < childElementCollections.size(); i++) {
+      ModelElementType collectionType = metadata.getChildElementTypes().get(i);
+      int minOccurs = childElementCollections.get(i).getMinOccurs();
+      if (minOccurs > 0 && ModelTypeMetadata.isTypeOf(childType, collectionType)) {
+        int occurrences = 0;
+        for (Node child = parentElement.getFirstChild(); child != null; child = child.getNextSibling()) {
+          if (child.getNodeType() == Node.ELEMENT_NODE && ModelTypeMetadata.isTypeOf(getTypeMetadata((Element) child).getType(), collectionType)) {
+            occurrences++;
+          }
+        }
+        return occurrences < minOccurs;
+      }
+    }
+    return false;
+  }
+
+  protected TypeMetadata getTypeMetadata(Element element) {
+    return modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName());
+  }
+
+  /**
+   * Collects the ids of all elements of a subtree.
+   *
+   * @param element  the root of the subtree
+   * @param modelTypeMetadata  the metadata of the model
+   * @param ids  the set to add the ids to
+   */
+  public static void collectIds(Element element, ModelTypeMetadata modelTypeMetadata, Set<String> ids) {
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (attribute.isId() || (attribute.getNamespaceURI() == null && modelTypeMetadata.getIdAttributeNames().contains(attribute.getLocalName()))) {
+        ids.add(attribute.getValue());
+      }
+    }
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        collectIds((Element) child, modelTypeMetadata, ids);
+      }
+    }
+  }
+
+}
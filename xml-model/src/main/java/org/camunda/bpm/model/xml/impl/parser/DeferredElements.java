@@ -0,0 +1,274 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.parser;
+
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.util.ContentHashUtil;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The child elements of the document element which were cut out of a document before it
+ * was parsed. Every deferred element is kept as the unparsed bytes of its subtree, including
+ * the character data in front of it, and is parsed and inserted into the document of the
+ * model instance when it is loaded.
+ *
+ * <p>To parse deferred elements they are wrapped by the original start and end tag of the
+ * document element, so they are parsed in the scope of the same namespace declarations.</p>
+ */
+public class DeferredElements {
+
+  private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+  protected final AbstractModelParser parser;
+  protected final ValidationMode validationMode;
+  protected final String encoding;
+  protected final byte[] documentElementStartTag;
+  protected final byte[] documentElementEndTag;
+  protected final List<DeferredElement> deferredElements;
+  protected DanglingReferenceRemover danglingReferenceRemover;
+
+  public DeferredElements(AbstractModelParser parser, ValidationMode validationMode, String encoding, byte[] documentElementStartTag,
+                          byte[] documentElementEndTag, List<DeferredElement> deferredElements) {
+    this.parser = parser;
+    this.validationMode = validationMode;
+    this.encoding = encoding;
+    this.documentElementStartTag = documentElementStartTag;
+    this.documentElementEndTag = documentElementEndTag;
+    this.deferredElements = deferredElements;
+  }
+
+  /**
+   * Sets the remover of references to elements which were excluded from the document,
+   * which is applied to the deferred elements when they are loaded.
+   *
+   * @param danglingReferenceRemover  the remover of references
+   */
+  public void setDanglingReferenceRemover(DanglingReferenceRemover danglingReferenceRemover) {
+    this.danglingReferenceRemover = danglingReferenceRemover;
+  }
+
+  /**
+   * Attaches the deferred elements to the model instance parsed from the remaining document.
+   *
+   * @param modelInstance  the parsed model instance
+   */
+  public void attach(ModelInstanceImpl modelInstance) {
+    Element root = getDocument(modelInstance).getDocumentElement();
+    List<Element> childElements = new ArrayList<Element>();
+    for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        childElements.add((Element) child);
+      }
+    }
+    for (DeferredElement deferredElement : deferredElements) {
+      if (deferredElement.precedingElementCount > 0) {
+        deferredElement.precedingElement = childElements.get(deferredElement.precedingElementCount - 1);
+      }
+    }
+    modelInstance.setDeferredElements(this);
+  }
+
+  /**
+   * @return true if all deferred elements were loaded
+   */
+  public boolean isLoaded() {
+    for (DeferredElement deferredElement : deferredElements) {
+      if (!deferredElement.isLoaded()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of bytes of the deferred elements which were not loaded yet
+   */
+  public long getUnloadedByteCount() {
+    long byteCount = 0;
+    for (DeferredElement deferredElement : deferredElements) {
+      byte[] bytes = deferredElement.bytes;
+      if (bytes != null) {
+        byteCount += bytes.length;
+      }
+    }
+    return byteCount;
+  }
+
+  /**
+   * Loads the deferred elements which contain elements of the namespace.
+   *
+   * @param modelInstance  the model instance to load the elements into
+   * @param namespaceUri  the namespace of the required elements or null to load all elements
+   */
+  public void load(ModelInstanceImpl modelInstance, String namespaceUri) {
+    List<DeferredElement> elementsToLoad = new ArrayList<DeferredElement>();
+    for (DeferredElement deferredElement : deferredElements) {
+      if (!deferredElement.isLoaded() && (namespaceUri == null || deferredElement.namespaceUris.contains(namespaceUri))) {
+        elementsToLoad.add(deferredElement);
+      }
+    }
+    if (elementsToLoad.isEmpty()) {
+      return;
+    }
+
+    DomDocument parsedElements = parser.parseDocument(new ByteArrayInputStream(wrap(elementsToLoad)), validationMode);
+    Node parsedNode = getDocument(parsedElements).getDocumentElement().getFirstChild();
+
+    Document document = getDocument(modelInstance);
+    Element root = document.getDocumentElement();
+    for (DeferredElement deferredElement : elementsToLoad) {
+      Node nextSibling = getInsertionPoint(root, deferredElement);
+      // import the leading character data and the element
+      while (parsedNode != null) {
+        Node importedNode = document.importNode(parsedNode, true);
+        copyIdAttributes(parsedNode, importedNode);
+        root.insertBefore(importedNode, nextSibling);
+        deferredElement.lastNode = importedNode;
+        boolean isElement = parsedNode.getNodeType() == Node.ELEMENT_NODE;
+        parsedNode = parsedNode.getNextSibling();
+        if (isElement) {
+          if (danglingReferenceRemover != null) {
+            danglingReferenceRemover.removeReferences((Element) importedNode);
+          }
+          break;
+        }
+      }
+      deferredElement.bytes = null;
+    }
+    ContentHashUtil.invalidateContentHash(root);
+
+    if (validationMode == ValidationMode.STRUCTURE) {
+      // references and ids can only be checked in the complete document
+      parser.validateModelStructure(modelInstance.getModel(), modelInstance.getParsedDocument());
+    }
+  }
+
+  protected byte[] wrap(List<DeferredElement> elementsToLoad) {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] declaration = ("<?xml version=\"1.0\" encoding=\"" + (encoding != null ? encoding : "UTF-8") + "\"?>").getBytes(US_ASCII);
+    outputStream.write(declaration, 0, declaration.length);
+    outputStream.write(documentElementStartTag, 0, documentElementStartTag.length);
+    for (DeferredElement deferredElement : elementsToLoad) {
+      outputStream.write(deferredElement.bytes, 0, deferredElement.bytes.length);
+    }
+    outputStream.write(documentElementEndTag, 0, documentElementEndTag.length);
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * Returns the node in front of which a deferred element is inserted. That is behind the
+   * last loaded element which was deferred behind the same preceding element or behind
+   * the preceding element itself. If the preceding element was removed in the meantime,
+   * the element is appended.
+   */
+  protected Node getInsertionPoint(Element root, DeferredElement deferredElement) {
+    int index = deferredElements.indexOf(deferredElement);
+    for (int i = index - 1; i >= 0; i--) {
+      DeferredElement previousElement = deferredElements.get(i);
+      if (previousElement.precedingElement != deferredElement.precedingElement) {
+        break;
+      }
+      if (previousElement.lastNode != null && previousElement.lastNode.getParentNode() == root) {
+        return previousElement.lastNode.getNextSibling();
+      }
+    }
+
+    Element precedingElement = deferredElement.precedingElement;
+    if (precedingElement == null) {
+      return root.getFirstChild();
+    }
+    else if (precedingElement.getParentNode() == root) {
+      return precedingElement.getNextSibling();
+    }
+    else {
+      return null;
+    }
+  }
+
+  /**
+   * Declares the imported attributes as ids which were declared as ids by the validation
+   * of the parsed elements.
+   */
+  protected void copyIdAttributes(Node parsedNode, Node importedNode) {
+    if (parsedNode.getNodeType() != Node.ELEMENT_NODE) {
+      return;
+    }
+    NamedNodeMap attributes = parsedNode.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (attribute.isId()) {
+        Element importedElement = (Element) importedNode;
+        Attr importedAttribute = importedElement.getAttributeNodeNS(attribute.getNamespaceURI(), attribute.getLocalName());
+        if (importedAttribute != null) {
+          importedElement.setIdAttributeNode(importedAttribute, true);
+        }
+      }
+    }
+    Node importedChild = importedNode.getFirstChild();
+    for (Node parsedChild = parsedNode.getFirstChild(); parsedChild != null; parsedChild = parsedChild.getNextSibling()) {
+      copyIdAttributes(parsedChild, importedChild);
+      importedChild = importedChild.getNextSibling();
+    }
+  }
+
+  protected static Document getDocument(ModelInstanceImpl modelInstance) {
+    return getDocument(modelInstance.getParsedDocument());
+  }
+
+  protected static Document getDocument(DomDocument document) {
+    return (Document) document.getDomSource().getNode();
+  }
+
+  /**
+   * A deferred child element of the document element.
+   */
+  public static class DeferredElement {
+
+    protected final Set<String> namespaceUris;
+    protected final int precedingElementCount;
+    protected byte[] bytes;
+    protected Element precedingElement;
+    protected Node lastNode;
+
+    /**
+     * @param bytes  the unparsed element and the character data in front of it
+     * @param namespaceUris  the namespaces of all elements of the subtree
+     * @param precedingElementCount  the number of parsed child elements of the document element in front of it
+     */
+    public DeferredElement(byte[] bytes, Set<String> namespaceUris, int precedingElementCount) {
+      this.bytes = bytes;
+      this.namespaceUris = namespaceUris;
+      this.precedingElementCount = precedingElementCount;
+    }
+
+    public boolean isLoaded() {
+      return bytes == null;
+    }
+
+  }
+
+}
@@ -0,0 +1,409 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.parser;
+
+import org.camunda.bpm.model.xml.Model;
+import org.camunda.bpm.model.xml.ModelParseOptions;
+import org.camunda.bpm.model.xml.impl.parser.DeferredElements.DeferredElement;
+import org.camunda.bpm.model.xml.impl.parser.DocumentScanner.ElementHandler;
+import org.camunda.bpm.model.xml.impl.parser.DocumentScanner.ScannedElement;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drops the excluded elements of the {@link ModelParseOptions} from a document before it is
+ * parsed and cuts out the child elements of the document element which are deferred. The
+ * ids of all dropped elements are collected, so the references to them can be removed
+ * from the parsed document by a {@link DanglingReferenceRemover}.
+ */
+public class DocumentFilter {
+
+  protected final Model model;
+  protected final ModelTypeMetadata modelTypeMetadata;
+  protected final Set<String> deferredNamespaces;
+  protected final Set<String> excludedNamespaces;
+  protected final Map<ModelElementType, Set<String>> includedRootElements;
+  protected final Map<ModelElementType, Set<String>> excludedRootElements;
+  protected final Set<ModelElementType> excludedElementTypes;
+  protected final Map<String, ModelElementType> typesByName = new HashMap<String, ModelElementType>();
+  protected final Set<String> removedIds = new HashSet<String>();
+  protected final boolean hasExclusions;
+
+  protected byte[] remainingDocument;
+  protected String encoding;
+  protected byte[] documentElementStartTag;
+  protected byte[] documentElementEndTag;
+  protected List<DeferredElement> deferredElements;
+  protected int documentElementContentOffset;
+  protected List<Integer> childElementEndOffsets;
+
+  public DocumentFilter(ModelTypeMetadata modelTypeMetadata, ModelParseOptions options) {
+    this.modelTypeMetadata = modelTypeMetadata;
+    this.model = modelTypeMetadata.getModel();
+    this.deferredNamespaces = options.getDeferredNamespaces();
+    this.excludedNamespaces = options.getExcludedNamespaces();
+    this.includedRootElements = getTypes(options.getIncludedRootElements());
+    this.excludedRootElements = getTypes(options.getExcludedRootElements());
+    this.excludedElementTypes = new HashSet<ModelElementType>(getTypes(options.getExcludedElementTypes()));
+    this.hasExclusions = options.hasExclusions();
+  }
+
+  protected Map<ModelElementType, Set<String>> getTypes(Map<Class<? extends ModelElementInstance>, Set<String>> idsByClass) {
+    Map<ModelElementType, Set<String>> idsByType = new LinkedHashMap<ModelElementType, Set<String>>();
+    for (Map.Entry<Class<? extends ModelElementInstance>, Set<String>> entry : idsByClass.entrySet()) {
+      idsByType.put(getType(entry.getKey()), entry.getValue());
+    }
+    return idsByType;
+  }
+
+  protected List<ModelElementType> getTypes(Set<Class<? extends ModelElementInstance>> classes) {
+    List<ModelElementType> types = new ArrayList<ModelElementType>();
+    for (Class<? extends ModelElementInstance> instanceClass : classes) {
+      types.add(getType(instanceClass));
+    }
+    return types;
+  }
+
+  protected ModelElementType getType(Class<? extends ModelElementInstance> instanceClass) {
+    ModelElementType type = model.getType(instanceClass);
+    if (type == null) {
+      throw new IllegalArgumentException("Type " + instanceClass.getName() + " is not part of the model " + model.getModelName());
+    }
+    return type;
+  }
+
+  /**
+   * Returns whether an element is excluded from the document. The document element is never excluded.
+   *
+   * @param depth  the depth of the element, 0 for the document element
+   * @param namespaceUri  the namespace of the element
+   * @param localName  the local name of the element
+   * @param id  the id of the element or null if it has none
+   * @return true if the element and its subtree are excluded
+   */
+  public boolean isExcluded(int depth, String namespaceUri, String localName, String id) {
+    if (depth == 0 || !hasExclusions) {
+      return false;
+    }
+    if (excludedNamespaces.contains(namespaceUri)) {
+      return true;
+    }
+    ModelElementType type = getType(namespaceUri, localName);
+    if (type == null) {
+      return false;
+    }
+    if (isOfType(type, excludedElementTypes)) {
+      return true;
+    }
+    if (depth == 1) {
+      for (Map.Entry<ModelElementType, Set<String>> entry : includedRootElements.entrySet()) {
+        if (ModelTypeMetadata.isTypeOf(type, entry.getKey()) && !entry.getValue().contains(id)) {
+          return true;
+        }
+      }
+      for (Map.Entry<ModelElementType, Set<String>> entry : excludedRootElements.entrySet()) {
+        if (ModelTypeMetadata.isTypeOf(type, entry.getKey()) && (entry.getValue().isEmpty() || entry.getValue().contains(id))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  protected boolean isOfType(ModelElementType type, Set<ModelElementType> baseTypes) {
+    for (ModelElementType baseType : baseTypes) {
+      if (ModelTypeMetadata.isTypeOf(type, baseType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected ModelElementType getType(String namespaceUri, String localName) {
+    String name = "{" + namespaceUri + "}" + localName;
+    if (typesByName.containsKey(name)) {
+      return typesByName.get(name);
+    }
+    ModelElementType type = modelTypeMetadata.getTypeMetadata(namespaceUri, localName).getType();
+    typesByName.put(name, type);
+    return type;
+  }
+
+  /**
+   * Drops the excluded elements from the bytes of a document and cuts out the deferred elements.
+   *
+   * @param document  the bytes of the document
+   * @return false if the document cannot be scanned, so it has to be parsed completely and filtered afterwards
+   */
+  public boolean filter(final byte[] document) {
+    final List<int[]> cuts = new ArrayList<int[]>();
+    final Map<int[], List<int[]>> innerCuts = new HashMap<int[], List<int[]>>();
+    final Map<int[], DeferredElement> deferredElementsByCut = new HashMap<int[], DeferredElement>();
+    final List<ScannedElement> documentElement = new ArrayList<ScannedElement>(1);
+    final List<Integer> keptElementEndOffsets = new ArrayList<Integer>();
+
+    final DocumentScanner scanner = new DocumentScanner(document);
+    if (hasExclusions) {
+      // the ids are only required to select root elements and to collect the ids of excluded elements
+      for (String idAttributeName : modelTypeMetadata.getIdAttributeNames()) {
+        scanner.captureAttribute(idAttributeName);
+      }
+    }
+    boolean scanned = scanner.scan(new ElementHandler() {
+
+      int precedingElementCount = 0;
+      ScannedElement excludedElement;
+      ScannedElement deferredElement;
+      Set<String> containedNamespaceUris;
+      List<int[]> deferredElementCuts;
+
+      public void startElement(ScannedElement element) {
+        if (excludedElement != null) {
+          addId(element);
+        }
+        else if (isExcluded(element.getDepth(), element.getNamespaceUri(), element.getLocalName(), getId(element))) {
+          excludedElement = element;
+          addId(element);
+        }
+        else if (element.getDepth() == 0) {
+          documentElement.add(element);
+        }
+        else if (deferredElement != null) {
+          containedNamespaceUris.add(element.getNamespaceUri());
+        }
+        else if (element.getDepth() == 1) {
+          if (deferredNamespaces.contains(element.getNamespaceUri())) {
+            deferredElement = element;
+            containedNamespaceUris = new HashSet<String>();
+            containedNamespaceUris.add(element.getNamespaceUri());
+            deferredElementCuts = new ArrayList<int[]>();
+          }
+          else {
+            precedingElementCount++;
+          }
+        }
+      }
+
+      public void endElement(ScannedElement element) {
+        if (element == excludedElement) {
+          int[] cut = { element.getLeadingTextOffset(), element.getEndOffset() };
+          if (deferredElement != null) {
+            deferredElementCuts.add(cut);
+          }
+          else {
+            cuts.add(cut);
+          }
+          excludedElement = null;
+        }
+        else if (element == deferredElement) {
+          int[] cut = { element.getLeadingTextOffset(), element.getEndOffset() };
+          cuts.add(cut);
+          innerCuts.put(cut, deferredElementCuts);
+          deferredElementsByCut.put(cut, new DeferredElement(null, containedNamespaceUris, precedingElementCount));
+          deferredElement = null;
+        }
+        else if (element.getDepth() == 1) {
+          keptElementEndOffsets.add(element.getEndOffset());
+        }
+      }
+
+      protected String getId(ScannedElement element) {
+        for (String idAttributeName : modelTypeMetadata.getIdAttributeNames()) {
+          String id = element.getAttributeValue(idAttributeName);
+          if (id != null) {
+            return id;
+          }
+        }
+        return null;
+      }
+
+      protected void addId(ScannedElement element) {
+        String id = getId(element);
+        if (id != null) {
+          removedIds.add(id);
+        }
+      }
+
+    });
+
+    if (!scanned) {
+      removedIds.clear();
+      return false;
+    }
+
+    deferredElements = new ArrayList<DeferredElement>();
+    ByteArrayOutputStream remainingBytes = new ByteArrayOutputStream(document.length);
+    int offset = 0;
+    for (int[] cut : cuts) {
+      remainingBytes.write(document, offset, cut[0] - offset);
+      offset = cut[1];
+      DeferredElement deferredElement = deferredElementsByCut.get(cut);
+      if (deferredElement != null) {
+        deferredElement.bytes = copyOfRange(document, cut[0], cut[1], innerCuts.get(cut));
+        deferredElements.add(deferredElement);
+      }
+    }
+    remainingBytes.write(document, offset, document.length - offset);
+    remainingDocument = remainingBytes.toByteArray();
+
+    // the offsets of the kept child elements of the document element in the remaining document
+    childElementEndOffsets = new ArrayList<Integer>(keptElementEndOffsets.size());
+    int removedLength = 0;
+    int cutIndex = 0;
+    for (int endOffset : keptElementEndOffsets) {
+      while (cutIndex < cuts.size() && cuts.get(cutIndex)[1] <= endOffset) {
+        removedLength += cuts.get(cutIndex)[1] - cuts.get(cutIndex)[0];
+        cutIndex++;
+      }
+      childElementEndOffsets.add(endOffset - removedLength);
+    }
+
+    ScannedElement root = documentElement.get(0);
+    documentElementContentOffset = root.getStartTagEndOffset();
+    encoding = scanner.getEncoding();
+    documentElementStartTag = Arrays.copyOfRange(document, root.getStartOffset(), root.getStartTagEndOffset());
+    documentElementEndTag = ("</" + root.getPrefixedName() + ">").getBytes(Charset.forName(encoding != null ? encoding : "UTF-8"));
+    return true;
+  }
+
+  protected byte[] copyOfRange(byte[] document, int start, int end, List<int[]> cuts) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(end - start);
+    int offset = start;
+    for (int[] cut : cuts) {
+      bytes.write(document, offset, cut[0] - offset);
+      offset = cut[1];
+    }
+    bytes.write(document, offset, end - offset);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Removes the excluded elements from a parsed document, which is used if the bytes of the
+   * document cannot be filtered. Deferred elements are not cut out.
+   *
+   * @param element  the document element
+   */
+  public void filter(Element element) {
+    filter(element, 0);
+  }
+
+  protected void filter(Element element, int depth) {
+    Node child = element.getFirstChild();
+    while (child != null) {
+      Node nextSibling = child.getNextSibling();
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        Element childElement = (Element) child;
+        String id = getId(childElement);
+        if (isExcluded(depth + 1, childElement.getNamespaceURI(), childElement.getLocalName(), id)) {
+          DanglingReferenceRemover.collectIds(childElement, modelTypeMetadata, removedIds);
+          Node previousSibling = childElement.getPreviousSibling();
+          if (previousSibling != null && previousSibling.getNodeType() == Node.TEXT_NODE && previousSibling.getNodeValue().trim().isEmpty()) {
+            element.removeChild(previousSibling);
+          }
+          element.removeChild(childElement);
+        }
+        else {
+          filter(childElement, depth + 1);
+        }
+      }
+      child = nextSibling;
+    }
+  }
+
+  protected String getId(Element element) {
+    for (String idAttributeName : modelTypeMetadata.getIdAttributeNames()) {
+      if (element.hasAttributeNS(null, idAttributeName)) {
+        return element.getAttributeNS(null, idAttributeName);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the ids of all dropped elements
+   */
+  public Set<String> getRemovedIds() {
+    return removedIds;
+  }
+
+  /**
+   * @return the bytes of the document without the excluded and deferred elements
+   */
+  public byte[] getRemainingDocument() {
+    return remainingDocument;
+  }
+
+  /**
+   * @return the offset behind the start tag of the document element in the remaining document
+   */
+  public int getDocumentElementContentOffset() {
+    return documentElementContentOffset;
+  }
+
+  /**
+   * @return the offsets behind the end tags of the child elements of the document element in the remaining document
+   */
+  public List<Integer> getChildElementEndOffsets() {
+    return childElementEndOffsets;
+  }
+
+  /**
+   * Wraps a part of the content of the document element by the start and end tag of the
+   * document element, so it can be parsed in the scope of the same namespace declarations.
+   *
+   * @param content  the bytes of the content
+   * @param start  the offset of the part of the content
+   * @param end  the end offset of the part of the content
+   * @return the bytes of a document which contains the part of the content
+   */
+  public byte[] wrapContent(byte[] content, int start, int end) {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream(end - start + documentElementStartTag.length + 64);
+    byte[] declaration = ("<?xml version=\"1.0\" encoding=\"" + (encoding != null ? encoding : "UTF-8") + "\"?>").getBytes(Charset.forName("US-ASCII"));
+    outputStream.write(declaration, 0, declaration.length);
+    outputStream.write(documentElementStartTag, 0, documentElementStartTag.length);
+    outputStream.write(content, start, end - start);
+    outputStream.write(documentElementEndTag, 0, documentElementEndTag.length);
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * Returns the deferred elements which were cut out of the document.
+   *
+   * @param parser  the parser of the deferred elements
+   * @param validationMode  the way the deferred elements are validated
+   * @return the deferred elements or null if no element was deferred
+   */
+  public DeferredElements getDeferredElements(AbstractModelParser parser, ValidationMode validationMode) {
+    if (deferredElements == null || deferredElements.isEmpty()) {
+      return null;
+    }
+    return new DeferredElements(parser, validationMode, encoding, documentElementStartTag, documentElementEndTag, deferredElements);
+  }
+
+}
@@ -0,0 +1,588 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.parser;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static javax.xml.XMLConstants.XML_NS_PREFIX;
+import static javax.xml.XMLConstants.XML_NS_URI;
+
+/**
+ * A minimal scanner for the markup of XML documents in an ASCII compatible encoding. It
+ * reports the byte offsets and the namespace qualified names of all elements without
+ * decoding the character data or building a tree, so a document can be split into byte
+ * ranges before it is parsed.
+ *
+ * <p>The scanner does not check the well-formedness of the document except for the
+ * nesting of its elements. If it encounters anything it cannot handle, like a document
+ * type declaration which could declare entities containing markup or an end tag which
+ * does not match the open element, the scan is aborted and the document has to be
+ * parsed as a whole, so the parser reports the error.</p>
+ */
+public class DocumentScanner {
+
+  private static final String XMLNS = "xmlns";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * Receives the elements of a scanned document.
+   */
+  public interface ElementHandler {
+
+    /**
+     * Called after the start tag of an element was scanned.
+     *
+     * @param element  the element
+     */
+    void startElement(ScannedElement element);
+
+    /**
+     * Called after the end tag of an element was scanned, directly after
+     * {@link #startElement(ScannedElement)} for empty elements.
+     *
+     * @param element  the element
+     */
+    void endElement(ScannedElement element);
+
+  }
+
+  /**
+   * An element of a scanned document. All offsets are byte offsets in the document.
+   */
+  public static class ScannedElement {
+
+    protected final ScannedElement parentElement;
+    protected final int depth;
+    protected final int leadingTextOffset;
+    protected final int startOffset;
+    protected final String prefixedName;
+    protected Map<String, String> namespaceDeclarations;
+    protected Map<String, String> attributes;
+    protected String namespaceUri;
+    protected String localName;
+    protected int startTagEndOffset;
+    protected int endOffset;
+
+    public ScannedElement(ScannedElement parentElement, int leadingTextOffset, int startOffset, String prefixedName) {
+      this.parentElement = parentElement;
+      this.depth = parentElement != null ? parentElement.depth + 1 : 0;
+      this.leadingTextOffset = leadingTextOffset;
+      this.startOffset = startOffset;
+      this.prefixedName = prefixedName;
+    }
+
+    public ScannedElement getParentElement() {
+      return parentElement;
+    }
+
+    /**
+     * @return the depth of the element, 0 for the document element
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    /**
+     * @return the offset of the character data between the preceding markup and the start tag
+     */
+    public int getLeadingTextOffset() {
+      return leadingTextOffset;
+    }
+
+    /**
+     * @return the offset of the start tag
+     */
+    public int getStartOffset() {
+      return startOffset;
+    }
+
+    /**
+     * @return the offset behind the start tag
+     */
+    public int getStartTagEndOffset() {
+      return startTagEndOffset;
+    }
+
+    /**
+     * @return the offset behind the end tag, which is the end of the start tag for empty elements
+     */
+    public int getEndOffset() {
+      return endOffset;
+    }
+
+    public String getPrefixedName() {
+      return prefixedName;
+    }
+
+    public String getNamespaceUri() {
+      return namespaceUri;
+    }
+
+    public String getLocalName() {
+      return localName;
+    }
+
+    /**
+     * Returns the value of an unqualified attribute whose name is captured by the scanner.
+     *
+     * @param name  the name of the attribute
+     * @return the value or null if the attribute is not captured or the element has no such attribute
+     * @see DocumentScanner#captureAttribute(String)
+     */
+    public String getAttributeValue(String name) {
+      return attributes != null ? attributes.get(name) : null;
+    }
+
+    protected void setAttributeValue(String name, String value) {
+      if (attributes == null) {
+        attributes = new HashMap<String, String>(4);
+      }
+      attributes.put(name, value);
+    }
+
+    protected void declareNamespace(String prefix, String namespaceUri) {
+      if (namespaceDeclarations == null) {
+        namespaceDeclarations = new HashMap<String, String>();
+      }
+      namespaceDeclarations.put(prefix, namespaceUri);
+    }
+
+    /**
+     * Resolves the namespace of a prefix in the scope of this element.
+     *
+     * @param prefix  the prefix, the empty string for the default namespace
+     * @return the namespace URI or null if the prefix is not bound
+     */
+    public String lookupNamespaceUri(String prefix) {
+      if (XML_NS_PREFIX.equals(prefix)) {
+        return XML_NS_URI;
+      }
+      for (ScannedElement element = this; element != null; element = element.parentElement) {
+        if (element.namespaceDeclarations != null && element.namespaceDeclarations.containsKey(prefix)) {
+          String namespaceUri = element.namespaceDeclarations.get(prefix);
+          // an empty default namespace declaration undeclares the default namespace
+          return namespaceUri.length() > 0 ? namespaceUri : null;
+        }
+      }
+      return null;
+    }
+
+  }
+
+  protected final byte[] bytes;
+  protected final List<String> capturedAttributeNames = new ArrayList<String>();
+  protected Charset charset;
+  protected String encoding;
+
+  public DocumentScanner(byte[] bytes) {
+    this.bytes = bytes;
+  }
+
+  /**
+   * Captures the values of the unqualified attributes with the name. The values of other
+   * attributes are not decoded.
+   *
+   * @param name  the name of the attributes
+   */
+  public void captureAttribute(String name) {
+    capturedAttributeNames.add(name);
+  }
+
+  /**
+   * @return the encoding declared by the XML declaration or null if none is declared
+   */
+  public String getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * Scans the document and reports its elements to the handler.
+   *
+   * @param handler  the handler of the elements
+   * @return true if the document was scanned completely, false if the scan was aborted
+   */
+  public boolean scan(ElementHandler handler) {
+    int position = startOfContent();
+    if (position < 0) {
+      return false;
+    }
+
+    ScannedElement currentElement = null;
+    boolean documentElementScanned = false;
+    int markupEnd = position;
+
+    while (true) {
+      int tagStart = indexOf('<', position);
+      if (tagStart < 0) {
+        break;
+      }
+      if (tagStart + 1 >= bytes.length) {
+        return false;
+      }
+
+      byte next = bytes[tagStart + 1];
+      if (next == '?') {
+        position = indexOf("?>", tagStart + 2, 2);
+      }
+      else if (next == '!') {
+        if (startsWith("<!--", tagStart)) {
+          position = indexOf("-->", tagStart + 4, 3);
+        }
+        else if (startsWith("<![CDATA[", tagStart)) {
+          position = indexOf("]]>", tagStart + 9, 3);
+        }
+        else {
+          // document type declarations are not supported
+          return false;
+        }
+      }
+      else if (next == '/') {
+        if (currentElement == null) {
+          return false;
+        }
+        position = scanEndTag(currentElement, tagStart);
+        if (position < 0) {
+          return false;
+        }
+        currentElement.endOffset = position;
+        handler.endElement(currentElement);
+        currentElement = currentElement.parentElement;
+      }
+      else {
+        if (currentElement == null && documentElementScanned) {
+          return false;
+        }
+        ScannedElement element = scanStartTag(currentElement, markupEnd, tagStart);
+        if (element == null) {
+          return false;
+        }
+        position = element.startTagEndOffset;
+        documentElementScanned = true;
+        handler.startElement(element);
+        if (bytes[position - 2] == '/') {
+          element.endOffset = position;
+          handler.endElement(element);
+        }
+        else {
+          currentElement = element;
+        }
+      }
+
+      if (position < 0) {
+        return false;
+      }
+      markupEnd = position;
+    }
+
+    return documentElementScanned && currentElement == null;
+  }
+
+  /**
+   * Reads the byte order mark and the XML declaration.
+   *
+   * @return the offset of the content or -1 if the encoding is not supported
+   */
+  protected int startOfContent() {
+    int position = 0;
+    if (bytes.length >= 3 && (bytes[0] & 0xff) == 0xef && (bytes[1] & 0xff) == 0xbb && (bytes[2] & 0xff) == 0xbf) {
+      position = 3;
+    }
+    else if (bytes.length >= 2 && (bytes[0] == 0 || bytes[1] == 0 || (bytes[0] & 0xff) >= 0xfe)) {
+      // UTF-16 or UTF-32
+      return -1;
+    }
+
+    if (startsWith("<?xml", position)) {
+      int declarationEnd = indexOf("?>", position, 0);
+      if (declarationEnd < 0) {
+        return -1;
+      }
+      String declaration = new String(bytes, position, declarationEnd - position, UTF_8);
+      int encodingIndex = declaration.indexOf("encoding");
+      if (encodingIndex >= 0) {
+        int quoteIndex = encodingIndex + 8;
+        while (quoteIndex < declaration.length() && declaration.charAt(quoteIndex) != '"' && declaration.charAt(quoteIndex) != '\'') {
+          quoteIndex++;
+        }
+        int valueEnd = quoteIndex < declaration.length() ? declaration.indexOf(declaration.charAt(quoteIndex), quoteIndex + 1) : -1;
+        if (valueEnd < 0) {
+          return -1;
+        }
+        encoding = declaration.substring(quoteIndex + 1, valueEnd);
+      }
+    }
+
+    charset = getAsciiCompatibleCharset(encoding);
+    return charset != null ? position : -1;
+  }
+
+  protected Charset getAsciiCompatibleCharset(String encoding) {
+    if (encoding == null) {
+      return UTF_8;
+    }
+    try {
+      Charset charset = Charset.forName(encoding);
+      String name = charset.name();
+      if (name.equals("UTF-8") || name.equals("US-ASCII") || name.startsWith("ISO-8859-") || name.startsWith("windows-125")) {
+        return charset;
+      }
+      else {
+        return null;
+      }
+    }
+    catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  protected ScannedElement scanStartTag(ScannedElement parentElement, int leadingTextOffset, int tagStart) {
+    int position = tagStart + 1;
+    while (position < bytes.length && !isWhitespace(bytes[position]) && bytes[position] != '/' && bytes[position] != '>') {
+      position++;
+    }
+    if (position == tagStart + 1) {
+      return null;
+    }
+    ScannedElement element = new ScannedElement(parentElement, leadingTextOffset, tagStart, decode(tagStart + 1, position));
+
+    while (true) {
+      position = skipWhitespace(position);
+      if (position >= bytes.length) {
+        return null;
+      }
+      byte current = bytes[position];
+      if (current == '>') {
+        position++;
+        break;
+      }
+      else if (current == '/') {
+        if (position + 1 < bytes.length && bytes[position + 1] == '>') {
+          position += 2;
+          break;
+        }
+        return null;
+      }
+
+      int nameStart = position;
+      while (position < bytes.length && bytes[position] != '=' && bytes[position] != '>' && !isWhitespace(bytes[position])) {
+        position++;
+      }
+      int nameEnd = position;
+      position = skipWhitespace(position);
+      if (position >= bytes.length || bytes[position] != '=') {
+        return null;
+      }
+      position = skipWhitespace(position + 1);
+      if (position >= bytes.length || (bytes[position] != '"' && bytes[position] != '\'')) {
+        return null;
+      }
+      int valueStart = position + 1;
+      int valueEnd = indexOf(bytes[position], valueStart);
+      if (valueEnd < 0) {
+        return null;
+      }
+      position = valueEnd + 1;
+
+      if (startsWith(XMLNS, nameStart)) {
+        boolean defaultNamespace = nameEnd == nameStart + XMLNS.length();
+        if (defaultNamespace || bytes[nameStart + XMLNS.length()] == ':') {
+          String namespaceUri = decodeAttributeValue(valueStart, valueEnd);
+          if (namespaceUri == null) {
+            return null;
+          }
+          element.declareNamespace(defaultNamespace ? "" : decode(nameStart + XMLNS.length() + 1, nameEnd), namespaceUri);
+        }
+      }
+      else {
+        for (String capturedAttributeName : capturedAttributeNames) {
+          if (nameEnd - nameStart == capturedAttributeName.length() && startsWith(capturedAttributeName, nameStart)) {
+            String value = decodeAttributeValue(valueStart, valueEnd);
+            if (value == null) {
+              return null;
+            }
+            element.setAttributeValue(capturedAttributeName, value);
+          }
+        }
+      }
+    }
+    element.startTagEndOffset = position;
+
+    String prefixedName = element.prefixedName;
+    int colonIndex = prefixedName.indexOf(':');
+    String prefix = colonIndex >= 0 ? prefixedName.substring(0, colonIndex) : "";
+    element.localName = colonIndex >= 0 ? prefixedName.substring(colonIndex + 1) : prefixedName;
+    element.namespaceUri = element.lookupNamespaceUri(prefix);
+    if (element.namespaceUri == null && colonIndex >= 0) {
+      // unbound prefix
+      return null;
+    }
+    return element;
+  }
+
+  /**
+   * Scans the end tag of an element.
+   *
+   * @return the offset behind the end tag or -1 if it is not the end tag of the element
+   */
+  protected int scanEndTag(ScannedElement element, int tagStart) {
+    int nameStart = tagStart + 2;
+    int position = nameStart;
+    while (position < bytes.length && !isWhitespace(bytes[position]) && bytes[position] != '>') {
+      position++;
+    }
+    if (!element.prefixedName.equals(decode(nameStart, position))) {
+      return -1;
+    }
+    position = skipWhitespace(position);
+    if (position >= bytes.length || bytes[position] != '>') {
+      return -1;
+    }
+    return position + 1;
+  }
+
+  protected String decode(int start, int end) {
+    return new String(bytes, start, end - start, charset);
+  }
+
+  /**
+   * @return the decoded value or null if it contains a malformed reference
+   */
+  protected String decodeAttributeValue(int start, int end) {
+    String value = decode(start, end);
+    if (value.indexOf('&') < 0) {
+      return value;
+    }
+    StringBuilder builder = new StringBuilder(value.length());
+    int index = 0;
+    while (index < value.length()) {
+      char c = value.charAt(index);
+      if (c != '&') {
+        builder.append(c);
+        index++;
+        continue;
+      }
+      int referenceEnd = value.indexOf(';', index);
+      if (referenceEnd < 0) {
+        return null;
+      }
+      String reference = value.substring(index + 1, referenceEnd);
+      if (reference.equals("lt")) {
+        builder.append('<');
+      }
+      else if (reference.equals("gt")) {
+        builder.append('>');
+      }
+      else if (reference.equals("amp")) {
+        builder.append('&');
+      }
+      else if (reference.equals("quot")) {
+        builder.append('"');
+      }
+      else if (reference.equals("apos")) {
+        builder.append('\'');
+      }
+      else if (reference.startsWith("#")) {
+        int codePoint = parseCharacterReference(reference);
+        if (codePoint < 0) {
+          return null;
+        }
+        builder.appendCodePoint(codePoint);
+      }
+      else {
+        // entities cannot be declared without a document type declaration
+        return null;
+      }
+      index = referenceEnd + 1;
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @return the code point of a character reference without its delimiters or -1 if it is malformed
+   */
+  protected static int parseCharacterReference(String reference) {
+    boolean hexadecimal = reference.startsWith("#x");
+    String digits = reference.substring(hexadecimal ? 2 : 1);
+    if (digits.length() == 0 || digits.length() > 8) {
+      return -1;
+    }
+    int codePoint = 0;
+    for (int i = 0; i < digits.length(); i++) {
+      char c = digits.charAt(i);
+      int digit = c < 0x80 ? Character.digit(c, hexadecimal ? 16 : 10) : -1;
+      if (digit < 0) {
+        return -1;
+      }
+      codePoint = codePoint * (hexadecimal ? 16 : 10) + digit;
+    }
+    return isXmlCharacter(codePoint) ? codePoint : -1;
+  }
+
+  protected static boolean isXmlCharacter(int codePoint) {
+    return codePoint == 0x9 || codePoint == 0xa || codePoint == 0xd
+      || (codePoint >= 0x20 && codePoint <= 0xd7ff)
+      || (codePoint >= 0xe000 && codePoint <= 0xfffd)
+      || (codePoint >= 0x10000 && codePoint <= 0x10ffff);
+  }
+
+  protected int skipWhitespace(int position) {
+    while (position < bytes.length && isWhitespace(bytes[position])) {
+      position++;
+    }
+    return position;
+  }
+
+  protected static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+  }
+
+  protected int indexOf(int b, int fromIndex) {
+    for (int i = fromIndex; i < bytes.length; i++) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the offset of the string plus the skip or -1 if the string was not found
+   */
+  protected int indexOf(String string, int fromIndex, int skip) {
+    byte first = (byte) string.charAt(0);
+    for (int i = indexOf(first, fromIndex); i >= 0; i = indexOf(first, i + 1)) {
+      if (startsWith(string, i)) {
+        return i + skip;
+      }
+    }
+    return -1;
+  }
+
+  protected boolean startsWith(String string, int offset) {
+    if (offset + string.length() > bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < string.length(); i++) {
+      if (bytes[offset + i] != string.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
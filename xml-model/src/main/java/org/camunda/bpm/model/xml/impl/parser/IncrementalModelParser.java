@@ -0,0 +1,276 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.parser;
+
+import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.ModelParseException;
+import org.camunda.bpm.model.xml.ModelValidationException;
+import org.camunda.bpm.model.xml.event.ModelElementListener;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.instance.DomElementImpl;
+import org.camunda.bpm.model.xml.impl.util.DomUtil;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.camunda.bpm.model.xml.validation.ValidationMode;
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.TypeInfoProvider;
+import javax.xml.validation.ValidatorHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a document from a SAX event stream and builds the DOM document of the model
+ * instance while the stream is read. Every child element of the document element is
+ * passed to a {@link ModelElementListener} as soon as its end tag is read.
+ *
+ * <p>If the document is validated against the schema, it is validated on the event stream,
+ * so a schema error stops the parsing at the invalid element. The structure of the model is
+ * validated when the whole document was read, before the listener is notified about the
+ * complete model instance.</p>
+ */
+public class IncrementalModelParser {
+
+  private static final String LEXICAL_HANDLER_PROPERTY = "http://xml.org/sax/properties/lexical-handler";
+
+  private static final SAXParserFactory SAX_PARSER_FACTORY = SAXParserFactory.newInstance();
+
+  static {
+    SAX_PARSER_FACTORY.setNamespaceAware(true);
+  }
+
+  protected final AbstractModelParser parser;
+  protected final ValidationMode validationMode;
+  protected final ModelTypeMetadata modelTypeMetadata;
+
+  public IncrementalModelParser(AbstractModelParser parser, ValidationMode validationMode, ModelTypeMetadata modelTypeMetadata) {
+    this.parser = parser;
+    this.validationMode = validationMode;
+    this.modelTypeMetadata = modelTypeMetadata;
+  }
+
+  /**
+   * Parses a document. The stream is not closed.
+   *
+   * @param inputStream  the stream of the document
+   * @param listener  the listener which is notified about the parsed elements
+   * @return the parsed model instance
+   */
+  public ModelInstance parse(InputStream inputStream, ModelElementListener listener) {
+    DomDocument document = DomUtil.getEmptyDocument(parser.getStructureDocumentBuilderFactory());
+    DocumentBuildingHandler handler = new DocumentBuildingHandler(document, listener);
+    try {
+      XMLReader reader = createXmlReader();
+      reader.setErrorHandler(handler);
+      reader.setProperty(LEXICAL_HANDLER_PROPERTY, handler);
+      Schema schema = parser.getSchema();
+      if (validationMode == ValidationMode.SCHEMA && schema != null) {
+        ValidatorHandler validatorHandler = schema.newValidatorHandler();
+        validatorHandler.setErrorHandler(new SchemaErrorHandler());
+        handler.typeInfoProvider = validatorHandler.getTypeInfoProvider();
+        validatorHandler.setContentHandler(handler);
+        reader.setContentHandler(validatorHandler);
+      }
+      else {
+        reader.setContentHandler(handler);
+      }
+      reader.parse(new InputSource(inputStream));
+    }
+    catch (SAXException e) {
+      throw new ModelParseException("SAXException while parsing input stream", e);
+    }
+    catch (IOException e) {
+      throw new ModelParseException("IOException while parsing input stream", e);
+    }
+
+    ModelInstanceImpl modelInstance = handler.modelInstance;
+    if (modelInstance == null) {
+      throw new ModelParseException("The document has no document element");
+    }
+    if (validationMode == ValidationMode.STRUCTURE) {
+      parser.validateModelStructure(modelInstance.getModel(), document);
+    }
+    listener.modelParsed(modelInstance);
+    return modelInstance;
+  }
+
+  protected XMLReader createXmlReader() throws SAXException {
+    try {
+      synchronized (SAX_PARSER_FACTORY) {
+        return SAX_PARSER_FACTORY.newSAXParser().getXMLReader();
+      }
+    }
+    catch (ParserConfigurationException e) {
+      throw new ModelParseException("Unable to create SAX parser", e);
+    }
+  }
+
+  protected static class SchemaErrorHandler extends DefaultHandler {
+
+    public void error(SAXParseException e) {
+      throw new ModelValidationException("DOM document is not valid", e);
+    }
+
+    public void fatalError(SAXParseException e) {
+      throw new ModelValidationException("DOM document is not valid", e);
+    }
+
+  }
+
+  /**
+   * Appends the nodes of the SAX events to the DOM document.
+   */
+  protected class DocumentBuildingHandler extends DefaultHandler implements LexicalHandler {
+
+    protected final DomDocument domDocument;
+    protected final Document document;
+    protected final ModelElementListener listener;
+    protected final List<String[]> prefixMappings = new ArrayList<String[]>();
+    protected TypeInfoProvider typeInfoProvider;
+    protected ModelInstanceImpl modelInstance;
+    protected ModelElementInstance documentElement;
+    protected Node currentNode;
+    protected boolean inCdataSection;
+
+    public DocumentBuildingHandler(DomDocument domDocument, ModelElementListener listener) {
+      this.domDocument = domDocument;
+      this.document = (Document) domDocument.getDomSource().getNode();
+      this.listener = listener;
+      this.currentNode = document;
+    }
+
+    public void startPrefixMapping(String prefix, String uri) {
+      prefixMappings.add(new String[] { prefix, uri });
+    }
+
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      Element element = document.createElementNS(uri.length() > 0 ? uri : null, qName);
+      for (String[] prefixMapping : prefixMappings) {
+        String prefix = prefixMapping[0];
+        element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix.length() > 0 ? "xmlns:" + prefix : "xmlns", prefixMapping[1]);
+      }
+      prefixMappings.clear();
+
+      for (int i = 0; i < attributes.getLength(); i++) {
+        String attributeUri = attributes.getURI(i);
+        element.setAttributeNS(attributeUri.length() > 0 ? attributeUri : null, attributes.getQName(i), attributes.getValue(i));
+        if (typeInfoProvider != null && typeInfoProvider.isIdAttribute(i)) {
+          element.setIdAttributeNS(attributeUri.length() > 0 ? attributeUri : null, attributes.getLocalName(i), true);
+        }
+      }
+      if (typeInfoProvider == null) {
+        // declare the ids of the model, so the parsed elements can be looked up by id
+        for (Attribute<?> idAttribute : modelTypeMetadata.getTypeMetadata(uri, localName).getIdAttributes()) {
+          Attr attribute = ModelTypeMetadata.getAttributeNode(element, idAttribute);
+          if (attribute != null) {
+            element.setIdAttributeNode(attribute, true);
+          }
+        }
+      }
+
+      currentNode.appendChild(element);
+      currentNode = element;
+      if (element.getParentNode() == document) {
+        modelInstance = (ModelInstanceImpl) parser.createModelInstance(domDocument);
+        documentElement = modelInstance.getDocumentElement();
+      }
+    }
+
+    public void endElement(String uri, String localName, String qName) {
+      Element element = (Element) currentNode;
+      currentNode = element.getParentNode();
+      if (documentElement != null && currentNode == document.getDocumentElement()) {
+        ModelElementInstance modelElement = ModelUtil.getModelElement(new DomElementImpl(element), modelInstance);
+        modelInstance.elementAdded(documentElement, modelElement);
+        listener.elementParsed(modelElement);
+      }
+    }
+
+    public void characters(char[] ch, int start, int length) {
+      if (currentNode == document) {
+        return;
+      }
+      Node lastChild = currentNode.getLastChild();
+      if (inCdataSection) {
+        ((CDATASection) lastChild).appendData(new String(ch, start, length));
+      }
+      else if (lastChild != null && lastChild.getNodeType() == Node.TEXT_NODE) {
+        ((Text) lastChild).appendData(new String(ch, start, length));
+      }
+      else {
+        currentNode.appendChild(document.createTextNode(new String(ch, start, length)));
+      }
+    }
+
+    public void ignorableWhitespace(char[] ch, int start, int length) {
+      characters(ch, start, length);
+    }
+
+    public void processingInstruction(String target, String data) {
+      currentNode.appendChild(document.createProcessingInstruction(target, data));
+    }
+
+    public void comment(char[] ch, int start, int length) {
+      currentNode.appendChild(document.createComment(new String(ch, start, length)));
+    }
+
+    public void startCDATA() {
+      currentNode.appendChild(document.createCDATASection(""));
+      inCdataSection = true;
+    }
+
+    public void endCDATA() {
+      inCdataSection = false;
+    }
+
+    public void startDTD(String name, String publicId, String systemId) {
+    }
+
+    public void endDTD() {
+    }
+
+    public void startEntity(String name) {
+    }
+
+    public void endEntity(String name) {
+    }
+
+    public void fatalError(SAXParseException e) throws SAXException {
+      throw e;
+    }
+
+  }
+
+}
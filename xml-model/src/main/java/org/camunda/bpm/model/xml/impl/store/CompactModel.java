@@ -0,0 +1,223 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.store;
+
+import org.camunda.bpm.model.xml.ModelException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A document encoded by the {@link CompactModelEncoder} into a read-only buffer, which
+ * is usually allocated outside of the heap. The buffer contains a table of the distinct
+ * strings of the document, one record per node and an index of the element ids sorted
+ * by id. Records and strings are referenced by their offset and index and are decoded
+ * only when they are accessed.
+ *
+ * <p>The buffer is only read by absolute positions, so a compact model can be read by
+ * concurrent threads.</p>
+ */
+public class CompactModel {
+
+  public static final int FORMAT_VERSION = 1;
+
+  public static final byte DOCUMENT = 1;
+  public static final byte ELEMENT = 2;
+  public static final byte TEXT = 3;
+  public static final byte CDATA = 4;
+  public static final byte COMMENT = 5;
+  public static final byte PROCESSING_INSTRUCTION = 6;
+
+  /** the string index of an absent namespace or prefix */
+  public static final int NO_STRING = -1;
+
+  protected static final int VERSION_POSITION = 0;
+  protected static final int DOCUMENT_POSITION = 4;
+  protected static final int STRING_TABLE_POSITION = 8;
+  protected static final int STRING_COUNT_POSITION = 12;
+  protected static final int ID_INDEX_POSITION = 16;
+  protected static final int ID_COUNT_POSITION = 20;
+  protected static final int HEADER_SIZE = 24;
+
+  /** the size of an element record without its attributes and child offsets */
+  protected static final int ELEMENT_SIZE = 25;
+  protected static final int ATTRIBUTE_SIZE = 16;
+
+  protected static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  protected final ByteBuffer buffer;
+
+  public CompactModel(ByteBuffer buffer) {
+    if (buffer.getInt(VERSION_POSITION) != FORMAT_VERSION) {
+      throw new ModelException("Unsupported version " + buffer.getInt(VERSION_POSITION) + " of the compact model");
+    }
+    this.buffer = buffer;
+  }
+
+  /**
+   * @return the number of bytes of the encoded document
+   */
+  public int getSize() {
+    return buffer.capacity();
+  }
+
+  public int getDocumentOffset() {
+    return buffer.getInt(DOCUMENT_POSITION);
+  }
+
+  /**
+   * @return the offset of the document element record
+   */
+  public int getDocumentElementOffset() {
+    int documentOffset = getDocumentOffset();
+    int childCount = getChildCount(documentOffset);
+    for (int i = 0; i < childCount; i++) {
+      int childOffset = getChildOffset(documentOffset, i);
+      if (getKind(childOffset) == ELEMENT) {
+        return childOffset;
+      }
+    }
+    throw new ModelException("The compact model has no document element");
+  }
+
+  public byte getKind(int offset) {
+    return buffer.get(offset);
+  }
+
+  public int getStringCount() {
+    return buffer.getInt(STRING_COUNT_POSITION);
+  }
+
+  /**
+   * Decodes a string of the string table.
+   *
+   * @param index  the index of the string or {@link #NO_STRING}
+   * @return the decoded string or null
+   */
+  public String getString(int index) {
+    if (index == NO_STRING) {
+      return null;
+    }
+    int position = buffer.getInt(buffer.getInt(STRING_TABLE_POSITION) + index * 4);
+    byte[] bytes = new byte[buffer.getInt(position)];
+    ByteBuffer source = buffer.duplicate();
+    source.position(position + 4);
+    source.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  // element records: kind, parent offset, namespace, prefix, local name, attributes, children
+
+  public int getParentOffset(int elementOffset) {
+    return buffer.getInt(elementOffset + 1);
+  }
+
+  public int getNamespaceUri(int elementOffset) {
+    return buffer.getInt(elementOffset + 5);
+  }
+
+  public int getPrefix(int elementOffset) {
+    return buffer.getInt(elementOffset + 9);
+  }
+
+  public int getLocalName(int elementOffset) {
+    return buffer.getInt(elementOffset + 13);
+  }
+
+  public int getAttributeCount(int elementOffset) {
+    return buffer.getInt(elementOffset + 17);
+  }
+
+  public int getAttributeNamespaceUri(int elementOffset, int attributeIndex) {
+    return buffer.getInt(getAttributePosition(elementOffset, attributeIndex));
+  }
+
+  public int getAttributePrefix(int elementOffset, int attributeIndex) {
+    return buffer.getInt(getAttributePosition(elementOffset, attributeIndex) + 4);
+  }
+
+  public int getAttributeLocalName(int elementOffset, int attributeIndex) {
+    return buffer.getInt(getAttributePosition(elementOffset, attributeIndex) + 8);
+  }
+
+  public int getAttributeValue(int elementOffset, int attributeIndex) {
+    return buffer.getInt(getAttributePosition(elementOffset, attributeIndex) + 12);
+  }
+
+  protected int getAttributePosition(int elementOffset, int attributeIndex) {
+    return elementOffset + ELEMENT_SIZE - 4 + attributeIndex * ATTRIBUTE_SIZE;
+  }
+
+  /**
+   * @param offset  the offset of an element or document record
+   * @return the number of child nodes
+   */
+  public int getChildCount(int offset) {
+    return buffer.getInt(getChildCountPosition(offset));
+  }
+
+  /**
+   * @param offset  the offset of an element or document record
+   * @param childIndex  the index of the child node
+   * @return the offset of the child node record
+   */
+  public int getChildOffset(int offset, int childIndex) {
+    return buffer.getInt(getChildCountPosition(offset) + 4 + childIndex * 4);
+  }
+
+  protected int getChildCountPosition(int offset) {
+    if (getKind(offset) == DOCUMENT) {
+      return offset + 1;
+    }
+    return offset + ELEMENT_SIZE - 4 + getAttributeCount(offset) * ATTRIBUTE_SIZE;
+  }
+
+  // text, CDATA and comment records: kind, value; processing instruction records: kind, target, data
+
+  public int getValue(int nodeOffset) {
+    return buffer.getInt(nodeOffset + 1);
+  }
+
+  public int getData(int processingInstructionOffset) {
+    return buffer.getInt(processingInstructionOffset + 5);
+  }
+
+  /**
+   * Finds an element by the value of one of its id attributes.
+   *
+   * @param id  the id to find
+   * @return the offset of the element record or -1 if no element has the id
+   */
+  public int findElementById(String id) {
+    int indexPosition = buffer.getInt(ID_INDEX_POSITION);
+    int low = 0;
+    int high = buffer.getInt(ID_COUNT_POSITION) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int entryPosition = indexPosition + middle * 8;
+      int comparison = getString(buffer.getInt(entryPosition)).compareTo(id);
+      if (comparison < 0) {
+        low = middle + 1;
+      }
+      else if (comparison > 0) {
+        high = middle - 1;
+      }
+      else {
+        return buffer.getInt(entryPosition + 4);
+      }
+    }
+    return -1;
+  }
+
+}
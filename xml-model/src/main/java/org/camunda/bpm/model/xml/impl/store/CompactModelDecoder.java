@@ -0,0 +1,141 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.store;
+
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.CDATA;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.COMMENT;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.ELEMENT;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.NO_STRING;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.PROCESSING_INSTRUCTION;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.TEXT;
+
+/**
+ * Decodes a {@link CompactModel} into a DOM document. Every string of the compact model
+ * is decoded once and shared by all nodes which use it. The id attributes of the model
+ * are declared, so the elements can be looked up by id without validating the document.
+ *
+ * <p>A decoder is not thread-safe.</p>
+ */
+public class CompactModelDecoder {
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+
+  protected CompactModel compactModel;
+  protected String[] strings;
+
+  public CompactModelDecoder(ModelTypeMetadata modelTypeMetadata) {
+    this.modelTypeMetadata = modelTypeMetadata;
+  }
+
+  /**
+   * Decodes a compact model into an empty DOM document.
+   *
+   * @param compactModel  the compact model to decode
+   * @param document  the empty document to append the nodes to
+   */
+  public void decode(CompactModel compactModel, DomDocument document) {
+    this.compactModel = compactModel;
+    this.strings = new String[compactModel.getStringCount()];
+    Document targetDocument = (Document) document.getDomSource().getNode();
+    // the names of the encoded nodes are valid, so they are not checked again
+    boolean strictErrorChecking = targetDocument.getStrictErrorChecking();
+    targetDocument.setStrictErrorChecking(false);
+    try {
+      appendChildNodes(targetDocument, targetDocument, compactModel.getDocumentOffset());
+    }
+    catch (DOMException e) {
+      throw new ModelException("Unable to decode the compact model", e);
+    }
+    finally {
+      targetDocument.setStrictErrorChecking(strictErrorChecking);
+      this.compactModel = null;
+      this.strings = null;
+    }
+  }
+
+  protected void appendChildNodes(Document document, Node parent, int parentOffset) {
+    int childCount = compactModel.getChildCount(parentOffset);
+    for (int i = 0; i < childCount; i++) {
+      int offset = compactModel.getChildOffset(parentOffset, i);
+      switch (compactModel.getKind(offset)) {
+        case ELEMENT:
+          appendElement(document, parent, offset);
+          break;
+        case TEXT:
+          parent.appendChild(document.createTextNode(getString(compactModel.getValue(offset))));
+          break;
+        case CDATA:
+          parent.appendChild(document.createCDATASection(getString(compactModel.getValue(offset))));
+          break;
+        case COMMENT:
+          parent.appendChild(document.createComment(getString(compactModel.getValue(offset))));
+          break;
+        case PROCESSING_INSTRUCTION:
+          parent.appendChild(document.createProcessingInstruction(getString(compactModel.getValue(offset)), getString(compactModel.getData(offset))));
+          break;
+        default:
+          throw new ModelException("Unknown record at offset " + offset + " of the compact model");
+      }
+    }
+  }
+
+  protected void appendElement(Document document, Node parent, int offset) {
+    Element element = document.createElementNS(getString(compactModel.getNamespaceUri(offset)),
+      getQualifiedName(compactModel.getPrefix(offset), compactModel.getLocalName(offset)));
+    int attributeCount = compactModel.getAttributeCount(offset);
+    for (int i = 0; i < attributeCount; i++) {
+      element.setAttributeNS(getString(compactModel.getAttributeNamespaceUri(offset, i)),
+        getQualifiedName(compactModel.getAttributePrefix(offset, i), compactModel.getAttributeLocalName(offset, i)),
+        getString(compactModel.getAttributeValue(offset, i)));
+    }
+
+    // declare the ids of the model, so the elements can be looked up by id
+    for (Attribute<?> idAttribute : modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName()).getIdAttributes()) {
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, idAttribute);
+      if (attribute != null) {
+        element.setIdAttributeNode(attribute, true);
+      }
+    }
+    parent.appendChild(element);
+    appendChildNodes(document, element, offset);
+  }
+
+  protected String getQualifiedName(int prefixIndex, int localNameIndex) {
+    String localName = getString(localNameIndex);
+    return prefixIndex == NO_STRING ? localName : getString(prefixIndex) + ":" + localName;
+  }
+
+  protected String getString(int index) {
+    if (index == NO_STRING) {
+      return null;
+    }
+    String string = strings[index];
+    if (string == null) {
+      string = compactModel.getString(index);
+      strings[index] = string;
+    }
+    return string;
+  }
+
+}
@@ -0,0 +1,269 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.store;
+
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.CDATA;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.COMMENT;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.DOCUMENT;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.DOCUMENT_POSITION;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.ELEMENT;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.FORMAT_VERSION;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.HEADER_SIZE;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.ID_COUNT_POSITION;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.ID_INDEX_POSITION;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.NO_STRING;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.PROCESSING_INSTRUCTION;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.STRING_COUNT_POSITION;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.STRING_TABLE_POSITION;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.TEXT;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.UTF_8;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.VERSION_POSITION;
+
+/**
+ * Encodes a DOM document into a {@link CompactModel}. Every distinct string of the
+ * document is stored once, the nodes are stored as records which reference their
+ * strings by index and the ids of the model, which are taken from the model type
+ * metadata, are indexed. Document type declarations and
+ * entity references are not encoded.
+ *
+ * <p>An encoder is not thread-safe.</p>
+ */
+public class CompactModelEncoder {
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+
+  protected final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+  protected final List<String> strings = new ArrayList<String>();
+  protected final Map<String, Integer> ids = new TreeMap<String, Integer>();
+  protected byte[] bytes = new byte[8192];
+  protected int size;
+
+  public CompactModelEncoder(ModelTypeMetadata modelTypeMetadata) {
+    this.modelTypeMetadata = modelTypeMetadata;
+  }
+
+  /**
+   * Encodes a document.
+   *
+   * @param document  the document to encode
+   * @param direct  whether the buffer of the compact model is allocated outside of the heap
+   * @return the encoded document
+   */
+  public CompactModel encode(Document document, boolean direct) {
+    size = HEADER_SIZE;
+    int documentOffset = writeNode(document, -1);
+
+    int stringTableOffset = size;
+    byte[][] encodedStrings = new byte[strings.size()][];
+    reserve(strings.size() * 4);
+    for (int i = 0; i < encodedStrings.length; i++) {
+      encodedStrings[i] = strings.get(i).getBytes(UTF_8);
+      setInt(stringTableOffset + i * 4, size);
+      writeInt(encodedStrings[i].length);
+      writeBytes(encodedStrings[i]);
+    }
+
+    int idIndexOffset = size;
+    for (Map.Entry<String, Integer> id : ids.entrySet()) {
+      writeInt(stringIndexes.get(id.getKey()));
+      writeInt(id.getValue());
+    }
+
+    setInt(VERSION_POSITION, FORMAT_VERSION);
+    setInt(DOCUMENT_POSITION, documentOffset);
+    setInt(STRING_TABLE_POSITION, stringTableOffset);
+    setInt(STRING_COUNT_POSITION, strings.size());
+    setInt(ID_INDEX_POSITION, idIndexOffset);
+    setInt(ID_COUNT_POSITION, ids.size());
+
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    buffer.put(bytes, 0, size);
+    buffer.clear();
+    return new CompactModel(buffer.asReadOnlyBuffer());
+  }
+
+  /**
+   * Writes the record of a node and the records of its descendants.
+   *
+   * @return the offset of the record
+   */
+  protected int writeNode(Node node, int parentOffset) {
+    int offset = size;
+    switch (node.getNodeType()) {
+      case Node.DOCUMENT_NODE:
+        writeByte(DOCUMENT);
+        writeChildNodes(node, offset);
+        break;
+      case Node.ELEMENT_NODE:
+        writeElement((Element) node, parentOffset);
+        break;
+      case Node.TEXT_NODE:
+        writeByte(TEXT);
+        writeInt(getStringIndex(node.getNodeValue()));
+        break;
+      case Node.CDATA_SECTION_NODE:
+        writeByte(CDATA);
+        writeInt(getStringIndex(node.getNodeValue()));
+        break;
+      case Node.COMMENT_NODE:
+        writeByte(COMMENT);
+        writeInt(getStringIndex(node.getNodeValue()));
+        break;
+      case Node.PROCESSING_INSTRUCTION_NODE:
+        ProcessingInstruction processingInstruction = (ProcessingInstruction) node;
+        writeByte(PROCESSING_INSTRUCTION);
+        writeInt(getStringIndex(processingInstruction.getTarget()));
+        writeInt(getStringIndex(processingInstruction.getData()));
+        break;
+      default:
+        throw new ModelException("Unable to encode node of type " + node.getNodeType());
+    }
+    return offset;
+  }
+
+  protected void writeElement(Element element, int parentOffset) {
+    int offset = size;
+    writeByte(ELEMENT);
+    writeInt(parentOffset);
+    writeInt(getStringIndex(element.getNamespaceURI()));
+    writeInt(getStringIndex(element.getPrefix()));
+    writeInt(getStringIndex(getLocalName(element)));
+
+    NamedNodeMap attributes = element.getAttributes();
+    writeInt(attributes.getLength());
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      writeInt(getStringIndex(attribute.getNamespaceURI()));
+      writeInt(getStringIndex(attribute.getPrefix()));
+      writeInt(getStringIndex(getLocalName(attribute)));
+      writeInt(getStringIndex(attribute.getValue()));
+    }
+
+    for (Attribute<?> idAttribute : modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName()).getIdAttributes()) {
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, idAttribute);
+      if (attribute != null) {
+        ids.put(attribute.getValue(), offset);
+      }
+    }
+
+    writeChildNodes(element, offset);
+  }
+
+  protected void writeChildNodes(Node parent, int parentOffset) {
+    int childCount = 0;
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (isEncoded(child)) {
+        childCount++;
+      }
+    }
+    writeInt(childCount);
+    int childOffsetPosition = size;
+    reserve(childCount * 4);
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (isEncoded(child)) {
+        setInt(childOffsetPosition, writeNode(child, parentOffset));
+        childOffsetPosition += 4;
+      }
+    }
+  }
+
+  /**
+   * Returns the local name of a node, which is its name if it was created without a namespace.
+   */
+  protected static String getLocalName(Node node) {
+    String localName = node.getLocalName();
+    return localName != null ? localName : node.getNodeName();
+  }
+
+  protected static boolean isEncoded(Node node) {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+      case Node.TEXT_NODE:
+      case Node.CDATA_SECTION_NODE:
+      case Node.COMMENT_NODE:
+      case Node.PROCESSING_INSTRUCTION_NODE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  protected int getStringIndex(String string) {
+    if (string == null) {
+      return NO_STRING;
+    }
+    Integer index = stringIndexes.get(string);
+    if (index == null) {
+      index = strings.size();
+      strings.add(string);
+      stringIndexes.put(string, index);
+    }
+    return index;
+  }
+
+  protected void writeByte(int value) {
+    ensureCapacity(1);
+    bytes[size++] = (byte) value;
+  }
+
+  protected void writeInt(int value) {
+    ensureCapacity(4);
+    setInt(size, value);
+    size += 4;
+  }
+
+  protected void writeBytes(byte[] value) {
+    ensureCapacity(value.length);
+    System.arraycopy(value, 0, bytes, size, value.length);
+    size += value.length;
+  }
+
+  protected void reserve(int length) {
+    ensureCapacity(length);
+    size += length;
+  }
+
+  protected void setInt(int position, int value) {
+    bytes[position] = (byte) (value >>> 24);
+    bytes[position + 1] = (byte) (value >>> 16);
+    bytes[position + 2] = (byte) (value >>> 8);
+    bytes[position + 3] = (byte) value;
+  }
+
+  protected void ensureCapacity(int length) {
+    if (size + length > bytes.length) {
+      byte[] newBytes = new byte[Math.max(bytes.length * 2, size + length)];
+      System.arraycopy(bytes, 0, newBytes, 0, size);
+      bytes = newBytes;
+    }
+  }
+
+}
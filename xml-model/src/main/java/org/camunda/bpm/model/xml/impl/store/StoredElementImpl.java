@@ -0,0 +1,137 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.store;
+
+import org.camunda.bpm.model.xml.Model;
+import org.camunda.bpm.model.xml.instance.StoredElement;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.CDATA;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.ELEMENT;
+import static org.camunda.bpm.model.xml.impl.store.CompactModel.TEXT;
+
+/**
+ * A view of an element record of a {@link CompactModel}.
+ */
+public class StoredElementImpl implements StoredElement {
+
+  protected final Model model;
+  protected final CompactModel compactModel;
+  protected final int offset;
+
+  public StoredElementImpl(Model model, CompactModel compactModel, int offset) {
+    this.model = model;
+    this.compactModel = compactModel;
+    this.offset = offset;
+  }
+
+  public String getNamespaceURI() {
+    return compactModel.getString(compactModel.getNamespaceUri(offset));
+  }
+
+  public String getLocalName() {
+    return compactModel.getString(compactModel.getLocalName(offset));
+  }
+
+  public String getPrefix() {
+    return compactModel.getString(compactModel.getPrefix(offset));
+  }
+
+  public ModelElementType getElementType() {
+    return model.getTypeForName(getNamespaceURI(), getLocalName());
+  }
+
+  public String getAttributeValue(String attributeName) {
+    return getAttributeValueNs(null, attributeName);
+  }
+
+  public String getAttributeValueNs(String namespaceUri, String attributeName) {
+    if (namespaceUri != null && namespaceUri.equals(getNamespaceURI())) {
+      // attributes of the namespace of the element are not qualified
+      namespaceUri = null;
+    }
+    int attributeCount = compactModel.getAttributeCount(offset);
+    for (int i = 0; i < attributeCount; i++) {
+      if (attributeName.equals(compactModel.getString(compactModel.getAttributeLocalName(offset, i)))
+        && isEqual(namespaceUri, compactModel.getString(compactModel.getAttributeNamespaceUri(offset, i)))) {
+        String value = compactModel.getString(compactModel.getAttributeValue(offset, i));
+        return value.length() > 0 ? value : null;
+      }
+    }
+    return null;
+  }
+
+  public String getTextContent() {
+    StringBuilder textContent = new StringBuilder();
+    appendTextContent(offset, textContent);
+    return textContent.toString().trim();
+  }
+
+  protected void appendTextContent(int elementOffset, StringBuilder textContent) {
+    int childCount = compactModel.getChildCount(elementOffset);
+    for (int i = 0; i < childCount; i++) {
+      int childOffset = compactModel.getChildOffset(elementOffset, i);
+      byte kind = compactModel.getKind(childOffset);
+      if (kind == TEXT || kind == CDATA) {
+        textContent.append(compactModel.getString(compactModel.getValue(childOffset)));
+      }
+      else if (kind == ELEMENT) {
+        appendTextContent(childOffset, textContent);
+      }
+    }
+  }
+
+  public StoredElement getParentElement() {
+    int parentOffset = compactModel.getParentOffset(offset);
+    if (compactModel.getKind(parentOffset) != ELEMENT) {
+      return null;
+    }
+    return new StoredElementImpl(model, compactModel, parentOffset);
+  }
+
+  public List<StoredElement> getChildElements() {
+    List<StoredElement> childElements = new ArrayList<StoredElement>();
+    int childCount = compactModel.getChildCount(offset);
+    for (int i = 0; i < childCount; i++) {
+      int childOffset = compactModel.getChildOffset(offset, i);
+      if (compactModel.getKind(childOffset) == ELEMENT) {
+        childElements.add(new StoredElementImpl(model, compactModel, childOffset));
+      }
+    }
+    return childElements;
+  }
+
+  protected static boolean isEqual(String first, String second) {
+    return first == null ? second == null : first.equals(second);
+  }
+
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    StoredElementImpl other = (StoredElementImpl) obj;
+    return compactModel == other.compactModel && offset == other.offset;
+  }
+
+  public int hashCode() {
+    return 31 * System.identityHashCode(compactModel) + offset;
+  }
+
+}
@@ -0,0 +1,245 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.template;
+
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.instance.DomDocumentImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.ReferenceImpl;
+import org.camunda.bpm.model.xml.impl.util.IoUtil;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata.TypeMetadata;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles a template document into a {@link ModelTemplatePlan}. Every attribute value
+ * and the text content of every element without child elements which contains
+ * parameters becomes a slot of the plan.
+ *
+ * <p>If an id pattern is given, every id becomes a slot with the value of the pattern,
+ * which contains the parameter <code>{{id}}</code> for the id of the template. Every
+ * reference to an element of the template becomes a slot too, so the references of an
+ * instance point to the elements of the instance.</p>
+ */
+public class ModelTemplateCompiler {
+
+  public static final String ID_PARAMETER = TemplateValue.PARAMETER_START + "id" + TemplateValue.PARAMETER_END;
+
+  /** the markers of the slots in the serialized document, which are characters of the private use area */
+  protected static final char SLOT_START = '\uE000';
+  protected static final char SLOT_END = '\uE001';
+
+  protected final ModelInstanceImpl templateInstance;
+  protected final ModelTypeMetadata modelTypeMetadata;
+  protected final String idPattern;
+
+  /** the types of the elements by their id */
+  protected final Map<String, ModelElementType> ids = new HashMap<String, ModelElementType>();
+  protected final List<TemplateSlot> slots = new ArrayList<TemplateSlot>();
+  protected int elementCount;
+
+  public ModelTemplateCompiler(ModelInstanceImpl templateInstance, String idPattern) {
+    this.templateInstance = templateInstance;
+    this.modelTypeMetadata = new ModelTypeMetadata(templateInstance.getModel());
+    this.idPattern = idPattern;
+  }
+
+  public ModelTemplatePlan compile() {
+    Document document = getDocument();
+    Element documentElement = document.getDocumentElement();
+    if (documentElement == null) {
+      throw new ModelException("The template has no document element");
+    }
+    if (idPattern != null) {
+      collectIds(documentElement);
+    }
+    collectSlots(documentElement);
+
+    Set<String> parameterNames = new LinkedHashSet<String>();
+    for (TemplateSlot slot : slots) {
+      slot.getValue().collectParameterNames(parameterNames);
+    }
+
+    List<String> xmlLiterals = new ArrayList<String>();
+    List<Integer> xmlSlotIndexes = new ArrayList<Integer>();
+    splitXml(serializeWithMarkers(document), xmlLiterals, xmlSlotIndexes);
+    return new ModelTemplatePlan(slots, parameterNames, xmlLiterals, xmlSlotIndexes);
+  }
+
+  protected void collectIds(Element element) {
+    TypeMetadata metadata = getTypeMetadata(element);
+    for (Attribute<?> idAttribute : metadata.getIdAttributes()) {
+      Attr attribute = ModelTypeMetadata.getAttributeNode(element, idAttribute);
+      if (attribute != null) {
+        ids.put(attribute.getValue(), metadata.getType());
+      }
+    }
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        collectIds((Element) child);
+      }
+    }
+  }
+
+  protected void collectSlots(Element element) {
+    int elementIndex = elementCount++;
+    TypeMetadata metadata = getTypeMetadata(element);
+
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+        boolean isIdAttribute = isIdAttribute(element, metadata, attribute);
+        TemplateValue value = getAttributeValue(element, metadata, attribute, isIdAttribute);
+        if (value != null) {
+          slots.add(new TemplateSlot(elementIndex, attribute.getNamespaceURI(), attribute.getLocalName(), isIdAttribute, value));
+        }
+      }
+    }
+
+    boolean hasChildElements = false;
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        hasChildElements = true;
+        break;
+      }
+    }
+    if (!hasChildElements) {
+      TemplateValue value = getTextValue(metadata, element.getTextContent());
+      if (value != null) {
+        slots.add(new TemplateSlot(elementIndex, null, null, false, value));
+      }
+    }
+    else {
+      for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child.getNodeType() == Node.ELEMENT_NODE) {
+          collectSlots((Element) child);
+        }
+      }
+    }
+  }
+
+  protected boolean isIdAttribute(Element element, TypeMetadata metadata, Attr attribute) {
+    if (attribute.isId()) {
+      return true;
+    }
+    for (Attribute<?> idAttribute : metadata.getIdAttributes()) {
+      if (ModelTypeMetadata.getAttributeNode(element, idAttribute) == attribute) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected TemplateValue getAttributeValue(Element element, TypeMetadata metadata, Attr attribute, boolean isIdAttribute) {
+    String value = attribute.getValue();
+    if (idPattern != null) {
+      if (isIdAttribute) {
+        return TemplateValue.parse(idPattern.replace(ID_PARAMETER, value));
+      }
+      for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+        if (ModelTypeMetadata.getAttributeNode(element, reference.getReferenceSourceAttribute()) == attribute) {
+          TemplateValue referenceValue = getReferenceValue(reference, value);
+          if (referenceValue != null) {
+            return referenceValue;
+          }
+          break;
+        }
+      }
+    }
+    return TemplateValue.hasParameters(value) ? TemplateValue.parse(value) : null;
+  }
+
+  protected TemplateValue getTextValue(TypeMetadata metadata, String textContent) {
+    ReferenceImpl<?> elementReference = metadata.getElementReference();
+    if (idPattern != null && elementReference != null) {
+      TemplateValue referenceValue = getReferenceValue(elementReference, textContent.trim());
+      if (referenceValue != null) {
+        return referenceValue;
+      }
+    }
+    return TemplateValue.hasParameters(textContent) ? TemplateValue.parse(textContent) : null;
+  }
+
+  /**
+   * @return the value of a reference to an element of the template or null
+   */
+  protected TemplateValue getReferenceValue(ReferenceImpl<?> reference, String value) {
+    String identifier = ModelTypeMetadata.getReferenceIdentifier(reference, value);
+    ModelElementType type = ids.get(identifier);
+    if (type == null || !ModelTypeMetadata.isReferenceTarget(reference, type)) {
+      return null;
+    }
+    // keep the prefix of a qualified reference
+    String prefix = value.endsWith(identifier) ? value.substring(0, value.length() - identifier.length()) : "";
+    return TemplateValue.parse(prefix + idPattern.replace(ID_PARAMETER, identifier));
+  }
+
+  /**
+   * Serializes a copy of the template document whose slots contain markers.
+   */
+  protected String serializeWithMarkers(Document document) {
+    Document markedDocument = (Document) document.cloneNode(true);
+    String[] markers = new String[slots.size()];
+    for (int i = 0; i < markers.length; i++) {
+      markers[i] = SLOT_START + Integer.toString(i) + SLOT_END;
+    }
+    new ModelTemplatePlan(slots, new LinkedHashSet<String>(), new ArrayList<String>(), new ArrayList<Integer>())
+      .apply(markedDocument, markers);
+    return IoUtil.convertXmlDocumentToString(new DomDocumentImpl(markedDocument));
+  }
+
+  protected void splitXml(String xml, List<String> xmlLiterals, List<Integer> xmlSlotIndexes) {
+    int offset = 0;
+    int start = xml.indexOf(SLOT_START);
+    while (start >= 0) {
+      int end = xml.indexOf(SLOT_END, start);
+      if (end < 0) {
+        break;
+      }
+      xmlLiterals.add(xml.substring(offset, start));
+      xmlSlotIndexes.add(Integer.valueOf(xml.substring(start + 1, end)));
+      offset = end + 1;
+      start = xml.indexOf(SLOT_START, offset);
+    }
+    xmlLiterals.add(xml.substring(offset));
+    if (xmlSlotIndexes.size() != slots.size()) {
+      throw new ModelException("Unable to compile the template: the template contains the reserved characters U+E000 or U+E001");
+    }
+  }
+
+  protected TypeMetadata getTypeMetadata(Element element) {
+    return modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName());
+  }
+
+  protected Document getDocument() {
+    return (Document) templateInstance.getDocument().getDomSource().getNode();
+  }
+
+}
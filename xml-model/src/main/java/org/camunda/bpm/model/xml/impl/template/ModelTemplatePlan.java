@@ -0,0 +1,177 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.template;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The compiled plan of a template: the slots of the document which are set to the
+ * values of parameters and the serialized document split at the slots.
+ *
+ * @see ModelTemplateCompiler
+ */
+public class ModelTemplatePlan {
+
+  /** the slots in document order */
+  protected final TemplateSlot[] slots;
+  protected final Set<String> parameterNames;
+
+  /** the serialized document before, between and after the slots */
+  protected final String[] xmlLiterals;
+  /** the indexes of the slots in the order of the serialized document */
+  protected final int[] xmlSlotIndexes;
+
+  public ModelTemplatePlan(List<TemplateSlot> slots, Set<String> parameterNames, List<String> xmlLiterals, List<Integer> xmlSlotIndexes) {
+    this.slots = slots.toArray(new TemplateSlot[slots.size()]);
+    this.parameterNames = Collections.unmodifiableSet(parameterNames);
+    this.xmlLiterals = xmlLiterals.toArray(new String[xmlLiterals.size()]);
+    this.xmlSlotIndexes = new int[xmlSlotIndexes.size()];
+    for (int i = 0; i < this.xmlSlotIndexes.length; i++) {
+      this.xmlSlotIndexes[i] = xmlSlotIndexes.get(i);
+    }
+  }
+
+  public Set<String> getParameterNames() {
+    return parameterNames;
+  }
+
+  /**
+   * Evaluates the values of all slots.
+   *
+   * @param parameters  the values of the parameters
+   * @return the values of the slots in document order
+   */
+  public String[] evaluate(Map<String, String> parameters) {
+    String[] values = new String[slots.length];
+    for (int i = 0; i < slots.length; i++) {
+      values[i] = slots[i].getValue().evaluate(parameters);
+    }
+    return values;
+  }
+
+  /**
+   * Sets the values of the slots in a copy of the template document. The ids of the
+   * changed id attributes are registered at the document.
+   *
+   * @param document  the copy of the template document
+   * @param values  the values of the slots
+   */
+  public void apply(Document document, String[] values) {
+    if (slots.length == 0) {
+      return;
+    }
+    List<Attr> idAttributes = new ArrayList<Attr>();
+    apply(document.getDocumentElement(), values, new int[2], idAttributes);
+    // a new id may have been unregistered by the change of the previous owner of the id
+    for (Attr idAttribute : idAttributes) {
+      idAttribute.getOwnerElement().setIdAttributeNode(idAttribute, true);
+    }
+  }
+
+  /**
+   * Applies the slots of the subtree.
+   *
+   * @param position  the index of the current element and the index of the next slot
+   * @param idAttributes  the changed id attributes
+   * @return false if all slots were applied
+   */
+  protected boolean apply(Element element, String[] values, int[] position, List<Attr> idAttributes) {
+    int elementIndex = position[0]++;
+    while (position[1] < slots.length && slots[position[1]].getElementIndex() == elementIndex) {
+      TemplateSlot slot = slots[position[1]];
+      slot.apply(element, values[position[1]]);
+      if (slot.isIdAttribute()) {
+        idAttributes.add(slot.getAttributeNode(element));
+      }
+      position[1]++;
+    }
+    for (Node child = element.getFirstChild(); child != null && position[1] < slots.length; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE && !apply((Element) child, values, position, idAttributes)) {
+        return false;
+      }
+    }
+    return position[1] < slots.length;
+  }
+
+  /**
+   * Writes the serialized document with the values of the slots.
+   *
+   * @param values  the values of the slots
+   * @param builder  the builder to append the document to
+   */
+  public void write(String[] values, StringBuilder builder) {
+    for (int i = 0; i < xmlSlotIndexes.length; i++) {
+      builder.append(xmlLiterals[i]);
+      TemplateSlot slot = slots[xmlSlotIndexes[i]];
+      String value = values[xmlSlotIndexes[i]];
+      if (slot.isAttribute()) {
+        appendEscapedAttributeValue(value, builder);
+      }
+      else {
+        appendEscapedText(value, builder);
+      }
+    }
+    builder.append(xmlLiterals[xmlSlotIndexes.length]);
+  }
+
+  /**
+   * @return the estimated length of the serialized document
+   */
+  public int getXmlLength() {
+    int length = 0;
+    for (String literal : xmlLiterals) {
+      length += literal.length();
+    }
+    return length + 32 * xmlSlotIndexes.length;
+  }
+
+  protected static void appendEscapedAttributeValue(String value, StringBuilder builder) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&': builder.append("&amp;"); break;
+        case '<': builder.append("&lt;"); break;
+        case '>': builder.append("&gt;"); break;
+        case '"': builder.append("&quot;"); break;
+        case '\n': builder.append("&#10;"); break;
+        case '\r': builder.append("&#13;"); break;
+        case '\t': builder.append("&#9;"); break;
+        default: builder.append(c);
+      }
+    }
+  }
+
+  protected static void appendEscapedText(String value, StringBuilder builder) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&': builder.append("&amp;"); break;
+        case '<': builder.append("&lt;"); break;
+        case '>': builder.append("&gt;"); break;
+        case '\r': builder.append("&#13;"); break;
+        default: builder.append(c);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.template;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+
+/**
+ * An attribute or the text content of an element of a template which is set to the
+ * value of parameters.
+ */
+public class TemplateSlot {
+
+  /** the index of the element in document order */
+  protected final int elementIndex;
+
+  /** the namespace URI and local name of the attribute, the local name is null for the text content */
+  protected final String namespaceUri;
+  protected final String localName;
+
+  protected final boolean isIdAttribute;
+  protected final TemplateValue value;
+
+  public TemplateSlot(int elementIndex, String namespaceUri, String localName, boolean isIdAttribute, TemplateValue value) {
+    this.elementIndex = elementIndex;
+    this.namespaceUri = namespaceUri;
+    this.localName = localName;
+    this.isIdAttribute = isIdAttribute;
+    this.value = value;
+  }
+
+  public int getElementIndex() {
+    return elementIndex;
+  }
+
+  public boolean isAttribute() {
+    return localName != null;
+  }
+
+  public boolean isIdAttribute() {
+    return isIdAttribute;
+  }
+
+  public TemplateValue getValue() {
+    return value;
+  }
+
+  /**
+   * Sets the value of the slot at an element.
+   *
+   * @param element  the element of the slot
+   * @param value  the new value
+   */
+  public void apply(Element element, String value) {
+    if (isAttribute()) {
+      Attr attribute = getAttributeNode(element);
+      if (isIdAttribute) {
+        // the attributes of a cloned document are not flagged as ids, so the previous id would not be unregistered
+        element.setIdAttributeNode(attribute, true);
+      }
+      attribute.setValue(value);
+    }
+    else {
+      element.setTextContent(value);
+    }
+  }
+
+  public Attr getAttributeNode(Element element) {
+    return element.getAttributeNodeNS(namespaceUri, localName);
+  }
+
+}
@@ -0,0 +1,111 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.template;
+
+import org.camunda.bpm.model.xml.ModelException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A value of a template which contains parameters in the form <code>{{name}}</code>.
+ * The value is split into literals and parameters once, so it is evaluated by
+ * concatenation.
+ */
+public class TemplateValue {
+
+  public static final String PARAMETER_START = "{{";
+  public static final String PARAMETER_END = "}}";
+
+  /** the literals before, between and after the parameters */
+  protected final String[] literals;
+  protected final String[] parameterNames;
+
+  protected TemplateValue(String[] literals, String[] parameterNames) {
+    this.literals = literals;
+    this.parameterNames = parameterNames;
+  }
+
+  /**
+   * Parses a value with parameters.
+   *
+   * @param value  the value to parse
+   * @return the parsed value
+   */
+  public static TemplateValue parse(String value) {
+    List<String> literals = new ArrayList<String>();
+    List<String> parameterNames = new ArrayList<String>();
+    int offset = 0;
+    int start = value.indexOf(PARAMETER_START);
+    while (start >= 0) {
+      int end = value.indexOf(PARAMETER_END, start + PARAMETER_START.length());
+      if (end < 0) {
+        break;
+      }
+      String parameterName = value.substring(start + PARAMETER_START.length(), end).trim();
+      if (parameterName.length() == 0) {
+        throw new ModelException("Empty template parameter in value '" + value + "'");
+      }
+      literals.add(value.substring(offset, start));
+      parameterNames.add(parameterName);
+      offset = end + PARAMETER_END.length();
+      start = value.indexOf(PARAMETER_START, offset);
+    }
+    literals.add(value.substring(offset));
+    return new TemplateValue(literals.toArray(new String[literals.size()]), parameterNames.toArray(new String[parameterNames.size()]));
+  }
+
+  /**
+   * @param value  the value to check
+   * @return true if the value may contain parameters
+   */
+  public static boolean hasParameters(String value) {
+    return value != null && value.contains(PARAMETER_START);
+  }
+
+  public void collectParameterNames(Collection<String> names) {
+    for (String parameterName : parameterNames) {
+      names.add(parameterName);
+    }
+  }
+
+  /**
+   * Evaluates the value.
+   *
+   * @param parameters  the values of the parameters
+   * @return the evaluated value
+   * @throws ModelException if a parameter is missing
+   */
+  public String evaluate(Map<String, String> parameters) {
+    if (parameterNames.length == 0) {
+      return literals[0];
+    }
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < parameterNames.length; i++) {
+      builder.append(literals[i]).append(getParameter(parameters, parameterNames[i]));
+    }
+    return builder.append(literals[parameterNames.length]).toString();
+  }
+
+  protected static String getParameter(Map<String, String> parameters, String parameterName) {
+    String parameter = parameters.get(parameterName);
+    if (parameter == null) {
+      throw new ModelException("Missing template parameter '" + parameterName + "'");
+    }
+    return parameter;
+  }
+
+}
@@ -67,7 +67,7 @@ public class ModelElementTypeImpl implements ModelElementType {
 
   public ModelElementInstance newInstance(ModelInstance modelInstance) {
     ModelInstanceImpl modelInstanceImpl = (ModelInstanceImpl) modelInstance;
-    DomDocument document = modelInstanceImpl.getDocument();
+    DomDocument document = modelInstanceImpl.getParsedDocument();
     DomElement domElement = document.createElement(typeNamespace, typeName);
     return newInstance(modelInstanceImpl, domElement);
   }
@@ -218,7 +218,8 @@ public class ModelElementTypeImpl implements ModelElementType {
 
   public Collection<ModelElementInstance> getInstances(ModelInstance modelInstance) {
     ModelInstanceImpl modelInstanceImpl = (ModelInstanceImpl) modelInstance;
-    DomDocument document = modelInstanceImpl.getDocument();
+    modelInstanceImpl.loadDeferredElements(typeNamespace);
+    DomDocument document = modelInstanceImpl.getParsedDocument();
     List<DomElement> elements = document.getElementsByNameNs(typeNamespace, typeName);
     List<ModelElementInstance> resultList = new ArrayList<ModelElementInstance>();
     for (DomElement element : elements) {
@@ -14,6 +14,7 @@ package org.camunda.bpm.model.xml.impl.type.child;
 
 import org.camunda.bpm.model.xml.Model;
 import org.camunda.bpm.model.xml.UnsupportedModelOperationException;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
 import org.camunda.bpm.model.xml.impl.instance.ModelElementInstanceImpl;
 import org.camunda.bpm.model.xml.impl.type.ModelElementTypeImpl;
 import org.camunda.bpm.model.xml.impl.util.ModelUtil;
@@ -118,9 +119,16 @@ public class ChildElementCollectionImpl<T extends ModelElementInstance> implemen
 
   /** the "clear" operation used by this collection */
   private void performClearOperation(ModelElementInstanceImpl modelElement, Collection<DomElement> elementsToRemove) {
-    Collection<ModelElementInstance> modelElements = ModelUtil.getModelElementCollection(elementsToRemove, modelElement.getModelInstance());
-    for (ModelElementInstance element : modelElements) {
-      modelElement.removeChildElement(element);
+    ModelInstanceImpl modelInstance = modelElement.getModelInstance();
+    modelInstance.beginChangeOperation();
+    try {
+      Collection<ModelElementInstance> modelElements = ModelUtil.getModelElementCollection(elementsToRemove, modelInstance);
+      for (ModelElementInstance element : modelElements) {
+        modelElement.removeChildElement(element);
+      }
+    }
+    finally {
+      modelInstance.endChangeOperation();
     }
   }
 
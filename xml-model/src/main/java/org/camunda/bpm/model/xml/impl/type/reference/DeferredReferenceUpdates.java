@@ -0,0 +1,206 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.type.reference;
+
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
+
+import java.util.*;
+
+/**
+ * Collects the updates of references to renamed and removed elements during a batch
+ * and applies them in a single pass over the reference source elements of every
+ * affected reference.
+ *
+ * <p>Consecutive renames of the same identifier are coalesced, a rename back to the
+ * original identifier cancels the update. If a pending identifier is reused by another
+ * element before the batch ended, the pending updates are applied first to keep the
+ * result identical to immediate updates.</p>
+ *
+ * @see ReferenceImpl#referencedElementUpdated(ModelElementInstance, String, String)
+ * @see ReferenceImpl#referencedElementRemoved(ModelElementInstance, Object)
+ */
+public class DeferredReferenceUpdates {
+
+  private final ModelInstanceImpl modelInstance;
+
+  private final Map<ReferenceImpl<?>, PendingUpdates> pendingUpdates = new LinkedHashMap<ReferenceImpl<?>, PendingUpdates>();
+
+  private boolean applying = false;
+
+  public DeferredReferenceUpdates(ModelInstanceImpl modelInstance) {
+    this.modelInstance = modelInstance;
+  }
+
+  /**
+   * @return true if the pending updates are currently applied
+   */
+  public boolean isApplying() {
+    return applying;
+  }
+
+  /**
+   * Records the rename of a referenced element.
+   *
+   * @return true if the update was deferred, false if it has to be applied immediately
+   */
+  public boolean deferUpdate(ReferenceImpl<?> reference, ModelElementInstance referenceTargetElement, String oldIdentifier, String newIdentifier) {
+    PendingUpdates updates = pendingUpdates.get(reference);
+    if (updates != null && updates.isConflictingIdentifier(oldIdentifier, newIdentifier)) {
+      apply();
+      updates = null;
+    }
+
+    if (newIdentifier == null) {
+      // references are set to null by an immediate update
+      apply();
+      return false;
+    }
+    else if (oldIdentifier != null && !oldIdentifier.equals(newIdentifier) && reference.isReferenceTargetElement(referenceTargetElement)) {
+      if (updates == null) {
+        updates = getPendingUpdates(reference);
+      }
+      updates.renamed(oldIdentifier, newIdentifier);
+    }
+    return true;
+  }
+
+  /**
+   * Records the removal of a referenced element.
+   *
+   * @return true if the removal was deferred
+   */
+  public boolean deferRemoval(ReferenceImpl<?> reference, ModelElementInstance referenceTargetElement, Object referenceIdentifier) {
+    if (reference.isReferenceTargetElement(referenceTargetElement)) {
+      getPendingUpdates(reference).removed(referenceIdentifier);
+    }
+    return true;
+  }
+
+  /**
+   * Applies all pending updates. References to removed elements are only removed if
+   * no element with the identifier exists anymore.
+   */
+  public void apply() {
+    if (pendingUpdates.isEmpty()) {
+      return;
+    }
+
+    applying = true;
+    boolean timed = ModelMetricsRegistry.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
+    try {
+      for (Map.Entry<ReferenceImpl<?>, PendingUpdates> entry : pendingUpdates.entrySet()) {
+        ReferenceImpl<?> reference = entry.getKey();
+        PendingUpdates updates = entry.getValue();
+        if (!updates.isEmpty()) {
+          if (timed) {
+            modelInstance.recordMetric(ModelMetric.REFERENCE_SCAN, 0);
+          }
+          Collection<ModelElementInstance> referenceSourceElements = modelInstance.getModelElementsByType(reference.getReferenceSourceElementType());
+          for (ModelElementInstance referenceSourceElement : referenceSourceElements) {
+            apply(reference, updates, referenceSourceElement);
+          }
+        }
+      }
+    }
+    finally {
+      pendingUpdates.clear();
+      applying = false;
+      if (timed) {
+        modelInstance.recordMetric(ModelMetric.REFERENCE_UPDATE, System.nanoTime() - startTime);
+      }
+    }
+  }
+
+  protected void apply(ReferenceImpl<?> reference, PendingUpdates updates, ModelElementInstance referenceSourceElement) {
+    String identifier = reference.getReferenceIdentifier(referenceSourceElement);
+    if (identifier != null) {
+      String newIdentifier = updates.renamedIdentifiers.get(identifier);
+      String currentIdentifier = newIdentifier != null ? newIdentifier : identifier;
+      if (updates.removedIdentifiers.contains(currentIdentifier) && modelInstance.getModelElementById(currentIdentifier) == null) {
+        reference.removeReference(referenceSourceElement);
+      }
+      else if (newIdentifier != null) {
+        reference.setReferenceIdentifier(referenceSourceElement, newIdentifier);
+      }
+    }
+  }
+
+  protected PendingUpdates getPendingUpdates(ReferenceImpl<?> reference) {
+    PendingUpdates updates = pendingUpdates.get(reference);
+    if (updates == null) {
+      updates = new PendingUpdates();
+      pendingUpdates.put(reference, updates);
+    }
+    return updates;
+  }
+
+  /**
+   * The pending updates of a single reference.
+   */
+  protected static class PendingUpdates {
+
+    /** the current identifier by original identifier */
+    protected final Map<String, String> renamedIdentifiers = new HashMap<String, String>();
+
+    /** the original identifier by current identifier */
+    protected final Map<String, String> originalIdentifiers = new HashMap<String, String>();
+
+    protected final Set<Object> removedIdentifiers = new HashSet<Object>();
+
+    protected void renamed(String oldIdentifier, String newIdentifier) {
+      String originalIdentifier = originalIdentifiers.remove(oldIdentifier);
+      if (originalIdentifier == null) {
+        originalIdentifier = oldIdentifier;
+      }
+
+      if (originalIdentifier.equals(newIdentifier)) {
+        // renamed back to the original identifier
+        renamedIdentifiers.remove(originalIdentifier);
+      }
+      else {
+        renamedIdentifiers.put(originalIdentifier, newIdentifier);
+        originalIdentifiers.put(newIdentifier, originalIdentifier);
+      }
+    }
+
+    protected void removed(Object identifier) {
+      removedIdentifiers.add(identifier);
+    }
+
+    /**
+     * An identifier conflicts if it is taken over by another element while references
+     * to its previous owner are still pending.
+     */
+    protected boolean isConflictingIdentifier(String oldIdentifier, String newIdentifier) {
+      if (newIdentifier == null) {
+        return false;
+      }
+      String originalIdentifier = oldIdentifier != null ? originalIdentifiers.get(oldIdentifier) : null;
+      if (newIdentifier.equals(originalIdentifier)) {
+        return false;
+      }
+      return renamedIdentifiers.containsKey(newIdentifier) || removedIdentifiers.contains(newIdentifier);
+    }
+
+    protected boolean isEmpty() {
+      return renamedIdentifiers.isEmpty() && removedIdentifiers.isEmpty();
+    }
+
+  }
+
+}
@@ -20,7 +20,6 @@ import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
 import org.camunda.bpm.model.xml.impl.instance.ModelElementInstanceImpl;
 import org.camunda.bpm.model.xml.impl.type.ModelElementTypeImpl;
 import org.camunda.bpm.model.xml.impl.util.ModelUtil;
-import org.camunda.bpm.model.xml.instance.DomDocument;
 import org.camunda.bpm.model.xml.instance.DomElement;
 import org.camunda.bpm.model.xml.instance.ModelElementInstance;
 import org.camunda.bpm.model.xml.type.ModelElementType;
@@ -63,10 +62,16 @@ public class ElementReferenceCollectionImpl<Target extends ModelElementInstance,
         +": element is not part of model. Please connect element to the model first.");
     }
     else {
-      Collection<Source> referenceSourceElements = referenceSourceCollection.get(referenceSourceParentElement);
-      Source referenceSourceElement = modelInstance.newInstance(referenceSourceType);
-      referenceSourceElements.add(referenceSourceElement);
-      setReferenceIdentifier(referenceSourceElement, referenceTargetIdentifier);
+      modelInstance.beginChangeOperation();
+      try {
+        Collection<Source> referenceSourceElements = referenceSourceCollection.get(referenceSourceParentElement);
+        Source referenceSourceElement = modelInstance.newInstance(referenceSourceType);
+        referenceSourceElements.add(referenceSourceElement);
+        setReferenceIdentifier(referenceSourceElement, referenceTargetIdentifier);
+      }
+      finally {
+        modelInstance.endChangeOperation();
+      }
     }
   }
 
@@ -75,8 +80,16 @@ public class ElementReferenceCollectionImpl<Target extends ModelElementInstance,
   }
 
   private void performClearOperation(ModelElementInstanceImpl referenceSourceParentElement, Collection<DomElement> elementsToRemove) {
-    for (DomElement element: elementsToRemove) {
-      referenceSourceParentElement.getDomElement().removeChild(element);
+    ModelInstanceImpl modelInstance = referenceSourceParentElement.getModelInstance();
+    modelInstance.beginChangeOperation();
+    try {
+      Collection<ModelElementInstance> modelElements = ModelUtil.getModelElementCollection(elementsToRemove, modelInstance);
+      for (ModelElementInstance element : modelElements) {
+        referenceSourceParentElement.removeChildElement(element);
+      }
+    }
+    finally {
+      modelInstance.endChangeOperation();
     }
   }
 
@@ -109,12 +122,12 @@ public class ElementReferenceCollectionImpl<Target extends ModelElementInstance,
 
   @SuppressWarnings("unchecked")
   private Collection<DomElement> getView(ModelElementInstanceImpl referenceSourceParentElement) {
-    DomDocument document = referenceSourceParentElement.getModelInstance().getDocument();
+    ModelInstanceImpl modelInstance = referenceSourceParentElement.getModelInstance();
     Collection<Source> referenceSourceElements = referenceSourceCollection.get(referenceSourceParentElement);
     Collection<DomElement> referenceTargetElements = new ArrayList<DomElement>();
     for (Source referenceSourceElement : referenceSourceElements) {
       String identifier = getReferenceIdentifier(referenceSourceElement);
-      DomElement referenceTargetElement = document.getElementById(identifier);
+      DomElement referenceTargetElement = modelInstance.getDomElementById(identifier);
       if (referenceTargetElement != null) {
         referenceTargetElements.add(referenceTargetElement);
       }
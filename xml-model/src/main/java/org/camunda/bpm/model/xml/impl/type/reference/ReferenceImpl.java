@@ -14,9 +14,12 @@ package org.camunda.bpm.model.xml.impl.type.reference;
 
 import org.camunda.bpm.model.xml.ModelInstance;
 import org.camunda.bpm.model.xml.ModelReferenceException;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
 import org.camunda.bpm.model.xml.impl.type.ModelElementTypeImpl;
 import org.camunda.bpm.model.xml.impl.type.attribute.AttributeImpl;
 import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
 import org.camunda.bpm.model.xml.type.ModelElementType;
 import org.camunda.bpm.model.xml.type.attribute.Attribute;
 import org.camunda.bpm.model.xml.type.reference.Reference;
@@ -115,10 +118,33 @@ public abstract class ReferenceImpl<T extends ModelElementInstance> implements R
     this.referenceTargetElementType = referenceTargetElementType;
   }
 
+  /**
+   * Get the reference target model element type
+   *
+   * @return the reference target model element type
+   */
+  public ModelElementTypeImpl getReferenceTargetElementType() {
+    return referenceTargetElementType;
+  }
+
+  /**
+   * Checks whether the element is of the reference target element type
+   *
+   * @param element the model element instance to check
+   * @return true if the element can be referenced, false otherwise
+   */
+  protected boolean isReferenceTargetElement(ModelElementInstance element) {
+    return referenceTargetElementType.isBaseTypeOf(element.getElementType());
+  }
+
   public Collection<ModelElementInstance> findReferenceSourceElements(ModelElementInstance referenceTargetElement) {
-    if(referenceTargetElementType.isBaseTypeOf(referenceTargetElement.getElementType())) {
+    if(isReferenceTargetElement(referenceTargetElement)) {
       ModelElementType owningElementType = getReferenceSourceElementType();
-      return referenceTargetElement.getModelInstance().getModelElementsByType(owningElementType);
+      ModelInstanceImpl modelInstance = (ModelInstanceImpl) referenceTargetElement.getModelInstance();
+      if (ModelMetricsRegistry.isEnabled()) {
+        modelInstance.recordMetric(ModelMetric.REFERENCE_SCAN, 0);
+      }
+      return modelInstance.getModelElementsByType(owningElementType);
     }
     else {
       return Collections.emptyList();
@@ -142,9 +168,18 @@ public abstract class ReferenceImpl<T extends ModelElementInstance> implements R
    * @param newIdentifier the new reference identifier
    */
   public void referencedElementUpdated(ModelElementInstance referenceTargetElement, String oldIdentifier, String newIdentifier) {
+    DeferredReferenceUpdates deferredUpdates = getDeferredReferenceUpdates(referenceTargetElement);
+    if (deferredUpdates != null && deferredUpdates.deferUpdate(this, referenceTargetElement, oldIdentifier, newIdentifier)) {
+      return;
+    }
+    boolean timed = ModelMetricsRegistry.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
     for (ModelElementInstance referenceSourceElement : findReferenceSourceElements(referenceTargetElement)) {
       updateReference(referenceSourceElement, oldIdentifier, newIdentifier);
     }
+    if (timed) {
+      recordReferenceUpdate(referenceTargetElement, startTime);
+    }
   }
 
   /**
@@ -161,11 +196,35 @@ public abstract class ReferenceImpl<T extends ModelElementInstance> implements R
    * @param referenceIdentifier  the identifier of the reference to filter reference source elements
    */
   public void referencedElementRemoved(ModelElementInstance referenceTargetElement, Object referenceIdentifier) {
+    DeferredReferenceUpdates deferredUpdates = getDeferredReferenceUpdates(referenceTargetElement);
+    if (deferredUpdates != null && deferredUpdates.deferRemoval(this, referenceTargetElement, referenceIdentifier)) {
+      return;
+    }
+    boolean timed = ModelMetricsRegistry.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
     for (ModelElementInstance referenceSourceElement : findReferenceSourceElements(referenceTargetElement)) {
       if (referenceIdentifier.equals(getReferenceIdentifier(referenceSourceElement))) {
         removeReference(referenceSourceElement);
       }
     }
+    if (timed) {
+      recordReferenceUpdate(referenceTargetElement, startTime);
+    }
+  }
+
+  protected void recordReferenceUpdate(ModelElementInstance referenceTargetElement, long startTime) {
+    ModelInstanceImpl modelInstance = (ModelInstanceImpl) referenceTargetElement.getModelInstance();
+    modelInstance.recordMetric(ModelMetric.REFERENCE_UPDATE, System.nanoTime() - startTime);
+  }
+
+  /**
+   * Returns the deferred reference updates of the running batch of the model instance
+   *
+   * @param referenceTargetElement the reference target model element instance
+   * @return the deferred reference updates or null if updates have to be applied immediately
+   */
+  protected DeferredReferenceUpdates getDeferredReferenceUpdates(ModelElementInstance referenceTargetElement) {
+    return ((ModelInstanceImpl) referenceTargetElement.getModelInstance()).getDeferredReferenceUpdates();
   }
 
 }
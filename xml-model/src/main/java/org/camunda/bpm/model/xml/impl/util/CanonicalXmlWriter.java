@@ -0,0 +1,451 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.util;
+
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Comment;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static javax.xml.XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.XMLConstants.XML_NS_URI;
+
+/**
+ * Writes a DOM document in a canonical form, so that semantically identical documents
+ * result in identical bytes:
+ *
+ * <ul>
+ *   <li>the namespace of the document element is the default namespace, all other
+ *   namespaces get well-known or generated prefixes in the order of their first usage</li>
+ *   <li>all namespace declarations are written sorted by prefix on the document element</li>
+ *   <li>attributes are sorted by namespace URI and local name</li>
+ *   <li>formatting whitespace is replaced by an indentation of two spaces, text which
+ *   is not only whitespace is written unchanged and CDATA sections are written as escaped
+ *   text</li>
+ * </ul>
+ *
+ * <p>Prefixes in <code>xsi:type</code> values and, if the type metadata of the model is
+ * given, in the values of qualified name references are rewritten to the canonical prefixes.
+ * Other attribute values and text content are written unchanged, so namespace declarations
+ * which are not used by element or attribute names are kept with their original prefix if
+ * possible.</p>
+ */
+public class CanonicalXmlWriter {
+
+  private static final String INDENT = "  ";
+  private static final String XSI_TYPE = "type";
+  private static final String GENERATED_PREFIX = "ns";
+
+  private static final Map<String, String> CANONICAL_PREFIXES = new HashMap<String, String>(XmlQName.KNOWN_PREFIXES);
+  static {
+    CANONICAL_PREFIXES.remove(XMLNS_ATTRIBUTE_NS_URI);
+    CANONICAL_PREFIXES.put(W3C_XML_SCHEMA_INSTANCE_NS_URI, "xsi");
+    CANONICAL_PREFIXES.put("http://www.omg.org/spec/DD/20100524/DC", "dc");
+    CANONICAL_PREFIXES.put("http://www.omg.org/spec/DD/20100524/DI", "di");
+  }
+
+  private static final Comparator<Attr> ATTRIBUTE_COMPARATOR = new Comparator<Attr>() {
+    public int compare(Attr attribute1, Attr attribute2) {
+      String namespaceUri1 = attribute1.getNamespaceURI();
+      String namespaceUri2 = attribute2.getNamespaceURI();
+      if (namespaceUri1 == null) {
+        if (namespaceUri2 != null) {
+          return -1;
+        }
+      }
+      else if (namespaceUri2 == null) {
+        return 1;
+      }
+      else {
+        int result = namespaceUri1.compareTo(namespaceUri2);
+        if (result != 0) {
+          return result;
+        }
+      }
+      return getLocalName(attribute1).compareTo(getLocalName(attribute2));
+    }
+  };
+
+  private final Writer writer;
+  private final ModelTypeMetadata modelTypeMetadata;
+
+  /** the canonical prefix by namespace URI */
+  private final Map<String, String> prefixes = new HashMap<String, String>();
+
+  public CanonicalXmlWriter(Writer writer) {
+    this(writer, null);
+  }
+
+  /**
+   * @param writer  the writer of the document
+   * @param modelTypeMetadata  the type metadata to find qualified name references or null
+   */
+  public CanonicalXmlWriter(Writer writer, ModelTypeMetadata modelTypeMetadata) {
+    this.writer = writer;
+    this.modelTypeMetadata = modelTypeMetadata;
+  }
+
+  public void write(Document document) throws IOException {
+    writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    Element documentElement = document.getDocumentElement();
+    if (documentElement != null) {
+      assignPrefixes(documentElement);
+      writeElement(documentElement, 0, true);
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  // prefix assignment ///////////////////////////////////////////////
+
+  protected void assignPrefixes(Element documentElement) {
+    Set<String> namespaceUris = new LinkedHashSet<String>();
+    Set<String> attributeNamespaceUris = new HashSet<String>();
+    Map<String, String> declaredNamespaces = new TreeMap<String, String>();
+    boolean hasElementWithoutNamespace = collectNamespaces(documentElement, namespaceUris, attributeNamespaceUris, declaredNamespaces);
+
+    // the default namespace cannot be used for attributes or if elements without namespace exist
+    Set<String> usedPrefixes = new HashSet<String>();
+    String documentNamespaceUri = documentElement.getNamespaceURI();
+    if (documentNamespaceUri != null && !hasElementWithoutNamespace && !attributeNamespaceUris.contains(documentNamespaceUri)) {
+      prefixes.put(documentNamespaceUri, "");
+    }
+    usedPrefixes.add("");
+
+    // well-known prefixes are preferred over generated ones
+    for (String namespaceUri : namespaceUris) {
+      String prefix = CANONICAL_PREFIXES.get(namespaceUri);
+      if (!prefixes.containsKey(namespaceUri) && prefix != null && !usedPrefixes.contains(prefix)) {
+        prefixes.put(namespaceUri, prefix);
+        usedPrefixes.add(prefix);
+      }
+    }
+
+    // declarations of otherwise unused namespaces may be referenced by values
+    Map<String, String> unusedNamespaces = new TreeMap<String, String>();
+    for (Map.Entry<String, String> declaredNamespace : declaredNamespaces.entrySet()) {
+      String prefix = declaredNamespace.getKey();
+      String namespaceUri = declaredNamespace.getValue();
+      if (!namespaceUris.contains(namespaceUri) && !usedPrefixes.contains(prefix)) {
+        unusedNamespaces.put(prefix, namespaceUri);
+      }
+    }
+
+    int generatedPrefixIndex = 0;
+    for (String namespaceUri : namespaceUris) {
+      if (!prefixes.containsKey(namespaceUri)) {
+        String prefix;
+        do {
+          prefix = GENERATED_PREFIX + generatedPrefixIndex++;
+        } while (usedPrefixes.contains(prefix) || unusedNamespaces.containsKey(prefix));
+        prefixes.put(namespaceUri, prefix);
+        usedPrefixes.add(prefix);
+      }
+    }
+
+    for (Map.Entry<String, String> unusedNamespace : unusedNamespaces.entrySet()) {
+      if (!prefixes.containsKey(unusedNamespace.getValue())) {
+        prefixes.put(unusedNamespace.getValue(), unusedNamespace.getKey());
+      }
+    }
+  }
+
+  /**
+   * Collects the namespaces of element and attribute names, <code>xsi:type</code> values and
+   * qualified name references in document order and the namespace declarations by prefix.
+   *
+   * @return true if an element without namespace exists
+   */
+  protected boolean collectNamespaces(Element element, Set<String> namespaceUris, Set<String> attributeNamespaceUris, Map<String, String> declaredNamespaces) {
+    boolean hasElementWithoutNamespace = element.getNamespaceURI() == null;
+    if (!hasElementWithoutNamespace) {
+      namespaceUris.add(element.getNamespaceURI());
+    }
+
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      String namespaceUri = attribute.getNamespaceURI();
+      if (XMLNS_ATTRIBUTE_NS_URI.equals(namespaceUri)) {
+        String prefix = XMLNS_ATTRIBUTE.equals(attribute.getPrefix()) ? attribute.getLocalName() : "";
+        if (!declaredNamespaces.containsKey(prefix) && attribute.getValue().length() > 0) {
+          declaredNamespaces.put(prefix, attribute.getValue());
+        }
+      }
+      else if (namespaceUri != null && !XML_NS_URI.equals(namespaceUri)) {
+        namespaceUris.add(namespaceUri);
+        attributeNamespaceUris.add(namespaceUri);
+        if (isXsiType(attribute)) {
+          addValueNamespace(element, attribute.getValue(), namespaceUris);
+        }
+      }
+      if (isQNameReference(element, attribute)) {
+        addValueNamespace(element, attribute.getValue(), namespaceUris);
+      }
+    }
+    if (hasQNameTextContent(element)) {
+      addValueNamespace(element, element.getTextContent().trim(), namespaceUris);
+    }
+
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        hasElementWithoutNamespace |= collectNamespaces((Element) child, namespaceUris, attributeNamespaceUris, declaredNamespaces);
+      }
+    }
+    return hasElementWithoutNamespace;
+  }
+
+  protected void addValueNamespace(Element element, String qualifiedName, Set<String> namespaceUris) {
+    String namespaceUri = element.lookupNamespaceURI(getPrefix(qualifiedName));
+    if (namespaceUri != null) {
+      namespaceUris.add(namespaceUri);
+    }
+  }
+
+  // writing /////////////////////////////////////////////////////////
+
+  protected void writeElement(Element element, int depth, boolean isDocumentElement) throws IOException {
+    String qualifiedName = getQualifiedName(element.getNamespaceURI(), getLocalName(element));
+    writer.write('<');
+    writer.write(qualifiedName);
+
+    if (isDocumentElement) {
+      writeNamespaceDeclarations();
+    }
+    writeAttributes(element);
+
+    List<Node> childNodes = new ArrayList<Node>();
+    boolean hasChildElements = false;
+    StringBuilder text = new StringBuilder();
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      switch (child.getNodeType()) {
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+          text.append(child.getNodeValue());
+          break;
+        case Node.ELEMENT_NODE:
+          hasChildElements = true;
+          addText(childNodes, text, element);
+          childNodes.add(child);
+          break;
+        case Node.COMMENT_NODE:
+          addText(childNodes, text, element);
+          childNodes.add(child);
+          break;
+        default:
+          // processing instructions and entity references are not written
+          break;
+      }
+    }
+    addText(childNodes, text, element);
+
+    if (childNodes.isEmpty()) {
+      writer.write("/>");
+    }
+    else if (!hasChildElements && childNodes.size() == 1 && childNodes.get(0).getNodeType() == Node.TEXT_NODE) {
+      writer.write('>');
+      String textContent = childNodes.get(0).getNodeValue();
+      writeText(hasQNameTextContent(element) ? getCanonicalQName(element, textContent.trim()) : textContent);
+      writer.write("</");
+      writer.write(qualifiedName);
+      writer.write('>');
+    }
+    else {
+      writer.write('>');
+      for (Node childNode : childNodes) {
+        writeIndent(depth + 1);
+        switch (childNode.getNodeType()) {
+          case Node.ELEMENT_NODE:
+            writeElement((Element) childNode, depth + 1, false);
+            break;
+          case Node.COMMENT_NODE:
+            writer.write("<!--");
+            writer.write(((Comment) childNode).getData());
+            writer.write("-->");
+            break;
+          default:
+            writeText(childNode.getNodeValue());
+            break;
+        }
+      }
+      writeIndent(depth);
+      writer.write("</");
+      writer.write(qualifiedName);
+      writer.write('>');
+    }
+  }
+
+  protected void writeNamespaceDeclarations() throws IOException {
+    Map<String, String> namespaceUrisByPrefix = new TreeMap<String, String>();
+    for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+      namespaceUrisByPrefix.put(prefix.getValue(), prefix.getKey());
+    }
+    for (Map.Entry<String, String> namespace : namespaceUrisByPrefix.entrySet()) {
+      String prefix = namespace.getKey();
+      writer.write(' ');
+      writer.write(XMLNS_ATTRIBUTE);
+      if (prefix.length() > 0) {
+        writer.write(':');
+        writer.write(prefix);
+      }
+      writer.write("=\"");
+      writeAttributeValue(namespace.getValue());
+      writer.write('"');
+    }
+  }
+
+  protected void writeAttributes(Element element) throws IOException {
+    NamedNodeMap attributeMap = element.getAttributes();
+    List<Attr> attributes = new ArrayList<Attr>(attributeMap.getLength());
+    for (int i = 0; i < attributeMap.getLength(); i++) {
+      Attr attribute = (Attr) attributeMap.item(i);
+      if (!XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+        attributes.add(attribute);
+      }
+    }
+    Collections.sort(attributes, ATTRIBUTE_COMPARATOR);
+
+    for (Attr attribute : attributes) {
+      String namespaceUri = attribute.getNamespaceURI();
+      writer.write(' ');
+      if (namespaceUri == null) {
+        writer.write(getLocalName(attribute));
+      }
+      else if (XML_NS_URI.equals(namespaceUri)) {
+        writer.write("xml:");
+        writer.write(getLocalName(attribute));
+      }
+      else {
+        writer.write(prefixes.get(namespaceUri));
+        writer.write(':');
+        writer.write(getLocalName(attribute));
+      }
+      writer.write("=\"");
+      String value = attribute.getValue();
+      if (isXsiType(attribute) || isQNameReference(element, attribute)) {
+        value = getCanonicalQName(element, value);
+      }
+      writeAttributeValue(value);
+      writer.write('"');
+    }
+  }
+
+  protected void writeIndent(int depth) throws IOException {
+    writer.write('\n');
+    for (int i = 0; i < depth; i++) {
+      writer.write(INDENT);
+    }
+  }
+
+  protected void writeText(String text) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '&': writer.write("&amp;"); break;
+        case '<': writer.write("&lt;"); break;
+        case '>': writer.write("&gt;"); break;
+        case '\r': writer.write("&#xD;"); break;
+        default: writer.write(c);
+      }
+    }
+  }
+
+  protected void writeAttributeValue(String value) throws IOException {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&': writer.write("&amp;"); break;
+        case '<': writer.write("&lt;"); break;
+        case '"': writer.write("&quot;"); break;
+        case '\t': writer.write("&#x9;"); break;
+        case '\n': writer.write("&#xA;"); break;
+        case '\r': writer.write("&#xD;"); break;
+        default: writer.write(c);
+      }
+    }
+  }
+
+  // helper //////////////////////////////////////////////////////////
+
+  /**
+   * Adds the text as text node unless it only contains whitespace and clears the text.
+   */
+  protected void addText(List<Node> childNodes, StringBuilder text, Element element) {
+    if (text.toString().trim().length() > 0) {
+      childNodes.add(element.getOwnerDocument().createTextNode(text.toString()));
+    }
+    text.setLength(0);
+  }
+
+  protected String getQualifiedName(String namespaceUri, String localName) {
+    String prefix = namespaceUri != null ? prefixes.get(namespaceUri) : null;
+    if (prefix == null || prefix.length() == 0) {
+      return localName;
+    }
+    else {
+      return prefix + ":" + localName;
+    }
+  }
+
+  protected String getCanonicalQName(Element element, String qualifiedName) {
+    String prefix = getPrefix(qualifiedName);
+    String namespaceUri = element.lookupNamespaceURI(prefix);
+    if (namespaceUri == null || !prefixes.containsKey(namespaceUri)) {
+      return qualifiedName;
+    }
+    String localName = prefix != null ? qualifiedName.substring(prefix.length() + 1) : qualifiedName;
+    return getQualifiedName(namespaceUri, localName);
+  }
+
+  protected boolean isQNameReference(Element element, Attr attribute) {
+    return modelTypeMetadata != null && modelTypeMetadata.isQNameReference(element, attribute);
+  }
+
+  protected boolean hasQNameTextContent(Element element) {
+    return modelTypeMetadata != null && modelTypeMetadata.hasQNameTextContent(element);
+  }
+
+  protected static boolean isXsiType(Attr attribute) {
+    return W3C_XML_SCHEMA_INSTANCE_NS_URI.equals(attribute.getNamespaceURI()) && XSI_TYPE.equals(getLocalName(attribute));
+  }
+
+  protected static String getPrefix(String qualifiedName) {
+    int index = qualifiedName.indexOf(':');
+    return index > 0 ? qualifiedName.substring(0, index) : null;
+  }
+
+  protected static String getLocalName(Node node) {
+    String localName = node.getLocalName();
+    return localName != null ? localName : node.getNodeName();
+  }
+
+}
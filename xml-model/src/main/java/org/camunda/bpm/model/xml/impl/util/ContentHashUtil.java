@@ -0,0 +1,220 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.impl.util;
+
+import org.camunda.bpm.model.xml.ModelException;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import static javax.xml.XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+
+/**
+ * Computes Merkle style content hashes of DOM element subtrees. The hash of an element
+ * covers its namespace URI and local name, its attributes independent of their order,
+ * its trimmed text segments and the hashes of its child elements in document order.
+ * Namespace prefixes and declarations are ignored. This includes the prefixes in the values
+ * of <code>xsi:type</code> attributes and, if the type metadata of the model is given, in
+ * the values of qualified name references, which are hashed with their namespace URI.
+ *
+ * <p>The hash of every element is cached as user data of the DOM node. Since the hash of
+ * an element is computed from the cached hashes of its child elements, a change only has
+ * to invalidate the hashes on the path to the document element.</p>
+ */
+public final class ContentHashUtil {
+
+  private static final String CONTENT_HASH_KEY = "camunda.contentHash";
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String XSI_TYPE = "type";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final byte ELEMENT = 1;
+  private static final byte ATTRIBUTE = 2;
+  private static final byte TEXT = 3;
+  private static final byte CHILD_ELEMENT = 4;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * Returns the content hash of the element subtree. Missing hashes of the subtree
+   * are computed and cached.
+   *
+   * @param element  the element to hash
+   * @param modelTypeMetadata  the type metadata to find qualified name references or null
+   * @return the content hash
+   */
+  public static byte[] getContentHash(Element element, ModelTypeMetadata modelTypeMetadata) {
+    byte[] contentHash = (byte[]) element.getUserData(CONTENT_HASH_KEY);
+    if (contentHash == null) {
+      contentHash = computeContentHash(element, modelTypeMetadata);
+      element.setUserData(CONTENT_HASH_KEY, contentHash, null);
+    }
+    return contentHash;
+  }
+
+  /**
+   * Invalidates the cached content hashes of the element and all its ancestors.
+   *
+   * <p>A hash is only cached if the hashes of all child elements are cached, so the
+   * invalidation can stop at the first element without a cached hash.</p>
+   *
+   * @param element  the changed element
+   */
+  public static void invalidateContentHash(Element element) {
+    Node node = element;
+    while (node != null && node.getNodeType() == Node.ELEMENT_NODE && node.getUserData(CONTENT_HASH_KEY) != null) {
+      node.setUserData(CONTENT_HASH_KEY, null, null);
+      node = node.getParentNode();
+    }
+  }
+
+  /**
+   * Converts a content hash to its lower case hexadecimal representation.
+   *
+   * @param contentHash  the content hash to convert
+   * @return the hexadecimal string
+   */
+  public static String toHexString(byte[] contentHash) {
+    char[] chars = new char[contentHash.length * 2];
+    for (int i = 0; i < contentHash.length; i++) {
+      chars[2 * i] = HEX_DIGITS[(contentHash[i] >> 4) & 0xf];
+      chars[2 * i + 1] = HEX_DIGITS[contentHash[i] & 0xf];
+    }
+    return new String(chars);
+  }
+
+  protected static byte[] computeContentHash(Element element, ModelTypeMetadata modelTypeMetadata) {
+    MessageDigest digest = createMessageDigest();
+    digest.update(ELEMENT);
+    update(digest, element.getNamespaceURI());
+    update(digest, element.getLocalName());
+
+    // attributes are hashed in a canonical order
+    NamedNodeMap attributes = element.getAttributes();
+    String[] attributeKeys = new String[attributes.getLength()];
+    int attributeCount = 0;
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (!XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+        attributeKeys[attributeCount++] = getAttributeKey(element, attribute, modelTypeMetadata);
+      }
+    }
+    Arrays.sort(attributeKeys, 0, attributeCount);
+    for (int i = 0; i < attributeCount; i++) {
+      digest.update(ATTRIBUTE);
+      update(digest, attributeKeys[i]);
+    }
+
+    StringBuilder text = new StringBuilder();
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      switch (child.getNodeType()) {
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+          text.append(child.getNodeValue());
+          break;
+        case Node.ELEMENT_NODE:
+          updateText(digest, text, element, modelTypeMetadata);
+          digest.update(CHILD_ELEMENT);
+          digest.update(getContentHash((Element) child, modelTypeMetadata));
+          break;
+        default:
+          // comments and processing instructions are no content
+          break;
+      }
+    }
+    updateText(digest, text, element, modelTypeMetadata);
+
+    return digest.digest();
+  }
+
+  /**
+   * Returns the value of an attribute as it is hashed. The prefixes of qualified names
+   * are replaced by their namespace URI.
+   *
+   * @param element  the element of the attribute
+   * @param attribute  the attribute node
+   * @param modelTypeMetadata  the type metadata to find qualified name references or null
+   * @return the hashed value
+   */
+  public static String getHashedValue(Element element, Attr attribute, ModelTypeMetadata modelTypeMetadata) {
+    String value = attribute.getValue();
+    if (isXsiType(attribute) || (modelTypeMetadata != null && modelTypeMetadata.isQNameReference(element, attribute))) {
+      value = ModelTypeMetadata.getExpandedName(element, value);
+    }
+    return value;
+  }
+
+  /**
+   * Returns the trimmed text content of an element as it is hashed. The prefix of a
+   * qualified name is replaced by its namespace URI.
+   *
+   * @param element  the element
+   * @param trimmedText  the trimmed text content of the element
+   * @param modelTypeMetadata  the type metadata to find qualified name references or null
+   * @return the hashed text
+   */
+  public static String getHashedText(Element element, String trimmedText, ModelTypeMetadata modelTypeMetadata) {
+    if (trimmedText.length() > 0 && modelTypeMetadata != null && modelTypeMetadata.hasQNameTextContent(element)) {
+      return ModelTypeMetadata.getExpandedName(element, trimmedText);
+    }
+    else {
+      return trimmedText;
+    }
+  }
+
+  protected static String getAttributeKey(Element element, Attr attribute, ModelTypeMetadata modelTypeMetadata) {
+    String namespaceUri = attribute.getNamespaceURI();
+    String localName = attribute.getLocalName() != null ? attribute.getLocalName() : attribute.getName();
+    // the separators cannot be part of a namespace URI or local name
+    return (namespaceUri != null ? namespaceUri : "") + " " + localName + "=" + getHashedValue(element, attribute, modelTypeMetadata);
+  }
+
+  protected static boolean isXsiType(Attr attribute) {
+    return W3C_XML_SCHEMA_INSTANCE_NS_URI.equals(attribute.getNamespaceURI()) && XSI_TYPE.equals(attribute.getLocalName());
+  }
+
+  protected static void updateText(MessageDigest digest, StringBuilder text, Element element, ModelTypeMetadata modelTypeMetadata) {
+    String trimmedText = text.toString().trim();
+    if (trimmedText.length() > 0) {
+      digest.update(TEXT);
+      update(digest, getHashedText(element, trimmedText, modelTypeMetadata));
+    }
+    text.setLength(0);
+  }
+
+  protected static void update(MessageDigest digest, String value) {
+    byte[] bytes = value != null ? value.getBytes(UTF_8) : new byte[0];
+    int length = bytes.length;
+    digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+    digest.update(bytes);
+  }
+
+  protected static MessageDigest createMessageDigest() {
+    try {
+      return MessageDigest.getInstance(HASH_ALGORITHM);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new ModelException("Unable to create message digest " + HASH_ALGORITHM, e);
+    }
+  }
+
+}
@@ -143,6 +143,26 @@ public final class DomUtil {
 
   }
 
+  /**
+   * Applies a {@link NodeListFilter} to the child nodes of a node. The child nodes are
+   * visited by their sibling links, so unlike the {@link NodeList} of the child nodes,
+   * no cache of the parent node is modified and concurrent threads can filter the
+   * child nodes of the same node.
+   *
+   * @param parentNode the node which child nodes are filtered
+   * @param filter the {@link NodeListFilter} to apply to the child nodes
+   * @return the List of all Nodes which match the filter
+   */
+  public static List<DomElement> filterChildNodes(Node parentNode, NodeListFilter filter) {
+    List<DomElement> filteredList = new ArrayList<DomElement>();
+    for (Node node = parentNode.getFirstChild(); node != null; node = node.getNextSibling()) {
+      if(filter.matches(node)) {
+        filteredList.add(new DomElementImpl((Element) node));
+      }
+    }
+    return filteredList;
+  }
+
   /**
    * Filters a {@link NodeList} retaining all elements
    *
@@ -12,7 +12,12 @@
  */
 package org.camunda.bpm.model.xml.impl.util;
 
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata;
 import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetrics;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
+import org.w3c.dom.Document;
 
 import javax.xml.transform.*;
 import javax.xml.transform.stream.StreamResult;
@@ -76,6 +81,23 @@ public final class IoUtil {
     return stringBuilder.toString();
   }
 
+  /**
+   * Reads all bytes of an {@link InputStream}, which is not closed.
+   *
+   * @param inputStream the {@link InputStream} to read
+   * @return the bytes read
+   * @throws IOException
+   */
+  public static byte[] getBytesFromInputStream(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = inputStream.read(buffer)) > 0) {
+      outputStream.write(buffer, 0, read);
+    }
+    return outputStream.toByteArray();
+  }
+
   /**
    * Converts a {@link OutputStream} to an {@link InputStream} by coping the data directly.
    * WARNING: Do not use for large data (>100MB). Only for testing purpose.
@@ -118,6 +140,9 @@ public final class IoUtil {
    * @param result  the {@link StreamResult} to write to
    */
   public static void transformDocumentToXml(DomDocument document, StreamResult result) {
+    ModelMetrics metrics = ModelMetricsRegistry.getMetrics();
+    boolean timed = metrics.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
     TransformerFactory transformerFactory = TransformerFactory.newInstance();
     try {
       Transformer transformer = transformerFactory.newTransformer();
@@ -129,6 +154,59 @@ public final class IoUtil {
       throw new ModelIoException("Unable to create a transformer for the model", e);
     } catch (TransformerException e) {
       throw new ModelIoException("Unable to transform model to xml", e);
+    } finally {
+      if (timed) {
+        metrics.record(ModelMetric.SERIALIZATION, System.nanoTime() - startTime);
+      }
+    }
+  }
+
+  /**
+   * Converts a {@link DomDocument} to its canonical String representation.
+   *
+   * @param document  the XML document to convert
+   * @param modelTypeMetadata  the type metadata to find qualified name references or null
+   * @see CanonicalXmlWriter
+   */
+  public static String convertXmlDocumentToCanonicalString(DomDocument document, ModelTypeMetadata modelTypeMetadata) {
+    StringWriter stringWriter = new StringWriter();
+    writeCanonicalDocument(document, modelTypeMetadata, stringWriter);
+    return stringWriter.toString();
+  }
+
+  /**
+   * Writes the canonical UTF-8 encoded XML representation of a {@link DomDocument} to
+   * an {@link OutputStream}.
+   *
+   * @param document  the DOM document to write
+   * @param modelTypeMetadata  the type metadata to find qualified name references or null
+   * @param outputStream  the {@link OutputStream} to write to
+   * @see CanonicalXmlWriter
+   */
+  public static void writeCanonicalDocumentToOutputStream(DomDocument document, ModelTypeMetadata modelTypeMetadata, OutputStream outputStream) {
+    try {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+      writeCanonicalDocument(document, modelTypeMetadata, writer);
+    }
+    catch (UnsupportedEncodingException e) {
+      throw new ModelIoException("Unable to write model in UTF-8", e);
+    }
+  }
+
+  protected static void writeCanonicalDocument(DomDocument document, ModelTypeMetadata modelTypeMetadata, Writer writer) {
+    ModelMetrics metrics = ModelMetricsRegistry.getMetrics();
+    boolean timed = metrics.isEnabled();
+    long startTime = timed ? System.nanoTime() : 0;
+    try {
+      new CanonicalXmlWriter(writer, modelTypeMetadata).write((Document) document.getDomSource().getNode());
+    }
+    catch (IOException e) {
+      throw new ModelIoException("Unable to write canonical xml of the model", e);
+    }
+    finally {
+      if (timed) {
+        metrics.record(ModelMetric.SERIALIZATION, System.nanoTime() - startTime);
+      }
     }
   }
 
@@ -19,6 +19,8 @@ import org.camunda.bpm.model.xml.impl.instance.ModelElementInstanceImpl;
 import org.camunda.bpm.model.xml.impl.type.ModelElementTypeImpl;
 import org.camunda.bpm.model.xml.instance.DomElement;
 import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.metrics.ModelMetric;
+import org.camunda.bpm.model.xml.metrics.ModelMetricsRegistry;
 import org.camunda.bpm.model.xml.type.ModelElementType;
 
 import java.util.*;
@@ -51,6 +53,9 @@ public final class ModelUtil {
       }
       modelElement = modelType.newInstance(modelInstance, domElement);
       domElement.setModelElementInstance(modelElement);
+      if (ModelMetricsRegistry.isEnabled()) {
+        modelInstance.recordMetric(ModelMetric.ELEMENT_WRAPPING, 0);
+      }
     }
     return modelElement;
   }
@@ -0,0 +1,333 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.validation;
+
+import org.camunda.bpm.model.xml.Model;
+import org.camunda.bpm.model.xml.ModelValidationException;
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata.TypeMetadata;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.camunda.bpm.model.xml.type.reference.Reference;
+import org.camunda.bpm.model.xml.validation.ValidationError;
+import org.camunda.bpm.model.xml.validation.ValidationErrorType;
+import org.camunda.bpm.model.xml.validation.ValidationResult;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.TypeInfoProvider;
+import javax.xml.validation.ValidatorHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates model documents on a SAX event stream without building a DOM. The document
+ * is validated against the schema and checked for duplicate ids and unresolved
+ * references using the type metadata of the model.
+ *
+ * <p>Besides the schema validator, the memory used only depends on the number of
+ * declared ids and the number of forward references which are not yet resolvable
+ * when they are read. All errors are collected instead of failing on the first one,
+ * only a document which is not well-formed stops the validation.</p>
+ *
+ * <p>A validator can be shared between threads.</p>
+ */
+public class ModelStreamValidator {
+
+  private static final Comparator<ValidationError> DOCUMENT_ORDER = new Comparator<ValidationError>() {
+    public int compare(ValidationError error1, ValidationError error2) {
+      if (error1.getLineNumber() != error2.getLineNumber()) {
+        return error1.getLineNumber() < error2.getLineNumber() ? -1 : 1;
+      }
+      if (error1.getColumnNumber() != error2.getColumnNumber()) {
+        return error1.getColumnNumber() < error2.getColumnNumber() ? -1 : 1;
+      }
+      return 0;
+    }
+  };
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+  protected final Schema schema;
+  protected final SAXParserFactory saxParserFactory;
+
+  /**
+   * Creates a validator for documents of a model.
+   *
+   * @param model  the model which defines the element types
+   * @param schema  the schema to validate against or null to only check ids and references
+   */
+  public ModelStreamValidator(Model model, Schema schema) {
+    this.modelTypeMetadata = new ModelTypeMetadata(model);
+    this.schema = schema;
+    this.saxParserFactory = SAXParserFactory.newInstance();
+    saxParserFactory.setNamespaceAware(true);
+  }
+
+  /**
+   * Validates a document. The stream is not closed.
+   *
+   * @param inputStream  the stream of the document
+   * @return the validation result
+   * @throws ModelValidationException if the stream cannot be read
+   */
+  public ValidationResult validate(InputStream inputStream) {
+    ValidationHandler handler = new ValidationHandler();
+    try {
+      XMLReader reader = createXmlReader();
+      reader.setErrorHandler(handler);
+      if (schema != null) {
+        ValidatorHandler validatorHandler = schema.newValidatorHandler();
+        validatorHandler.setErrorHandler(new SchemaErrorHandler(handler));
+        handler.typeInfoProvider = validatorHandler.getTypeInfoProvider();
+        validatorHandler.setContentHandler(handler);
+        reader.setContentHandler(validatorHandler);
+      }
+      else {
+        reader.setContentHandler(handler);
+      }
+      reader.parse(new InputSource(inputStream));
+      handler.resolvePendingReferences();
+    }
+    catch (SAXParseException e) {
+      // the document is not well-formed, the error was already collected
+    }
+    catch (SAXException e) {
+      throw new ModelValidationException("Error during stream validation", e);
+    }
+    catch (IOException e) {
+      throw new ModelValidationException("Error during stream validation", e);
+    }
+
+    List<ValidationError> errors = handler.errors;
+    Collections.sort(errors, DOCUMENT_ORDER);
+    return new ValidationResultImpl(errors);
+  }
+
+  public Model getModel() {
+    return modelTypeMetadata.getModel();
+  }
+
+  protected XMLReader createXmlReader() throws SAXException {
+    try {
+      synchronized (saxParserFactory) {
+        return saxParserFactory.newSAXParser().getXMLReader();
+      }
+    }
+    catch (ParserConfigurationException e) {
+      throw new ModelValidationException("Unable to create SAX parser", e);
+    }
+  }
+
+  protected static String getAttributeValue(Attributes attributes, Attribute<?> attribute) {
+    String value = null;
+    String namespaceUri = attribute.getNamespaceUri();
+    if (namespaceUri != null) {
+      value = attributes.getValue(namespaceUri, attribute.getAttributeName());
+    }
+    if (value == null) {
+      // see ModelTypeMetadata#getAttributeNode(Element, Attribute)
+      value = attributes.getValue("", attribute.getAttributeName());
+    }
+    return value;
+  }
+
+  /**
+   * A reference which could not be resolved when it was read.
+   */
+  protected static class PendingReference {
+
+    protected final String identifier;
+    protected final String source;
+    protected final int lineNumber;
+    protected final int columnNumber;
+
+    public PendingReference(String identifier, String source, int lineNumber, int columnNumber) {
+      this.identifier = identifier;
+      this.source = source;
+      this.lineNumber = lineNumber;
+      this.columnNumber = columnNumber;
+    }
+
+  }
+
+  protected static class SchemaErrorHandler extends DefaultHandler {
+
+    protected final ValidationHandler handler;
+
+    public SchemaErrorHandler(ValidationHandler handler) {
+      this.handler = handler;
+    }
+
+    public void error(SAXParseException e) {
+      handler.addError(ValidationErrorType.SCHEMA, e);
+    }
+
+    public void fatalError(SAXParseException e) {
+      handler.addError(ValidationErrorType.SCHEMA, e);
+    }
+
+  }
+
+  protected class ValidationHandler extends DefaultHandler {
+
+    protected final List<ValidationError> errors = new ArrayList<ValidationError>();
+
+    /** the declared ids and the line they are declared at */
+    protected final Map<String, Integer> declaredIds = new HashMap<String, Integer>();
+    protected final List<PendingReference> pendingReferences = new ArrayList<PendingReference>();
+
+    protected Locator locator;
+    protected TypeInfoProvider typeInfoProvider;
+    protected int depth;
+
+    /** the depth of the current element reference or -1 if the current element is no reference */
+    protected int elementReferenceDepth = -1;
+    protected Reference<?> elementReference;
+    protected String elementReferenceName;
+    protected int elementReferenceLine;
+    protected int elementReferenceColumn;
+    protected final StringBuilder elementReferenceText = new StringBuilder();
+
+    public void setDocumentLocator(Locator locator) {
+      this.locator = locator;
+    }
+
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      depth++;
+      TypeMetadata metadata = modelTypeMetadata.getTypeMetadata(uri, localName);
+
+      String schemaId = null;
+      if (typeInfoProvider != null) {
+        // the schema also declares the ids of elements which are not part of the model
+        for (int i = 0; i < attributes.getLength(); i++) {
+          if (typeInfoProvider.isIdAttribute(i)) {
+            schemaId = attributes.getValue(i);
+            declareId(schemaId, localName);
+          }
+        }
+      }
+
+      for (Attribute<?> idAttribute : metadata.getIdAttributes()) {
+        String id = getAttributeValue(attributes, idAttribute);
+        if (id != null && !id.equals(schemaId)) {
+          declareId(id, localName);
+        }
+      }
+
+      for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+        Attribute<String> referenceAttribute = reference.getReferenceSourceAttribute();
+        String value = getAttributeValue(attributes, referenceAttribute);
+        if (value != null) {
+          String identifier = ModelTypeMetadata.getReferenceIdentifier(reference, value);
+          String source = "attribute '" + referenceAttribute.getAttributeName() + "' of element '" + localName + "'";
+          addReference(identifier, source, getLineNumber(), getColumnNumber());
+        }
+      }
+
+      if (metadata.getElementReference() != null) {
+        elementReferenceDepth = depth;
+        elementReference = metadata.getElementReference();
+        elementReferenceName = localName;
+        elementReferenceLine = getLineNumber();
+        elementReferenceColumn = getColumnNumber();
+        elementReferenceText.setLength(0);
+      }
+    }
+
+    public void characters(char[] ch, int start, int length) {
+      if (depth == elementReferenceDepth) {
+        elementReferenceText.append(ch, start, length);
+      }
+    }
+
+    public void endElement(String uri, String localName, String qName) {
+      if (depth == elementReferenceDepth) {
+        String value = elementReferenceText.toString().trim();
+        if (value.length() > 0) {
+          String identifier = ModelTypeMetadata.getReferenceIdentifier(elementReference, value);
+          addReference(identifier, "element '" + elementReferenceName + "'", elementReferenceLine, elementReferenceColumn);
+        }
+        elementReferenceDepth = -1;
+      }
+      depth--;
+    }
+
+    public void error(SAXParseException e) {
+      addError(ValidationErrorType.NOT_WELL_FORMED, e);
+    }
+
+    public void fatalError(SAXParseException e) throws SAXException {
+      addError(ValidationErrorType.NOT_WELL_FORMED, e);
+      throw e;
+    }
+
+    protected void declareId(String id, String elementName) {
+      Integer declaringLine = declaredIds.get(id);
+      if (declaringLine == null) {
+        declaredIds.put(id, getLineNumber());
+      }
+      else {
+        addError(ValidationErrorType.DUPLICATE_ID, "Duplicate id '" + id + "' of element '" + elementName
+          + "', the id is already declared at line " + declaringLine, getLineNumber(), getColumnNumber());
+      }
+    }
+
+    protected void addReference(String identifier, String source, int lineNumber, int columnNumber) {
+      if (!declaredIds.containsKey(identifier)) {
+        // the referenced element may follow later in the document
+        pendingReferences.add(new PendingReference(identifier, source, lineNumber, columnNumber));
+      }
+    }
+
+    protected void resolvePendingReferences() {
+      for (PendingReference reference : pendingReferences) {
+        if (!declaredIds.containsKey(reference.identifier)) {
+          addError(ValidationErrorType.UNRESOLVED_REFERENCE, "Unresolved reference '" + reference.identifier + "' of "
+            + reference.source, reference.lineNumber, reference.columnNumber);
+        }
+      }
+      pendingReferences.clear();
+    }
+
+    protected void addError(ValidationErrorType type, SAXParseException e) {
+      addError(type, e.getMessage(), e.getLineNumber(), e.getColumnNumber());
+    }
+
+    protected void addError(ValidationErrorType type, String message, int lineNumber, int columnNumber) {
+      errors.add(new ValidationErrorImpl(type, message, lineNumber, columnNumber));
+    }
+
+    protected int getLineNumber() {
+      return locator != null ? locator.getLineNumber() : -1;
+    }
+
+    protected int getColumnNumber() {
+      return locator != null ? locator.getColumnNumber() : -1;
+    }
+
+  }
+
+}
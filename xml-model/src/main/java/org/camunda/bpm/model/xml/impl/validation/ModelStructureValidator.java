@@ -0,0 +1,280 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.validation;
+
+import org.camunda.bpm.model.xml.Model;
+import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.ReferenceImpl;
+import org.camunda.bpm.model.xml.impl.validation.ModelTypeMetadata.TypeMetadata;
+import org.camunda.bpm.model.xml.instance.DomDocument;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.camunda.bpm.model.xml.type.child.ChildElementCollection;
+import org.camunda.bpm.model.xml.validation.ValidationError;
+import org.camunda.bpm.model.xml.validation.ValidationErrorType;
+import org.camunda.bpm.model.xml.validation.ValidationResult;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates model documents against the metadata of the element types instead of the
+ * schema in a single pass over the DOM tree. It checks the order and the number of
+ * child elements of the child element collections, required attributes, duplicate ids
+ * and the existence and type of referenced elements.
+ *
+ * <p>Elements which are not part of the model are not validated but their children are.
+ * Child elements which belong to no child element collection of their parent are
+ * ignored, since the schema may allow them as extensions.</p>
+ *
+ * <p>The id attributes of the model element types are registered as DOM ids, so that a
+ * document parsed without schema supports the lookup of elements by id.</p>
+ *
+ * <p>A validator can be shared between threads.</p>
+ */
+public class ModelStructureValidator {
+
+  protected final ModelTypeMetadata modelTypeMetadata;
+
+  public ModelStructureValidator(Model model) {
+    this.modelTypeMetadata = new ModelTypeMetadata(model);
+  }
+
+  public Model getModel() {
+    return modelTypeMetadata.getModel();
+  }
+
+  public ModelTypeMetadata getModelTypeMetadata() {
+    return modelTypeMetadata;
+  }
+
+  public ValidationResult validate(ModelInstance modelInstance) {
+    return validate(((ModelInstanceImpl) modelInstance).getDocument());
+  }
+
+  public ValidationResult validate(DomDocument document) {
+    ValidationContext context = new ValidationContext();
+    Element documentElement = ((Document) document.getDomSource().getNode()).getDocumentElement();
+    if (documentElement != null) {
+      validateElement(documentElement, getTypeMetadata(documentElement), context);
+      context.resolveReferences();
+    }
+    return new ValidationResultImpl(context.errors);
+  }
+
+  protected void validateElement(Element element, TypeMetadata metadata, ValidationContext context) {
+    declareIds(element, metadata, context);
+
+    if (metadata.getType() != null) {
+      for (Attribute<?> attribute : metadata.getRequiredAttributes()) {
+        if (ModelTypeMetadata.getAttributeNode(element, attribute) == null) {
+          context.addError(ValidationErrorType.STRUCTURE, "Missing required attribute '" + attribute.getAttributeName()
+            + "' of element '" + getName(element) + "'");
+        }
+      }
+
+      for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+        Attr attribute = ModelTypeMetadata.getAttributeNode(element, reference.getReferenceSourceAttribute());
+        if (attribute != null) {
+          context.addReference(reference, attribute.getValue(), "attribute '" + attribute.getLocalName() + "' of element '" + getName(element) + "'");
+        }
+      }
+
+      ReferenceImpl<?> elementReference = metadata.getElementReference();
+      if (elementReference != null) {
+        String value = element.getTextContent().trim();
+        if (value.length() > 0) {
+          context.addReference(elementReference, value, "element '" + getName(element) + "'");
+        }
+      }
+    }
+
+    validateChildElements(element, metadata, context);
+  }
+
+  protected void validateChildElements(Element element, TypeMetadata metadata, ValidationContext context) {
+    List<ModelElementType> childElementTypes = metadata.getChildElementTypes();
+    int[] occurrences = new int[childElementTypes.size()];
+    int currentCollection = 0;
+
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() != Node.ELEMENT_NODE) {
+        continue;
+      }
+      Element childElement = (Element) child;
+      TypeMetadata childMetadata = getTypeMetadata(childElement);
+
+      ModelElementType childType = childMetadata.getType();
+      if (childType != null && !childElementTypes.isEmpty()) {
+        int collection = findChildElementCollection(childElementTypes, childType, currentCollection);
+        if (collection >= 0) {
+          occurrences[collection]++;
+          currentCollection = collection;
+        }
+        else if (findChildElementCollection(childElementTypes, childType, 0) >= 0) {
+          context.addError(ValidationErrorType.STRUCTURE, "Element '" + getName(childElement) + "' is not allowed after element '"
+            + childElementTypes.get(currentCollection).getTypeName() + "' in element '" + getName(element) + "'");
+        }
+      }
+
+      validateElement(childElement, childMetadata, context);
+    }
+
+    List<ChildElementCollection<?>> childElementCollections = metadata.getChildElementCollections();
+    for (int i = 0; i < occurrences.length; i++) {
+      ChildElementCollection<?> childElementCollection = childElementCollections.get(i);
+      int maxOccurs = childElementCollection.getMaxOccurs();
+      if (occurrences[i] < childElementCollection.getMinOccurs()) {
+        context.addError(ValidationErrorType.STRUCTURE, "Element '" + getName(element) + "' requires at least "
+          + childElementCollection.getMinOccurs() + " child elements of type '" + childElementTypes.get(i).getTypeName()
+          + "' but has " + occurrences[i]);
+      }
+      else if (maxOccurs >= 0 && occurrences[i] > maxOccurs) {
+        context.addError(ValidationErrorType.STRUCTURE, "Element '" + getName(element) + "' allows at most "
+          + maxOccurs + " child elements of type '" + childElementTypes.get(i).getTypeName() + "' but has " + occurrences[i]);
+      }
+    }
+  }
+
+  protected int findChildElementCollection(List<ModelElementType> childElementTypes, ModelElementType childType, int fromIndex) {
+    for (int i = fromIndex; i < childElementTypes.size(); i++) {
+      if (ModelTypeMetadata.isTypeOf(childType, childElementTypes.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  protected void declareIds(Element element, TypeMetadata metadata, ValidationContext context) {
+    if (metadata.getType() != null) {
+      for (Attribute<?> idAttribute : metadata.getIdAttributes()) {
+        Attr attribute = ModelTypeMetadata.getAttributeNode(element, idAttribute);
+        if (attribute != null && !attribute.isId()) {
+          element.setIdAttributeNode(attribute, true);
+        }
+      }
+    }
+    else if (!hasIdAttribute(element)) {
+      // without schema type information the elements which are not part of the model are
+      // assumed to declare their id like the model types
+      for (String idAttributeName : modelTypeMetadata.getIdAttributeNames()) {
+        Attr attribute = element.getAttributeNodeNS(null, idAttributeName);
+        if (attribute != null) {
+          element.setIdAttributeNode(attribute, true);
+        }
+      }
+    }
+
+    // ids of elements which are not part of the model are known from the schema type information
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (attribute.isId()) {
+        context.declareId(attribute.getValue(), metadata.getType(), element);
+      }
+    }
+  }
+
+  protected boolean hasIdAttribute(Element element) {
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      if (((Attr) attributes.item(i)).isId()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected TypeMetadata getTypeMetadata(Element element) {
+    return modelTypeMetadata.getTypeMetadata(element.getNamespaceURI(), element.getLocalName());
+  }
+
+  protected static String getName(Element element) {
+    return element.getLocalName();
+  }
+
+  /**
+   * A reference which is resolved after all ids are declared.
+   */
+  protected static class PendingReference {
+
+    protected final ReferenceImpl<?> reference;
+    protected final String identifier;
+    protected final String source;
+
+    public PendingReference(ReferenceImpl<?> reference, String identifier, String source) {
+      this.reference = reference;
+      this.identifier = identifier;
+      this.source = source;
+    }
+
+  }
+
+  protected static class ValidationContext {
+
+    protected final List<ValidationError> errors = new ArrayList<ValidationError>();
+
+    /** the declared ids and the types of the declaring elements, which are null if unknown */
+    protected final Map<String, ModelElementType> declaredIds = new HashMap<String, ModelElementType>();
+    protected final List<PendingReference> references = new ArrayList<PendingReference>();
+
+    public void declareId(String id, ModelElementType type, Element element) {
+      if (declaredIds.containsKey(id)) {
+        addError(ValidationErrorType.DUPLICATE_ID, "Duplicate id '" + id + "' of element '" + getName(element) + "'");
+      }
+      else {
+        declaredIds.put(id, type);
+      }
+    }
+
+    public void addReference(ReferenceImpl<?> reference, String value, String source) {
+      references.add(new PendingReference(reference, ModelTypeMetadata.getReferenceIdentifier(reference, value), source));
+    }
+
+    public void resolveReferences() {
+      for (PendingReference pendingReference : references) {
+        String identifier = pendingReference.identifier;
+        if (!declaredIds.containsKey(identifier)) {
+          addError(ValidationErrorType.UNRESOLVED_REFERENCE, "Unresolved reference '" + identifier + "' of " + pendingReference.source);
+        }
+        else {
+          ModelElementType targetType = declaredIds.get(identifier);
+          ReferenceImpl<?> reference = pendingReference.reference;
+          if (targetType != null && ModelTypeMetadata.hasReferenceTargetType(reference)
+            && !ModelTypeMetadata.isTypeOf(targetType, reference.getReferenceTargetElementType())) {
+            ModelElementType expectedType = reference.getReferenceTargetElementType();
+            addError(ValidationErrorType.INVALID_REFERENCE, "Reference '" + identifier + "' of " + pendingReference.source
+              + " points to an element of type '" + targetType.getTypeName() + "' instead of '" + expectedType.getTypeName() + "'");
+          }
+        }
+      }
+      references.clear();
+    }
+
+    public void addError(ValidationErrorType type, String message) {
+      // the DOM has no location information
+      errors.add(new ValidationErrorImpl(type, message, -1, -1));
+    }
+
+  }
+
+}
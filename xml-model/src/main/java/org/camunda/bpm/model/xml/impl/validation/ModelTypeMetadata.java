@@ -0,0 +1,339 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.validation;
+
+import org.camunda.bpm.model.xml.Model;
+import org.camunda.bpm.model.xml.impl.type.ModelElementTypeImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.AttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.QNameAttributeReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.QNameElementReferenceCollectionImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.QNameElementReferenceImpl;
+import org.camunda.bpm.model.xml.impl.type.reference.ReferenceImpl;
+import org.camunda.bpm.model.xml.impl.util.QName;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+import org.camunda.bpm.model.xml.type.attribute.Attribute;
+import org.camunda.bpm.model.xml.type.child.ChildElementCollection;
+import org.camunda.bpm.model.xml.type.reference.ElementReferenceCollection;
+import org.camunda.bpm.model.xml.type.reference.Reference;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The metadata of the element types of a model which is needed to validate documents
+ * without the schema: id attributes, required attributes, references and child element
+ * collections. The metadata of a type is collected on first use and includes the
+ * metadata of all its base types.
+ */
+public class ModelTypeMetadata {
+
+  protected static final TypeMetadata UNKNOWN_TYPE = new TypeMetadata(null);
+
+  protected final Model model;
+
+  /** the element types whose text content references another element */
+  protected final Map<ModelElementType, ReferenceImpl<?>> elementReferences = new HashMap<ModelElementType, ReferenceImpl<?>>();
+  protected final Map<ModelElementType, TypeMetadata> typeMetadata = new ConcurrentHashMap<ModelElementType, TypeMetadata>();
+
+  /** the names of all id attributes of the model */
+  protected final Set<String> idAttributeNames = new HashSet<String>();
+
+  public ModelTypeMetadata(Model model) {
+    this.model = model;
+    // element references are only registered at the referenced id attribute
+    for (ModelElementType type : model.getTypes()) {
+      for (Attribute<?> attribute : type.getAttributes()) {
+        if (attribute.isIdAttribute()) {
+          idAttributeNames.add(attribute.getAttributeName());
+        }
+        for (Reference<?> reference : attribute.getIncomingReferences()) {
+          if (reference instanceof ElementReferenceCollection) {
+            elementReferences.put(reference.getReferenceSourceElementType(), (ReferenceImpl<?>) reference);
+          }
+        }
+      }
+    }
+  }
+
+  public Model getModel() {
+    return model;
+  }
+
+  /**
+   * @return the names of all id attributes of the model
+   */
+  public Set<String> getIdAttributeNames() {
+    return idAttributeNames;
+  }
+
+  /**
+   * Returns the metadata of an element.
+   *
+   * @param namespaceUri  the namespace URI of the element
+   * @param localName  the local name of the element
+   * @return the metadata, which has no type if the element is not part of the model
+   */
+  public TypeMetadata getTypeMetadata(String namespaceUri, String localName) {
+    ModelElementType type = model.getTypeForName(namespaceUri, localName);
+    if (type == null || type.getInstanceType() == ModelElementInstance.class) {
+      // generic types are registered for unknown elements while they are accessed
+      return UNKNOWN_TYPE;
+    }
+    TypeMetadata metadata = typeMetadata.get(type);
+    if (metadata == null) {
+      metadata = createTypeMetadata(type);
+      typeMetadata.put(type, metadata);
+    }
+    return metadata;
+  }
+
+  protected TypeMetadata createTypeMetadata(ModelElementType type) {
+    TypeMetadata metadata = new TypeMetadata((ModelElementTypeImpl) type);
+    for (ModelElementType currentType = type; currentType != null; currentType = currentType.getBaseType()) {
+      for (Attribute<?> attribute : currentType.getAttributes()) {
+        if (attribute.isIdAttribute()) {
+          metadata.idAttributes.add(attribute);
+        }
+        if (attribute.isRequired()) {
+          metadata.requiredAttributes.add(attribute);
+        }
+        for (Reference<?> reference : attribute.getOutgoingReferences()) {
+          if (reference instanceof AttributeReferenceImpl) {
+            metadata.attributeReferences.add((AttributeReferenceImpl<?>) reference);
+            break;
+          }
+        }
+      }
+      if (metadata.elementReference == null) {
+        metadata.elementReference = elementReferences.get(currentType);
+      }
+    }
+    for (ChildElementCollection<?> childElementCollection : metadata.type.getAllChildElementCollections()) {
+      metadata.childElementCollections.add(childElementCollection);
+      metadata.childElementTypes.add(childElementCollection.getChildElementType(model));
+    }
+    return metadata;
+  }
+
+  /**
+   * Returns the identifier of the referenced element.
+   *
+   * @param reference  the reference
+   * @param value  the attribute value or text content of the reference source
+   * @return the identifier of the referenced element
+   */
+  public static String getReferenceIdentifier(Reference<?> reference, String value) {
+    if (isQNameReference(reference)) {
+      return QName.parseQName(value).getLocalName();
+    }
+    else {
+      return value;
+    }
+  }
+
+  /**
+   * Checks whether the source value of a reference is a qualified name.
+   */
+  public static boolean isQNameReference(Reference<?> reference) {
+    return reference instanceof QNameAttributeReferenceImpl
+      || reference instanceof QNameElementReferenceCollectionImpl
+      || reference instanceof QNameElementReferenceImpl;
+  }
+
+  /**
+   * Checks whether the type of referenced elements can be validated. Abstract types
+   * which are not extended by any other type only declare the id attribute of the
+   * referenced elements, like interfaces which are implemented by unrelated types.
+   *
+   * @param reference  the reference
+   * @return true if the type of referenced elements can be validated, false otherwise
+   */
+  public static boolean hasReferenceTargetType(ReferenceImpl<?> reference) {
+    ModelElementType targetType = reference.getReferenceTargetElementType();
+    return targetType != null && (!targetType.isAbstract() || !targetType.getExtendingTypes().isEmpty());
+  }
+
+  /**
+   * Checks whether an element of a type can be the target of a reference. If the type of
+   * referenced elements cannot be validated, every element can be referenced.
+   *
+   * @param reference  the reference
+   * @param type  the type of the element
+   * @return true if the element can be referenced, false otherwise
+   */
+  public static boolean isReferenceTarget(ReferenceImpl<?> reference, ModelElementType type) {
+    return !hasReferenceTargetType(reference) || isTypeOf(type, reference.getReferenceTargetElementType());
+  }
+
+  /**
+   * Checks whether the value of an attribute is a qualified name which references another element.
+   *
+   * @param element  the element of the attribute
+   * @param attribute  the attribute node
+   * @return true if the attribute is the source of a qualified name reference, false otherwise
+   */
+  public boolean isQNameReference(Element element, Attr attribute) {
+    TypeMetadata metadata = getTypeMetadata(element.getNamespaceURI(), getLocalName(element));
+    for (AttributeReferenceImpl<?> reference : metadata.getAttributeReferences()) {
+      if (isQNameReference(reference) && getAttributeNode(element, reference.getReferenceSourceAttribute()) == attribute) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether the text content of an element is a qualified name which references another element.
+   *
+   * @param element  the element
+   * @return true if the element is the source of a qualified name reference, false otherwise
+   */
+  public boolean hasQNameTextContent(Element element) {
+    ReferenceImpl<?> elementReference = getTypeMetadata(element.getNamespaceURI(), getLocalName(element)).getElementReference();
+    return elementReference != null && isQNameReference(elementReference);
+  }
+
+  /**
+   * Resolves the prefix of a qualified name in the scope of an element, so that names
+   * which only differ in their prefixes are equal. References are resolved by the local
+   * name within the document, so a name without prefix outside of a default namespace
+   * is resolved in the namespace of the document element.
+   *
+   * @param element  the element in whose scope the name is resolved
+   * @param qualifiedName  the qualified name
+   * @return the name as <code>{namespaceUri}localName</code> or the unchanged name if its namespace is unknown
+   */
+  public static String getExpandedName(Element element, String qualifiedName) {
+    QName name = QName.parseQName(qualifiedName);
+    String namespaceUri = element.lookupNamespaceURI(name.getQualifier());
+    if (namespaceUri == null && name.getQualifier() == null) {
+      Element documentElement = element.getOwnerDocument().getDocumentElement();
+      namespaceUri = documentElement != null ? documentElement.getNamespaceURI() : null;
+    }
+    if (namespaceUri == null) {
+      return qualifiedName;
+    }
+    else {
+      return "{" + namespaceUri + "}" + name.getLocalName();
+    }
+  }
+
+  /**
+   * Returns the attribute of an element with the name and namespace of a model attribute.
+   * Attributes in the namespace of the element and unqualified attributes are equivalent.
+   * Attributes declared in the namespace of a base type of another namespace are also
+   * found if they are unqualified in the document.
+   *
+   * @param element  the element
+   * @param attribute  the model attribute
+   * @return the attribute node or null if the element has no such attribute
+   */
+  public static Attr getAttributeNode(Element element, Attribute<?> attribute) {
+    String namespaceUri = attribute.getNamespaceUri();
+    if (namespaceUri == null || namespaceUri.equals(element.getNamespaceURI())) {
+      return element.getAttributeNodeNS(null, attribute.getAttributeName());
+    }
+    else {
+      Attr attributeNode = element.getAttributeNodeNS(namespaceUri, attribute.getAttributeName());
+      if (attributeNode == null) {
+        attributeNode = element.getAttributeNodeNS(null, attribute.getAttributeName());
+      }
+      return attributeNode;
+    }
+  }
+
+  /**
+   * Checks whether an element type is or extends another element type.
+   *
+   * @param type  the type to check
+   * @param baseType  the expected base type
+   * @return true if the type is or extends the base type, false otherwise
+   */
+  public static boolean isTypeOf(ModelElementType type, ModelElementType baseType) {
+    for (ModelElementType currentType = type; currentType != null; currentType = currentType.getBaseType()) {
+      if (currentType.equals(baseType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected static String getLocalName(Element element) {
+    String localName = element.getLocalName();
+    return localName != null ? localName : element.getNodeName();
+  }
+
+  /**
+   * The metadata of an element type including its base types.
+   */
+  public static class TypeMetadata {
+
+    protected final ModelElementTypeImpl type;
+    protected final List<Attribute<?>> idAttributes = new ArrayList<Attribute<?>>();
+    protected final List<Attribute<?>> requiredAttributes = new ArrayList<Attribute<?>>();
+    protected final List<AttributeReferenceImpl<?>> attributeReferences = new ArrayList<AttributeReferenceImpl<?>>();
+    protected ReferenceImpl<?> elementReference;
+    /** the child element collections in sequence order and their element types */
+    protected final List<ChildElementCollection<?>> childElementCollections = new ArrayList<ChildElementCollection<?>>();
+    protected final List<ModelElementType> childElementTypes = new ArrayList<ModelElementType>();
+
+    public TypeMetadata(ModelElementTypeImpl type) {
+      this.type = type;
+    }
+
+    /**
+     * @return the element type or null if the element is not part of the model
+     */
+    public ModelElementTypeImpl getType() {
+      return type;
+    }
+
+    public List<Attribute<?>> getIdAttributes() {
+      return idAttributes;
+    }
+
+    public List<Attribute<?>> getRequiredAttributes() {
+      return requiredAttributes;
+    }
+
+    public List<AttributeReferenceImpl<?>> getAttributeReferences() {
+      return attributeReferences;
+    }
+
+    /**
+     * @return the reference if the text content of the element references another element, null otherwise
+     */
+    public ReferenceImpl<?> getElementReference() {
+      return elementReference;
+    }
+
+    public List<ChildElementCollection<?>> getChildElementCollections() {
+      return childElementCollections;
+    }
+
+    public List<ModelElementType> getChildElementTypes() {
+      return childElementTypes;
+    }
+
+  }
+
+}
@@ -0,0 +1,57 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.validation;
+
+import org.camunda.bpm.model.xml.validation.ValidationError;
+import org.camunda.bpm.model.xml.validation.ValidationErrorType;
+
+public class ValidationErrorImpl implements ValidationError {
+
+  private final ValidationErrorType type;
+  private final String message;
+  private final int lineNumber;
+  private final int columnNumber;
+
+  public ValidationErrorImpl(ValidationErrorType type, String message, int lineNumber, int columnNumber) {
+    this.type = type;
+    this.message = message;
+    this.lineNumber = lineNumber;
+    this.columnNumber = columnNumber;
+  }
+
+  public ValidationErrorType getType() {
+    return type;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  public int getColumnNumber() {
+    return columnNumber;
+  }
+
+  public String toString() {
+    if (lineNumber < 0) {
+      return type + ": " + message;
+    }
+    else {
+      return type + " at line " + lineNumber + ", column " + columnNumber + ": " + message;
+    }
+  }
+
+}
@@ -0,0 +1,53 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.impl.validation;
+
+import org.camunda.bpm.model.xml.validation.ValidationError;
+import org.camunda.bpm.model.xml.validation.ValidationErrorType;
+import org.camunda.bpm.model.xml.validation.ValidationResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ValidationResultImpl implements ValidationResult {
+
+  private final List<ValidationError> errors;
+
+  public ValidationResultImpl(List<ValidationError> errors) {
+    this.errors = Collections.unmodifiableList(errors);
+  }
+
+  public boolean isValid() {
+    return errors.isEmpty();
+  }
+
+  public List<ValidationError> getErrors() {
+    return errors;
+  }
+
+  public List<ValidationError> getErrors(ValidationErrorType type) {
+    List<ValidationError> errorsOfType = new ArrayList<ValidationError>();
+    for (ValidationError error : errors) {
+      if (error.getType() == type) {
+        errorsOfType.add(error);
+      }
+    }
+    return errorsOfType;
+  }
+
+  public String toString() {
+    return errors.toString();
+  }
+
+}
@@ -0,0 +1,80 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.instance;
+
+import org.camunda.bpm.model.xml.type.ModelElementType;
+
+import java.util.List;
+
+/**
+ * A read-only view of an element of a model which is kept in a
+ * {@link org.camunda.bpm.model.xml.ModelStore}. The name, attributes and child elements
+ * are decoded from the encoded model when they are accessed, so the model instance
+ * does not have to be created to read a few of its elements.
+ */
+public interface StoredElement {
+
+  /**
+   * @return the namespace URI of the element
+   */
+  String getNamespaceURI();
+
+  /**
+   * @return the local name of the element
+   */
+  String getLocalName();
+
+  /**
+   * @return the prefix of the element
+   */
+  String getPrefix();
+
+  /**
+   * @return the model element type of the element or null if the element is not part of the model
+   */
+  ModelElementType getElementType();
+
+  /**
+   * Returns the attribute value for the attribute name.
+   *
+   * @param attributeName  the name of the attribute
+   * @return the value of the attribute or null if it is not set
+   */
+  String getAttributeValue(String attributeName);
+
+  /**
+   * Returns the attribute value for the given attribute name and namespace URI.
+   *
+   * @param namespaceUri  the namespace URI of the attribute
+   * @param attributeName  the attribute name of the attribute
+   * @return the value of the attribute or null if it is not set
+   */
+  String getAttributeValueNs(String namespaceUri, String attributeName);
+
+  /**
+   * @return the text content of the element without leading and trailing spaces
+   */
+  String getTextContent();
+
+  /**
+   * @return the parent element or null if the element is the document element
+   */
+  StoredElement getParentElement();
+
+  /**
+   * @return the child elements of the element
+   */
+  List<StoredElement> getChildElements();
+
+}
@@ -0,0 +1,77 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.metrics;
+
+import org.camunda.bpm.model.xml.type.ModelElementType;
+
+import java.util.Map;
+
+/**
+ * The memory footprint of a model instance and the statistics of its elements.
+ *
+ * @see ModelFootprints#measure(org.camunda.bpm.model.xml.ModelInstance)
+ */
+public interface ModelFootprint {
+
+  /**
+   * @return the number of parsed elements
+   */
+  int getElementCount();
+
+  /**
+   * @return the number of parsed elements per type, ordered by descending count
+   */
+  Map<ModelElementType, Integer> getElementCountsByType();
+
+  /**
+   * @return the number of parsed elements which have no type in the model
+   */
+  int getUnknownElementCount();
+
+  /**
+   * @return the number of attributes of all parsed elements, including namespace declarations
+   */
+  int getAttributeCount();
+
+  /**
+   * @return the number of bytes of all attribute values
+   */
+  long getAttributeBytes();
+
+  /**
+   * @return the number of bytes of all text nodes, comments and CDATA sections
+   */
+  long getTextBytes();
+
+  /**
+   * @return the number of elements which are currently wrapped by a model element
+   */
+  int getWrapperCount();
+
+  /**
+   * @return the number of bytes of deferred elements which were not parsed yet
+   */
+  long getDeferredBytes();
+
+  /**
+   * Returns the estimated heap size retained by the model instance. It is derived from
+   * the number of DOM nodes, model elements and characters with the approximate object
+   * sizes of a 64-bit JVM with compressed references, names and namespaces are shared
+   * by all documents and not included.
+   *
+   * @return the estimated retained size in bytes
+   */
+  long getEstimatedSize();
+
+}
@@ -0,0 +1,49 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The footprints of many model instances, e.g. the instances of a cache.
+ *
+ * @see ModelFootprints#compare(Map)
+ */
+public interface ModelFootprintComparison {
+
+  /**
+   * @return the footprints by the name of their model instances, ordered by descending estimated size
+   */
+  Map<String, ModelFootprint> getFootprints();
+
+  /**
+   * @return the sum of the estimated sizes of all model instances
+   */
+  long getTotalEstimatedSize();
+
+  /**
+   * @return the median of the estimated sizes of the model instances
+   */
+  long getMedianEstimatedSize();
+
+  /**
+   * Returns the model instances which are much larger than the others.
+   *
+   * @param factor  how many times an outlier is larger than the median
+   * @return the names of the outliers ordered by descending estimated size
+   */
+  List<String> getOutliers(double factor);
+
+}
@@ -0,0 +1,70 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.metrics;
+
+import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.metrics.ModelFootprintCalculator;
+import org.camunda.bpm.model.xml.impl.metrics.ModelFootprintComparisonImpl;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the memory footprint of model instances at runtime.
+ *
+ * <pre>
+ * ModelFootprintComparison comparison = ModelFootprints.compare(cachedModelInstances);
+ * for (String key : comparison.getOutliers(5)) {
+ *   ModelFootprint footprint = comparison.getFootprints().get(key);
+ *   ...
+ * }
+ * </pre>
+ *
+ * <p>A model instance is measured in a single pass over its DOM document, which neither
+ * parses deferred elements nor creates model elements. It must not be changed
+ * concurrently.</p>
+ */
+public final class ModelFootprints {
+
+  private ModelFootprints() {
+  }
+
+  /**
+   * Measures the footprint of a model instance.
+   *
+   * @param modelInstance  the model instance to measure
+   * @return the footprint of the model instance
+   */
+  public static ModelFootprint measure(ModelInstance modelInstance) {
+    ModelUtil.ensureInstanceOf(modelInstance, ModelInstanceImpl.class);
+    return new ModelFootprintCalculator((ModelInstanceImpl) modelInstance).calculate();
+  }
+
+  /**
+   * Measures and compares the footprints of many model instances.
+   *
+   * @param modelInstances  the model instances by a name which identifies them
+   * @return the comparison of the footprints
+   */
+  public static ModelFootprintComparison compare(Map<String, ? extends ModelInstance> modelInstances) {
+    Map<String, ModelFootprint> footprints = new LinkedHashMap<String, ModelFootprint>();
+    for (Map.Entry<String, ? extends ModelInstance> entry : modelInstances.entrySet()) {
+      footprints.put(entry.getKey(), measure(entry.getValue()));
+    }
+    return new ModelFootprintComparisonImpl(footprints);
+  }
+
+}
@@ -0,0 +1,34 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.metrics;
+
+/**
+ * Statistics of a single model instance. They are only recorded while the installed
+ * {@link ModelMetrics} are enabled.
+ *
+ * @see org.camunda.bpm.model.xml.ModelInstance#getStatistics()
+ */
+public interface ModelInstanceStatistics {
+
+  /**
+   * Returns how often the metric was recorded for the model instance. Only the metrics
+   * of operations on a model instance are recorded per instance, i.e. element wrapping,
+   * id lookups, reference updates and reference scans.
+   *
+   * @param metric  the metric
+   * @return the number of occurrences
+   */
+  long getCount(ModelMetric metric);
+
+}
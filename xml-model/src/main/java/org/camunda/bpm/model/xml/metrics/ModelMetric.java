@@ -0,0 +1,55 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.metrics;
+
+/**
+ * The stages of the model API which are recorded by {@link ModelMetrics}.
+ */
+public enum ModelMetric {
+
+  /** a document was parsed, including the schema validation during parsing */
+  PARSE(true),
+
+  /** a document was validated against the schema or the model structure after parsing */
+  VALIDATION(true),
+
+  /** a document was serialized */
+  SERIALIZATION(true),
+
+  /** a model element was created for a DOM element */
+  ELEMENT_WRAPPING(false),
+
+  /** a model element was looked up by its id */
+  ID_LOOKUP(false),
+
+  /** the references to a renamed or removed element were updated */
+  REFERENCE_UPDATE(true),
+
+  /** all elements of a referencing type were scanned for references to an element */
+  REFERENCE_SCAN(false);
+
+  private final boolean timed;
+
+  ModelMetric(boolean timed) {
+    this.timed = timed;
+  }
+
+  /**
+   * @return true if the duration of the stage is recorded, false if it is only counted
+   */
+  public boolean isTimed() {
+    return timed;
+  }
+
+}
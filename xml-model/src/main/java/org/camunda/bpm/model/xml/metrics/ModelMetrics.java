@@ -0,0 +1,42 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.metrics;
+
+/**
+ * Receives the metrics of the model API. An implementation is installed with
+ * {@link ModelMetricsRegistry#setMetrics(ModelMetrics)}, by default no metrics are
+ * recorded.
+ *
+ * <p>Metrics are recorded on the hot paths of the model API by all threads which use
+ * models, so implementations have to be thread-safe and fast.</p>
+ */
+public interface ModelMetrics {
+
+  /**
+   * Returns whether metrics are recorded. If metrics are not recorded, no durations are
+   * measured and {@link #record(ModelMetric, long)} is not called.
+   *
+   * @return true if metrics are recorded
+   */
+  boolean isEnabled();
+
+  /**
+   * Records a single occurrence of a metric.
+   *
+   * @param metric  the recorded metric
+   * @param durationNanos  the duration in nanoseconds if the metric is timed, 0 otherwise
+   */
+  void record(ModelMetric metric, long durationNanos);
+
+}
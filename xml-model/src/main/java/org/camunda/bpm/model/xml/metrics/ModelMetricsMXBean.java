@@ -0,0 +1,50 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.metrics;
+
+/**
+ * Management interface of the aggregated metrics of all models.
+ *
+ * @see org.camunda.bpm.model.xml.impl.metrics.AggregatingModelMetrics#registerMBean()
+ */
+public interface ModelMetricsMXBean {
+
+  long getParseCount();
+
+  long getParseTimeNanos();
+
+  long getValidationCount();
+
+  long getValidationTimeNanos();
+
+  long getSerializationCount();
+
+  long getSerializationTimeNanos();
+
+  long getElementWrappingCount();
+
+  long getIdLookupCount();
+
+  long getReferenceUpdateCount();
+
+  long getReferenceUpdateTimeNanos();
+
+  long getReferenceScanCount();
+
+  /**
+   * Resets all counters and timers.
+   */
+  void reset();
+
+}
@@ -0,0 +1,51 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.metrics;
+
+import org.camunda.bpm.model.xml.impl.metrics.NoopModelMetrics;
+
+/**
+ * Holds the {@link ModelMetrics} which receive the metrics of all models.
+ */
+public final class ModelMetricsRegistry {
+
+  private static volatile ModelMetrics metrics = NoopModelMetrics.INSTANCE;
+
+  private ModelMetricsRegistry() {
+  }
+
+  /**
+   * @return the installed metrics, never null
+   */
+  public static ModelMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Installs the metrics which receive the metrics of all models.
+   *
+   * @param modelMetrics  the metrics to install or null to stop recording metrics
+   */
+  public static void setMetrics(ModelMetrics modelMetrics) {
+    metrics = modelMetrics != null ? modelMetrics : NoopModelMetrics.INSTANCE;
+  }
+
+  /**
+   * @return true if the installed metrics are recorded
+   */
+  public static boolean isEnabled() {
+    return metrics.isEnabled();
+  }
+
+}
@@ -0,0 +1,40 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.validation;
+
+/**
+ * An error found while validating a model document.
+ */
+public interface ValidationError {
+
+  /**
+   * @return the kind of the error
+   */
+  ValidationErrorType getType();
+
+  /**
+   * @return the description of the error
+   */
+  String getMessage();
+
+  /**
+   * @return the line of the document the error was found at or -1 if unknown
+   */
+  int getLineNumber();
+
+  /**
+   * @return the column of the document the error was found at or -1 if unknown
+   */
+  int getColumnNumber();
+
+}
@@ -0,0 +1,38 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.validation;
+
+/**
+ * The kind of a {@link ValidationError}.
+ */
+public enum ValidationErrorType {
+
+  /** the document is not well-formed XML, validation stops at the first such error */
+  NOT_WELL_FORMED,
+
+  /** the document violates the schema of the model */
+  SCHEMA,
+
+  /** the document violates the structure defined by the element types of the model */
+  STRUCTURE,
+
+  /** an id is declared by more than one element */
+  DUPLICATE_ID,
+
+  /** a reference points to an id which is not declared in the document */
+  UNRESOLVED_REFERENCE,
+
+  /** a reference points to an element which is not of the referenced type */
+  INVALID_REFERENCE
+
+}
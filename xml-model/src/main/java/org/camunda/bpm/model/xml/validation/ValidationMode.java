@@ -0,0 +1,32 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.validation;
+
+/**
+ * The way a model document is validated when it is parsed or written.
+ */
+public enum ValidationMode {
+
+  /** the document is validated against the schema of the model */
+  SCHEMA,
+
+  /**
+   * The document is only validated against the element types of the model: the order and
+   * number of known child elements, required attributes, unique ids and the types of
+   * referenced elements. This is considerably faster than the schema validation but
+   * elements which are not part of the model are not validated, so it should only be
+   * used for documents of trusted producers.
+   */
+  STRUCTURE
+
+}
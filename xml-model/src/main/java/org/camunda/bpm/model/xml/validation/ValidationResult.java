@@ -0,0 +1,42 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.model.xml.validation;
+
+import java.util.List;
+
+/**
+ * The result of validating a model document.
+ */
+public interface ValidationResult {
+
+  /**
+   * @return true if no errors were found, false otherwise
+   */
+  boolean isValid();
+
+  /**
+   * Returns all errors ordered by their position in the document.
+   *
+   * @return the errors
+   */
+  List<ValidationError> getErrors();
+
+  /**
+   * Returns all errors of a kind.
+   *
+   * @param type  the kind of the errors
+   * @return the errors of the kind
+   */
+  List<ValidationError> getErrors(ValidationErrorType type);
+
+}
@@ -0,0 +1,226 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+import org.camunda.bpm.model.xml.event.ModelChangeEvent;
+import org.camunda.bpm.model.xml.event.ModelChangeListener;
+import org.camunda.bpm.model.xml.impl.parser.AbstractModelParser;
+import org.camunda.bpm.model.xml.testmodel.Gender;
+import org.camunda.bpm.model.xml.testmodel.TestModelParser;
+import org.camunda.bpm.model.xml.testmodel.TestModelTest;
+import org.camunda.bpm.model.xml.testmodel.instance.Animal;
+import org.camunda.bpm.model.xml.testmodel.instance.Animals;
+import org.camunda.bpm.model.xml.testmodel.instance.Bird;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.runners.Parameterized.Parameters;
+
+public class ModelInstanceBatchTest extends TestModelTest {
+
+  private Animals animals;
+  private Bird tweety;
+  private Bird daffy;
+  private Bird daisy;
+
+  public ModelInstanceBatchTest(String testName, ModelInstance testModelInstance, AbstractModelParser modelParser) {
+    super(testName, testModelInstance, modelParser);
+  }
+
+  @Parameters(name="Model {0}")
+  public static Collection<Object[]> models() {
+    Object[][] models = {createModel(), parseModel(ModelInstanceBatchTest.class)};
+    return Arrays.asList(models);
+  }
+
+  public static Object[] createModel() {
+    TestModelParser modelParser = new TestModelParser();
+    ModelInstance modelInstance = modelParser.getEmptyModel();
+
+    Animals animals = modelInstance.newInstance(Animals.class);
+    modelInstance.setDocumentElement(animals);
+
+    Bird tweety = createBird(modelInstance, "tweety", Gender.Female);
+    Bird daffy = createBird(modelInstance, "daffy", Gender.Male);
+    Bird daisy = createBird(modelInstance, "daisy", Gender.Female);
+    createBird(modelInstance, "plucky", Gender.Male);
+    createBird(modelInstance, "birdo", Gender.Female);
+    tweety.setFather(daffy);
+    tweety.setMother(daisy);
+
+    tweety.getFlightPartnerRefs().add(daffy);
+
+    return new Object[]{"created", modelInstance, modelParser};
+  }
+
+  @Before
+  public void copyModelInstance() {
+    modelInstance = cloneModelInstance();
+
+    animals = (Animals) modelInstance.getDocumentElement();
+    tweety = (Bird) modelInstance.getModelElementById("tweety");
+    daffy = (Bird) modelInstance.getModelElementById("daffy");
+    daisy = (Bird) modelInstance.getModelElementById("daisy");
+  }
+
+  @Test
+  public void testDeferredReferenceUpdates() {
+    modelInstance.batch(new Runnable() {
+      public void run() {
+        daffy.setId("duffy");
+        daffy.setId("donald");
+        daisy.setId("dizzy");
+
+        // references are updated at the end of the batch
+        assertThat(tweety.getAttributeValue("mother")).isEqualTo("daisy");
+      }
+    });
+
+    assertThat(tweety.getFather()).isEqualTo(daffy);
+    assertThat(tweety.getMother()).isEqualTo(daisy);
+    assertThat(tweety.getAttributeValue("father")).endsWith("donald");
+    assertThat(tweety.getAttributeValue("mother")).isEqualTo("dizzy");
+    assertThat(tweety.getFlightPartnerRefs()).containsOnly(daffy);
+  }
+
+  @Test
+  public void testRenameBackCancelsReferenceUpdate() {
+    modelInstance.batch(new Runnable() {
+      public void run() {
+        daffy.setId("duffy");
+        daffy.setId("daffy");
+      }
+    });
+
+    assertThat(tweety.getFather()).isEqualTo(daffy);
+    assertThat(tweety.getFlightPartnerRefs()).containsOnly(daffy);
+  }
+
+  @Test
+  public void testDeferredReferenceRemoval() {
+    modelInstance.batch(new Runnable() {
+      public void run() {
+        animals.getAnimals().remove(daffy);
+      }
+    });
+
+    assertThat(tweety.getFather()).isNull();
+    assertThat(tweety.getFlightPartnerRefs()).isEmpty();
+  }
+
+  @Test
+  public void testReusedIdentifierKeepsReferencesOfRenamedElement() {
+    modelInstance.batch(new Runnable() {
+      public void run() {
+        daffy.setId("duffy");
+        createBird(modelInstance, "daffy", Gender.Male);
+      }
+    });
+
+    assertThat(tweety.getFather()).isEqualTo(daffy);
+    assertThat(tweety.getAttributeValue("father")).endsWith("duffy");
+    assertThat(tweety.getFlightPartnerRefs()).containsOnly(daffy);
+  }
+
+  @Test
+  public void testRollback() {
+    final RuntimeException exception = new RuntimeException("migration failed");
+    try {
+      modelInstance.batch(new Runnable() {
+        public void run() {
+          tweety.setName("Tweety");
+          daisy.setId("dizzy");
+          animals.getAnimals().remove(daffy);
+          createBird(modelInstance, "donald", Gender.Male);
+          throw exception;
+        }
+      });
+      fail("exception expected");
+    }
+    catch (RuntimeException e) {
+      assertThat(e).isSameAs(exception);
+    }
+
+    assertThat(tweety.getName()).isNull();
+    assertThat(modelInstance.getModelElementById("daffy")).isEqualTo(daffy);
+    assertThat(modelInstance.getModelElementById("daisy")).isEqualTo(daisy);
+    assertThat(modelInstance.getModelElementById("dizzy")).isNull();
+    assertThat(modelInstance.getModelElementById("donald")).isNull();
+    assertThat(tweety.getFather()).isEqualTo(daffy);
+    assertThat(tweety.getMother()).isEqualTo(daisy);
+    assertThat(tweety.getFlightPartnerRefs()).containsOnly(daffy);
+
+    // the original order of the elements is restored
+    List<String> ids = new ArrayList<String>();
+    for (Animal animal : animals.getAnimals()) {
+      ids.add(animal.getId());
+    }
+    assertThat(ids).containsExactly("tweety", "daffy", "daisy", "plucky", "birdo");
+  }
+
+  @Test
+  public void testListenersAreNotifiedOnce() {
+    final List<List<ModelChangeEvent>> batches = new ArrayList<List<ModelChangeEvent>>();
+    modelInstance.addChangeListener(new ModelChangeListener() {
+      public void modelChanged(List<ModelChangeEvent> events) {
+        batches.add(events);
+      }
+    });
+
+    modelInstance.batch(new Runnable() {
+      public void run() {
+        tweety.setName("Tweety");
+        daffy.setId("duffy");
+        daisy.setId("dizzy");
+      }
+    });
+
+    assertThat(batches).hasSize(1);
+    // 3 direct changes and 3 reference updates
+    assertThat(batches.get(0)).hasSize(6);
+  }
+
+  @Test
+  public void testListenersAreNotNotifiedOnRollback() {
+    final List<List<ModelChangeEvent>> batches = new ArrayList<List<ModelChangeEvent>>();
+    modelInstance.addChangeListener(new ModelChangeListener() {
+      public void modelChanged(List<ModelChangeEvent> events) {
+        batches.add(events);
+      }
+    });
+
+    try {
+      modelInstance.batch(new Runnable() {
+        public void run() {
+          daffy.setId("duffy");
+          throw new IllegalStateException();
+        }
+      });
+      fail("exception expected");
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+
+    assertThat(batches).isEmpty();
+  }
+
+}
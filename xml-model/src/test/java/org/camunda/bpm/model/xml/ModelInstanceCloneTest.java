@@ -0,0 +1,46 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.testmodel.TestModelParser;
+import org.camunda.bpm.model.xml.testmodel.instance.Bird;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.camunda.bpm.model.xml.testmodel.TestModelConstants.MODEL_NAMESPACE;
+
+public class ModelInstanceCloneTest {
+
+  private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+    + "<animals xmlns=\"http://camunda.org/animals\">\n"
+    + "  <bird id=\"tweety\" gender=\"Female\" father=\"daffy\"/>\n"
+    + "  <bird id=\"daffy\" gender=\"Male\"/>\n"
+    + "</animals>\n";
+
+  @Test
+  public void testCloneContainsDeferredElements() {
+    ModelInstanceImpl modelInstance = (ModelInstanceImpl) new TestModelParser().parseModelFromStream(
+      new ByteArrayInputStream(XML.getBytes()), new ModelParseOptions().deferNamespace(MODEL_NAMESPACE));
+
+    ModelInstance clone = (ModelInstance) modelInstance.clone();
+
+    Bird tweety = (Bird) clone.getModelElementById("tweety");
+    assertThat(tweety).isNotNull();
+    assertThat(tweety.getFather()).isSameAs(clone.getModelElementById("daffy"));
+  }
+
+}
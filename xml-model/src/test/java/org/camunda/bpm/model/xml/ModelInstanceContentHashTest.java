@@ -0,0 +1,166 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml;
+
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.parser.AbstractModelParser;
+import org.camunda.bpm.model.xml.testmodel.Gender;
+import org.camunda.bpm.model.xml.testmodel.TestModelParser;
+import org.camunda.bpm.model.xml.testmodel.TestModelTest;
+import org.camunda.bpm.model.xml.testmodel.instance.Animals;
+import org.camunda.bpm.model.xml.testmodel.instance.Bird;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.runners.Parameterized.Parameters;
+
+public class ModelInstanceContentHashTest extends TestModelTest {
+
+  private Animals animals;
+  private Bird tweety;
+  private Bird daffy;
+  private Bird plucky;
+
+  public ModelInstanceContentHashTest(String testName, ModelInstance testModelInstance, AbstractModelParser modelParser) {
+    super(testName, testModelInstance, modelParser);
+  }
+
+  @Parameters(name="Model {0}")
+  public static Collection<Object[]> models() {
+    Object[][] models = {parseModel(ModelInstanceContentHashTest.class)};
+    return Arrays.asList(models);
+  }
+
+  @Before
+  public void copyModelInstance() {
+    modelInstance = cloneModelInstance();
+
+    animals = (Animals) modelInstance.getDocumentElement();
+    tweety = (Bird) modelInstance.getModelElementById("tweety");
+    daffy = (Bird) modelInstance.getModelElementById("daffy");
+    plucky = (Bird) modelInstance.getModelElementById("plucky");
+  }
+
+  @Test
+  public void testEqualContentHasEqualHash() {
+    ModelInstance clonedModelInstance = (ModelInstance) ((ModelInstanceImpl) modelInstance).clone();
+
+    assertThat(modelInstance.getContentHash()).hasSize(64);
+    assertThat(clonedModelInstance.getContentHash()).isEqualTo(modelInstance.getContentHash());
+    assertThat(modelInstance.getContentHash(daffy)).isNotEqualTo(modelInstance.getContentHash(plucky));
+  }
+
+  @Test
+  public void testHashIsIndependentOfPrefixesAndFormatting() {
+    ModelInstance modelInstance = parse("<animals xmlns=\"http://camunda.org/animals\"><bird id=\"tweety\" gender=\"Female\"/></animals>");
+    ModelInstance reformattedModelInstance = parse("<a:animals xmlns:a=\"http://camunda.org/animals\">\n  <a:bird gender=\"Female\" id=\"tweety\"/>\n</a:animals>");
+
+    assertThat(reformattedModelInstance.getContentHash()).isEqualTo(modelInstance.getContentHash());
+  }
+
+  @Test
+  public void testHashIsIndependentOfQNameReferencePrefixes() {
+    ModelInstance modelInstance = parse("<animals xmlns=\"http://camunda.org/animals\">"
+      + "<bird id=\"tweety\" gender=\"Female\" father=\"daffy\"><spouseRef>daffy</spouseRef></bird>"
+      + "<bird id=\"daffy\" gender=\"Male\"/></animals>");
+    ModelInstance prefixedModelInstance = parse("<a:animals xmlns:a=\"http://camunda.org/animals\">"
+      + "<a:bird id=\"tweety\" gender=\"Female\" father=\"a:daffy\"><a:spouseRef>a:daffy</a:spouseRef></a:bird>"
+      + "<a:bird id=\"daffy\" gender=\"Male\"/></a:animals>");
+    ModelInstance unprefixedModelInstance = parse("<a:animals xmlns:a=\"http://camunda.org/animals\">"
+      + "<a:bird id=\"tweety\" gender=\"Female\" father=\"daffy\"><a:spouseRef>daffy</a:spouseRef></a:bird>"
+      + "<a:bird id=\"daffy\" gender=\"Male\"/></a:animals>");
+    ModelInstance otherNamespaceModelInstance = parse("<a:animals xmlns:a=\"http://camunda.org/animals\" xmlns:b=\"http://camunda.org/other\">"
+      + "<a:bird id=\"tweety\" gender=\"Female\" father=\"b:daffy\"><a:spouseRef>a:daffy</a:spouseRef></a:bird>"
+      + "<a:bird id=\"daffy\" gender=\"Male\"/></a:animals>");
+
+    assertThat(prefixedModelInstance.getContentHash()).isEqualTo(modelInstance.getContentHash());
+    assertThat(unprefixedModelInstance.getContentHash()).isEqualTo(modelInstance.getContentHash());
+    assertThat(otherNamespaceModelInstance.getContentHash()).isNotEqualTo(modelInstance.getContentHash());
+  }
+
+  @Test
+  public void testAttributeChangeInvalidatesAncestors() {
+    String contentHash = modelInstance.getContentHash();
+    String daffyHash = modelInstance.getContentHash(daffy);
+    String tweetyHash = modelInstance.getContentHash(tweety);
+
+    tweety.setName("Tweety");
+
+    assertThat(modelInstance.getContentHash()).isNotEqualTo(contentHash);
+    assertThat(modelInstance.getContentHash(tweety)).isNotEqualTo(tweetyHash);
+    assertThat(modelInstance.getContentHash(daffy)).isEqualTo(daffyHash);
+
+    tweety.removeAttribute("name");
+
+    assertThat(modelInstance.getContentHash()).isEqualTo(contentHash);
+  }
+
+  @Test
+  public void testAddedAndRemovedElementsInvalidateAncestors() {
+    String contentHash = modelInstance.getContentHash();
+
+    Bird donald = createBird(modelInstance, "donald", Gender.Male);
+    String changedContentHash = modelInstance.getContentHash();
+    assertThat(changedContentHash).isNotEqualTo(contentHash);
+
+    animals.getAnimals().remove(donald);
+    assertThat(modelInstance.getContentHash()).isEqualTo(contentHash);
+  }
+
+  @Test
+  public void testHashDependsOnChildElementOrder() {
+    String contentHash = modelInstance.getContentHash();
+    String pluckyHash = modelInstance.getContentHash(plucky);
+
+    animals.getAnimals().remove(plucky);
+    animals.getAnimals().add(plucky);
+
+    assertThat(modelInstance.getContentHash()).isNotEqualTo(contentHash);
+    assertThat(modelInstance.getContentHash(plucky)).isEqualTo(pluckyHash);
+  }
+
+  @Test
+  public void testRollbackRestoresHash() {
+    final String contentHash = modelInstance.getContentHash();
+
+    try {
+      modelInstance.batch(new Runnable() {
+        public void run() {
+          tweety.setName("Tweety");
+          daffy.setId("duffy");
+          animals.getAnimals().remove(plucky);
+          assertThat(modelInstance.getContentHash()).isNotEqualTo(contentHash);
+          throw new IllegalStateException();
+        }
+      });
+      fail("exception expected");
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+
+    assertThat(modelInstance.getContentHash()).isEqualTo(contentHash);
+  }
+
+  protected ModelInstance parse(String xml) {
+    return new TestModelParser().parseModelFromStream(new ByteArrayInputStream(xml.getBytes()));
+  }
+
+}
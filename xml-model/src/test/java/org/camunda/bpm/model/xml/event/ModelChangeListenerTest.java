@@ -0,0 +1,184 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.model.xml.event;
+
+import org.camunda.bpm.model.xml.ModelInstance;
+import org.camunda.bpm.model.xml.impl.parser.AbstractModelParser;
+import org.camunda.bpm.model.xml.testmodel.Gender;
+import org.camunda.bpm.model.xml.testmodel.TestModelParser;
+import org.camunda.bpm.model.xml.testmodel.TestModelTest;
+import org.camunda.bpm.model.xml.testmodel.instance.Animals;
+import org.camunda.bpm.model.xml.testmodel.instance.Bird;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.runners.Parameterized.Parameters;
+
+public class ModelChangeListenerTest extends TestModelTest {
+
+  private Animals animals;
+  private Bird tweety;
+  private Bird daffy;
+  private RecordingListener listener;
+
+  public ModelChangeListenerTest(String testName, ModelInstance testModelInstance, AbstractModelParser modelParser) {
+    super(testName, testModelInstance, modelParser);
+  }
+
+  @Parameters(name="Model {0}")
+  public static Collection<Object[]> models() {
+    Object[][] models = {createModel(), parseModel(ModelChangeListenerTest.class)};
+    return Arrays.asList(models);
+  }
+
+  public static Object[] createModel() {
+    TestModelParser modelParser = new TestModelParser();
+    ModelInstance modelInstance = modelParser.getEmptyModel();
+
+    Animals animals = modelInstance.newInstance(Animals.class);
+    modelInstance.setDocumentElement(animals);
+
+    Bird tweety = createBird(modelInstance, "tweety", Gender.Female);
+    Bird daffy = createBird(modelInstance, "daffy", Gender.Male);
+    Bird daisy = createBird(modelInstance, "daisy", Gender.Female);
+    createBird(modelInstance, "plucky", Gender.Male);
+    createBird(modelInstance, "birdo", Gender.Female);
+    tweety.setFather(daffy);
+    tweety.setMother(daisy);
+
+    tweety.getFlightPartnerRefs().add(daffy);
+
+    return new Object[]{"created", modelInstance, modelParser};
+  }
+
+  @Before
+  public void copyModelInstance() {
+    modelInstance = cloneModelInstance();
+
+    animals = (Animals) modelInstance.getDocumentElement();
+    tweety = (Bird) modelInstance.getModelElementById("tweety");
+    daffy = (Bird) modelInstance.getModelElementById("daffy");
+
+    listener = new RecordingListener();
+    modelInstance.addChangeListener(listener);
+  }
+
+  @Test
+  public void testAttributeChanged() {
+    tweety.setName("Tweety");
+
+    assertThat(listener.batches).hasSize(1);
+    List<ModelChangeEvent> events = listener.batches.get(0);
+    assertThat(events).hasSize(1);
+
+    ModelChangeEvent event = events.get(0);
+    assertThat(event.getType()).isEqualTo(ModelChangeType.ATTRIBUTE_CHANGED);
+    assertThat(event.getElement()).isEqualTo(tweety);
+    assertThat(event.getAttributeName()).isEqualTo("name");
+    assertThat(event.getOldValue()).isNull();
+    assertThat(event.getNewValue()).isEqualTo("Tweety");
+  }
+
+  @Test
+  public void testIdChangeIsBatchedWithReferenceUpdates() {
+    daffy.setId("duffy");
+
+    assertThat(listener.batches).hasSize(1);
+    List<ModelChangeEvent> events = listener.batches.get(0);
+
+    ModelChangeEvent idChange = events.get(0);
+    assertThat(idChange.getType()).isEqualTo(ModelChangeType.ATTRIBUTE_CHANGED);
+    assertThat(idChange.getElement()).isEqualTo(daffy);
+    assertThat(idChange.getOldValue()).isEqualTo("daffy");
+    assertThat(idChange.getNewValue()).isEqualTo("duffy");
+
+    ModelChangeEvent fatherChange = findEvent(events, ModelChangeType.ATTRIBUTE_CHANGED, tweety);
+    assertThat(fatherChange).isNotNull();
+    assertThat(fatherChange.getAttributeName()).isEqualTo("father");
+    assertThat(fatherChange.getNewValue()).endsWith("duffy");
+
+    ModelChangeEvent flightPartnerChange = findEvent(events, ModelChangeType.TEXT_CHANGED, null);
+    assertThat(flightPartnerChange).isNotNull();
+    assertThat(flightPartnerChange.getOldValue()).isEqualTo("daffy");
+    assertThat(flightPartnerChange.getNewValue()).isEqualTo("duffy");
+  }
+
+  @Test
+  public void testElementAdded() {
+    Bird bird = modelInstance.newInstance(Bird.class);
+    bird.setId("tweety2");
+    bird.setGender(Gender.Female);
+    listener.batches.clear();
+
+    animals.getAnimals().add(bird);
+
+    assertThat(listener.batches).hasSize(1);
+    ModelChangeEvent event = listener.batches.get(0).get(0);
+    assertThat(event.getType()).isEqualTo(ModelChangeType.ELEMENT_ADDED);
+    assertThat(event.getElement()).isEqualTo(bird);
+    assertThat(event.getParentElement()).isEqualTo(animals);
+  }
+
+  @Test
+  public void testElementRemoved() {
+    animals.getAnimals().remove(daffy);
+
+    assertThat(listener.batches).hasSize(1);
+    List<ModelChangeEvent> events = listener.batches.get(0);
+
+    ModelChangeEvent removal = findEvent(events, ModelChangeType.ELEMENT_REMOVED, daffy);
+    assertThat(removal).isNotNull();
+    assertThat(removal.getParentElement()).isEqualTo(animals);
+
+    ModelChangeEvent fatherRemoval = findEvent(events, ModelChangeType.ATTRIBUTE_CHANGED, tweety);
+    assertThat(fatherRemoval).isNotNull();
+    assertThat(fatherRemoval.getNewValue()).isNull();
+  }
+
+  @Test
+  public void testRemovedListenerIsNotNotified() {
+    modelInstance.removeChangeListener(listener);
+
+    tweety.setName("Tweety");
+    daffy.setId("duffy");
+
+    assertThat(listener.batches).isEmpty();
+  }
+
+  protected ModelChangeEvent findEvent(List<ModelChangeEvent> events, ModelChangeType type, Object element) {
+    for (ModelChangeEvent event : events) {
+      if (event.getType() == type && (element == null || element.equals(event.getElement()))) {
+        return event;
+      }
+    }
+    return null;
+  }
+
+  protected static class RecordingListener implements ModelChangeListener {
+
+    protected List<List<ModelChangeEvent>> batches = new ArrayList<List<ModelChangeEvent>>();
+
+    public void modelChanged(List<ModelChangeEvent> events) {
+      batches.add(events);
+    }
+
+  }
+
+}